@@ -0,0 +1,123 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.airavata.drms.benchmarks;
+
+import org.apache.airavata.drms.api.access.AccessDecisionCache;
+import org.apache.airavata.drms.api.access.AuthorizationService;
+import org.apache.airavata.drms.api.access.LocalSharingAccessChecker;
+import org.openjdk.jmh.annotations.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Checking viewer, editor and owner access of one user on a list of resources against a local stand-in of the Custos
+ * sharing endpoint, which answers after the given latency. Checks run one at a time as handlers used to, through
+ * {@link AuthorizationService} without a decision cache, and through it with a warm cache. The number of checks
+ * reaching the endpoint is logged on setup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AccessCheckBenchmark {
+
+    private static final Logger logger = LoggerFactory.getLogger(AccessCheckBenchmark.class);
+
+    private static final String TENANT = "tenant";
+    private static final String USER = "user";
+    private static final String[] PERMISSIONS = {"VIEWER", "EDITOR", "OWNER"};
+
+    @Param({"20", "200"})
+    private int resourceCount;
+
+    @Param({"1"})
+    private long latencyMillis;
+
+    private LocalSharingAccessChecker accessChecker;
+    private AuthorizationService uncached;
+    private AuthorizationService cached;
+    private List<String> resourceIds;
+
+    @Setup
+    public void setUp() throws IOException {
+        accessChecker = new LocalSharingAccessChecker();
+        resourceIds = new ArrayList<>(resourceCount);
+        for (int i = 0; i < resourceCount; i++) {
+            String resourceId = "res-" + i;
+            resourceIds.add(resourceId);
+            // A third of the resources is not shared with the user, so that denials are checked as well
+            if (i % 3 != 2) {
+                accessChecker.grant(TENANT, USER, resourceId, PERMISSIONS[i % 3]);
+            }
+        }
+        accessChecker.setLatencyMillis(latencyMillis);
+
+        uncached = new AuthorizationService(accessChecker, new AccessDecisionCache(0, 0, 0), 16, 1000, 30);
+        cached = new AuthorizationService(accessChecker, new AccessDecisionCache(100000, 60, 10), 16, 1000, 30);
+
+        report("sequential", this::sequential);
+        report("batched", this::batched);
+        report("cached", this::cached);
+    }
+
+    @TearDown
+    public void tearDown() {
+        uncached.stop();
+        cached.stop();
+    }
+
+    @Benchmark
+    public Set<String> sequential() throws IOException {
+        Set<String> accessible = new LinkedHashSet<>();
+        for (String resourceId : resourceIds) {
+            for (String permission : PERMISSIONS) {
+                if (accessChecker.userHasAccess(TENANT, USER, resourceId, permission)) {
+                    accessible.add(resourceId);
+                    break;
+                }
+            }
+        }
+        return accessible;
+    }
+
+    @Benchmark
+    public Set<String> batched() throws IOException {
+        return uncached.filterAccessible(TENANT, USER, resourceIds, PERMISSIONS);
+    }
+
+    @Benchmark
+    public Set<String> cached() throws IOException {
+        return cached.filterAccessible(TENANT, USER, resourceIds, PERMISSIONS);
+    }
+
+    private void report(String variant, Check check) throws IOException {
+        long before = accessChecker.getChecks();
+        int accessible = check.run().size();
+        logger.info("{} finds {} of {} resources accessible with {} checks", variant, accessible, resourceCount,
+                accessChecker.getChecks() - before);
+    }
+
+    private interface Check {
+        Set<String> run() throws IOException;
+    }
+}
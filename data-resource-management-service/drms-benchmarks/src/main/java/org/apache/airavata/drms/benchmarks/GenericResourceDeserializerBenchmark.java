@@ -0,0 +1,83 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.airavata.drms.benchmarks;
+
+import org.apache.airavata.datalake.drms.resource.GenericResource;
+import org.apache.airavata.drms.core.deserializer.GenericResourceDeserializer;
+import org.neo4j.driver.Record;
+import org.neo4j.driver.internal.InternalNode;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GenericResourceDeserializerBenchmark {
+
+    private static final List<String> CHILD_KEYS = Collections.singletonList("cr:crRel");
+
+    /**
+     * Plain FILE nodes carry around 10 properties, collections with copied metadata around 40
+     */
+    @Param({"10", "40"})
+    private int propertyCount;
+
+    @Param({"1", "100"})
+    private int recordCount;
+
+    private List<Record> nodeRecords;
+    private List<Record> relationshipRecords;
+    private Set<String> projection;
+
+    @Setup
+    public void setUp() {
+        nodeRecords = new ArrayList<>(recordCount);
+        relationshipRecords = new ArrayList<>(recordCount);
+        for (int i = 0; i < recordCount; i++) {
+            InternalNode node = GraphFixtures.resourceNode("FILE", propertyCount);
+            nodeRecords.add(GraphFixtures.record(Collections.singletonList("value"), node.asValue()));
+            relationshipRecords.add(GraphFixtures.record(Arrays.asList("cr", "crRel"), node.asValue(),
+                    GraphFixtures.sharedWith(node, "VIEWER").asValue()));
+        }
+        projection = new HashSet<>(Arrays.asList("entityId", "resourceName", "owner", "permission"));
+    }
+
+    @Benchmark
+    public List<GenericResource> deserializeNodes() throws Exception {
+        return GenericResourceDeserializer.deserializeList(nodeRecords);
+    }
+
+    @Benchmark
+    public List<GenericResource> deserializeNodesIdentityOnly() throws Exception {
+        return GenericResourceDeserializer.deserializeList(nodeRecords, GenericResourceDeserializer.IDENTITY_ONLY);
+    }
+
+    @Benchmark
+    public List<GenericResource> deserializeWithPermission() throws Exception {
+        return GenericResourceDeserializer.deserializeList(relationshipRecords, CHILD_KEYS);
+    }
+
+    @Benchmark
+    public List<GenericResource> deserializeWithPermissionProjected() throws Exception {
+        return GenericResourceDeserializer.deserializeList(relationshipRecords, CHILD_KEYS, projection);
+    }
+}
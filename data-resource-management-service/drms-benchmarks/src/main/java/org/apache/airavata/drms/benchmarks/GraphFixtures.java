@@ -0,0 +1,95 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.airavata.drms.benchmarks;
+
+import org.neo4j.driver.Record;
+import org.neo4j.driver.Value;
+import org.neo4j.driver.Values;
+import org.neo4j.driver.internal.InternalNode;
+import org.neo4j.driver.internal.InternalRecord;
+import org.neo4j.driver.internal.InternalRelationship;
+
+import java.util.*;
+
+/**
+ * Builds driver records shaped like the ones returned by the resource, storage and transfer mapping queries,
+ * without a running Neo4j server
+ */
+final class GraphFixtures {
+
+    private static long nextId = 1;
+
+    private GraphFixtures() {
+    }
+
+    static InternalNode resourceNode(String label, int propertyCount) {
+        Map<String, Value> properties = new HashMap<>();
+        String entityId = UUID.randomUUID().toString();
+        properties.put("entityId", Values.value(entityId));
+        properties.put("tenantId", Values.value("custos-tenant"));
+        properties.put("resourceName", Values.value("resource-" + entityId));
+        properties.put("resourcePath", Values.value("/home/user/data/" + entityId));
+        properties.put("owner", Values.value("user@example.org"));
+        properties.put("createdTime", Values.value(System.currentTimeMillis()));
+        for (int i = properties.size(); i < propertyCount; i++) {
+            properties.put("property" + i, Values.value("value-" + i + "-" + entityId));
+        }
+        return new InternalNode(nextId++, Arrays.asList(label, "Resource"), properties);
+    }
+
+    static InternalRelationship sharedWith(InternalNode resource, String permission) {
+        Map<String, Value> properties = new HashMap<>();
+        properties.put("permission", Values.value(permission));
+        return new InternalRelationship(nextId++, resource.id(), nextId++, "SHARED_WITH", properties);
+    }
+
+    static InternalNode sshStorageNode() {
+        Map<String, Value> properties = new HashMap<>();
+        properties.put("entityId", Values.value(UUID.randomUUID().toString()));
+        properties.put("tenantId", Values.value("custos-tenant"));
+        properties.put("type", Values.value("SSH"));
+        properties.put("storageId", Values.value(UUID.randomUUID().toString()));
+        properties.put("hostName", Values.value("storage.example.org"));
+        properties.put("port", Values.value(22));
+        return new InternalNode(nextId++, Collections.singletonList("Storage"), properties);
+    }
+
+    static InternalNode sshStoragePreferenceNode() {
+        Map<String, Value> properties = new HashMap<>();
+        properties.put("entityId", Values.value(UUID.randomUUID().toString()));
+        properties.put("tenantId", Values.value("custos-tenant"));
+        properties.put("type", Values.value("SSH"));
+        properties.put("storagePreferenceId", Values.value(UUID.randomUUID().toString()));
+        properties.put("credentialToken", Values.value(UUID.randomUUID().toString()));
+        properties.put("userName", Values.value("user"));
+        properties.put("authType", Values.value("SSH_KEY"));
+        return new InternalNode(nextId++, Collections.singletonList("StoragePreference"), properties);
+    }
+
+    static InternalNode transferMappingNode() {
+        Map<String, Value> properties = new HashMap<>();
+        properties.put("entityId", Values.value(UUID.randomUUID().toString()));
+        properties.put("tenantId", Values.value("custos-tenant"));
+        properties.put("scope", Values.value("USER"));
+        properties.put("owner", Values.value("user@example.org"));
+        return new InternalNode(nextId++, Collections.singletonList("TransferMapping"), properties);
+    }
+
+    static Record record(List<String> keys, Value... values) {
+        return new InternalRecord(keys, values);
+    }
+}
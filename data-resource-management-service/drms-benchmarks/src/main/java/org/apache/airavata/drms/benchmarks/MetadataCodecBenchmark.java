@@ -0,0 +1,121 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.airavata.drms.benchmarks;
+
+import com.google.protobuf.ListValue;
+import com.google.protobuf.Struct;
+import com.google.protobuf.Value;
+import org.apache.airavata.drms.core.metadata.MetadataCodec;
+import org.apache.airavata.drms.core.metadata.MetadataCodecs;
+import org.apache.airavata.drms.core.metadata.MetadataDocument;
+import org.openjdk.jmh.annotations.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encoding and decoding cost of a FULL_METADATA_NODE document per codec. The stored size of the document is logged
+ * on setup, as it is what the codec is chosen for.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MetadataCodecBenchmark {
+
+    private static final Logger logger = LoggerFactory.getLogger(MetadataCodecBenchmark.class);
+
+    @Param({"json", "json-gzip", "struct-gzip"})
+    private String codecName;
+
+    /**
+     * Instrument metadata documents range from a handful of keys to a few hundred
+     */
+    @Param({"10", "200"})
+    private int keyCount;
+
+    private MetadataCodec codec;
+    private Struct document;
+    private MetadataDocument stored;
+    private List<String> oneKey;
+
+    @Setup
+    public void setUp() throws Exception {
+        codec = MetadataCodecs.of(codecName);
+        Struct.Builder builder = Struct.newBuilder();
+        for (int i = 0; i < keyCount; i++) {
+            builder.putFields("key" + i, entry(i));
+        }
+        document = builder.build();
+
+        Map<String, Object> properties = new HashMap<>();
+        long storedBytes = 0;
+        for (Map.Entry<String, Value> field : document.getFieldsMap().entrySet()) {
+            Object encoded = codec.encode(field.getValue());
+            storedBytes += encoded instanceof byte[] ? ((byte[]) encoded).length
+                    : encoded.toString().getBytes(StandardCharsets.UTF_8).length;
+            properties.put(MetadataDocument.ENTRY_PREFIX + field.getKey(), encoded);
+        }
+        properties.put(MetadataDocument.VERSION, 1L);
+        properties.put(MetadataDocument.CODEC, codecName);
+        stored = new MetadataDocument(0, properties);
+        oneKey = Collections.singletonList("key0");
+        logger.info("{} stores {} keys in {} bytes", codecName, keyCount, storedBytes);
+    }
+
+    @Benchmark
+    public Map<String, Object> encode() throws Exception {
+        Map<String, Object> entries = new HashMap<>();
+        for (Map.Entry<String, Value> field : document.getFieldsMap().entrySet()) {
+            entries.put(MetadataDocument.ENTRY_PREFIX + field.getKey(), codec.encode(field.getValue()));
+        }
+        return entries;
+    }
+
+    @Benchmark
+    public Struct decodeDocument() throws Exception {
+        return stored.toStruct(Collections.emptyList());
+    }
+
+    @Benchmark
+    public Struct decodeOneKey() throws Exception {
+        return stored.toStruct(oneKey);
+    }
+
+    private static Value entry(int index) {
+        Struct.Builder entry = Struct.newBuilder()
+                .putFields("name", string("instrument-parameter-" + index))
+                .putFields("unit", string(index % 2 == 0 ? "nm" : "K"))
+                .putFields("value", Value.newBuilder().setNumberValue(index * 1.5).build())
+                .putFields("calibrated", Value.newBuilder().setBoolValue(index % 3 == 0).build());
+        ListValue.Builder samples = ListValue.newBuilder();
+        for (int i = 0; i < 8; i++) {
+            samples.addValues(Value.newBuilder().setNumberValue(index + i / 10.0));
+        }
+        entry.putFields("samples", Value.newBuilder().setListValue(samples).build());
+        return Value.newBuilder().setStructValue(entry).build();
+    }
+
+    private static Value string(String value) {
+        return Value.newBuilder().setStringValue(value).build();
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.airavata.drms.benchmarks;
+
+import org.apache.airavata.drms.api.persistance.model.Resource;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.springframework.data.jpa.repository.support.JpaRepositoryFactory;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.util.Properties;
+
+/**
+ * An in memory H2 database with the drms-rdbms-impl schema, and Spring Data repositories over it which, like the
+ * server outside of a transaction, use a new entity manager per call
+ */
+class RdbmsFixtures implements AutoCloseable {
+
+    private final EntityManagerFactory entityManagerFactory;
+    private final JpaRepositoryFactory repositoryFactory;
+
+    RdbmsFixtures(String databaseName) {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:" + databaseName + ";DB_CLOSE_DELAY=-1", "sa", "");
+        dataSource.setDriverClassName("org.h2.Driver");
+
+        Properties jpaProperties = new Properties();
+        jpaProperties.setProperty("hibernate.hbm2ddl.auto", "create-drop");
+        jpaProperties.setProperty("hibernate.dialect", "org.hibernate.dialect.H2Dialect");
+        jpaProperties.setProperty("hibernate.generate_statistics", "true");
+        jpaProperties.setProperty("hibernate.physical_naming_strategy",
+                "org.hibernate.boot.model.naming.PhysicalNamingStrategyStandardImpl");
+
+        LocalContainerEntityManagerFactoryBean factoryBean = new LocalContainerEntityManagerFactoryBean();
+        factoryBean.setDataSource(dataSource);
+        factoryBean.setPackagesToScan(Resource.class.getPackage().getName());
+        factoryBean.setJpaVendorAdapter(new HibernateJpaVendorAdapter());
+        factoryBean.setJpaProperties(jpaProperties);
+        factoryBean.afterPropertiesSet();
+        entityManagerFactory = factoryBean.getObject();
+        repositoryFactory = new JpaRepositoryFactory(
+                SharedEntityManagerCreator.createSharedEntityManager(entityManagerFactory));
+    }
+
+    <T> T repository(Class<T> repositoryInterface) {
+        return repositoryFactory.getRepository(repositoryInterface);
+    }
+
+    /**
+     * Stores resources res-0 to res-(count - 1) of the given type under one parent, each with propertyCount
+     * properties besides resourcePath, and with a status property alternating between ready and pending
+     */
+    void createResources(int count, String type, int propertyCount) {
+        EntityManager entityManager = entityManagerFactory.createEntityManager();
+        try {
+            entityManager.getTransaction().begin();
+            for (int i = 0; i < count; i++) {
+                Resource resource = new Resource();
+                resource.setId("res-" + i);
+                resource.setTenantId("tenant");
+                resource.setParentResourceId("parent");
+                resource.setResourceType(type);
+                resource.setProperty("resourcePath", "/data/parent/res-" + i);
+                resource.setProperty("status", i % 2 == 0 ? "ready" : "pending");
+                for (int p = 0; p < propertyCount; p++) {
+                    resource.setProperty("key" + p, "value-" + i + "-" + p);
+                }
+                entityManager.persist(resource);
+                if (i % 100 == 99) {
+                    entityManager.flush();
+                    entityManager.clear();
+                }
+            }
+            entityManager.getTransaction().commit();
+        } finally {
+            entityManager.close();
+        }
+    }
+
+    Statistics statistics() {
+        return entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Override
+    public void close() {
+        entityManagerFactory.close();
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.airavata.drms.benchmarks;
+
+import org.apache.airavata.drms.api.persistance.loader.ResourceBatchLoader;
+import org.apache.airavata.drms.api.persistance.model.Resource;
+import org.apache.airavata.drms.api.persistance.projection.ResourceView;
+import org.apache.airavata.drms.api.persistance.repository.ResourceRepository;
+import org.openjdk.jmh.annotations.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Loading the resources of a Custos search hit list from the RDBMS store, as entities per hit as searchResource
+ * used to and as views through {@link ResourceBatchLoader}, with and without a property filter. The number of SQL
+ * statements each variant issues is logged on setup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ResourceHydrationBenchmark {
+
+    private static final Logger logger = LoggerFactory.getLogger(ResourceHydrationBenchmark.class);
+
+    private static final String TYPE = "FILE";
+
+    @Param({"50", "500"})
+    private int hitCount;
+
+    /**
+     * Properties per resource besides resourcePath and status
+     */
+    @Param({"10"})
+    private int propertyCount;
+
+    private RdbmsFixtures fixtures;
+    private ResourceRepository resourceRepository;
+    private ResourceBatchLoader batchLoader;
+    private List<String> hitIds;
+
+    @Setup
+    public void setUp() {
+        fixtures = new RdbmsFixtures("hydration-" + hitCount);
+        fixtures.createResources(hitCount * 2, TYPE, propertyCount);
+        resourceRepository = fixtures.repository(ResourceRepository.class);
+        batchLoader = new ResourceBatchLoader(resourceRepository, 500);
+
+        hitIds = new ArrayList<>(hitCount);
+        for (int i = 0; i < hitCount; i++) {
+            hitIds.add("res-" + (i * 2 + i % 2));
+        }
+        Collections.shuffle(hitIds, new Random(42));
+
+        report("perHit", this::perHit);
+        report("batched", this::batched);
+        report("perHitFiltered", this::perHitFiltered);
+        report("batchedFiltered", this::batchedFiltered);
+    }
+
+    @TearDown
+    public void tearDown() {
+        fixtures.close();
+    }
+
+    @Benchmark
+    public List<Resource> perHit() {
+        List<Resource> resources = new ArrayList<>(hitIds.size());
+        for (String id : hitIds) {
+            resourceRepository.findById(id).ifPresent(resources::add);
+        }
+        return resources;
+    }
+
+    @Benchmark
+    public List<ResourceView> batched() {
+        return new ArrayList<>(batchLoader.load(hitIds).values());
+    }
+
+    @Benchmark
+    public List<Resource> perHitFiltered() {
+        List<Resource> resources = new ArrayList<>();
+        for (String id : hitIds) {
+            resourceRepository.findById(id).filter(resource -> "ready".equals(resource.getProperty("status")))
+                    .ifPresent(resources::add);
+        }
+        return resources;
+    }
+
+    @Benchmark
+    public List<ResourceView> batchedFiltered() {
+        List<ResourceView> resources = new ArrayList<>();
+        for (ResourceView resource : batchLoader.load(hitIds).values()) {
+            if ("ready".equals(resource.getProperty("status"))) {
+                resources.add(resource);
+            }
+        }
+        return resources;
+    }
+
+    private void report(String variant, Supplier<List<?>> load) {
+        fixtures.statistics().clear();
+        int loaded = load.get().size();
+        logger.info("{} loads {} of {} hits with {} statements", variant, loaded, hitCount,
+                fixtures.statistics().getPrepareStatementCount());
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.airavata.drms.benchmarks;
+
+import org.apache.airavata.datalake.drms.storage.AnyStorage;
+import org.apache.airavata.datalake.drms.storage.AnyStoragePreference;
+import org.apache.airavata.datalake.drms.storage.TransferMapping;
+import org.apache.airavata.drms.core.deserializer.AnyStorageDeserializer;
+import org.apache.airavata.drms.core.deserializer.AnyStoragePreferenceDeserializer;
+import org.apache.airavata.drms.core.deserializer.TransferMappingDeserializer;
+import org.neo4j.driver.Record;
+import org.neo4j.driver.internal.InternalNode;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StorageDeserializerBenchmark {
+
+    private static final List<String> PREFERENCE_KEYS = Collections.singletonList("s:sp");
+
+    @Param({"1", "50"})
+    private int recordCount;
+
+    private List<Record> storageRecords;
+    private List<Record> preferenceRecords;
+    private List<Record> transferMappingRecords;
+
+    @Setup
+    public void setUp() {
+        storageRecords = new ArrayList<>(recordCount);
+        preferenceRecords = new ArrayList<>(recordCount);
+        transferMappingRecords = new ArrayList<>(recordCount);
+        for (int i = 0; i < recordCount; i++) {
+            InternalNode storage = GraphFixtures.sshStorageNode();
+            InternalNode destination = GraphFixtures.sshStorageNode();
+            storageRecords.add(GraphFixtures.record(Collections.singletonList("s"), storage.asValue()));
+            preferenceRecords.add(GraphFixtures.record(Arrays.asList("s", "sp"), storage.asValue(),
+                    GraphFixtures.sshStoragePreferenceNode().asValue()));
+            transferMappingRecords.add(GraphFixtures.record(Arrays.asList("src", "dst", "t"), storage.asValue(),
+                    destination.asValue(), GraphFixtures.transferMappingNode().asValue()));
+        }
+    }
+
+    @Benchmark
+    public List<AnyStorage> deserializeStorages() throws Exception {
+        return AnyStorageDeserializer.deserializeList(storageRecords);
+    }
+
+    @Benchmark
+    public List<AnyStoragePreference> deserializeStoragePreferences() throws Exception {
+        return AnyStoragePreferenceDeserializer.deserializeList(preferenceRecords, PREFERENCE_KEYS);
+    }
+
+    @Benchmark
+    public List<TransferMapping> deserializeTransferMappings() throws Exception {
+        return TransferMappingDeserializer.deserializeList(transferMappingRecords);
+    }
+}
@@ -16,160 +16,468 @@
  */
 package org.apache.airavata.drms.core;
 
+import org.apache.airavata.drms.core.bulk.NodeDescriptor;
+import org.apache.airavata.drms.core.connection.Neo4JConnectionConfig;
+import org.apache.airavata.drms.core.connection.Neo4JConnectionManager;
+import org.apache.airavata.drms.core.connection.Neo4JPoolMetrics;
+import org.apache.airavata.drms.core.connection.Neo4JRecordPublisher;
+import org.apache.airavata.drms.core.constants.ResourceConstants;
+import org.apache.airavata.drms.core.profiling.QueryProfiler;
+import org.apache.airavata.drms.core.profiling.QueryStats;
+import org.apache.airavata.drms.core.query.CypherTemplates;
+import org.apache.airavata.drms.core.query.NodeLabel;
+import org.apache.airavata.drms.core.query.QueryTemplate;
+import org.apache.airavata.drms.core.query.QueryTemplateRegistry;
 import org.neo4j.driver.*;
+import org.neo4j.driver.summary.ResultSummary;
+import org.reactivestreams.Publisher;
 
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import java.util.*;
+import java.util.function.Function;
 
-public class Neo4JConnector {
+public class Neo4JConnector implements AutoCloseable {
 
-    private String uri;
-    private String userName;
-    private String password;
+    public static final int DEFAULT_BULK_BATCH_SIZE = 1000;
 
-    private Driver driver;
+    private Neo4JConnectionManager connectionManager;
+    private final QueryTemplateRegistry queryTemplateRegistry = new QueryTemplateRegistry();
+    private final QueryProfiler queryProfiler = new QueryProfiler(this::profile);
 
     public Neo4JConnector() {
     }
 
     public Neo4JConnector(String uri, String userName, String password) {
-        this.uri = uri;
-        this.userName = userName;
-        this.password = password;
-        this.driver = GraphDatabase.driver(uri, AuthTokens.basic(userName, password));
+        this(new Neo4JConnectionConfig(uri, userName, password));
+    }
+
+    public Neo4JConnector(Neo4JConnectionConfig connectionConfig) {
+        this.connectionManager = new Neo4JConnectionManager(connectionConfig);
     }
 
 
     public synchronized Session resume() {
-        this.driver = GraphDatabase.driver(uri, AuthTokens.basic(userName, password));
-        return driver.session();
+        connectionManager.rebuild();
+        return connectionManager.session();
     }
 
     public void init(String uri, String userName, String password) {
-        this.uri = uri;
-        this.userName = userName;
-        this.password = password;
-        this.driver = GraphDatabase.driver(uri, AuthTokens.basic(userName, password));
+        init(new Neo4JConnectionConfig(uri, userName, password));
     }
 
-    public List<Record> searchNodes(String query) {
-        driver.verifyConnectivity();
-        try (Session session = driver.session()) {
-            Result result = session.run(query);
-            return result.list();
+    public synchronized void init(Neo4JConnectionConfig connectionConfig) {
+        if (this.connectionManager != null) {
+            this.connectionManager.close();
         }
+        this.connectionManager = new Neo4JConnectionManager(connectionConfig);
+    }
+
+    public List<Record> searchNodes(String query) {
+        return search(null, Collections.emptyMap(), query);
     }
 
     public List<Record> searchNodes(Map<String, Object> properties, String query) {
-        driver.verifyConnectivity();
-        try (Session session = driver.session()) {
-            Result result = session.run(query, properties);
-            return result.list();
-        }
+        return search(null, properties, query);
+    }
+
+    public List<Record> searchNodes(QueryTemplate template, Map<String, Object> parameters, NodeLabel... labels) {
+        return search(template.getName(), parameters, render(template, labels));
+    }
+
+    /**
+     * Renders a registered template with the given labels. Callers that need the statement text, for example to
+     * stream it, should go through here so plan cache usage is accounted for.
+     */
+    public String render(QueryTemplate template, NodeLabel... labels) {
+        return queryTemplateRegistry.render(template, labels);
+    }
+
+    /**
+     * Reactive variant of {@link #searchNodes(Map, String)}. Nothing is executed until the returned publisher is
+     * subscribed, and records are pulled from the server only as fast as the subscriber requests them.
+     */
+    public Publisher<Record> streamNodes(Map<String, Object> properties, String query) {
+        return new Neo4JRecordPublisher(connectionManager, query, properties);
     }
 
     public void mergeNode(Map<String, Object> properties, String label, String userId, String entityId,
                           String tenantId) {
-        driver.verifyConnectivity();
-        try (Session session = driver.session()) {
+        mergeNode(properties, label, userId, entityId, tenantId, null);
+    }
+
+    /**
+     * @param expectedVersion when set, the node is only written if its resourceVersion still is this value, 0
+     *                        standing for a node which does not exist or was never versioned
+     * @return whether the node was written
+     */
+    public boolean mergeNode(Map<String, Object> properties, String label, String userId, String entityId,
+                             String tenantId, Long expectedVersion) {
+        return execute(session -> {
             Map<String, Object> parameters = new HashMap<>();
             properties.put("entityId", entityId);
             properties.put("tenantId", tenantId);
+            properties.remove(ResourceConstants.RESOURCE_VERSION);
             parameters.put("props", properties);
             parameters.put("username", userId);
             parameters.put("entityId", entityId);
             parameters.put("tenantId", tenantId);
-            Transaction tx = session.beginTransaction();
-            tx.run("MATCH (u:User)  where u.username = $username AND  u.tenantId = $tenantId " +
-                    " MERGE (n:" + label + " {entityId: $entityId,tenantId: $tenantId}) ON MATCH  SET n += $props ON CREATE SET n += $props" +
-                    " MERGE (n)-[r2:SHARED_WITH {permission:'OWNER'}]->(u) return n", parameters);
-            tx.commit();
-            tx.close();
-        }
+            parameters.put("expectedVersion", expectedVersion);
+            String query = "MATCH (u:User)  where u.username = $username AND  u.tenantId = $tenantId " +
+                    (expectedVersion == null ? "" : expectedVersionClause(label, "entityId")) +
+                    " MERGE (n:" + NodeLabel.quote(label) + " {entityId: $entityId,tenantId: $tenantId}) ON MATCH  SET n += $props ON CREATE SET n += $props" +
+                    resourceLabelClause("n", label) +
+                    resourceVersionClause("n", label) +
+                    " MERGE (n)-[r2:SHARED_WITH {permission:'OWNER'}]->(u) return n";
+            return !write(session, "mergeNode", query, parameters).isEmpty();
+        });
     }
 
     public void mergeNodesWithParentChildRelationShip(Map<String, Object> childProperties, Map<String, Object> parentProperties,
                                                       String childLabel, String parentLablel, String userId, String childEntityId,
                                                       String parentEntityId,
                                                       String tenantId) {
-        driver.verifyConnectivity();
-        try (Session session = driver.session()) {
+        mergeNodesWithParentChildRelationShip(childProperties, parentProperties, childLabel, parentLablel, userId,
+                childEntityId, parentEntityId, tenantId, null);
+    }
+
+    /**
+     * @param expectedVersion when set, nothing is written unless the child is still at this resourceVersion, see
+     *                        {@link #mergeNode(Map, String, String, String, String, Long)}
+     * @return whether the nodes were written
+     */
+    public boolean mergeNodesWithParentChildRelationShip(Map<String, Object> childProperties,
+                                                         Map<String, Object> parentProperties, String childLabel,
+                                                         String parentLablel, String userId, String childEntityId,
+                                                         String parentEntityId, String tenantId,
+                                                         Long expectedVersion) {
+        return execute(session -> {
             Map<String, Object> parameters = new HashMap<>();
             childProperties.put("childEntityId", childEntityId);
             childProperties.put("tenantId", tenantId);
+            childProperties.remove(ResourceConstants.RESOURCE_VERSION);
             parentProperties.put("parentEntityId", parentEntityId);
             parentProperties.put("tenantId", tenantId);
+            parentProperties.remove(ResourceConstants.RESOURCE_VERSION);
             parameters.put("childProps", childProperties);
             parameters.put("parentProps", parentProperties);
             parameters.put("username", userId);
             parameters.put("childEntityId", childEntityId);
             parameters.put("parentEntityId", parentEntityId);
             parameters.put("tenantId", tenantId);
-            Transaction tx = session.beginTransaction();
-            tx.run("MATCH (u:User)  where u.username = $username AND  u.tenantId = $tenantId " +
-                    " MERGE (p:" + parentLablel + " {entityId: $parentEntityId,tenantId: $tenantId}) ON MATCH  SET p += $parentProps ON CREATE SET p += $parentProps" +
-                    " MERGE (c:" + childLabel + " {entityId: $childEntityId,tenantId: $tenantId}) ON MATCH  SET c += $childProps ON CREATE SET c += $childProps" +
+            parameters.put("expectedVersion", expectedVersion);
+            String query = "MATCH (u:User)  where u.username = $username AND  u.tenantId = $tenantId " +
+                    (expectedVersion == null ? "" : expectedVersionClause(childLabel, "childEntityId")) +
+                    " MERGE (p:" + NodeLabel.quote(parentLablel) + " {entityId: $parentEntityId,tenantId: $tenantId}) ON MATCH  SET p += $parentProps ON CREATE SET p += $parentProps" +
+                    resourceLabelClause("p", parentLablel) +
+                    " MERGE (c:" + NodeLabel.quote(childLabel) + " {entityId: $childEntityId,tenantId: $tenantId}) ON MATCH  SET c += $childProps ON CREATE SET c += $childProps" +
+                    resourceLabelClause("c", childLabel) +
+                    resourceVersionClause("c", childLabel) +
                     " MERGE (c)-[:SHARED_WITH {permission:'OWNER'}]->(u)" +
                     " MERGE (p)-[:SHARED_WITH {permission:'OWNER'}]->(u)" +
-                    " MERGE (c)-[:CHILD_OF]->(p) return c", parameters);
-            tx.commit();
-            tx.close();
+                    " MERGE (c)-[:CHILD_OF]->(p) return c";
+            return !write(session, "mergeNodesWithParent", query, parameters).isEmpty();
+        });
+    }
+
+    /**
+     * Upserts a resource node, under its parent when the descriptor has one, and returns it as written so callers
+     * do not have to read it back. The record also holds the properties the node had before the write, which
+     * {@link #restoreResourceNode(String, String, String, Map, long)} takes to undo it.
+     *
+     * @param createProperties properties only set when the node is created
+     * @param expectedVersion  see {@link #mergeNode(Map, String, String, String, String, Long)}
+     * @return a record of the written node n and its previous properties, null if it was created, or empty when
+     * the node was not at the expected version
+     */
+    public Optional<Record> mergeResourceNode(NodeDescriptor node, Map<String, Object> createProperties,
+                                              String userId, String tenantId, Long expectedVersion) {
+        return execute(session -> {
+            Map<String, Object> properties = new HashMap<>(node.getProperties());
+            properties.put("entityId", node.getEntityId());
+            properties.put("tenantId", tenantId);
+            properties.remove(ResourceConstants.RESOURCE_VERSION);
+            Map<String, Object> parameters = new HashMap<>();
+            parameters.put("props", properties);
+            parameters.put("createProps", createProperties);
+            parameters.put("username", userId);
+            parameters.put("entityId", node.getEntityId());
+            parameters.put("parentEntityId", node.getParentEntityId());
+            parameters.put("tenantId", tenantId);
+            parameters.put("expectedVersion", expectedVersion);
+            String label = node.getLabel();
+            String query = "MATCH (u:User)  where u.username = $username AND  u.tenantId = $tenantId " +
+                    (expectedVersion == null ? "" : expectedVersionClause(label, "entityId")) +
+                    " OPTIONAL MATCH (before:" + NodeLabel.quote(label) + " {entityId: $entityId, tenantId: $tenantId})" +
+                    " WITH u, properties(before) AS previous" +
+                    (node.hasParent() ? " MERGE (p:" + NodeLabel.quote(node.getParentLabel()) +
+                            " {entityId: $parentEntityId, tenantId: $tenantId})" +
+                            resourceLabelClause("p", node.getParentLabel()) : "") +
+                    " MERGE (n:" + NodeLabel.quote(label) + " {entityId: $entityId, tenantId: $tenantId})" +
+                    " ON CREATE SET n += $createProps SET n += $props" +
+                    resourceLabelClause("n", label) +
+                    resourceVersionClause("n", label) +
+                    " MERGE (n)-[:SHARED_WITH {permission:'OWNER'}]->(u)" +
+                    (node.hasParent() ? " MERGE (p)-[:SHARED_WITH {permission:'OWNER'}]->(u)" +
+                            " MERGE (n)-[:CHILD_OF]->(p)" : "") +
+                    " RETURN n, previous";
+            List<Record> records = write(session, node.hasParent() ? "mergeResourceNodeWithParent" :
+                    "mergeResourceNode", query, parameters);
+            return records.isEmpty() ? Optional.<Record>empty() : Optional.of(records.get(0));
+        });
+    }
+
+    /**
+     * Undoes {@link #mergeResourceNode}: deletes the node when the write created it, otherwise puts its previous
+     * properties back under a new resourceVersion. Edges merged by the write are kept. Nothing is changed if the
+     * node was written again since.
+     *
+     * @param previous       properties of the node before the write, null if the write created it
+     * @param writtenVersion resourceVersion the write left the node at
+     * @return whether the node was restored
+     */
+    public boolean restoreResourceNode(String label, String entityId, String tenantId, Map<String, Object> previous,
+                                       long writtenVersion) {
+        return execute(session -> {
+            Map<String, Object> parameters = new HashMap<>();
+            parameters.put("entityId", entityId);
+            parameters.put("tenantId", tenantId);
+            parameters.put("previous", previous);
+            parameters.put("writtenVersion", writtenVersion);
+            String version = "n." + ResourceConstants.RESOURCE_VERSION;
+            String query = "MATCH (n:" + NodeLabel.quote(label) + " {entityId: $entityId, tenantId: $tenantId})" +
+                    " WHERE coalesce(" + version + ", 0) = $writtenVersion" +
+                    (previous == null ? " DETACH DELETE n RETURN $entityId AS entityId" :
+                            " SET n = $previous SET " + version + " = $writtenVersion + 1 RETURN n.entityId AS entityId");
+            return !write(session, "restoreResourceNode", query, parameters).isEmpty();
+        });
+    }
+
+
+    public List<String> mergeNodes(List<NodeDescriptor> nodes, String userId, String tenantId) {
+        return mergeNodes(nodes, userId, tenantId, DEFAULT_BULK_BATCH_SIZE);
+    }
+
+    /**
+     * Upserts the given nodes with UNWIND, committing one transaction per batchSize rows. Labels can not be
+     * parameterised, so nodes are grouped by (label, parent label) and each group is written with its own statement.
+     * Groups are written in the order they first appear, so parents listed before their children are created first.
+     *
+     * @return entity ids of the merged nodes, in the order the nodes were given
+     */
+    public List<String> mergeNodes(List<NodeDescriptor> nodes, String userId, String tenantId, int batchSize) {
+        Map<String, List<NodeDescriptor>> groups = new LinkedHashMap<>();
+        for (NodeDescriptor node : nodes) {
+            String key = node.getLabel() + ":" + (node.hasParent() ? node.getParentLabel() : "");
+            groups.computeIfAbsent(key, k -> new ArrayList<>()).add(node);
         }
+
+        Set<String> mergedIds = new HashSet<>();
+        execute(session -> {
+            for (List<NodeDescriptor> group : groups.values()) {
+                NodeDescriptor first = group.get(0);
+                String query = first.hasParent() ?
+                        bulkMergeWithParentQuery(first.getLabel(), first.getParentLabel()) :
+                        bulkMergeQuery(first.getLabel());
+
+                for (int from = 0; from < group.size(); from += batchSize) {
+                    List<Map<String, Object>> rows = new ArrayList<>();
+                    for (NodeDescriptor node : group.subList(from, Math.min(from + batchSize, group.size()))) {
+                        Map<String, Object> properties = new HashMap<>(node.getProperties());
+                        properties.remove(ResourceConstants.RESOURCE_VERSION);
+                        properties.put("entityId", node.getEntityId());
+                        properties.put("tenantId", tenantId);
+                        Map<String, Object> row = new HashMap<>();
+                        row.put("entityId", node.getEntityId());
+                        row.put("parentEntityId", node.getParentEntityId());
+                        row.put("props", properties);
+                        rows.add(row);
+                    }
+                    Map<String, Object> parameters = new HashMap<>();
+                    parameters.put("rows", rows);
+                    parameters.put("username", userId);
+                    parameters.put("tenantId", tenantId);
+
+                    List<Record> records = write(session, "mergeNodes", query, parameters);
+                    records.forEach(record -> mergedIds.add(record.get("entityId").asString()));
+                }
+            }
+            return null;
+        });
+        List<String> orderedIds = new ArrayList<>(mergedIds.size());
+        for (NodeDescriptor node : nodes) {
+            if (mergedIds.contains(node.getEntityId())) {
+                orderedIds.add(node.getEntityId());
+            }
+        }
+        return orderedIds;
     }
 
 
     public void deleteNode(String label, String entityId,
                            String tenantId) {
-        driver.verifyConnectivity();
-        try (Session session = driver.session()) {
+        execute(session -> {
             Map<String, Object> parameters = new HashMap<>();
             parameters.put("entityId", entityId);
             parameters.put("tenantId", tenantId);
-            Transaction tx = session.beginTransaction();
-            tx.run("MATCH (n:" + label + ") where n.entityId= $entityId AND n.tenantId= $tenantId detach delete n", parameters);
-            tx.commit();
-            tx.close();
-        }
+            return write(session, "deleteNode",
+                    "MATCH (n:" + NodeLabel.quote(label) + ") where n.entityId= $entityId AND n.tenantId= $tenantId detach delete n",
+                    parameters);
+        });
     }
 
-    public void runTransactionalQuery(Map<String, Object> parameters, String query) {
-        driver.verifyConnectivity();
-        try (Session session = driver.session()) {
-            Transaction tx = session.beginTransaction();
-            Result result = tx.run(query, parameters);
-            tx.commit();
-            tx.close();
-        }
+    /**
+     * Runs a write in an explicit transaction and returns the records it produced once committed. Writes never go
+     * through {@link #searchNodes}, whose statements may be run again to capture their plan.
+     */
+    public List<Record> runTransactionalQuery(Map<String, Object> parameters, String query) {
+        return execute(session -> write(session, null, query, parameters));
     }
 
+    /**
+     * Runs a write template in an explicit transaction and returns the records it produced once committed
+     */
+    public List<Record> runTransactionalQuery(QueryTemplate template, Map<String, Object> parameters,
+                                              NodeLabel... labels) {
+        String query = render(template, labels);
+        return execute(session -> write(session, template.getName(), query, parameters));
+    }
 
     public void runTransactionalQuery(String query) {
-        driver.verifyConnectivity();
-        try (Session session = driver.session()) {
-            Transaction tx = session.beginTransaction();
-            Result result = tx.run(query);
-            tx.commit();
-            tx.close();
-        }
+        execute(session -> write(session, null, query, Collections.emptyMap()));
     }
 
     public void createMetadataNode(String parentLabel, String parentIdName, String parentIdValue,
                                    String userId, String key, String value) {
-        driver.verifyConnectivity();
-        try(Session session = driver.session()) {
-            Transaction tx = session.beginTransaction();
-            tx.run("match (u:User)-[r1:MEMBER_OF]->(g:Group)<-[r2:SHARED_WITH]-(s:" + parentLabel + ") where u.userId='" + userId +
-                    "' and s." + parentIdName + "='" + parentIdValue +
-                    "' merge (m:Metadata)<-[r3:HAS_METADATA]-(s) set m." + key + "='" + value + "' return m");
+        Map<String, Object> props = new HashMap<>();
+        props.put(key, value);
+        Map<String, Object> parameters = new HashMap<>();
+        parameters.put("userId", userId);
+        parameters.put("parentIdName", parentIdName);
+        parameters.put("parentIdValue", parentIdValue);
+        parameters.put("props", props);
+        runTransactionalQuery(parameters, render(CypherTemplates.CREATE_METADATA_NODE, NodeLabel.of(parentLabel)));
+    }
+
+    /**
+     * Reports the last known liveness state from the background probe. Does not touch the network.
+     */
+    public boolean isOpen() {
+        return connectionManager != null && connectionManager.isHealthy();
+    }
+
+    public Neo4JPoolMetrics getPoolMetrics() {
+        return connectionManager.getMetrics();
+    }
+
+    public QueryTemplateRegistry getQueryTemplateRegistry() {
+        return queryTemplateRegistry;
+    }
+
+    public QueryProfiler getQueryProfiler() {
+        return queryProfiler;
+    }
+
+    @Override
+    public void close() {
+        queryProfiler.close();
+        if (connectionManager != null) {
+            connectionManager.close();
+        }
+    }
+
+    /**
+     * Runs a query in an auto commit transaction. Only these queries are eligible for PROFILE capture, so they must
+     * be reads; writes go through {@link #runTransactionalQuery}.
+     */
+    private List<Record> search(String templateName, Map<String, Object> parameters, String query) {
+        QueryStats stats = queryProfiler.begin(templateName, query);
+        long start = System.nanoTime();
+        List<Record> records = null;
+        try {
+            records = execute(session -> session.run(query, parameters).list());
+            return records;
+        } finally {
+            queryProfiler.end(stats, query, parameters, start, records == null ? 0 : records.size(),
+                    records == null, true);
+        }
+    }
+
+    private List<Record> write(Session session, String templateName, String query, Map<String, Object> parameters) {
+        QueryStats stats = queryProfiler.begin(templateName, query);
+        long start = System.nanoTime();
+        List<Record> records = null;
+        try (Transaction tx = connectionManager.beginTransaction(session)) {
+            List<Record> result = tx.run(query, parameters).list();
             tx.commit();
-            tx.close();
+            records = result;
+            return records;
+        } finally {
+            queryProfiler.end(stats, query, parameters, start, records == null ? 0 : records.size(),
+                    records == null, false);
         }
     }
 
-    public boolean isOpen() {
-        driver.verifyConnectivity();
-        return driver.session().isOpen();
+    private ResultSummary profile(String query, Map<String, Object> parameters) {
+        return execute(session -> {
+            try (Transaction tx = connectionManager.beginTransaction(session)) {
+                ResultSummary summary = tx.run("PROFILE " + query, parameters).consume();
+                tx.rollback();
+                return summary;
+            }
+        });
+    }
+
+    private String bulkMergeQuery(String label) {
+        return "MATCH (u:User) where u.username = $username AND u.tenantId = $tenantId " +
+                " UNWIND $rows AS row" +
+                " MERGE (n:" + NodeLabel.quote(label) + " {entityId: row.entityId, tenantId: $tenantId}) SET n += row.props" +
+                resourceLabelClause("n", label) +
+                resourceVersionClause("n", label) +
+                " MERGE (n)-[:SHARED_WITH {permission:'OWNER'}]->(u)" +
+                " return n.entityId as entityId";
+    }
+
+    private String bulkMergeWithParentQuery(String childLabel, String parentLabel) {
+        return "MATCH (u:User) where u.username = $username AND u.tenantId = $tenantId " +
+                " UNWIND $rows AS row" +
+                " MERGE (p:" + NodeLabel.quote(parentLabel) + " {entityId: row.parentEntityId, tenantId: $tenantId})" +
+                resourceLabelClause("p", parentLabel) +
+                " MERGE (c:" + NodeLabel.quote(childLabel) + " {entityId: row.entityId, tenantId: $tenantId}) SET c += row.props" +
+                resourceLabelClause("c", childLabel) +
+                resourceVersionClause("c", childLabel) +
+                " MERGE (c)-[:SHARED_WITH {permission:'OWNER'}]->(u)" +
+                " MERGE (p)-[:SHARED_WITH {permission:'OWNER'}]->(u)" +
+                " MERGE (c)-[:CHILD_OF]->(p)" +
+                " return c.entityId as entityId";
+    }
+
+    private String resourceLabelClause(String variable, String label) {
+        return NodeLabel.isResourceLabel(label) ? " SET " + variable + ":" + NodeLabel.RESOURCE.getLabel() : "";
+    }
+
+    private String resourceVersionClause(String variable, String label) {
+        String version = variable + "." + ResourceConstants.RESOURCE_VERSION;
+        return NodeLabel.isResourceLabel(label) ? " SET " + version + " = coalesce(" + version + ", 0) + 1" : "";
+    }
+
+    /**
+     * Stops the statement unless the node is at $expectedVersion. The write lock of the node is taken before its
+     * version is read, so conditional writes of a node are serialised.
+     */
+    private String expectedVersionClause(String label, String entityIdParameter) {
+        return " OPTIONAL MATCH (current:" + NodeLabel.quote(label) + " {entityId: $" + entityIdParameter + ", tenantId: $tenantId})" +
+                " FOREACH (locked IN CASE WHEN current IS NULL THEN [] ELSE [current] END |" +
+                " SET locked._lock = true REMOVE locked._lock)" +
+                " WITH u, current WHERE coalesce(current." + ResourceConstants.RESOURCE_VERSION + ", 0)" +
+                " = $expectedVersion";
+    }
+
+    private <T> T execute(Function<Session, T> work) {
+        try (Session session = connectionManager.session()) {
+            return work.apply(session);
+        } catch (RuntimeException ex) {
+            connectionManager.reportFailure(ex);
+            throw ex;
+        }
     }
 
 
@@ -0,0 +1,318 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.airavata.drms.core.access;
+
+import org.apache.airavata.drms.core.Neo4JConnector;
+import org.apache.airavata.drms.core.query.CypherTemplates;
+import org.apache.airavata.drms.core.query.NodeLabel;
+import org.neo4j.driver.Record;
+import org.neo4j.driver.Value;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+
+/**
+ * Maintains the materialised effective access of the graph, so an access check is a single indexed lookup
+ * instead of a walk over CHILD_OF ancestors and nested groups.
+ * <p>
+ * Two relationships are kept in sync with SHARED_WITH, CHILD_OF and MEMBER_OF:
+ * <ul>
+ * <li>(r)-[:HAS_ACCESS]->(p) on every resource and storage r, for every user or group p that r, or one of its
+ * ancestors, is shared with. Ancestors of any label count, so a share on a storage reaches the resources below
+ * it</li>
+ * <li>(u:User)-[:EFFECTIVE_MEMBER_OF]->(g:Group) for every group u is a member of, and the child groups of
+ * those</li>
+ * </ul>
+ * Callers refresh the affected resources or users after changing those relationships. The first build is schema
+ * migration 7; {@link #verify(int, boolean)} recomputes both from the source relationships and repairs any drift.
+ */
+public class AccessIndex {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(AccessIndex.class);
+
+    public static final int DEFAULT_BATCH_SIZE = 500;
+
+    /**
+     * Rebuilds the HAS_ACCESS relationships of the node bound to r, leaving r and its principals bound
+     */
+    public static final String REFRESH_ACCESS_OF_R =
+            " OPTIONAL MATCH (r)-[old:HAS_ACCESS]->()" +
+                    " DELETE old" +
+                    " WITH DISTINCT r" +
+                    " OPTIONAL MATCH (r)-[:CHILD_OF*0..]->()-[:SHARED_WITH]->(p)" +
+                    " WHERE p:User OR p:Group" +
+                    " WITH r, collect(DISTINCT p) AS principals" +
+                    " FOREACH (p IN principals | MERGE (r)-[:HAS_ACCESS]->(p))";
+
+    /**
+     * Rebuilds the EFFECTIVE_MEMBER_OF relationships of the user bound to u, leaving u and its groups bound
+     */
+    public static final String REFRESH_GROUPS_OF_U =
+            " OPTIONAL MATCH (u)-[old:EFFECTIVE_MEMBER_OF]->()" +
+                    " DELETE old" +
+                    " WITH DISTINCT u" +
+                    " OPTIONAL MATCH (u)-[:MEMBER_OF]->(:Group)<-[:CHILD_OF*0..]-(g:Group)" +
+                    " WITH u, collect(DISTINCT g) AS groups" +
+                    " FOREACH (g IN groups | MERGE (u)-[:EFFECTIVE_MEMBER_OF]->(g))";
+
+    private static final String DESCENDANTS_QUERY =
+            "UNWIND $entityIds AS entityId" +
+                    resourceOrStorage("root") +
+                    " MATCH (root)<-[:CHILD_OF*0..]-(r) WHERE r = root OR r:Resource" +
+                    " RETURN DISTINCT r.entityId AS entityId";
+
+    private static final String REFRESH_RESOURCES_QUERY =
+            "UNWIND $entityIds AS entityId" +
+                    resourceOrStorage("r") +
+                    REFRESH_ACCESS_OF_R +
+                    " RETURN count(r) AS count";
+
+    private static final String REFRESH_USERS_QUERY =
+            "UNWIND $usernames AS username" +
+                    " MATCH (u:User {username: username, tenantId: $tenantId})" +
+                    REFRESH_GROUPS_OF_U +
+                    " RETURN count(u) AS count";
+
+    private static final String GROUP_MEMBERS_QUERY =
+            "MATCH (g:Group {groupId: $groupId, tenantId: $tenantId})-[:CHILD_OF*0..]->(:Group)<-[:MEMBER_OF]-(u:User)" +
+                    " RETURN DISTINCT u.username AS username";
+
+    private static final String VERIFY_RESOURCES_QUERY = verifyAccessQuery(NodeLabel.RESOURCE);
+
+    private static final String VERIFY_STORAGES_QUERY = verifyAccessQuery(NodeLabel.STORAGE);
+
+    private static final String VERIFY_USERS_QUERY =
+            "MATCH (u:User) WHERE id(u) > $cursor" +
+                    " WITH u ORDER BY id(u) LIMIT $limit" +
+                    " OPTIONAL MATCH (u)-[:MEMBER_OF]->(:Group)<-[:CHILD_OF*0..]-(g:Group)" +
+                    " WITH u, collect(DISTINCT id(g)) AS expected" +
+                    " OPTIONAL MATCH (u)-[:EFFECTIVE_MEMBER_OF]->(q)" +
+                    " WITH u, expected, collect(DISTINCT id(q)) AS actual" +
+                    " RETURN id(u) AS nodeId, u.username AS id, u.tenantId AS tenantId," +
+                    " size([x IN expected WHERE NOT x IN actual]) + size([x IN actual WHERE NOT x IN expected]) AS drift";
+
+    private final Neo4JConnector neo4JConnector;
+    private final int batchSize;
+
+    public AccessIndex(Neo4JConnector neo4JConnector) {
+        this(neo4JConnector, DEFAULT_BATCH_SIZE);
+    }
+
+    public AccessIndex(Neo4JConnector neo4JConnector, int batchSize) {
+        this.neo4JConnector = neo4JConnector;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Whether the user can see the resource, through a share on it or on one of its ancestors, made to the user or
+     * to one of the user's effective groups
+     */
+    public boolean hasAccess(String username, String tenantId, String entityId) {
+        return hasAccess(username, tenantId, entityId, NodeLabel.RESOURCE);
+    }
+
+    /**
+     * @param label {@link NodeLabel#RESOURCE} or {@link NodeLabel#STORAGE}
+     */
+    public boolean hasAccess(String username, String tenantId, String entityId, NodeLabel label) {
+        Map<String, Object> parameters = new HashMap<>();
+        parameters.put("username", username);
+        parameters.put("tenantId", tenantId);
+        parameters.put("entityId", entityId);
+        parameters.put("type", null);
+        return !neo4JConnector.searchNodes(CypherTemplates.ACCESSIBLE_RESOURCE, parameters, label).isEmpty();
+    }
+
+    /**
+     * The subset of the given resources the user can see, checked with one query per batch
+     */
+    public Set<String> filterAccessible(String username, String tenantId, Collection<String> entityIds) {
+        List<String> ids = new ArrayList<>(new LinkedHashSet<>(entityIds));
+        Set<String> accessible = new HashSet<>();
+        for (int from = 0; from < ids.size(); from += batchSize) {
+            Map<String, Object> parameters = new HashMap<>();
+            parameters.put("username", username);
+            parameters.put("tenantId", tenantId);
+            parameters.put("entityIds", ids.subList(from, Math.min(from + batchSize, ids.size())));
+            for (Record record : neo4JConnector.searchNodes(CypherTemplates.ACCESSIBLE_RESOURCE_IDS, parameters,
+                    NodeLabel.RESOURCE)) {
+                accessible.add(record.get("entityId").asString());
+            }
+        }
+        return accessible;
+    }
+
+    /**
+     * Recomputes the access of the given resources or storages and everything below them. Call after sharing or
+     * revoking a resource or storage, or after moving a resource under a different parent.
+     *
+     * @return entity ids of the refreshed resources
+     */
+    public List<String> refreshSubtrees(String tenantId, Collection<String> entityIds) {
+        if (entityIds.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<String> subtree = getSubtree(tenantId, entityIds);
+        refreshResources(tenantId, subtree);
+        return subtree;
+    }
+
+    /**
+     * Recomputes the access of exactly the given resources, for new leaves which have no descendants yet
+     */
+    public void refreshResources(String tenantId, Collection<String> entityIds) {
+        List<String> ids = new ArrayList<>(entityIds);
+        for (int from = 0; from < ids.size(); from += batchSize) {
+            Map<String, Object> parameters = new HashMap<>();
+            parameters.put("tenantId", tenantId);
+            parameters.put("entityIds", ids.subList(from, Math.min(from + batchSize, ids.size())));
+            neo4JConnector.runTransactionalQuery(parameters, REFRESH_RESOURCES_QUERY);
+        }
+    }
+
+    /**
+     * Recomputes the effective groups of the given users. Call after adding or removing a MEMBER_OF.
+     */
+    public void refreshUsers(String tenantId, Collection<String> usernames) {
+        List<String> names = new ArrayList<>(usernames);
+        for (int from = 0; from < names.size(); from += batchSize) {
+            Map<String, Object> parameters = new HashMap<>();
+            parameters.put("tenantId", tenantId);
+            parameters.put("usernames", names.subList(from, Math.min(from + batchSize, names.size())));
+            neo4JConnector.runTransactionalQuery(parameters, REFRESH_USERS_QUERY);
+        }
+    }
+
+    /**
+     * Users whose effective groups depend on the given group, that is the members of the group and of all its
+     * parent groups. Read these before changing the group's CHILD_OF relationships or deleting it, and pass them
+     * to {@link #refreshUsers(String, Collection)} afterwards.
+     */
+    public List<String> getAffectedUsers(String tenantId, String groupId) {
+        Map<String, Object> parameters = new HashMap<>();
+        parameters.put("tenantId", tenantId);
+        parameters.put("groupId", groupId);
+        List<String> usernames = new ArrayList<>();
+        for (Record record : neo4JConnector.searchNodes(parameters, GROUP_MEMBERS_QUERY)) {
+            usernames.add(record.get("username").asString());
+        }
+        return usernames;
+    }
+
+    /**
+     * Resources below the given ones, including themselves. Read these before deleting a resource so the
+     * orphaned descendants can be refreshed afterwards.
+     */
+    public List<String> getSubtree(String tenantId, Collection<String> entityIds) {
+        Map<String, Object> parameters = new HashMap<>();
+        parameters.put("tenantId", tenantId);
+        parameters.put("entityIds", new ArrayList<>(entityIds));
+        List<String> subtree = new ArrayList<>();
+        for (Record record : neo4JConnector.searchNodes(parameters, DESCENDANTS_QUERY)) {
+            subtree.add(record.get("entityId").asString());
+        }
+        return subtree;
+    }
+
+    /**
+     * Compares the materialised access of every resource, storage and user with the one derived from SHARED_WITH,
+     * CHILD_OF and MEMBER_OF, walking the graph in batches.
+     *
+     * @param repair refresh the entries that drifted
+     */
+    public AccessIndexReport verify(boolean repair) {
+        return verify(batchSize, repair);
+    }
+
+    public AccessIndexReport verify(int batchSize, boolean repair) {
+        long start = System.currentTimeMillis();
+        long[] resources = verifyBatches(VERIFY_RESOURCES_QUERY, batchSize, repair, this::refreshResources);
+        long[] storages = verifyBatches(VERIFY_STORAGES_QUERY, batchSize, repair, this::refreshResources);
+        long[] users = verifyBatches(VERIFY_USERS_QUERY, batchSize, repair, this::refreshUsers);
+        // Storages are reported with the resources
+        AccessIndexReport report = new AccessIndexReport(resources[0] + storages[0], resources[1] + storages[1],
+                users[0], users[1], repair, System.currentTimeMillis() - start);
+        if (report.isConsistent()) {
+            LOGGER.info("Access index is consistent: {}", report);
+        } else {
+            LOGGER.warn("Access index drift detected: {}", report);
+        }
+        return report;
+    }
+
+    private long[] verifyBatches(String query, int batchSize, boolean repair, Refresher refresher) {
+        long checked = 0;
+        long drifted = 0;
+        long cursor = -1;
+        while (true) {
+            Map<String, Object> parameters = new HashMap<>();
+            parameters.put("cursor", cursor);
+            parameters.put("limit", batchSize);
+            List<Record> records = neo4JConnector.searchNodes(parameters, query);
+            if (records.isEmpty()) {
+                break;
+            }
+            Map<String, List<String>> driftedByTenant = new HashMap<>();
+            for (Record record : records) {
+                cursor = record.get("nodeId").asLong();
+                if (record.get("drift").asLong() > 0) {
+                    Value tenantId = record.get("tenantId");
+                    driftedByTenant.computeIfAbsent(tenantId.isNull() ? "" : tenantId.asString(),
+                            key -> new ArrayList<>()).add(record.get("id").asString());
+                    drifted++;
+                }
+            }
+            checked += records.size();
+            if (repair) {
+                driftedByTenant.forEach(refresher::refresh);
+            }
+            if (records.size() < batchSize) {
+                break;
+            }
+        }
+        return new long[]{checked, drifted};
+    }
+
+    /**
+     * Looks entityId up as a resource or a storage, both through their (entityId, tenantId) index
+     */
+    private static String resourceOrStorage(String variable) {
+        return " CALL {" +
+                " WITH entityId MATCH (" + variable + ":Resource) WHERE " + variable + ".entityId = entityId" +
+                " AND " + variable + ".tenantId = $tenantId RETURN " + variable +
+                " UNION" +
+                " WITH entityId MATCH (" + variable + ":Storage) WHERE " + variable + ".entityId = entityId" +
+                " AND " + variable + ".tenantId = $tenantId RETURN " + variable + " }";
+    }
+
+    private static String verifyAccessQuery(NodeLabel label) {
+        return "MATCH (r:" + label.getLabel() + ") WHERE id(r) > $cursor" +
+                " WITH r ORDER BY id(r) LIMIT $limit" +
+                " OPTIONAL MATCH (r)-[:CHILD_OF*0..]->()-[:SHARED_WITH]->(p)" +
+                " WHERE p:User OR p:Group" +
+                " WITH r, collect(DISTINCT id(p)) AS expected" +
+                " OPTIONAL MATCH (r)-[:HAS_ACCESS]->(q)" +
+                " WITH r, expected, collect(DISTINCT id(q)) AS actual" +
+                " RETURN id(r) AS nodeId, r.entityId AS id, r.tenantId AS tenantId," +
+                " size([x IN expected WHERE NOT x IN actual]) + size([x IN actual WHERE NOT x IN expected]) AS drift";
+    }
+
+    private interface Refresher {
+        void refresh(String tenantId, Collection<String> ids);
+    }
+}
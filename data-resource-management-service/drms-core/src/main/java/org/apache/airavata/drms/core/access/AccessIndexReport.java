@@ -0,0 +1,80 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.airavata.drms.core.access;
+
+/**
+ * Outcome of an {@link AccessIndex} verification run
+ */
+public class AccessIndexReport {
+
+    private final long checkedResources;
+    private final long driftedResources;
+    private final long checkedUsers;
+    private final long driftedUsers;
+    private final boolean repaired;
+    private final long durationMs;
+
+    public AccessIndexReport(long checkedResources, long driftedResources, long checkedUsers, long driftedUsers,
+                             boolean repaired, long durationMs) {
+        this.checkedResources = checkedResources;
+        this.driftedResources = driftedResources;
+        this.checkedUsers = checkedUsers;
+        this.driftedUsers = driftedUsers;
+        this.repaired = repaired;
+        this.durationMs = durationMs;
+    }
+
+    public long getCheckedResources() {
+        return checkedResources;
+    }
+
+    public long getDriftedResources() {
+        return driftedResources;
+    }
+
+    public long getCheckedUsers() {
+        return checkedUsers;
+    }
+
+    public long getDriftedUsers() {
+        return driftedUsers;
+    }
+
+    public boolean isRepaired() {
+        return repaired;
+    }
+
+    public long getDurationMs() {
+        return durationMs;
+    }
+
+    public boolean isConsistent() {
+        return driftedResources == 0 && driftedUsers == 0;
+    }
+
+    @Override
+    public String toString() {
+        return "AccessIndexReport{" +
+                "checkedResources=" + checkedResources +
+                ", driftedResources=" + driftedResources +
+                ", checkedUsers=" + checkedUsers +
+                ", driftedUsers=" + driftedUsers +
+                ", repaired=" + repaired +
+                ", durationMs=" + durationMs +
+                '}';
+    }
+}
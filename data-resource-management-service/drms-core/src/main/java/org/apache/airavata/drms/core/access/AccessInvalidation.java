@@ -0,0 +1,95 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.airavata.drms.core.access;
+
+/**
+ * Tells access decision caches which entries a graph change made stale. Published by the custos synchronizer
+ * after it applied a revoking event, as a single line per message.
+ */
+public class AccessInvalidation {
+
+    public enum Scope {
+        /** Every decision of a user */
+        USER,
+        /** Every decision on a resource */
+        RESOURCE,
+        /** Every decision of a tenant, for changes whose reach is not known up front */
+        TENANT
+    }
+
+    private static final char SEPARATOR = '\n';
+
+    private final Scope scope;
+    private final String tenantId;
+    private final String id;
+
+    private AccessInvalidation(Scope scope, String tenantId, String id) {
+        this.scope = scope;
+        this.tenantId = tenantId;
+        this.id = id;
+    }
+
+    public static AccessInvalidation user(String tenantId, String username) {
+        return new AccessInvalidation(Scope.USER, tenantId, username);
+    }
+
+    public static AccessInvalidation resource(String tenantId, String entityId) {
+        return new AccessInvalidation(Scope.RESOURCE, tenantId, entityId);
+    }
+
+    public static AccessInvalidation tenant(String tenantId) {
+        return new AccessInvalidation(Scope.TENANT, tenantId, "");
+    }
+
+    public Scope getScope() {
+        return scope;
+    }
+
+    public String getTenantId() {
+        return tenantId;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String encode() {
+        return scope.name() + SEPARATOR + tenantId + SEPARATOR + id;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the message is not an encoded invalidation
+     */
+    public static AccessInvalidation decode(String message) {
+        int first = message.indexOf(SEPARATOR);
+        int second = first < 0 ? -1 : message.indexOf(SEPARATOR, first + 1);
+        if (second < 0) {
+            throw new IllegalArgumentException("Malformed access invalidation " + message);
+        }
+        return new AccessInvalidation(Scope.valueOf(message.substring(0, first)),
+                message.substring(first + 1, second), message.substring(second + 1));
+    }
+
+    @Override
+    public String toString() {
+        return "AccessInvalidation{" +
+                "scope=" + scope +
+                ", tenantId='" + tenantId + '\'' +
+                ", id='" + id + '\'' +
+                '}';
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.airavata.drms.core.ancestry;
+
+import org.apache.airavata.drms.core.Neo4JConnector;
+import org.neo4j.driver.Record;
+
+import java.util.*;
+
+/**
+ * Maintains the materialised ancestry of every resource, so ancestor lookups and "is X under Y" tests are
+ * property reads instead of variable length CHILD_OF walks.
+ * <p>
+ * Each Resource node carries two parallel lists:
+ * <ul>
+ * <li>ancestorIds: the entityIds of every resource, storage or other node reachable over CHILD_OF, nearest
+ * first</li>
+ * <li>ancestorDepths: the length of the shortest CHILD_OF path to the ancestor at the same position</li>
+ * </ul>
+ * A resource with several parents lists the ancestors of all of them. Callers refresh the moved resources and
+ * everything below them after creating or deleting a CHILD_OF relationship, or after deleting an ancestor.
+ * Existing graphs are backfilled by schema migration 5.
+ */
+public class AncestryIndex {
+
+    public static final int DEFAULT_BATCH_SIZE = 500;
+
+    public static final String ANCESTOR_IDS = "ancestorIds";
+    public static final String ANCESTOR_DEPTHS = "ancestorDepths";
+
+    /**
+     * Ancestry of the resource r, followed by WITH r, ancestorIds, ancestorDepths. Shared with the backfill of
+     * {@link org.apache.airavata.drms.core.schema.SchemaMigrations} and the child membership templates of
+     * {@link org.apache.airavata.drms.core.query.CypherTemplates}, which refresh it with the CHILD_OF change, so all
+     * compute the same lists.
+     */
+    public static final String ANCESTRY_OF_R =
+            " OPTIONAL MATCH path = (r)-[:CHILD_OF*1..]->(a) WHERE a.entityId IS NOT NULL" +
+                    " WITH r, a, min(length(path)) AS depth ORDER BY depth, a.entityId" +
+                    " WITH r, collect(a.entityId) AS ancestorIds, collect(depth) AS ancestorDepths";
+
+    private static final String DESCENDANTS_QUERY =
+            "UNWIND $entityIds AS entityId" +
+                    " MATCH (root:Resource {entityId: entityId, tenantId: $tenantId})<-[:CHILD_OF*0..]-(r:Resource)" +
+                    " RETURN DISTINCT r.entityId AS entityId";
+
+    private static final String UNDER_ANCESTOR_QUERY =
+            "MATCH (r:Resource) WHERE r.tenantId = $tenantId AND $ancestorId IN r.ancestorIds" +
+                    " RETURN r.entityId AS entityId";
+
+    private static final String REFRESH_RESOURCES_QUERY =
+            "UNWIND $entityIds AS entityId" +
+                    " MATCH (r:Resource {entityId: entityId, tenantId: $tenantId})" +
+                    ANCESTRY_OF_R +
+                    " SET r.ancestorIds = ancestorIds, r.ancestorDepths = ancestorDepths" +
+                    " RETURN count(r) AS count";
+
+    private final Neo4JConnector neo4JConnector;
+    private final int batchSize;
+
+    public AncestryIndex(Neo4JConnector neo4JConnector) {
+        this(neo4JConnector, DEFAULT_BATCH_SIZE);
+    }
+
+    public AncestryIndex(Neo4JConnector neo4JConnector, int batchSize) {
+        this.neo4JConnector = neo4JConnector;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Recomputes the ancestry of the given resources and everything below them. Call after moving resources
+     * under a different parent.
+     *
+     * @return entity ids of the refreshed resources
+     */
+    public List<String> refreshSubtrees(String tenantId, Collection<String> entityIds) {
+        if (entityIds.isEmpty()) {
+            return Collections.emptyList();
+        }
+        Map<String, Object> parameters = new HashMap<>();
+        parameters.put("tenantId", tenantId);
+        parameters.put("entityIds", new ArrayList<>(entityIds));
+        List<String> subtree = new ArrayList<>();
+        for (Record record : neo4JConnector.searchNodes(parameters, DESCENDANTS_QUERY)) {
+            subtree.add(record.get("entityId").asString());
+        }
+        refreshResources(tenantId, subtree);
+        return subtree;
+    }
+
+    /**
+     * Recomputes the ancestry of exactly the given resources, for new leaves or for subtrees already resolved by
+     * the caller
+     */
+    public void refreshResources(String tenantId, Collection<String> entityIds) {
+        List<String> ids = new ArrayList<>(entityIds);
+        for (int from = 0; from < ids.size(); from += batchSize) {
+            Map<String, Object> parameters = new HashMap<>();
+            parameters.put("tenantId", tenantId);
+            parameters.put("entityIds", ids.subList(from, Math.min(from + batchSize, ids.size())));
+            neo4JConnector.runTransactionalQuery(parameters, REFRESH_RESOURCES_QUERY);
+        }
+    }
+
+    /**
+     * Resources below the given node, whatever its label. Read these before deleting a storage or another
+     * ancestor so their ancestry can be refreshed afterwards.
+     */
+    public List<String> getResourcesUnder(String tenantId, String ancestorId) {
+        Map<String, Object> parameters = new HashMap<>();
+        parameters.put("tenantId", tenantId);
+        parameters.put("ancestorId", ancestorId);
+        List<String> entityIds = new ArrayList<>();
+        for (Record record : neo4JConnector.searchNodes(parameters, UNDER_ANCESTOR_QUERY)) {
+            entityIds.add(record.get("entityId").asString());
+        }
+        return entityIds;
+    }
+}
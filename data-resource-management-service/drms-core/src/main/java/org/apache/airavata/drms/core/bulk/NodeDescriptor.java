@@ -0,0 +1,77 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.airavata.drms.core.bulk;
+
+import org.apache.airavata.drms.core.query.NodeLabel;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A node to be upserted by a bulk write, optionally linked to its parent through a CHILD_OF edge. Labels come from
+ * requests, so they are validated when the descriptor is built.
+ */
+public class NodeDescriptor {
+
+    private final String label;
+    private final String entityId;
+    private final Map<String, Object> properties;
+    private String parentLabel;
+    private String parentEntityId;
+
+    /**
+     * @throws IllegalArgumentException if the label is not valid, see {@link NodeLabel#validateResourceType(String)}
+     */
+    public NodeDescriptor(String label, String entityId, Map<String, Object> properties) {
+        this.label = NodeLabel.validateResourceType(label);
+        this.entityId = entityId;
+        this.properties = properties != null ? properties : new HashMap<>();
+    }
+
+    /**
+     * @throws IllegalArgumentException if the parent label is not valid
+     */
+    public NodeDescriptor withParent(String parentLabel, String parentEntityId) {
+        this.parentLabel = NodeLabel.validateResourceType(parentLabel);
+        this.parentEntityId = parentEntityId;
+        return this;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    public String getEntityId() {
+        return entityId;
+    }
+
+    public Map<String, Object> getProperties() {
+        return properties;
+    }
+
+    public String getParentLabel() {
+        return parentLabel;
+    }
+
+    public String getParentEntityId() {
+        return parentEntityId;
+    }
+
+    public boolean hasParent() {
+        return parentEntityId != null && !parentEntityId.isEmpty();
+    }
+}
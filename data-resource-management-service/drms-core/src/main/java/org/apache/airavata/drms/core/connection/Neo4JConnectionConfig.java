@@ -0,0 +1,122 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.airavata.drms.core.connection;
+
+/**
+ * Connection pool and health check settings of the Neo4j driver
+ */
+public class Neo4JConnectionConfig {
+
+    public static final int DEFAULT_MAX_POOL_SIZE = 100;
+    public static final long DEFAULT_ACQUISITION_TIMEOUT_MS = 60 * 1000;
+    public static final long DEFAULT_MAX_CONNECTION_LIFETIME_MS = 60 * 60 * 1000;
+    public static final long DEFAULT_HEALTH_CHECK_INTERVAL_MS = 30 * 1000;
+    public static final long DEFAULT_DRIVER_CLOSE_GRACE_MS = 60 * 1000;
+
+    private String uri;
+    private String userName;
+    private String password;
+    private int maxPoolSize = DEFAULT_MAX_POOL_SIZE;
+    private long acquisitionTimeoutMs = DEFAULT_ACQUISITION_TIMEOUT_MS;
+    private long maxConnectionLifetimeMs = DEFAULT_MAX_CONNECTION_LIFETIME_MS;
+    private long healthCheckIntervalMs = DEFAULT_HEALTH_CHECK_INTERVAL_MS;
+    private long driverCloseGraceMs = DEFAULT_DRIVER_CLOSE_GRACE_MS;
+
+    public Neo4JConnectionConfig() {
+    }
+
+    public Neo4JConnectionConfig(String uri, String userName, String password) {
+        this.uri = uri;
+        this.userName = userName;
+        this.password = password;
+    }
+
+    public String getUri() {
+        return uri;
+    }
+
+    public Neo4JConnectionConfig setUri(String uri) {
+        this.uri = uri;
+        return this;
+    }
+
+    public String getUserName() {
+        return userName;
+    }
+
+    public Neo4JConnectionConfig setUserName(String userName) {
+        this.userName = userName;
+        return this;
+    }
+
+    public String getPassword() {
+        return password;
+    }
+
+    public Neo4JConnectionConfig setPassword(String password) {
+        this.password = password;
+        return this;
+    }
+
+    public int getMaxPoolSize() {
+        return maxPoolSize;
+    }
+
+    public Neo4JConnectionConfig setMaxPoolSize(int maxPoolSize) {
+        this.maxPoolSize = maxPoolSize;
+        return this;
+    }
+
+    public long getAcquisitionTimeoutMs() {
+        return acquisitionTimeoutMs;
+    }
+
+    public Neo4JConnectionConfig setAcquisitionTimeoutMs(long acquisitionTimeoutMs) {
+        this.acquisitionTimeoutMs = acquisitionTimeoutMs;
+        return this;
+    }
+
+    public long getMaxConnectionLifetimeMs() {
+        return maxConnectionLifetimeMs;
+    }
+
+    public Neo4JConnectionConfig setMaxConnectionLifetimeMs(long maxConnectionLifetimeMs) {
+        this.maxConnectionLifetimeMs = maxConnectionLifetimeMs;
+        return this;
+    }
+
+    public long getHealthCheckIntervalMs() {
+        return healthCheckIntervalMs;
+    }
+
+    public Neo4JConnectionConfig setHealthCheckIntervalMs(long healthCheckIntervalMs) {
+        this.healthCheckIntervalMs = healthCheckIntervalMs;
+        return this;
+    }
+
+    /**
+     * @return longest time a replaced driver is kept open for the queries still running on it
+     */
+    public long getDriverCloseGraceMs() {
+        return driverCloseGraceMs;
+    }
+
+    public Neo4JConnectionConfig setDriverCloseGraceMs(long driverCloseGraceMs) {
+        this.driverCloseGraceMs = driverCloseGraceMs;
+        return this;
+    }
+}
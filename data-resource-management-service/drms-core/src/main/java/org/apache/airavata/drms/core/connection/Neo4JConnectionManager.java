@@ -0,0 +1,224 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.airavata.drms.core.connection;
+
+import org.neo4j.driver.*;
+import org.neo4j.driver.exceptions.ServiceUnavailableException;
+import org.neo4j.driver.exceptions.SessionExpiredException;
+import org.neo4j.driver.reactive.RxSession;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Owns the pooled Neo4j {@link Driver}. Liveness is verified by a single background probe instead of on every
+ * query, and the driver is rebuilt when the probe (or a query) reports that the server is unreachable. A replaced
+ * driver is closed once the queries running on it completed, or after a grace period.
+ */
+public class Neo4JConnectionManager implements AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(Neo4JConnectionManager.class);
+
+    private static final long RETIRE_POLL_MS = 1000;
+
+    private final Neo4JConnectionConfig config;
+    private final ScheduledExecutorService healthChecker;
+
+    private volatile Driver driver;
+    private volatile boolean healthy = true;
+
+    private final Set<Driver> retiredDrivers = ConcurrentHashMap.newKeySet();
+
+    private final AtomicLong driverRebuilds = new AtomicLong();
+    // Counters of closed drivers, which the metrics of the current driver do not include
+    private final AtomicLong retiredAcquisitions = new AtomicLong();
+    private final AtomicLong retiredAcquisitionWaitMs = new AtomicLong();
+    private final AtomicLong retiredTimeouts = new AtomicLong();
+
+    public Neo4JConnectionManager(Neo4JConnectionConfig config) {
+        this.config = config;
+        this.driver = buildDriver();
+        this.healthChecker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "neo4j-health-check");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.healthChecker.scheduleWithFixedDelay(this::checkHealth, config.getHealthCheckIntervalMs(),
+                config.getHealthCheckIntervalMs(), TimeUnit.MILLISECONDS);
+    }
+
+    public Session session() {
+        return driver.session();
+    }
+
+    public RxSession rxSession() {
+        return driver.rxSession();
+    }
+
+    /**
+     * Begins an explicit transaction, acquiring a pooled connection. The time spent waiting for the pool is taken from
+     * the driver metrics, which leave out the BEGIN round trip.
+     */
+    public Transaction beginTransaction(Session session) {
+        return session.beginTransaction();
+    }
+
+    /**
+     * Called by query paths when the driver reports a connectivity failure. Triggers an immediate probe instead of
+     * waiting for the next scheduled one.
+     */
+    public void reportFailure(Exception exception) {
+        if (exception instanceof ServiceUnavailableException || exception instanceof SessionExpiredException) {
+            healthy = false;
+            if (!healthChecker.isShutdown()) {
+                healthChecker.execute(this::checkHealth);
+            }
+        }
+    }
+
+    public boolean isHealthy() {
+        return healthy;
+    }
+
+    /**
+     * Replaces the driver. Sessions opened before keep using the old driver, which is closed once none of its
+     * connections is in use any more or the grace period is over.
+     */
+    public synchronized void rebuild() {
+        Driver oldDriver = this.driver;
+        this.driver = buildDriver();
+        driverRebuilds.incrementAndGet();
+        LOGGER.info("Rebuilt Neo4j driver for {}", config.getUri());
+        retiredDrivers.add(oldDriver);
+        scheduleRetire(oldDriver, System.currentTimeMillis() + config.getDriverCloseGraceMs());
+    }
+
+    public Neo4JPoolMetrics getMetrics() {
+        int inUse = 0;
+        int idle = 0;
+        int acquiring = 0;
+        long acquired = retiredAcquisitions.get();
+        long acquisitionWaitMs = retiredAcquisitionWaitMs.get();
+        long timedOut = retiredTimeouts.get();
+        try {
+            for (ConnectionPoolMetrics poolMetrics : driver.metrics().connectionPoolMetrics()) {
+                inUse += poolMetrics.inUse();
+                idle += poolMetrics.idle();
+                acquiring += poolMetrics.acquiring();
+                acquired += poolMetrics.acquired();
+                acquisitionWaitMs += poolMetrics.totalAcquisitionTime();
+                timedOut += poolMetrics.timedOutToAcquire();
+            }
+        } catch (Exception ex) {
+            LOGGER.debug("Neo4j driver metrics are not available", ex);
+        }
+        return new Neo4JPoolMetrics(inUse, idle, acquiring, acquired, timedOut, acquisitionWaitMs,
+                driverRebuilds.get(), healthy);
+    }
+
+    @Override
+    public void close() {
+        healthChecker.shutdownNow();
+        retiredDrivers.forEach(this::closeQuietly);
+        retiredDrivers.clear();
+        closeQuietly(driver);
+    }
+
+    private void checkHealth() {
+        try {
+            driver.verifyConnectivity();
+            if (!healthy) {
+                LOGGER.info("Neo4j server {} is reachable again", config.getUri());
+            }
+            healthy = true;
+            LOGGER.debug("Neo4j pool status {}", getMetrics());
+        } catch (Exception ex) {
+            LOGGER.warn("Neo4j liveness probe failed for {}, rebuilding driver: {}", config.getUri(), ex.getMessage());
+            healthy = false;
+            rebuild();
+        }
+    }
+
+    private Driver buildDriver() {
+        Config driverConfig = Config.builder()
+                .withMaxConnectionPoolSize(config.getMaxPoolSize())
+                .withConnectionAcquisitionTimeout(config.getAcquisitionTimeoutMs(), TimeUnit.MILLISECONDS)
+                .withMaxConnectionLifetime(config.getMaxConnectionLifetimeMs(), TimeUnit.MILLISECONDS)
+                .withDriverMetrics()
+                .build();
+        return GraphDatabase.driver(config.getUri(), AuthTokens.basic(config.getUserName(), config.getPassword()),
+                driverConfig);
+    }
+
+    private void scheduleRetire(Driver oldDriver, long deadline) {
+        try {
+            // Checked after a delay at the earliest, as sessions opened just before the rebuild may not hold a
+            // connection yet
+            healthChecker.schedule(() -> retire(oldDriver, deadline), RETIRE_POLL_MS, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException ex) {
+            // Shutting down, close() takes care of the driver
+        }
+    }
+
+    private void retire(Driver oldDriver, long deadline) {
+        int busy = 0;
+        long acquired = 0;
+        long acquisitionWaitMs = 0;
+        long timedOut = 0;
+        try {
+            for (ConnectionPoolMetrics poolMetrics : oldDriver.metrics().connectionPoolMetrics()) {
+                busy += poolMetrics.inUse() + poolMetrics.acquiring();
+                acquired += poolMetrics.acquired();
+                acquisitionWaitMs += poolMetrics.totalAcquisitionTime();
+                timedOut += poolMetrics.timedOutToAcquire();
+            }
+        } catch (Exception ex) {
+            LOGGER.debug("Neo4j driver metrics are not available", ex);
+        }
+        if (busy > 0 && System.currentTimeMillis() < deadline) {
+            scheduleRetire(oldDriver, deadline);
+            return;
+        }
+        if (busy > 0) {
+            LOGGER.warn("Closing replaced Neo4j driver with {} connections still in use", busy);
+        }
+        if (retiredDrivers.remove(oldDriver)) {
+            retiredAcquisitions.addAndGet(acquired);
+            retiredAcquisitionWaitMs.addAndGet(acquisitionWaitMs);
+            retiredTimeouts.addAndGet(timedOut);
+            closeQuietly(oldDriver);
+        }
+    }
+
+    private void closeQuietly(Driver driver) {
+        if (driver == null) {
+            return;
+        }
+        try {
+            driver.close();
+        } catch (Exception ex) {
+            LOGGER.warn("Error occurred while closing Neo4j driver", ex);
+        }
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.airavata.drms.core.connection;
+
+/**
+ * Point in time snapshot of the Neo4j connection pool
+ */
+public class Neo4JPoolMetrics {
+
+    private final int inUse;
+    private final int idle;
+    private final int acquiring;
+    private final long acquired;
+    private final long timedOutToAcquire;
+    private final long totalAcquisitionWaitMs;
+    private final long driverRebuilds;
+    private final boolean healthy;
+
+    public Neo4JPoolMetrics(int inUse, int idle, int acquiring, long acquired, long timedOutToAcquire,
+                            long totalAcquisitionWaitMs, long driverRebuilds, boolean healthy) {
+        this.inUse = inUse;
+        this.idle = idle;
+        this.acquiring = acquiring;
+        this.acquired = acquired;
+        this.timedOutToAcquire = timedOutToAcquire;
+        this.totalAcquisitionWaitMs = totalAcquisitionWaitMs;
+        this.driverRebuilds = driverRebuilds;
+        this.healthy = healthy;
+    }
+
+    public int getInUse() {
+        return inUse;
+    }
+
+    public int getIdle() {
+        return idle;
+    }
+
+    public int getAcquiring() {
+        return acquiring;
+    }
+
+    public long getAcquired() {
+        return acquired;
+    }
+
+    public long getTimedOutToAcquire() {
+        return timedOutToAcquire;
+    }
+
+    public long getTotalAcquisitionWaitMs() {
+        return totalAcquisitionWaitMs;
+    }
+
+    public double getAverageAcquisitionWaitMs() {
+        return acquired == 0 ? 0 : (double) totalAcquisitionWaitMs / acquired;
+    }
+
+    public long getDriverRebuilds() {
+        return driverRebuilds;
+    }
+
+    public boolean isHealthy() {
+        return healthy;
+    }
+
+    @Override
+    public String toString() {
+        return "Neo4JPoolMetrics{" +
+                "inUse=" + inUse +
+                ", idle=" + idle +
+                ", acquiring=" + acquiring +
+                ", acquired=" + acquired +
+                ", timedOutToAcquire=" + timedOutToAcquire +
+                ", totalAcquisitionWaitMs=" + totalAcquisitionWaitMs +
+                ", driverRebuilds=" + driverRebuilds +
+                ", healthy=" + healthy +
+                '}';
+    }
+}
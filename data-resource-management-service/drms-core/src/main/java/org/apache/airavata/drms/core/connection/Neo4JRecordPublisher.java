@@ -0,0 +1,126 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.airavata.drms.core.connection;
+
+import org.neo4j.driver.Record;
+import org.neo4j.driver.reactive.RxSession;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Publishes the records of a read query from a reactive session. Records are only fetched from the server as the
+ * subscriber requests them, and the session is closed once the stream completes, fails or is cancelled.
+ */
+public class Neo4JRecordPublisher implements Publisher<Record> {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(Neo4JRecordPublisher.class);
+
+    private final Neo4JConnectionManager connectionManager;
+    private final String query;
+    private final Map<String, Object> parameters;
+
+    public Neo4JRecordPublisher(Neo4JConnectionManager connectionManager, String query, Map<String, Object> parameters) {
+        this.connectionManager = connectionManager;
+        this.query = query;
+        this.parameters = parameters;
+    }
+
+    @Override
+    public void subscribe(Subscriber<? super Record> subscriber) {
+        RxSession session = connectionManager.rxSession();
+        session.run(query, parameters).records().subscribe(new SessionScopedSubscriber(session, subscriber));
+    }
+
+    private class SessionScopedSubscriber implements Subscriber<Record> {
+
+        private final RxSession session;
+        private final Subscriber<? super Record> downstream;
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        SessionScopedSubscriber(RxSession session, Subscriber<? super Record> downstream) {
+            this.session = session;
+            this.downstream = downstream;
+        }
+
+        @Override
+        public void onSubscribe(Subscription subscription) {
+            downstream.onSubscribe(new Subscription() {
+                @Override
+                public void request(long n) {
+                    subscription.request(n);
+                }
+
+                @Override
+                public void cancel() {
+                    subscription.cancel();
+                    closeSession();
+                }
+            });
+        }
+
+        @Override
+        public void onNext(Record record) {
+            downstream.onNext(record);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            if (throwable instanceof Exception) {
+                connectionManager.reportFailure((Exception) throwable);
+            }
+            closeSession();
+            downstream.onError(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            closeSession();
+            downstream.onComplete();
+        }
+
+        private void closeSession() {
+            if (!closed.compareAndSet(false, true)) {
+                return;
+            }
+            session.close().subscribe(new Subscriber<Object>() {
+                @Override
+                public void onSubscribe(Subscription subscription) {
+                    subscription.request(Long.MAX_VALUE);
+                }
+
+                @Override
+                public void onNext(Object ignored) {
+                }
+
+                @Override
+                public void onError(Throwable throwable) {
+                    LOGGER.warn("Error occurred while closing reactive Neo4j session", throwable);
+                }
+
+                @Override
+                public void onComplete() {
+                }
+            });
+        }
+    }
+}
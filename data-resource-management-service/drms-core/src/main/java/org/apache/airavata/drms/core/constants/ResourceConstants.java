@@ -19,4 +19,8 @@ package org.apache.airavata.drms.core.constants;
 public class ResourceConstants {
     public static final String RESOURCE_LABEL = "Resource";
 
+    /**
+     * Resource node property incremented by every write of the resource, exposed as GenericResource.version
+     */
+    public static final String RESOURCE_VERSION = "resourceVersion";
 }
@@ -28,26 +28,23 @@ import org.springframework.beans.BeanWrapper;
 import org.springframework.beans.PropertyAccessorFactory;
 
 import java.lang.reflect.Field;
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import java.util.*;
 
 public class AnyStorageDeserializer {
 
     public static List<AnyStorage> deserializeList(List<Record> neo4jRecords) throws Exception {
         List<AnyStorage> storageList = new ArrayList<>();
-        List<Node> processedNodes = new ArrayList<>();
+        Set<Long> processedNodes = new HashSet<>();
         for (Record record : neo4jRecords) {
             InternalRecord internalRecord = (InternalRecord) record;
             List<Value> values = internalRecord.values();
             for (Value value : values) {
                 if (!value.isNull()) {
                     Node node = value.asNode();
-                    if (!processedNodes.contains(node)) {
+                    if (!processedNodes.contains(node.id())) {
                         if (node.hasLabel(StorageConstants.STORAGE_LABEL)) {
                             storageList.add(deriveStorageFromMap(node.asMap()));
-                            processedNodes.add(node);
+                            processedNodes.add(node.id());
                         }
                     }
                 }
@@ -83,8 +80,8 @@ public class AnyStorageDeserializer {
     }
 
     private static void setObjectFieldsUsingMap(Object target, Map<String, Object> values) {
+        BeanWrapper beanWrapper = PropertyAccessorFactory.forBeanPropertyAccess(target);
         for (String field : values.keySet()) {
-            BeanWrapper beanWrapper = PropertyAccessorFactory.forBeanPropertyAccess(target);
             try {
                 beanWrapper.setPropertyValue(field, values.get(field));
             }catch (Exception ex) {
@@ -105,8 +105,8 @@ public class AnyStoragePreferenceDeserializer {
     }
 
     private static void setObjectFieldsUsingMap(Object target, Map<String, Object> values) {
+        BeanWrapper beanWrapper = PropertyAccessorFactory.forBeanPropertyAccess(target);
         for (String field : values.keySet()) {
-            BeanWrapper beanWrapper = PropertyAccessorFactory.forBeanPropertyAccess(target);
             try {
                 beanWrapper.setPropertyValue(field, values.get(field));
             } catch (Exception ex) {
@@ -18,129 +18,232 @@
 package org.apache.airavata.drms.core.deserializer;
 
 import org.apache.airavata.datalake.drms.resource.GenericResource;
-import org.apache.commons.collections.map.HashedMap;
+import org.apache.airavata.drms.core.constants.ResourceConstants;
+import org.apache.airavata.drms.core.query.NodeLabel;
 import org.neo4j.driver.Record;
 import org.neo4j.driver.Value;
-import org.neo4j.driver.internal.InternalNode;
-import org.neo4j.driver.internal.InternalRecord;
-import org.neo4j.driver.internal.InternalRelationship;
+import org.neo4j.driver.Values;
 import org.neo4j.driver.types.Node;
 import org.neo4j.driver.types.Relationship;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.beans.BeanWrapper;
-import org.springframework.beans.PropertyAccessorFactory;
 
-import java.util.HashMap;
-import java.util.Iterator;
-import java.util.List;
-import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.*;
+import java.util.function.Function;
 
 public class GenericResourceDeserializer {
     public static final Logger LOGGER = LoggerFactory.getLogger(GenericResourceDeserializer.class);
 
+    /**
+     * Projection which only keeps the resource id, name, path and type, for callers that only need to know
+     * whether a resource came back
+     */
+    public static final Set<String> IDENTITY_ONLY = Collections.emptySet();
+
+    private static final String ENTITY_ID = "entityId";
+    private static final String RESOURCE_NAME = "resourceName";
+    private static final String NAME = "name";
+    private static final String RESOURCE_PATH = "resourcePath";
+    private static final String PERMISSION = "permission";
+
+    /**
+     * Properties {@link #deserializeFields(List, List)} needs besides the requested ones
+     */
+    public static final List<String> IDENTITY_FIELDS = Collections.unmodifiableList(Arrays.asList(ENTITY_ID,
+            RESOURCE_NAME, NAME, RESOURCE_PATH, ResourceConstants.RESOURCE_VERSION));
+
     public static List<GenericResource> deserializeList(List<Record> neo4jRecords) throws Exception {
-        Map<Long, Node> nodeMap = new HashedMap();
+        return deserializeList(neo4jRecords, (Set<String>) null);
+    }
+
+    /**
+     * @param projection properties to copy into each resource, or null to copy all of them
+     */
+    public static List<GenericResource> deserializeList(List<Record> neo4jRecords, Set<String> projection)
+            throws Exception {
+        Map<Long, Node> nodeMap = new LinkedHashMap<>();
         for (Record record : neo4jRecords) {
-            InternalRecord internalRecord = (InternalRecord) record;
-            List<Value> values = internalRecord.values();
-            if (values.size() > 0) {
-                Map<Long, Node> longNodeMap = values.stream().filter(val ->
-                        val.toString().equals("NULL") ? false : true
-                ).collect(Collectors.toMap(val -> val.asNode().id(),
-                        Value::asNode, (existing, replacement) -> existing));
-                nodeMap.putAll(longNodeMap);
+            for (Value value : record.values()) {
+                if (!value.isNull()) {
+                    Node node = value.asNode();
+                    nodeMap.putIfAbsent(node.id(), node);
+                }
             }
         }
 
-        return deriveGenericResourceFromMap(nodeMap);
+        List<GenericResource> resources = new ArrayList<>(nodeMap.size());
+        for (Node node : nodeMap.values()) {
+            resources.add(deriveGenericResource(node, null, projection));
+        }
+        return resources;
     }
 
-
     public static List<GenericResource> deserializeList(List<Record> neo4jRecords, List<String> keyValuePairs) throws Exception {
-        Map<Long, Node> nodeMap = new HashedMap();
+        return deserializeList(neo4jRecords, keyValuePairs, null);
+    }
+
+    /**
+     * @param projection properties to copy into each resource, or null to copy all of them
+     */
+    public static List<GenericResource> deserializeList(List<Record> neo4jRecords, List<String> keyValuePairs,
+                                                        Set<String> projection) throws Exception {
+        Map<Long, Node> nodeMap = new LinkedHashMap<>();
         Map<Long, Relationship> relationShip = new HashMap<>();
+        String[][] keys = splitKeys(keyValuePairs);
         for (Record record : neo4jRecords) {
-            InternalRecord internalRecord = (InternalRecord) record;
-            Map<String, Object> values = internalRecord.asMap();
-            keyValuePairs.forEach(val -> {
-                String[] keys = val.split(":");
-                String resource = keys[0];
-                String relationship = keys[1];
+            collectNodes(record, keys, nodeMap, relationShip);
+        }
+
+        return deriveGenericResourceFromMap(nodeMap, relationShip, projection);
+    }
 
-                InternalNode resNode = (InternalNode) values.get(resource);
-                InternalRelationship relNode = (InternalRelationship) values.get(relationship);
+    /**
+     * Deserializes the resources of a single record, for callers that consume a result as a stream
+     */
+    public static List<GenericResource> deserializeRecord(Record record, List<String> keyValuePairs) throws Exception {
+        return deserializeRecord(record, keyValuePairs, null);
+    }
 
-                if (resNode != null) {
-                    nodeMap.put(resNode.id(), resNode);
-                    relationShip.put(resNode.id(), relNode);
+    public static List<GenericResource> deserializeRecord(Record record, List<String> keyValuePairs,
+                                                          Set<String> projection) throws Exception {
+        Map<Long, Node> nodeMap = new LinkedHashMap<>();
+        Map<Long, Relationship> relationShip = new HashMap<>();
+        collectNodes(record, splitKeys(keyValuePairs), nodeMap, relationShip);
+        return deriveGenericResourceFromMap(nodeMap, relationShip, projection);
+    }
 
-                }
-            });
+    /**
+     * Deserializes records of labels and values columns, where values holds the given node properties in order,
+     * as returned by queries which only read the properties they need
+     *
+     * @param fields properties read by the query, starting with {@link #IDENTITY_FIELDS}
+     */
+    public static List<GenericResource> deserializeFields(List<Record> records, List<String> fields) {
+        Set<String> projection = new HashSet<>(fields.subList(IDENTITY_FIELDS.size(), fields.size()));
+        List<GenericResource> resources = new ArrayList<>(records.size());
+        for (Record record : records) {
+            List<String> labels = record.get("labels").asList(Value::asString);
+            List<Value> values = record.get("values").asList(value -> value);
+            Map<String, Value> properties = new HashMap<>();
+            for (int i = 0; i < fields.size() && i < values.size(); i++) {
+                properties.put(fields.get(i), values.get(i));
+            }
+            resources.add(build(labels, key -> properties.getOrDefault(key, Values.NULL), properties.keySet(),
+                    null, projection));
         }
-
-        return deriveGenericResourceFromMap(nodeMap,relationShip);
+        return resources;
     }
 
+    private static String[][] splitKeys(List<String> keyValuePairs) {
+        String[][] keys = new String[keyValuePairs.size()][];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = keyValuePairs.get(i).split(":");
+        }
+        return keys;
+    }
 
-    public static List<GenericResource> deriveGenericResourceFromMap(Map<Long, Node> nodeMap, Map<Long, Relationship> relationshipMap) throws Exception {
-        return nodeMap.values().stream().map(node -> {
-            GenericResource.Builder genericResourceBuilder = GenericResource.newBuilder();
-            Iterator<String> iterator = node.labels().iterator();
-            while (iterator.hasNext()) {
-                genericResourceBuilder.setType(iterator.next());
-            }
-            for (String field : node.asMap().keySet()) {
-                genericResourceBuilder.putProperties(field, String.valueOf(node.asMap().get(field)));
-                if (field.equals("entityId")) {
-                    genericResourceBuilder.setResourceId(String.valueOf(node.asMap().get(field)));
-                }
-                if (field.equals("resourceName") || field.equals("name")) {
-                    genericResourceBuilder.setResourceName(String.valueOf(node.asMap().get(field)));
-                }
-                if (field.equals("resourcePath")) {
-                    genericResourceBuilder.setResourcePath(String.valueOf(node.asMap().get(field)));
-                }
-                genericResourceBuilder.putProperties("permission",
-                        relationshipMap.get(node.id()).asMap().get("permission").toString());
+    private static void collectNodes(Record record, String[][] keys, Map<Long, Node> nodeMap,
+                                     Map<Long, Relationship> relationShip) {
+        for (String[] key : keys) {
+            Value resource = record.get(key[0]);
+            if (resource.isNull()) {
+                continue;
             }
-            return genericResourceBuilder.build();
-        }).collect(Collectors.toList());
+            Node resNode = resource.asNode();
+            Value relationship = record.get(key[1]);
+            nodeMap.put(resNode.id(), resNode);
+            relationShip.put(resNode.id(), relationship.isNull() ? null : relationship.asRelationship());
+        }
+    }
 
+    public static List<GenericResource> deriveGenericResourceFromMap(Map<Long, Node> nodeMap, Map<Long, Relationship> relationshipMap) throws Exception {
+        return deriveGenericResourceFromMap(nodeMap, relationshipMap, null);
     }
 
+    public static List<GenericResource> deriveGenericResourceFromMap(Map<Long, Node> nodeMap,
+                                                                     Map<Long, Relationship> relationshipMap,
+                                                                     Set<String> projection) throws Exception {
+        List<GenericResource> resources = new ArrayList<>(nodeMap.size());
+        for (Node node : nodeMap.values()) {
+            resources.add(deriveGenericResource(node, relationshipMap.get(node.id()), projection));
+        }
+        return resources;
+    }
 
     public static List<GenericResource> deriveGenericResourceFromMap(Map<Long, Node> nodeMap) throws Exception {
-        return nodeMap.values().stream().map(node -> {
-            GenericResource.Builder genericResourceBuilder = GenericResource.newBuilder();
-            Iterator<String> iterator = node.labels().iterator();
-            while (iterator.hasNext()) {
-                genericResourceBuilder.setType(iterator.next());
+        List<GenericResource> resources = new ArrayList<>(nodeMap.size());
+        for (Node node : nodeMap.values()) {
+            resources.add(deriveGenericResource(node, null, null));
+        }
+        return resources;
+    }
+
+    /**
+     * Converts a node in a single pass over its properties. Property values are read straight from the node
+     * instead of through {@link Node#asMap()}, which copies every property into a new map.
+     *
+     * @param relationship SHARED_WITH relationship carrying the caller's permission, if any
+     * @param projection   properties to copy into the resource, or null to copy all of them
+     */
+    public static GenericResource deriveGenericResource(Node node, Relationship relationship, Set<String> projection) {
+        return build(node.labels(), node::get, node.keys(), relationship, projection);
+    }
+
+    private static GenericResource build(Iterable<String> labels, Function<String, Value> property,
+                                         Iterable<String> keys, Relationship relationship, Set<String> projection) {
+        GenericResource.Builder genericResourceBuilder = GenericResource.newBuilder();
+        for (String label : labels) {
+            if (!NodeLabel.RESOURCE.getLabel().equals(label)) {
+                genericResourceBuilder.setType(label);
             }
-            for (String field : node.asMap().keySet()) {
-                genericResourceBuilder.putProperties(field, String.valueOf(node.asMap().get(field)));
-                if (field.equals("entityId")) {
-                    genericResourceBuilder.setResourceId(String.valueOf(node.asMap().get(field)));
-                }
-                if (field.equals("resourceName") || field.equals("name")) {
-                    genericResourceBuilder.setResourceName(String.valueOf(node.asMap().get(field)));
+        }
+
+        String resourceId = stringValue(property.apply(ENTITY_ID));
+        if (resourceId != null) {
+            genericResourceBuilder.setResourceId(resourceId);
+        }
+        String resourceName = stringValue(property.apply(RESOURCE_NAME));
+        if (resourceName == null) {
+            resourceName = stringValue(property.apply(NAME));
+        }
+        if (resourceName != null) {
+            genericResourceBuilder.setResourceName(resourceName);
+        }
+        String resourcePath = stringValue(property.apply(RESOURCE_PATH));
+        if (resourcePath != null) {
+            genericResourceBuilder.setResourcePath(resourcePath);
+        }
+        Value version = property.apply(ResourceConstants.RESOURCE_VERSION);
+        if (!version.isNull()) {
+            genericResourceBuilder.setVersion(version.asLong());
+        }
+
+        if (projection == null) {
+            for (String field : keys) {
+                // The version is a field of its own, and must not be written back as a property by updates
+                if (!ResourceConstants.RESOURCE_VERSION.equals(field)) {
+                    genericResourceBuilder.putProperties(field, String.valueOf(property.apply(field).asObject()));
                 }
-                if (field.equals("resourcePath")) {
-                    genericResourceBuilder.setResourcePath(String.valueOf(node.asMap().get(field)));
+            }
+        } else {
+            for (String field : projection) {
+                String value = stringValue(property.apply(field));
+                if (value != null) {
+                    genericResourceBuilder.putProperties(field, value);
                 }
             }
-            return genericResourceBuilder.build();
-        }).collect(Collectors.toList());
-
-    }
+        }
 
-    private static void setObjectFieldsUsingMap(Object target, Map<String, Object> values) {
-        for (String field : values.keySet()) {
-            BeanWrapper beanWrapper = PropertyAccessorFactory.forBeanPropertyAccess(target);
-            beanWrapper.setPropertyValue(field, values.get(field));
+        if (relationship != null && (projection == null || projection.contains(PERMISSION))) {
+            String permission = stringValue(relationship.get(PERMISSION));
+            if (permission != null) {
+                genericResourceBuilder.putProperties(PERMISSION, permission);
+            }
         }
+        return genericResourceBuilder.build();
     }
 
-
+    private static String stringValue(Value value) {
+        return value.isNull() ? null : String.valueOf(value.asObject());
+    }
 }
@@ -0,0 +1,181 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.airavata.drms.core.deserializer;
+
+import com.google.protobuf.Descriptors;
+import com.google.protobuf.FieldMask;
+import org.apache.airavata.datalake.drms.resource.GenericResource;
+
+import java.util.*;
+
+/**
+ * Fields of {@link GenericResource} requested through the read_mask of a fetch or search request.
+ * <p>
+ * Paths are GenericResource field names, storage for either storage and properties.&lt;key&gt; for a single
+ * property. Properties are trimmed while deserializing, see {@link #getPropertiesToRead()}, and the other fields
+ * when the response is built, as resource ids are needed until then for paging and access checks. parent_id and
+ * parent_resource_path are filled from the parentId and parentResourcePath properties of the resource node.
+ */
+public class ResourceProjection {
+
+    /**
+     * Projection of an empty mask, returning resources as they are deserialized
+     */
+    public static final ResourceProjection ALL = new ResourceProjection(null, null);
+
+    public static final String STORAGE = "storage";
+    public static final String PROPERTIES_PREFIX = "properties.";
+
+    private static final String PARENT_ID_PROPERTY = "parentId";
+    private static final String PARENT_RESOURCE_PATH_PROPERTY = "parentResourcePath";
+
+    private static final Descriptors.Descriptor DESCRIPTOR = GenericResource.getDescriptor();
+
+    // Requested top level fields, or null for every field
+    private final Set<String> fields;
+    // Requested properties, or null for every property
+    private final Set<String> properties;
+
+    private ResourceProjection(Set<String> fields, Set<String> properties) {
+        this.fields = fields;
+        this.properties = properties;
+    }
+
+    /**
+     * @throws IllegalArgumentException for a path which is not a field of GenericResource
+     */
+    public static ResourceProjection of(FieldMask mask) {
+        if (mask == null || mask.getPathsCount() == 0) {
+            return ALL;
+        }
+        String propertiesField = field(GenericResource.PROPERTIES_FIELD_NUMBER);
+        Set<String> fields = new HashSet<>();
+        Set<String> properties = new HashSet<>();
+        boolean allProperties = false;
+        for (String path : mask.getPathsList()) {
+            if (path.startsWith(PROPERTIES_PREFIX) && path.length() > PROPERTIES_PREFIX.length()) {
+                fields.add(propertiesField);
+                properties.add(path.substring(PROPERTIES_PREFIX.length()));
+            } else if (path.equals(STORAGE) || DESCRIPTOR.findFieldByName(path) != null) {
+                fields.add(path);
+                allProperties |= path.equals(propertiesField);
+            } else {
+                throw new IllegalArgumentException("Unknown read_mask path " + path);
+            }
+        }
+        return new ResourceProjection(fields, allProperties ? null : properties);
+    }
+
+    public boolean isAll() {
+        return fields == null;
+    }
+
+    public boolean includes(String field) {
+        return fields == null || fields.contains(field);
+    }
+
+    /**
+     * @return whether the storage of the resource has to be looked up
+     */
+    public boolean includesStorage() {
+        return fields == null || fields.contains(STORAGE)
+                || fields.contains(field(GenericResource.SSH_STORAGE_FIELD_NUMBER))
+                || fields.contains(field(GenericResource.S3_STORAGE_FIELD_NUMBER));
+    }
+
+    /**
+     * @return requested properties, or null if every property is requested
+     */
+    public Set<String> getProperties() {
+        return properties;
+    }
+
+    /**
+     * @return node properties the deserializer has to copy, or null for all of them. Includes the properties
+     * parent fields are filled from.
+     */
+    public Set<String> getPropertiesToRead() {
+        if (properties == null) {
+            return null;
+        }
+        Set<String> read = new HashSet<>(properties);
+        if (fields.contains(field(GenericResource.PARENT_ID_FIELD_NUMBER))) {
+            read.add(PARENT_ID_PROPERTY);
+        }
+        if (fields.contains(field(GenericResource.PARENT_RESOURCE_PATH_FIELD_NUMBER))) {
+            read.add(PARENT_RESOURCE_PATH_PROPERTY);
+        }
+        return read;
+    }
+
+    public List<GenericResource> apply(List<GenericResource> resources) {
+        if (isAll()) {
+            return resources;
+        }
+        List<GenericResource> projected = new ArrayList<>(resources.size());
+        for (GenericResource resource : resources) {
+            projected.add(apply(resource));
+        }
+        return projected;
+    }
+
+    public GenericResource apply(GenericResource resource) {
+        if (isAll()) {
+            return resource;
+        }
+        GenericResource.Builder builder = GenericResource.newBuilder();
+        for (Map.Entry<Descriptors.FieldDescriptor, Object> field : resource.getAllFields().entrySet()) {
+            Descriptors.FieldDescriptor descriptor = field.getKey();
+            if (descriptor.getNumber() == GenericResource.PROPERTIES_FIELD_NUMBER) {
+                continue;
+            }
+            boolean storage = descriptor.getContainingOneof() != null
+                    && descriptor.getContainingOneof().getName().equals(STORAGE);
+            if (fields.contains(descriptor.getName()) || (storage && fields.contains(STORAGE))) {
+                builder.setField(descriptor, field.getValue());
+            }
+        }
+
+        Map<String, String> resourceProperties = resource.getPropertiesMap();
+        if (includes(field(GenericResource.PROPERTIES_FIELD_NUMBER))) {
+            if (properties == null) {
+                builder.putAllProperties(resourceProperties);
+            } else {
+                for (String key : properties) {
+                    String value = resourceProperties.get(key);
+                    if (value != null) {
+                        builder.putProperties(key, value);
+                    }
+                }
+            }
+        }
+        if (fields.contains(field(GenericResource.PARENT_ID_FIELD_NUMBER)) && resource.getParentId().isEmpty()
+                && resourceProperties.containsKey(PARENT_ID_PROPERTY)) {
+            builder.setParentId(resourceProperties.get(PARENT_ID_PROPERTY));
+        }
+        if (fields.contains(field(GenericResource.PARENT_RESOURCE_PATH_FIELD_NUMBER))
+                && resource.getParentResourcePath().isEmpty()
+                && resourceProperties.containsKey(PARENT_RESOURCE_PATH_PROPERTY)) {
+            builder.setParentResourcePath(resourceProperties.get(PARENT_RESOURCE_PATH_PROPERTY));
+        }
+        return builder.build();
+    }
+
+    private static String field(int number) {
+        return DESCRIPTOR.findFieldByNumber(number).getName();
+    }
+}
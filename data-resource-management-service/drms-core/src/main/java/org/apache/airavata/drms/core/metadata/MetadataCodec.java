@@ -0,0 +1,37 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.airavata.drms.core.metadata;
+
+import com.google.protobuf.Value;
+
+import java.io.IOException;
+
+/**
+ * Encoding of the values of a metadata document. Every top level value is encoded on its own into a property of
+ * the FULL_METADATA_NODE, and the node records the name of the codec which wrote it.
+ */
+public interface MetadataCodec {
+
+    String getName();
+
+    /**
+     * @return a String or byte[] property value
+     */
+    Object encode(Value value) throws IOException;
+
+    Value decode(Object stored) throws IOException;
+}
@@ -0,0 +1,142 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.airavata.drms.core.metadata;
+
+import com.google.protobuf.Value;
+import com.google.protobuf.util.JsonFormat;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Built in {@link MetadataCodec}s. JSON keeps values readable from Cypher; the compressed codecs trade that for a
+ * much smaller store, STRUCT_GZIP also skipping JSON parsing when documents are returned as Structs.
+ */
+public final class MetadataCodecs {
+
+    private MetadataCodecs() {
+    }
+
+    public static final MetadataCodec JSON = new MetadataCodec() {
+        @Override
+        public String getName() {
+            return "json";
+        }
+
+        @Override
+        public Object encode(Value value) throws IOException {
+            return JsonFormat.printer().omittingInsignificantWhitespace().print(value);
+        }
+
+        @Override
+        public Value decode(Object stored) throws IOException {
+            Value.Builder value = Value.newBuilder();
+            JsonFormat.parser().merge(stored.toString(), value);
+            return value.build();
+        }
+    };
+
+    public static final MetadataCodec JSON_GZIP = new MetadataCodec() {
+        @Override
+        public String getName() {
+            return "json-gzip";
+        }
+
+        @Override
+        public Object encode(Value value) throws IOException {
+            return gzip(((String) JSON.encode(value)).getBytes(StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public Value decode(Object stored) throws IOException {
+            return JSON.decode(new String(gunzip((byte[]) stored), StandardCharsets.UTF_8));
+        }
+    };
+
+    public static final MetadataCodec STRUCT_GZIP = new MetadataCodec() {
+        @Override
+        public String getName() {
+            return "struct-gzip";
+        }
+
+        @Override
+        public Object encode(Value value) throws IOException {
+            return gzip(value.toByteArray());
+        }
+
+        @Override
+        public Value decode(Object stored) throws IOException {
+            return Value.parseFrom(gunzip((byte[]) stored));
+        }
+    };
+
+    private static final Map<String, MetadataCodec> CODECS = new LinkedHashMap<>();
+
+    static {
+        register(JSON);
+        register(JSON_GZIP);
+        register(STRUCT_GZIP);
+    }
+
+    /**
+     * @throws IllegalArgumentException if no codec has the name
+     */
+    public static synchronized MetadataCodec of(String name) {
+        MetadataCodec codec = CODECS.get(name);
+        if (codec == null) {
+            throw new IllegalArgumentException("Unsupported metadata codec " + name);
+        }
+        return codec;
+    }
+
+    public static synchronized void register(MetadataCodec codec) {
+        CODECS.put(codec.getName(), codec);
+    }
+
+    public static synchronized List<MetadataCodec> all() {
+        return new ArrayList<>(CODECS.values());
+    }
+
+    private static byte[] gzip(byte[] bytes) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length / 4 + 32);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(bytes);
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] gunzip(byte[] bytes) throws IOException {
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(bytes))) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length * 4);
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            return out.toByteArray();
+        }
+    }
+}
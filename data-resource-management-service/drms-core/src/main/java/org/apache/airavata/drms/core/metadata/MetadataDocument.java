@@ -0,0 +1,121 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.airavata.drms.core.metadata;
+
+import com.google.protobuf.Struct;
+import com.google.protobuf.Value;
+import com.google.protobuf.util.JsonFormat;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A FULL_METADATA_NODE as read from the graph. Entries stay encoded until they are asked for, and only the asked
+ * ones are decoded.
+ */
+public class MetadataDocument {
+
+    public static final String ENTRY_PREFIX = "entry.";
+    public static final String VERSION = "version";
+    public static final String CODEC = "codec";
+    // Whole JSON document written before documents were split into entries
+    public static final String LEGACY_DOCUMENT = "metadata";
+
+    private final long nodeId;
+    private final Map<String, Object> properties;
+
+    public MetadataDocument(long nodeId, Map<String, Object> properties) {
+        this.nodeId = nodeId;
+        this.properties = properties;
+    }
+
+    public long getNodeId() {
+        return nodeId;
+    }
+
+    /**
+     * @return version of the document, legacy documents being at version 1
+     */
+    public long getVersion() {
+        Object version = properties.get(VERSION);
+        if (version instanceof Number) {
+            return ((Number) version).longValue();
+        }
+        return isLegacy() ? 1 : 0;
+    }
+
+    /**
+     * @return the stored version, or -1 if none is stored, as compared by the RECODE_METADATA template
+     */
+    public long getStoredVersion() {
+        Object version = properties.get(VERSION);
+        return version instanceof Number ? ((Number) version).longValue() : -1;
+    }
+
+    public boolean isLegacy() {
+        return properties.get(LEGACY_DOCUMENT) != null;
+    }
+
+    /**
+     * @return name of the codec of the entries. Entries written before codecs were recorded are JSON
+     */
+    public String getCodecName() {
+        Object codec = properties.get(CODEC);
+        return codec == null ? MetadataCodecs.JSON.getName() : codec.toString();
+    }
+
+    /**
+     * @param keys top level keys to decode, or empty for the whole document
+     */
+    public Struct toStruct(Collection<String> keys) throws IOException {
+        Struct.Builder struct = Struct.newBuilder();
+        if (isLegacy()) {
+            Struct.Builder document = Struct.newBuilder();
+            JsonFormat.parser().merge(properties.get(LEGACY_DOCUMENT).toString(), document);
+            for (Map.Entry<String, Value> field : document.getFieldsMap().entrySet()) {
+                if (keys.isEmpty() || keys.contains(field.getKey())) {
+                    struct.putFields(field.getKey(), field.getValue());
+                }
+            }
+            return struct.build();
+        }
+        MetadataCodec codec = MetadataCodecs.of(getCodecName());
+        for (Map.Entry<String, Object> property : properties.entrySet()) {
+            if (property.getKey().startsWith(ENTRY_PREFIX)) {
+                String key = property.getKey().substring(ENTRY_PREFIX.length());
+                if (keys.isEmpty() || keys.contains(key)) {
+                    struct.putFields(key, codec.decode(property.getValue()));
+                }
+            }
+        }
+        return struct.build();
+    }
+
+    /**
+     * @return every entry of the document encoded with the given codec
+     */
+    public Map<String, Object> encodeEntries(MetadataCodec codec) throws IOException {
+        Map<String, Object> entries = new HashMap<>();
+        for (Map.Entry<String, Value> field : toStruct(Collections.emptySet()).getFieldsMap().entrySet()) {
+            entries.put(ENTRY_PREFIX + field.getKey(), codec.encode(field.getValue()));
+        }
+        return entries;
+    }
+}
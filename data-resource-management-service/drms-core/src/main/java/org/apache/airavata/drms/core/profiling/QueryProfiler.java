@@ -0,0 +1,242 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.airavata.drms.core.profiling;
+
+import org.neo4j.driver.summary.ProfiledPlan;
+import org.neo4j.driver.summary.ResultSummary;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+
+/**
+ * Per query latency, row and db hit accounting for {@link org.apache.airavata.drms.core.Neo4JConnector}.
+ * <p>
+ * Queries are named after their {@link org.apache.airavata.drms.core.query.QueryTemplate}, or after a hash of the
+ * statement for ad hoc Cypher, prefixed with the operation the calling thread is serving, for example
+ * fetchResource.accessibleResource. Queries slower than the threshold are written to the
+ * {@value #SLOW_QUERY_LOGGER} logger, which is expected to go to its own rolling file. Read queries can also have
+ * their PROFILE plan captured there, at most once per name and interval; the profile re-executes the query on a
+ * background thread, so it is off by default.
+ */
+public class QueryProfiler {
+
+    public static final String SLOW_QUERY_LOGGER = "org.apache.airavata.drms.slowquery";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(QueryProfiler.class);
+    private static final Logger SLOW_QUERY_LOG = LoggerFactory.getLogger(SLOW_QUERY_LOGGER);
+
+    private static final String OVERFLOW_NAME = "other";
+    private static final ThreadLocal<String> OPERATION = new ThreadLocal<>();
+
+    private final Map<String, QueryStats> stats = new ConcurrentHashMap<>();
+    private final BiFunction<String, Map<String, Object>, ResultSummary> profileRunner;
+
+    private volatile boolean enabled = true;
+    private volatile long slowQueryThresholdMillis = 1000;
+    private volatile boolean profileSlowQueries = false;
+    private volatile long profileIntervalMillis = TimeUnit.MINUTES.toMillis(5);
+    private volatile int maxNames = 1000;
+
+    private final ThreadPoolExecutor profileExecutor = new ThreadPoolExecutor(1, 1, 60, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(16), runnable -> {
+        Thread thread = new Thread(runnable, "drms-query-profiler");
+        thread.setDaemon(true);
+        return thread;
+    }, new ThreadPoolExecutor.DiscardPolicy());
+
+    /**
+     * @param profileRunner runs the given statement prefixed with PROFILE and discards its effects
+     */
+    public QueryProfiler(BiFunction<String, Map<String, Object>, ResultSummary> profileRunner) {
+        this.profileRunner = profileRunner;
+    }
+
+    /**
+     * Names the queries run by the current thread until {@link #exitOperation(String)}
+     *
+     * @return the operation to restore on exit
+     */
+    public static String enterOperation(String operation) {
+        String previous = OPERATION.get();
+        OPERATION.set(operation);
+        return previous;
+    }
+
+    public static void exitOperation(String previous) {
+        if (previous == null) {
+            OPERATION.remove();
+        } else {
+            OPERATION.set(previous);
+        }
+    }
+
+    /**
+     * @param templateName template of the statement, or null for ad hoc Cypher
+     * @return counters of the query, or null when profiling is disabled
+     */
+    public QueryStats begin(String templateName, String statement) {
+        if (!enabled) {
+            return null;
+        }
+        String queryName = templateName != null ? templateName :
+                "q" + Integer.toHexString(statement.hashCode());
+        String operation = OPERATION.get();
+        String name = operation == null ? queryName : operation + "." + queryName;
+        QueryStats queryStats = stats.get(name);
+        if (queryStats == null) {
+            if (stats.size() >= maxNames) {
+                // Ad hoc statements with inlined values would otherwise grow the map without bound
+                name = operation == null ? OVERFLOW_NAME : operation + "." + OVERFLOW_NAME;
+            }
+            queryStats = stats.computeIfAbsent(name, key -> new QueryStats(key, statement));
+        }
+        return queryStats;
+    }
+
+    /**
+     * @param profileable whether the statement may be executed again to capture its plan
+     */
+    public void end(QueryStats queryStats, String statement, Map<String, Object> parameters, long startNanos,
+                    int rows, boolean failed, boolean profileable) {
+        if (queryStats == null) {
+            return;
+        }
+        long nanos = System.nanoTime() - startNanos;
+        queryStats.record(nanos, rows, failed);
+        long millis = nanos / 1_000_000;
+        if (millis < slowQueryThresholdMillis) {
+            return;
+        }
+        queryStats.recordSlow();
+        SLOW_QUERY_LOG.warn("{} took {} ms and returned {} rows{}, parameters {}: {}", queryStats.getName(), millis,
+                rows, failed ? " before failing" : "", parameters == null ? "[]" : parameters.keySet(), statement);
+        if (profileable && profileSlowQueries
+                && queryStats.claimProfile(System.currentTimeMillis(), profileIntervalMillis)) {
+            Map<String, Object> copy = parameters == null ? Collections.emptyMap() : new HashMap<>(parameters);
+            try {
+                profileExecutor.execute(() -> captureProfile(queryStats, statement, copy));
+            } catch (RejectedExecutionException ex) {
+                LOGGER.debug("Skipped profiling {}", queryStats.getName());
+            }
+        }
+    }
+
+    private void captureProfile(QueryStats queryStats, String statement, Map<String, Object> parameters) {
+        try {
+            ResultSummary summary = profileRunner.apply(statement, parameters);
+            if (summary.hasProfile()) {
+                ProfiledPlan plan = summary.profile();
+                long dbHits = totalDbHits(plan);
+                queryStats.recordProfile(dbHits);
+                StringBuilder text = new StringBuilder();
+                describe(plan, 0, text);
+                SLOW_QUERY_LOG.warn("PROFILE of {}: {} db hits, {} rows{}", queryStats.getName(), dbHits,
+                        plan.records(), text);
+            }
+        } catch (Exception ex) {
+            LOGGER.warn("Could not profile {}: {}", queryStats.getName(), ex.getMessage());
+        }
+    }
+
+    private static long totalDbHits(ProfiledPlan plan) {
+        long dbHits = plan.dbHits();
+        for (ProfiledPlan child : plan.children()) {
+            dbHits += totalDbHits(child);
+        }
+        return dbHits;
+    }
+
+    private static void describe(ProfiledPlan plan, int depth, StringBuilder text) {
+        text.append(System.lineSeparator());
+        for (int i = 0; i < depth; i++) {
+            text.append("  ");
+        }
+        text.append(plan.operatorType()).append(" rows=").append(plan.records())
+                .append(" dbHits=").append(plan.dbHits());
+        if (plan.arguments().containsKey("Details")) {
+            text.append(' ').append(plan.arguments().get("Details").asString());
+        }
+        for (ProfiledPlan child : plan.children()) {
+            describe(child, depth + 1, text);
+        }
+    }
+
+    /**
+     * @return stats of every query seen, slowest total time first
+     */
+    public List<QueryStats> getStats() {
+        List<QueryStats> all = new ArrayList<>(stats.values());
+        all.sort(Comparator.comparingDouble(QueryStats::getTotalMillis).reversed());
+        return all;
+    }
+
+    public QueryStats getStats(String name) {
+        return stats.get(name);
+    }
+
+    public void reset() {
+        stats.clear();
+    }
+
+    public void close() {
+        profileExecutor.shutdownNow();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public QueryProfiler setEnabled(boolean enabled) {
+        this.enabled = enabled;
+        return this;
+    }
+
+    public long getSlowQueryThresholdMillis() {
+        return slowQueryThresholdMillis;
+    }
+
+    public QueryProfiler setSlowQueryThresholdMillis(long slowQueryThresholdMillis) {
+        this.slowQueryThresholdMillis = slowQueryThresholdMillis;
+        return this;
+    }
+
+    public boolean isProfileSlowQueries() {
+        return profileSlowQueries;
+    }
+
+    public QueryProfiler setProfileSlowQueries(boolean profileSlowQueries) {
+        this.profileSlowQueries = profileSlowQueries;
+        return this;
+    }
+
+    public QueryProfiler setProfileIntervalMillis(long profileIntervalMillis) {
+        this.profileIntervalMillis = profileIntervalMillis;
+        return this;
+    }
+
+    public QueryProfiler setMaxNames(int maxNames) {
+        this.maxNames = maxNames;
+        return this;
+    }
+}
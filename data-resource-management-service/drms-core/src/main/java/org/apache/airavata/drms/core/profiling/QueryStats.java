@@ -0,0 +1,173 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.airavata.drms.core.profiling;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters of one logical query. Latencies go into a fixed bucket histogram, so percentiles are reported as the
+ * upper bound of the bucket they fall in.
+ */
+public class QueryStats {
+
+    /**
+     * Upper bounds of the latency buckets in milliseconds; a last, unbounded bucket holds anything slower
+     */
+    public static final long[] BUCKET_BOUNDS_MS = {1, 2, 5, 10, 25, 50, 100, 250, 500, 1000, 2500, 5000, 10000};
+
+    private final String name;
+    private final String statement;
+    private final LongAdder count = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder rows = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final AtomicLong maxNanos = new AtomicLong();
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_BOUNDS_MS.length + 1);
+    private final LongAdder slow = new LongAdder();
+    private final LongAdder profiles = new LongAdder();
+    private final LongAdder profiledDbHits = new LongAdder();
+    private final AtomicLong lastProfiledDbHits = new AtomicLong(-1);
+    private final AtomicLong lastProfileMillis = new AtomicLong();
+
+    QueryStats(String name, String statement) {
+        this.name = name;
+        this.statement = statement;
+    }
+
+    void record(long nanos, int rowCount, boolean failed) {
+        count.increment();
+        if (failed) {
+            failures.increment();
+        }
+        rows.add(rowCount);
+        totalNanos.add(nanos);
+        maxNanos.accumulateAndGet(nanos, Math::max);
+        long millis = nanos / 1_000_000;
+        int bucket = 0;
+        while (bucket < BUCKET_BOUNDS_MS.length && millis >= BUCKET_BOUNDS_MS[bucket]) {
+            bucket++;
+        }
+        buckets.incrementAndGet(bucket);
+    }
+
+    void recordSlow() {
+        slow.increment();
+    }
+
+    void recordProfile(long dbHits) {
+        profiles.increment();
+        profiledDbHits.add(dbHits);
+        lastProfiledDbHits.set(dbHits);
+    }
+
+    /**
+     * Claims the right to capture a plan, at most once per interval
+     */
+    boolean claimProfile(long now, long intervalMillis) {
+        long last = lastProfileMillis.get();
+        return now - last >= intervalMillis && lastProfileMillis.compareAndSet(last, now);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return the statement first executed under this name
+     */
+    public String getStatement() {
+        return statement;
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public long getFailures() {
+        return failures.sum();
+    }
+
+    public long getRows() {
+        return rows.sum();
+    }
+
+    public long getSlowCount() {
+        return slow.sum();
+    }
+
+    public double getAverageMillis() {
+        long executions = count.sum();
+        return executions == 0 ? 0 : totalNanos.sum() / 1_000_000.0 / executions;
+    }
+
+    public double getMaxMillis() {
+        return maxNanos.get() / 1_000_000.0;
+    }
+
+    public double getTotalMillis() {
+        return totalNanos.sum() / 1_000_000.0;
+    }
+
+    /**
+     * @param percentile between 0 and 100
+     * @return upper bound of the bucket holding the percentile, or the maximum for the unbounded bucket
+     */
+    public double getPercentileMillis(double percentile) {
+        long total = 0;
+        for (int i = 0; i < buckets.length(); i++) {
+            total += buckets.get(i);
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(total * percentile / 100.0);
+        long seen = 0;
+        for (int i = 0; i < BUCKET_BOUNDS_MS.length; i++) {
+            seen += buckets.get(i);
+            if (seen >= rank) {
+                return Math.min(BUCKET_BOUNDS_MS[i], getMaxMillis());
+            }
+        }
+        return getMaxMillis();
+    }
+
+    public long[] getHistogram() {
+        long[] histogram = new long[buckets.length()];
+        for (int i = 0; i < histogram.length; i++) {
+            histogram[i] = buckets.get(i);
+        }
+        return histogram;
+    }
+
+    public long getProfiles() {
+        return profiles.sum();
+    }
+
+    /**
+     * @return average db hits of the captured PROFILE plans, or -1 if none was captured
+     */
+    public double getAverageProfiledDbHits() {
+        long captured = profiles.sum();
+        return captured == 0 ? -1 : (double) profiledDbHits.sum() / captured;
+    }
+
+    public long getLastProfiledDbHits() {
+        return lastProfiledDbHits.get();
+    }
+}
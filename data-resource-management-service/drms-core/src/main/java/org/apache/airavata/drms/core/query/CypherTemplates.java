@@ -0,0 +1,502 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.airavata.drms.core.query;
+
+import org.apache.airavata.drms.core.ancestry.AncestryIndex;
+
+/**
+ * Registry of the parameterised Cypher statements used by DRMS. {0} is the label of the searched resource type.
+ */
+public final class CypherTemplates {
+
+    private CypherTemplates() {
+    }
+
+    // Metadata and property search. $criteria is a list of {field, pattern} maps which all have to match
+
+    public static final QueryTemplate METADATA_SEARCH = new QueryTemplate("metadataSearch",
+            " MATCH (r:{0})-[:HAS_METADATA*]->(m)" +
+                    " WHERE ALL(criterion IN $criteria WHERE m[criterion.field] =~ criterion.pattern)" +
+                    " RETURN r");
+
+    public static final QueryTemplate METADATA_SEARCH_IN_STORAGE = new QueryTemplate("metadataSearchInStorage",
+            " MATCH (s:Storage {entityId: $storageId})<-[:CHILD_OF*]-(r:{0})-[:HAS_METADATA*]->(m)" +
+                    " WHERE ALL(criterion IN $criteria WHERE m[criterion.field] =~ criterion.pattern)" +
+                    " RETURN r");
+
+    public static final QueryTemplate METADATA_EXACT_SEARCH = new QueryTemplate("metadataExactSearch",
+            " MATCH (r:{0})-[:HAS_METADATA*]->(m:METADATA_NODE) WHERE m[$field] = $value" +
+                    " RETURN r");
+
+    public static final QueryTemplate PROPERTY_SEARCH = new QueryTemplate("propertySearch",
+            " MATCH (r:{0}) WHERE r[$field] CONTAINS $value RETURN r");
+
+    public static final QueryTemplate PROPERTY_SEARCH_IN_STORAGE = new QueryTemplate("propertySearchInStorage",
+            " MATCH (s:Storage {entityId: $storageId})<-[:CHILD_OF*]-(r:{0}) WHERE r[$field] CONTAINS $value RETURN r");
+
+    // Full-text metadata and property search, see FullTextQuery. $criteria is a list of {field, value, patterns}
+    // maps which all have to match; $storageId may be null. The *_MATCH_SEARCH variants apply the same criteria to
+    // resource properties which are not covered by the index
+
+    private static final String METADATA_FULLTEXT =
+            " CALL db.index.fulltext.queryNodes('" + FullTextQuery.METADATA_INDEX + "', $luceneQuery) YIELD node AS m" +
+                    " WITH m WHERE m.tenantId = $tenantId AND" + matchesCriteria("m");
+
+    private static final String RESOURCE_FULLTEXT =
+            " CALL db.index.fulltext.queryNodes('" + FullTextQuery.RESOURCE_INDEX + "', $luceneQuery) YIELD node AS r" +
+                    " WITH r WHERE r:{0} AND r.tenantId = $tenantId AND" + matchesCriteria("r") + " AND" + inStorage("r");
+
+    private static final String RESOURCE_MATCH =
+            " MATCH (r:{0}) WHERE r.tenantId = $tenantId AND" + matchesCriteria("r") + " AND" + inStorage("r");
+
+    public static final QueryTemplate METADATA_FULLTEXT_SEARCH = new QueryTemplate("metadataFullTextSearch",
+            METADATA_FULLTEXT +
+                    " MATCH (r:{0})-[:HAS_METADATA*]->(m) WHERE" + inStorage("r") +
+                    " RETURN DISTINCT r");
+
+    public static final QueryTemplate PROPERTY_FULLTEXT_SEARCH = new QueryTemplate("propertyFullTextSearch",
+            RESOURCE_FULLTEXT + " RETURN r");
+
+    public static final QueryTemplate PROPERTY_MATCH_SEARCH = new QueryTemplate("propertyMatchSearch",
+            RESOURCE_MATCH + " RETURN r");
+
+    private static final String SHARED_BY_FILTER =
+            " MATCH (r)-[rel:SHARED_WITH]->(l) WHERE rel.sharedBy = $sharedBy AND l.tenantId = $tenantId" +
+                    " AND NOT l.username = $sharedBy" +
+                    " RETURN DISTINCT r, rel";
+
+    public static final QueryTemplate SHARED_BY_METADATA_FULLTEXT_SEARCH = new QueryTemplate(
+            "sharedByMetadataFullTextSearch",
+            METADATA_FULLTEXT +
+                    " MATCH (r:{0})-[:HAS_METADATA*]->(m) WHERE r.tenantId = $tenantId AND" + inStorage("r") +
+                    " WITH DISTINCT r" + SHARED_BY_FILTER);
+
+    public static final QueryTemplate SHARED_BY_PROPERTY_FULLTEXT_SEARCH = new QueryTemplate(
+            "sharedByPropertyFullTextSearch", RESOURCE_FULLTEXT + SHARED_BY_FILTER);
+
+    public static final QueryTemplate SHARED_BY_PROPERTY_MATCH_SEARCH = new QueryTemplate(
+            "sharedByPropertyMatchSearch", RESOURCE_MATCH + SHARED_BY_FILTER);
+
+    // Shared with the user, or one of the user's groups, through an ancestor collection
+    private static final String SHARED_WITH_FILTER =
+            " WITH DISTINCT r WHERE NOT r.owner = $sharedWith" +
+                    " MATCH (u:User) WHERE u.username = $username AND u.tenantId = $tenantId" +
+                    " OPTIONAL MATCH (g:Group)<-[:MEMBER_OF]-(u)" +
+                    " OPTIONAL MATCH (u)<-[pRel:SHARED_WITH]-(:COLLECTION)<-[:CHILD_OF*]-(r)" +
+                    " OPTIONAL MATCH (g)<-[pxRel:SHARED_WITH]-(:COLLECTION)<-[:CHILD_OF*]-(r)" +
+                    " WITH r, coalesce(pRel, pxRel) AS rel WHERE rel IS NOT NULL" +
+                    " RETURN DISTINCT r, rel";
+
+    public static final QueryTemplate SHARED_WITH_METADATA_FULLTEXT_SEARCH = new QueryTemplate(
+            "sharedWithMetadataFullTextSearch",
+            METADATA_FULLTEXT +
+                    " MATCH (r:{0})-[:HAS_METADATA*]->(m) WHERE r.tenantId = $tenantId AND" + inStorage("r") +
+                    SHARED_WITH_FILTER);
+
+    public static final QueryTemplate SHARED_WITH_PROPERTY_FULLTEXT_SEARCH = new QueryTemplate(
+            "sharedWithPropertyFullTextSearch", RESOURCE_FULLTEXT + SHARED_WITH_FILTER);
+
+    public static final QueryTemplate SHARED_WITH_PROPERTY_MATCH_SEARCH = new QueryTemplate(
+            "sharedWithPropertyMatchSearch", RESOURCE_MATCH + SHARED_WITH_FILTER);
+
+    // Resources shared by a user
+
+    public static final QueryTemplate SHARED_BY = new QueryTemplate("sharedBy",
+            " MATCH (m:{0})-[r:SHARED_WITH]->(l) " +
+                    " WHERE r.sharedBy = $sharedBy AND m.tenantId = $tenantId AND l.tenantId = $tenantId" +
+                    " AND NOT l.username = $sharedBy" +
+                    " RETURN m, r");
+
+    public static final QueryTemplate SHARED_BY_METADATA_SEARCH = new QueryTemplate("sharedByMetadataSearch",
+            " MATCH (r:{0})-[:HAS_METADATA*]->(m), (r)-[rel:SHARED_WITH]->(l)" +
+                    " WHERE m[$field] =~ $pattern AND r.sharedBy = $sharedBy AND r.tenantId = $tenantId" +
+                    " AND l.tenantId = $tenantId AND NOT l.username = $sharedBy" +
+                    " RETURN r, rel");
+
+    public static final QueryTemplate SHARED_BY_METADATA_SEARCH_IN_STORAGE = new QueryTemplate(
+            "sharedByMetadataSearchInStorage",
+            " MATCH (s:Storage {entityId: $storageId})<-[:CHILD_OF*]-(r:{0})-[:HAS_METADATA*]->(m)," +
+                    " (r)-[rel:SHARED_WITH]->(l)" +
+                    " WHERE m[$field] =~ $pattern AND r.sharedBy = $sharedBy AND r.tenantId = $tenantId" +
+                    " AND l.tenantId = $tenantId AND NOT l.username = $sharedBy" +
+                    " RETURN r, rel");
+
+    public static final QueryTemplate SHARED_BY_METADATA_EXACT_SEARCH = new QueryTemplate(
+            "sharedByMetadataExactSearch",
+            " MATCH (r:{0})-[:HAS_METADATA*]->(m:METADATA_NODE), (r)-[rel:SHARED_WITH]->(l)" +
+                    " WHERE m[$field] = $value AND r.sharedBy = $sharedBy AND r.tenantId = $tenantId" +
+                    " AND l.tenantId = $tenantId AND NOT l.username = $sharedBy" +
+                    " RETURN r, rel");
+
+    public static final QueryTemplate SHARED_BY_PROPERTY_SEARCH = new QueryTemplate("sharedByPropertySearch",
+            " MATCH (m)-[r:SHARED_WITH]-(l) WHERE r.sharedBy = $sharedBy AND m.tenantId = $tenantId" +
+                    " AND l.tenantId = $tenantId AND NOT l.username = $sharedBy" +
+                    " OPTIONAL MATCH (m)<-[:CHILD_OF*]-(x) WHERE x[$field] CONTAINS $value" +
+                    " OPTIONAL MATCH (m2)-[r2:SHARED_WITH]->(l) WHERE m2.tenantId = $tenantId" +
+                    " AND m2[$field] CONTAINS $value" +
+                    " RETURN m2, r2, x, r");
+
+    // Resources shared with a user by others
+
+    public static final QueryTemplate SHARED_WITH = new QueryTemplate("sharedWith",
+            " MATCH (u:User) WHERE u.username = $username AND u.tenantId = $tenantId" +
+                    " OPTIONAL MATCH (g:Group)<-[:MEMBER_OF]-(u)" +
+                    " OPTIONAL MATCH (u)<-[pRel:SHARED_WITH]-(p:COLLECTION) WHERE NOT p.owner = $username" +
+                    " OPTIONAL MATCH (g)<-[pxRel:SHARED_WITH]-(pr:COLLECTION) WHERE NOT pr.owner = $username" +
+                    " RETURN DISTINCT p, pRel, pr, pxRel");
+
+    public static final QueryTemplate SHARED_WITH_METADATA_SEARCH = new QueryTemplate("sharedWithMetadataSearch",
+            " MATCH (u:User) WHERE u.username = $username AND u.tenantId = $tenantId" +
+                    " OPTIONAL MATCH (g:Group)<-[:MEMBER_OF]-(u)" +
+                    " OPTIONAL MATCH (u)<-[pRel:SHARED_WITH]-(p:COLLECTION)<-[:CHILD_OF*]-(x:{0})-[relR:SHARED_WITH]->(u)," +
+                    " (x)-[:HAS_METADATA*]->(m)" +
+                    " WHERE NOT x.owner = $sharedWith AND m[$field] =~ $pattern" +
+                    " OPTIONAL MATCH (g)<-[pxRel:SHARED_WITH]-(pr:COLLECTION)<-[:CHILD_OF*]-(px:{0})-[relR:SHARED_WITH]->(g)," +
+                    " (px)-[:HAS_METADATA*]->(m)" +
+                    " WHERE NOT px.owner = $sharedWith AND m[$field] =~ $pattern" +
+                    " RETURN DISTINCT p, pRel, px, pxRel");
+
+    public static final QueryTemplate SHARED_WITH_METADATA_SEARCH_IN_STORAGE = new QueryTemplate(
+            "sharedWithMetadataSearchInStorage",
+            " MATCH (u:User) WHERE u.username = $username AND u.tenantId = $tenantId" +
+                    " OPTIONAL MATCH (g:Group)<-[:MEMBER_OF]-(u)" +
+                    " OPTIONAL MATCH (u)<-[pRel:SHARED_WITH]-(p:COLLECTION)<-[:CHILD_OF*]-(x:{0})-[relR:SHARED_WITH]->(u)," +
+                    " (s:Storage {entityId: $storageId})<-[:CHILD_OF*]-(x)-[:HAS_METADATA*]->(m)" +
+                    " WHERE NOT x.owner = $sharedWith AND m[$field] =~ $pattern" +
+                    " OPTIONAL MATCH (g)<-[pxRel:SHARED_WITH]-(pr:COLLECTION)<-[:CHILD_OF*]-(px:{0})-[relR:SHARED_WITH]->(g)," +
+                    " (s:Storage {entityId: $storageId})<-[:CHILD_OF*]-(px)-[:HAS_METADATA*]->(m)" +
+                    " WHERE NOT px.owner = $sharedWith AND m[$field] =~ $pattern" +
+                    " RETURN DISTINCT p, pRel, px, pxRel");
+
+    public static final QueryTemplate SHARED_WITH_METADATA_EXACT_SEARCH = new QueryTemplate(
+            "sharedWithMetadataExactSearch",
+            " MATCH (u:User) WHERE u.username = $username AND u.tenantId = $tenantId" +
+                    " OPTIONAL MATCH (g:Group)<-[:MEMBER_OF]-(u)" +
+                    " OPTIONAL MATCH (u)<-[pRel:SHARED_WITH]-(p:COLLECTION)<-[:CHILD_OF*]-(x:{0})-[relR:SHARED_WITH]->(u)," +
+                    " (x)-[:HAS_METADATA*]->(m:METADATA_NODE)" +
+                    " WHERE NOT x.owner = $sharedWith AND m[$field] = $value" +
+                    " OPTIONAL MATCH (g)<-[pxRel:SHARED_WITH]-(pr:COLLECTION)<-[:CHILD_OF*]-(px:{0})-[relR:SHARED_WITH]->(g)," +
+                    " (px)-[:HAS_METADATA*]->(m:METADATA_NODE)" +
+                    " WHERE NOT px.owner = $sharedWith AND m[$field] = $value" +
+                    " RETURN DISTINCT p, pRel, px, pxRel");
+
+    public static final QueryTemplate SHARED_WITH_PROPERTY_SEARCH = new QueryTemplate("sharedWithPropertySearch",
+            " MATCH (u:User) WHERE u.username = $username AND u.tenantId = $tenantId" +
+                    " OPTIONAL MATCH (g:Group)<-[:MEMBER_OF]-(u)" +
+                    " OPTIONAL MATCH (u)<-[pRel:SHARED_WITH]-(p:COLLECTION)<-[:CHILD_OF*]-(x:{0})" +
+                    " WHERE NOT x.owner = $sharedWith AND x[$field] CONTAINS $value" +
+                    " OPTIONAL MATCH (g)<-[pxRel:SHARED_WITH]-(pr:COLLECTION)<-[:CHILD_OF*]-(px:{0})" +
+                    " WHERE NOT px.owner = $sharedWith AND px[$field] CONTAINS $value" +
+                    " RETURN DISTINCT x, pRel, px, pxRel");
+
+    // Listing of all resources of a type visible to a user
+
+    public static final QueryTemplate LISTING = new QueryTemplate("listing",
+            " MATCH (u:User) WHERE u.username = $username AND u.tenantId = $tenantId WITH u" +
+                    " OPTIONAL MATCH (g:Group)<-[:MEMBER_OF]-(u)" +
+                    " OPTIONAL MATCH (u)<-[relRM:SHARED_WITH]-(m)<-[:CHILD_OF*]-(rm:{0})" +
+                    " , (r:{0})-[relR:SHARED_WITH]->(u)" +
+                    " OPTIONAL MATCH (g)<-[relRMG:SHARED_WITH]-(mg)<-[:CHILD_OF*]-(rmg:{0})" +
+                    " , (rg:{0})-[relRG:SHARED_WITH]->(g)" +
+                    " RETURN DISTINCT rm, relRM, r, relR, rmg, relRMG, rg, relRG");
+
+    public static final QueryTemplate LISTING_DEPTH_ONE = new QueryTemplate("listingDepthOne",
+            " MATCH (u:User) WHERE u.username = $username AND u.tenantId = $tenantId WITH u" +
+                    " OPTIONAL MATCH (g:Group)<-[:MEMBER_OF]-(u)" +
+                    " OPTIONAL MATCH (r:{0})-[relR:SHARED_WITH]->(u)" +
+                    " OPTIONAL MATCH (rg:{0})-[relRG:SHARED_WITH]->(g)" +
+                    " RETURN DISTINCT r, relR, rg, relRG");
+
+    public static final QueryTemplate LISTING_IN_STORAGE = new QueryTemplate("listingInStorage",
+            " MATCH (u:User) WHERE u.username = $username AND u.tenantId = $tenantId WITH u" +
+                    " OPTIONAL MATCH (g:Group)<-[:MEMBER_OF]-(u)" +
+                    " OPTIONAL MATCH (u)<-[relRM:SHARED_WITH]-(m)<-[:CHILD_OF*]-(rm:{0})-[:CHILD_OF*]->(s:Storage {entityId: $storageId})" +
+                    " , (s:Storage {entityId: $storageId})<-[:CHILD_OF*]-(r:{0})-[relR:SHARED_WITH]->(u)" +
+                    " OPTIONAL MATCH (g)<-[relRMG:SHARED_WITH]-(mg)<-[:CHILD_OF*]-(rmg:{0})-[:CHILD_OF*]->(s:Storage {entityId: $storageId})" +
+                    " , (s:Storage {entityId: $storageId})<-[:CHILD_OF*]-(rg:{0})-[relRG:SHARED_WITH]->(g)" +
+                    " RETURN DISTINCT rm, relRM, r, relR, rmg, relRMG, rg, relRG");
+
+    public static final QueryTemplate LISTING_IN_STORAGE_DEPTH_ONE = new QueryTemplate("listingInStorageDepthOne",
+            " MATCH (u:User) WHERE u.username = $username AND u.tenantId = $tenantId WITH u" +
+                    " OPTIONAL MATCH (g:Group)<-[:MEMBER_OF]-(u)" +
+                    " OPTIONAL MATCH (s:Storage {entityId: $storageId})<-[:CHILD_OF]-(r:{0})-[relR:SHARED_WITH]->(u)" +
+                    " OPTIONAL MATCH (sp:Storage {entityId: $storageId})<-[:CHILD_OF]-(rg:{0})-[relRG:SHARED_WITH]->(g)" +
+                    " OPTIONAL MATCH (s2:Storage {entityId: $storageId})<-[:CHILD_OF*]-(r2:{0})-[relR2:SHARED_WITH]->(u)" +
+                    " WHERE NOT r2.owner = $username AND NOT (r2)-[:CHILD_OF*]->(r)" +
+                    " RETURN DISTINCT r, relR, rg, relRG, r2, relR2");
+
+    // Children of a resource or storage visible to a user. {0} is the label the parent is looked up by and $type,
+    // when not null, has to be one of its labels
+
+    private static final String CHILD_PARENT =
+            " MATCH (u:User) WHERE u.username = $username AND u.tenantId = $tenantId WITH u" +
+                    " MATCH (r:{0}) WHERE r.entityId = $entityId AND r.tenantId = $tenantId" +
+                    " AND ($type IS NULL OR $type IN labels(r)) WITH u, r";
+
+    public static final QueryTemplate CHILD_RESOURCES = new QueryTemplate("childResources",
+            CHILD_PARENT +
+                    " OPTIONAL MATCH (g:Group)<-[:MEMBER_OF]-(u)" +
+                    " OPTIONAL MATCH (u)<-[crRel:SHARED_WITH]-(r)<-[:CHILD_OF]-(cr)" +
+                    " OPTIONAL MATCH (g)<-[chgrRel:SHARED_WITH]-(r)<-[:CHILD_OF]-(chgr)" +
+                    " OPTIONAL MATCH (u)<-[prRelU:SHARED_WITH]-(pr:COLLECTION)<-[:CHILD_OF*]-(r)<-[:CHILD_OF]-(x)" +
+                    " OPTIONAL MATCH (g)<-[prRelG:SHARED_WITH]-(prg:COLLECTION)<-[:CHILD_OF*]-(r)<-[:CHILD_OF]-(y)" +
+                    " RETURN DISTINCT cr, crRel, chgr, chgrRel, x, prRelU, y, prRelG");
+
+    // Access to the parent is resolved once, through a share on the parent itself or on one of its ancestor
+    // collections, and children are read in entityId order starting after $cursor
+    public static final QueryTemplate CHILD_RESOURCES_PAGE = new QueryTemplate("childResourcesPage",
+            CHILD_PARENT +
+                    " OPTIONAL MATCH (g:Group)<-[:MEMBER_OF]-(u) WITH r, collect(g) + u AS principals" +
+                    " MATCH (r)-[:CHILD_OF*0..]->(a)-[rel:SHARED_WITH]->(p) WHERE (a = r OR a:COLLECTION)" +
+                    " AND p IN principals" +
+                    " WITH r, collect(rel)[0] AS crRel" +
+                    " MATCH (r)<-[:CHILD_OF]-(cr) WHERE cr.entityId > $cursor" +
+                    " RETURN cr, crRel ORDER BY cr.entityId LIMIT $limit");
+
+    // Child memberships. {0} and {1} are the labels the parent and the child are looked up by, $parentType and
+    // $childType have to be among their labels
+
+    private static final String PARENT_AND_CHILD =
+            " MATCH (r:{0}), (cr:{1}) WHERE r.entityId = $entityId AND r.tenantId = $tenantId" +
+                    " AND $parentType IN labels(r) AND cr.entityId = $childEntityId AND cr.tenantId = $tenantId" +
+                    " AND $childType IN labels(cr)";
+
+    // The ancestry of the child and everything below it is refreshed in the same transaction as its CHILD_OF, so
+    // that storage scoped reads never see the new parent without the matching ancestry or the other way round
+    private static final String REFRESH_ANCESTRY_BELOW_CR =
+            " WITH DISTINCT cr MATCH (cr)<-[:CHILD_OF*0..]-(d:Resource)" +
+                    " WITH DISTINCT d AS r" +
+                    AncestryIndex.ANCESTRY_OF_R +
+                    " SET r.ancestorIds = ancestorIds, r.ancestorDepths = ancestorDepths" +
+                    " RETURN count(r) AS count";
+
+    public static final QueryTemplate ADD_CHILD_MEMBERSHIP = new QueryTemplate("addChildMembership",
+            PARENT_AND_CHILD +
+                    " MERGE (cr)-[:CHILD_OF]->(r)" +
+                    " SET cr.resourceVersion = coalesce(cr.resourceVersion, 0) + 1" +
+                    REFRESH_ANCESTRY_BELOW_CR);
+
+    public static final QueryTemplate DELETE_CHILD_MEMBERSHIP = new QueryTemplate("deleteChildMembership",
+            PARENT_AND_CHILD +
+                    " MATCH (cr)-[crel:CHILD_OF]->(r)" +
+                    " DELETE crel SET cr.resourceVersion = coalesce(cr.resourceVersion, 0) + 1" +
+                    REFRESH_ANCESTRY_BELOW_CR);
+
+    // Keyset paginated listing, ordered by entityId and starting after $cursor. Storage scoped listings start from
+    // the requested storages and walk their CHILD_OF subtrees, so they only touch resources of those storages rather
+    // than every resource of the label in the tenant
+
+    private static final String PAGE_PRINCIPALS =
+            " MATCH (u:User) WHERE u.username = $username AND u.tenantId = $tenantId WITH u" +
+                    " OPTIONAL MATCH (g:Group)<-[:MEMBER_OF]-(u) WITH u, collect(g) + u AS principals";
+
+    private static final String PAGE_RETURN =
+            " WITH r, collect(rel)[0] AS relR" +
+                    " RETURN r, relR ORDER BY r.entityId LIMIT $limit";
+
+    public static final QueryTemplate LISTING_PAGE = new QueryTemplate("listingPage",
+            PAGE_PRINCIPALS +
+                    " MATCH (r:{0}) WHERE r.tenantId = $tenantId AND r.entityId > $cursor" +
+                    " MATCH (r)-[:CHILD_OF*0..]->(a)-[rel:SHARED_WITH]->(p) WHERE p IN principals" +
+                    PAGE_RETURN);
+
+    public static final QueryTemplate LISTING_PAGE_DEPTH_ONE = new QueryTemplate("listingPageDepthOne",
+            PAGE_PRINCIPALS +
+                    " MATCH (r:{0}) WHERE r.tenantId = $tenantId AND r.entityId > $cursor" +
+                    " MATCH (r)-[rel:SHARED_WITH]->(p) WHERE p IN principals" +
+                    PAGE_RETURN);
+
+    private static final String PAGE_IN_STORAGES =
+            " MATCH (s:Storage) WHERE s.entityId IN $storageIds AND s.tenantId = $tenantId" +
+                    " MATCH (s)<-[:CHILD_OF*]-(r:{0}) WHERE r.entityId > $cursor" +
+                    " WITH DISTINCT u, principals, r";
+
+    public static final QueryTemplate LISTING_PAGE_IN_STORAGE = new QueryTemplate("listingPageInStorage",
+            PAGE_PRINCIPALS +
+                    PAGE_IN_STORAGES +
+                    " MATCH (r)-[:CHILD_OF*0..]->(a)-[rel:SHARED_WITH]->(p) WHERE p IN principals" +
+                    PAGE_RETURN);
+
+    public static final QueryTemplate LISTING_PAGE_IN_STORAGE_DEPTH_ONE = new QueryTemplate(
+            "listingPageInStorageDepthOne",
+            PAGE_PRINCIPALS +
+                    PAGE_IN_STORAGES +
+                    " MATCH (r)-[rel:SHARED_WITH]->(p) WHERE p IN principals" +
+                    " AND (any(i IN range(0, size(r.ancestorIds) - 1) WHERE r.ancestorDepths[i] = 1" +
+                    " AND r.ancestorIds[i] IN $storageIds) OR (p = u AND NOT r.owner = $username))" +
+                    PAGE_RETURN);
+
+    // Access checks against the materialised HAS_ACCESS and EFFECTIVE_MEMBER_OF relationships. Resource types
+    // may be client defined, so the type is matched as a parameter against the labels of the resource
+
+    private static final String ACCESS_PREDICATE =
+            " (exists((r)-[:HAS_ACCESS]->(u)) OR exists((r)-[:HAS_ACCESS]->(:Group)<-[:EFFECTIVE_MEMBER_OF]-(u)))";
+
+    private static final String MATCH_ACCESSIBLE_RESOURCE =
+            " MATCH (u:User) WHERE u.username = $username AND u.tenantId = $tenantId" +
+                    " MATCH (r:{0}) WHERE r.entityId = $entityId AND r.tenantId = $tenantId" +
+                    " AND ($type IS NULL OR $type IN labels(r)) AND" + ACCESS_PREDICATE;
+
+    public static final QueryTemplate ACCESSIBLE_RESOURCE = new QueryTemplate("accessibleResource",
+            MATCH_ACCESSIBLE_RESOURCE +
+                    " RETURN r AS value");
+
+    // Only the $fields properties of the resource, in the same order, for fetches with a read mask
+    public static final QueryTemplate ACCESSIBLE_RESOURCE_FIELDS = new QueryTemplate("accessibleResourceFields",
+            MATCH_ACCESSIBLE_RESOURCE +
+                    " RETURN labels(r) AS labels, [field IN $fields | r[field]] AS values");
+
+    // Versions checked by conditional fetches. The access check is skipped when a grant is already cached
+
+    public static final QueryTemplate ACCESSIBLE_RESOURCE_VERSION = new QueryTemplate("accessibleResourceVersion",
+            MATCH_ACCESSIBLE_RESOURCE +
+                    " RETURN coalesce(r.resourceVersion, 0) AS version");
+
+    // Write checks. HAS_ACCESS does not record permission types, so the shares granting the access are walked for
+    // one of $permissions, made to the user or to one of the user's effective groups
+
+    public static final QueryTemplate PERMITTED_RESOURCE = new QueryTemplate("permittedResource",
+            MATCH_ACCESSIBLE_RESOURCE +
+                    " MATCH (r)-[:CHILD_OF*0..]->()-[rel:SHARED_WITH]->(p) WHERE rel.permission IN $permissions" +
+                    " AND (p = u OR exists((u)-[:EFFECTIVE_MEMBER_OF]->(p)))" +
+                    " RETURN r.entityId AS entityId LIMIT 1");
+
+    public static final QueryTemplate RESOURCE_VERSION = new QueryTemplate("resourceVersion",
+            " MATCH (r:{0}) WHERE r.entityId = $entityId AND r.tenantId = $tenantId" +
+                    " AND ($type IS NULL OR $type IN labels(r))" +
+                    " RETURN coalesce(r.resourceVersion, 0) AS version");
+
+    // Brings fields mirrored from the Custos entity in line with it when the entity already existed
+    public static final QueryTemplate SET_RESOURCE_ENTITY_FIELDS = new QueryTemplate("setResourceEntityFields",
+            " MATCH (r:{0}) WHERE r.entityId = $entityId AND r.tenantId = $tenantId AND $type IN labels(r)" +
+                    " SET r += $props, r.resourceVersion = coalesce(r.resourceVersion, 0) + 1" +
+                    " RETURN r");
+
+    public static final QueryTemplate ACCESSIBLE_RESOURCE_IDS = new QueryTemplate("accessibleResourceIds",
+            " MATCH (u:User) WHERE u.username = $username AND u.tenantId = $tenantId" +
+                    " UNWIND $entityIds AS entityId" +
+                    " MATCH (r:{0}) WHERE r.entityId = entityId AND r.tenantId = $tenantId AND" + ACCESS_PREDICATE +
+                    " RETURN DISTINCT r.entityId AS entityId");
+
+    // Ancestors read from the materialised ancestry of the resource, see AncestryIndex. Every ancestor is an indexed
+    // lookup, resources and storages being the only node types linked by CHILD_OF
+
+    public static final QueryTemplate ANCESTORS = new QueryTemplate("ancestors",
+            " MATCH (r:{0}) WHERE r.entityId = $entityId AND r.tenantId = $tenantId" +
+                    " AND ($type IS NULL OR $type IN labels(r))" +
+                    " UNWIND range(0, size(r.ancestorIds) - 1) AS i" +
+                    " WITH r.ancestorIds[i] AS ancestorId, r.ancestorDepths[i] AS depth WHERE depth <= $depth" +
+                    " CALL {" +
+                    " WITH ancestorId MATCH (m:Resource) WHERE m.entityId = ancestorId AND m.tenantId = $tenantId" +
+                    " RETURN m" +
+                    " UNION" +
+                    " WITH ancestorId MATCH (m:Storage) WHERE m.entityId = ancestorId AND m.tenantId = $tenantId" +
+                    " RETURN m }" +
+                    " WITH m, depth ORDER BY depth, m.entityId" +
+                    " RETURN m");
+
+    public static final QueryTemplate ANCESTOR_STORAGES = new QueryTemplate("ancestorStorages",
+            " MATCH (r:{0}) WHERE r.entityId = $entityId AND r.tenantId = $tenantId" +
+                    " AND ($type IS NULL OR $type IN labels(r))" +
+                    " MATCH (s:Storage) WHERE s.entityId IN r.ancestorIds AND s.tenantId = $tenantId" +
+                    " RETURN s");
+
+    // Metadata attached to storages and other entities
+
+    public static final QueryTemplate CREATE_METADATA_NODE = new QueryTemplate("createMetadataNode",
+            " MATCH (u:User)-[:MEMBER_OF]->(g:Group)<-[:SHARED_WITH]-(s:{0})" +
+                    " WHERE u.userId = $userId AND s[$parentIdName] = $parentIdValue" +
+                    " MERGE (m:Metadata)<-[:HAS_METADATA]-(s) SET m += $props RETURN m");
+
+    // Resource metadata. The FULL_METADATA_NODE of a resource holds one property per top level key of the
+    // document, encoded with the codec named in m.codec, and a version bumped by every patch. Documents written
+    // before patches were supported are a single JSON string in m.metadata. Patches only apply to documents already
+    // split into entries of the configured codec; other documents are recoded first
+
+    private static final String RESOURCE_BY_ID =
+            " MATCH (r:{0}) WHERE r.entityId = $resourceId AND r.tenantId = $tenantId" +
+                    " AND ($type IS NULL OR $type IN labels(r))";
+
+    // Setting and removing _lock takes the write lock of the resource before its document is read, so concurrent
+    // patches of a resource are serialised and neither the version check nor the document creation can be raced
+    public static final QueryTemplate PATCH_METADATA = new QueryTemplate("patchMetadata",
+            RESOURCE_BY_ID +
+                    " SET r._lock = true REMOVE r._lock" +
+                    " WITH r OPTIONAL MATCH (r)-[:HAS_FULL_METADATA]->(existing:FULL_METADATA_NODE)" +
+                    " WITH r, head(collect(existing)) AS existing" +
+                    " WHERE (existing IS NULL OR (existing.metadata IS NULL" +
+                    " AND coalesce(existing.codec, 'json') = $codec))" +
+                    " AND ($expectedVersion IS NULL OR coalesce(existing.version, 0) = $expectedVersion)" +
+                    " MERGE (r)-[:HAS_FULL_METADATA]->(m:FULL_METADATA_NODE {tenantId: $tenantId})" +
+                    " WITH r, m OPTIONAL MATCH (r)-[:HAS_METADATA]->(top:METADATA_NODE)" +
+                    " WHERE top.DATA_LAKE_METADATA_NODE_JSON_IDENTIFIER IN $replacedKeys" +
+                    " OPTIONAL MATCH (top)-[:HAS_METADATA*0..]->(stale:METADATA_NODE)" +
+                    " WITH r, m, collect(DISTINCT stale) AS staleNodes" +
+                    " FOREACH (n IN staleNodes | DETACH DELETE n)" +
+                    " SET r += $properties, m += $entries, m.codec = $codec, m.version = coalesce(m.version, 0) + 1," +
+                    " r.resourceVersion = coalesce(r.resourceVersion, 0) + 1" +
+                    " FOREACH (node IN $metadataNodes |" +
+                    " MERGE (cr:METADATA_NODE {entityId: node.entityId, tenantId: $tenantId})" +
+                    " SET cr += node.properties, cr.searchText = node.searchText" +
+                    " FOREACH (ignored IN CASE WHEN node.parentId IS NULL THEN [1] ELSE [] END |" +
+                    " MERGE (r)-[:HAS_METADATA]->(cr))" +
+                    " FOREACH (ignored IN CASE WHEN node.parentId IS NULL THEN [] ELSE [1] END |" +
+                    " MERGE (p:METADATA_NODE {entityId: node.parentId, tenantId: $tenantId})" +
+                    " MERGE (p)-[:HAS_METADATA]->(cr)))" +
+                    " RETURN m.version AS version");
+
+    // Version of the metadata documents of a resource as reported by fetchResourceMetadata, legacy documents
+    // being at version 1. Returns no row if the resource does not exist
+    public static final QueryTemplate METADATA_VERSION = new QueryTemplate("metadataVersion",
+            RESOURCE_BY_ID +
+                    " OPTIONAL MATCH (r)-[:HAS_FULL_METADATA]->(m:FULL_METADATA_NODE)" +
+                    " WITH r, max(CASE WHEN m IS NULL THEN 0 ELSE coalesce(m.version, 1) END) AS version" +
+                    " RETURN version");
+
+    public static final QueryTemplate FULL_METADATA = new QueryTemplate("fullMetadata",
+            RESOURCE_BY_ID +
+                    " OPTIONAL MATCH (r)-[:HAS_FULL_METADATA]->(m:FULL_METADATA_NODE)" +
+                    " RETURN m, id(m) AS nodeId");
+
+    // $rows is a list of {nodeId, version, codec, entries}, version and codec being those the entries were decoded
+    // from (-1 for an unversioned document). Documents changed since they were read are left as they are
+    public static final QueryTemplate RECODE_METADATA = new QueryTemplate("recodeMetadata",
+            " UNWIND $rows AS row" +
+                    " MATCH (r:{0})-[:HAS_FULL_METADATA]->(m:FULL_METADATA_NODE) WHERE id(m) = row.nodeId" +
+                    " SET r._lock = true REMOVE r._lock" +
+                    " WITH m, row WHERE coalesce(m.version, -1) = row.version" +
+                    " AND coalesce(m.codec, 'json') = row.codec" +
+                    " SET m += row.entries, m.codec = $codec, m.version = coalesce(m.version, 1)" +
+                    " REMOVE m.metadata" +
+                    " RETURN count(m) AS recoded");
+
+    public static final QueryTemplate METADATA_TO_RECODE = new QueryTemplate("metadataToRecode",
+            " MATCH (r:{0})-[:HAS_FULL_METADATA]->(m:FULL_METADATA_NODE)" +
+                    " WHERE m.metadata IS NOT NULL OR coalesce(m.codec, 'json') <> $codec" +
+                    " RETURN m, id(m) AS nodeId LIMIT $limit");
+
+    private static String matchesCriteria(String node) {
+        return " ALL(criterion IN $criteria WHERE " + node + "[criterion.field] IS NOT NULL" +
+                " AND (criterion.value IS NULL" +
+                " OR ANY(v IN (" + node + "[criterion.field] + []) WHERE toString(v) = criterion.value))" +
+                " AND ALL(pattern IN criterion.patterns WHERE " + node + "[criterion.field] =~ pattern))";
+    }
+
+    private static String inStorage(String node) {
+        return " ($storageId IS NULL OR $storageId IN " + node + ".ancestorIds)";
+    }
+}
@@ -0,0 +1,203 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.airavata.drms.core.query;
+
+import java.util.*;
+import java.util.regex.Pattern;
+
+/**
+ * Lucene query and match criteria for the full-text search templates. The index only narrows the candidates;
+ * every criterion is confirmed on its own field in Cypher, so a term found in another property of the same node
+ * is not a match.
+ * <p>
+ * METADATA_NODE properties are client defined, so their values are copied into a single {@link #SEARCH_TEXT}
+ * property which is what {@link #METADATA_INDEX} covers. {@link #RESOURCE_INDEX} covers the
+ * {@link #RESOURCE_FIELDS} of resources; criteria on other resource properties are matched without an index.
+ */
+public class FullTextQuery {
+
+    public static final String METADATA_INDEX = "metadata_search_text";
+    public static final String RESOURCE_INDEX = "resource_search_text";
+    public static final String SEARCH_TEXT = "searchText";
+    public static final Set<String> RESOURCE_FIELDS = Collections.unmodifiableSet(
+            new HashSet<>(Arrays.asList("resourceName", "name", "description")));
+
+    public enum Operator {
+        EXACT, PREFIX, TOKENS
+    }
+
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final String LUCENE_SPECIAL_CHARACTERS = "\\+-!():^[]\"{}~*?|&/";
+
+    private final List<String> clauses = new ArrayList<>();
+    private final List<Map<String, Object>> criteria = new ArrayList<>();
+
+    /**
+     * Adds a criterion on field, looked up in the index on indexField
+     *
+     * @param indexField field of the Lucene document, or null to match the criterion without the index
+     */
+    public FullTextQuery match(String indexField, String field, Operator operator, String value) {
+        String[] terms = WHITESPACE.split(value.trim().toLowerCase(Locale.ROOT));
+        if (terms.length == 0 || terms[0].isEmpty()) {
+            throw new IllegalArgumentException("Search value of " + field + " has no terms");
+        }
+
+        List<String> patterns = new ArrayList<>();
+        StringBuilder clause = new StringBuilder();
+        switch (operator) {
+            case EXACT:
+                clause.append('"').append(escape(String.join(" ", terms))).append('"');
+                break;
+            case PREFIX:
+                // Wildcard terms are not analyzed, so they have to be the words the index holds
+                List<String> words = words(String.join(" ", terms));
+                if (words.isEmpty()) {
+                    throw new IllegalArgumentException("Search value of " + field + " has no words");
+                }
+                for (int i = 0; i < words.size(); i++) {
+                    clause.append(i == 0 ? "+" : " +").append(escape(words.get(i)));
+                }
+                clause.append('*');
+                patterns.add("(?is)" + Pattern.quote(value) + ".*");
+                break;
+            case TOKENS:
+                for (int i = 0; i < terms.length; i++) {
+                    clause.append(i == 0 ? "+" : " +").append(escape(terms[i]));
+                    patterns.add("(?is).*" + Pattern.quote(terms[i]) + ".*");
+                }
+                break;
+        }
+        if (indexField != null) {
+            clauses.add(indexField + ":(" + clause + ")");
+        }
+        criteria.add(criterion(field, operator == Operator.EXACT ? value : null, patterns));
+        return this;
+    }
+
+    /**
+     * Adds a criterion which is only confirmed in Cypher, as a regular expression on field
+     */
+    public FullTextQuery filter(String field, String pattern) {
+        criteria.add(criterion(field, null, Collections.singletonList(pattern)));
+        return this;
+    }
+
+    /**
+     * @return true if at least one criterion can be looked up in the index
+     */
+    public boolean isIndexed() {
+        return !clauses.isEmpty();
+    }
+
+    public String getLuceneQuery() {
+        return String.join(" AND ", clauses);
+    }
+
+    public List<Map<String, Object>> getCriteria() {
+        return criteria;
+    }
+
+    /**
+     * @return the $luceneQuery and $criteria parameters of the full-text templates
+     */
+    public Map<String, Object> toParameters() {
+        Map<String, Object> parameters = new HashMap<>();
+        parameters.put("luceneQuery", getLuceneQuery());
+        parameters.put("criteria", criteria);
+        return parameters;
+    }
+
+    /**
+     * Text indexed for a metadata node. Has to stay in line with the backfill of schema migration 4.
+     *
+     * @param excludedKeys bookkeeping properties which are not part of the metadata
+     */
+    public static String searchText(Map<String, ?> properties, Collection<String> excludedKeys) {
+        StringJoiner text = new StringJoiner(" ");
+        for (Map.Entry<String, ?> property : properties.entrySet()) {
+            if (excludedKeys.contains(property.getKey()) || property.getValue() instanceof Map) {
+                continue;
+            }
+            if (property.getValue() instanceof Collection) {
+                for (Object element : (Collection<?>) property.getValue()) {
+                    text.add(String.valueOf(element));
+                }
+            } else {
+                text.add(String.valueOf(property.getValue()));
+            }
+        }
+        return text.toString();
+    }
+
+    /**
+     * Words of the text as the standard analyzer of the full-text indexes splits it at Unicode word boundaries: runs
+     * of letters, digits and underscores, not broken by a single '.', ':' or apostrophe between letters or a single
+     * '.', ',', ';' or apostrophe between digits. run-01 is the words run and 01, a.b and 1.5 are one word each.
+     */
+    private static List<String> words(String text) {
+        List<String> words = new ArrayList<>();
+        StringBuilder word = new StringBuilder();
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (isWordCharacter(c) || (word.length() > 0 && i + 1 < text.length()
+                    && joinsWord(word.charAt(word.length() - 1), c, text.charAt(i + 1)))) {
+                word.append(c);
+            } else if (word.length() > 0) {
+                words.add(word.toString());
+                word.setLength(0);
+            }
+        }
+        if (word.length() > 0) {
+            words.add(word.toString());
+        }
+        return words;
+    }
+
+    private static boolean isWordCharacter(char c) {
+        return Character.isLetterOrDigit(c) || c == '_';
+    }
+
+    private static boolean joinsWord(char before, char c, char after) {
+        if (Character.isLetter(before) && Character.isLetter(after)) {
+            return c == '.' || c == ':' || c == '\'';
+        }
+        if (Character.isDigit(before) && Character.isDigit(after)) {
+            return c == '.' || c == ',' || c == ';' || c == '\'';
+        }
+        return false;
+    }
+
+    private static Map<String, Object> criterion(String field, String value, List<String> patterns) {
+        Map<String, Object> criterion = new HashMap<>();
+        criterion.put("field", field);
+        criterion.put("value", value);
+        criterion.put("patterns", patterns);
+        return criterion;
+    }
+
+    private static String escape(String term) {
+        StringBuilder escaped = new StringBuilder(term.length());
+        for (char c : term.toCharArray()) {
+            if (LUCENE_SPECIAL_CHARACTERS.indexOf(c) >= 0) {
+                escaped.append('\\');
+            }
+            escaped.append(c);
+        }
+        return escaped.toString();
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.airavata.drms.core.query;
+
+import java.util.regex.Pattern;
+
+/**
+ * Node labels which may be rendered into Cypher. Labels can not be passed as query parameters, so anything that
+ * ends up in a label position has to resolve to one of these first, or be a client defined resource type checked by
+ * {@link #validateResourceType(String)} and rendered through {@link #quote(String)}.
+ */
+public enum NodeLabel {
+
+    COLLECTION("COLLECTION"),
+    FILE("FILE"),
+    STORAGE("Storage"),
+    STORAGE_PREFERENCE("StoragePreference"),
+    TRANSFER_MAPPING("TransferMapping"),
+    USER("User"),
+    GROUP("Group"),
+    METADATA("Metadata"),
+    METADATA_NODE("METADATA_NODE"),
+    FULL_METADATA_NODE("FULL_METADATA_NODE"),
+    RESOURCE("Resource");
+
+    private static final Pattern RESOURCE_TYPE = Pattern.compile("^[A-Za-z_][A-Za-z0-9_]*$");
+
+    private final String label;
+
+    NodeLabel(String label) {
+        this.label = label;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    /**
+     * Resource nodes additionally carry the shared {@link #RESOURCE} label. Any label which is not one of the
+     * system labels above is a client defined resource type.
+     */
+    public static boolean isResourceLabel(String value) {
+        if (value == null || value.isEmpty()) {
+            return false;
+        }
+        for (NodeLabel nodeLabel : values()) {
+            if (nodeLabel.label.equals(value)) {
+                return nodeLabel == COLLECTION || nodeLabel == FILE || nodeLabel == RESOURCE;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Checks a label taken from a request, such as the type or parent type of a resource, before it is rendered
+     *
+     * @return the value
+     * @throws IllegalArgumentException if the value is not an identifier which can be used as a label
+     */
+    public static String validateResourceType(String value) {
+        if (value == null || !RESOURCE_TYPE.matcher(value).matches()) {
+            throw new IllegalArgumentException("Invalid resource type " + value);
+        }
+        return value;
+    }
+
+    /**
+     * @return the label, validated and backtick quoted for a label position of a statement
+     * @throws IllegalArgumentException see {@link #validateResourceType(String)}
+     */
+    public static String quote(String value) {
+        return "`" + validateResourceType(value) + "`";
+    }
+
+    /**
+     * @throws IllegalArgumentException if the value is not a known label
+     */
+    public static NodeLabel of(String value) {
+        for (NodeLabel nodeLabel : values()) {
+            if (nodeLabel.label.equals(value)) {
+                return nodeLabel;
+            }
+        }
+        throw new IllegalArgumentException("Unsupported node label " + value);
+    }
+}
@@ -0,0 +1,50 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.airavata.drms.core.query;
+
+/**
+ * A named Cypher statement. Values are always bound as parameters; the only variable parts of the text are label
+ * placeholders {0}, {1}.. which are filled from {@link NodeLabel}s, so a template renders to a bounded set of
+ * statements that Neo4j can keep in its plan cache.
+ */
+public class QueryTemplate {
+
+    private final String name;
+    private final String text;
+
+    public QueryTemplate(String name, String text) {
+        this.name = name;
+        this.text = text;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String render(NodeLabel... labels) {
+        String statement = text;
+        for (int i = 0; i < labels.length; i++) {
+            statement = statement.replace("{" + i + "}", labels[i].getLabel());
+        }
+        return statement;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
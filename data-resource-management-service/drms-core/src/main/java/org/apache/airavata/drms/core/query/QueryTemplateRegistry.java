@@ -0,0 +1,57 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.airavata.drms.core.query;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Renders {@link QueryTemplate}s and keeps the rendered statements. Neo4j caches plans by statement text, so the
+ * first render of a template and label combination is counted as a plan cache miss and every later one as a hit.
+ * The counts are what this process can observe; the server may still evict plans on its own.
+ */
+public class QueryTemplateRegistry {
+
+    private final Map<String, String> statements = new ConcurrentHashMap<>();
+    private final AtomicLong planCacheHits = new AtomicLong();
+    private final AtomicLong planCacheMisses = new AtomicLong();
+
+    public String render(QueryTemplate template, NodeLabel... labels) {
+        String key = labels.length == 0 ? template.getName() : template.getName() + Arrays.toString(labels);
+        String statement = statements.get(key);
+        if (statement != null) {
+            planCacheHits.incrementAndGet();
+            return statement;
+        }
+        planCacheMisses.incrementAndGet();
+        return statements.computeIfAbsent(key, k -> template.render(labels));
+    }
+
+    public long getPlanCacheHits() {
+        return planCacheHits.get();
+    }
+
+    public long getPlanCacheMisses() {
+        return planCacheMisses.get();
+    }
+
+    public int getStatementCount() {
+        return statements.size();
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.airavata.drms.core.schema;
+
+import java.util.List;
+
+/**
+ * State of a single Neo4j index as reported by db.indexes()
+ */
+public class IndexStatus {
+
+    private final String name;
+    private final String state;
+    private final double populationPercent;
+    private final List<String> labels;
+    private final List<String> properties;
+
+    public IndexStatus(String name, String state, double populationPercent, List<String> labels,
+                       List<String> properties) {
+        this.name = name;
+        this.state = state;
+        this.populationPercent = populationPercent;
+        this.labels = labels;
+        this.properties = properties;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getState() {
+        return state;
+    }
+
+    public double getPopulationPercent() {
+        return populationPercent;
+    }
+
+    public List<String> getLabels() {
+        return labels;
+    }
+
+    public List<String> getProperties() {
+        return properties;
+    }
+
+    public boolean isOnline() {
+        return "ONLINE".equals(state);
+    }
+
+    public boolean isFailed() {
+        return "FAILED".equals(state);
+    }
+
+    @Override
+    public String toString() {
+        return name + " " + labels + properties + " " + state + " " + populationPercent + "%";
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.airavata.drms.core.schema;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * One step of the graph schema. Schema statements have to be idempotent (IF NOT EXISTS) and are run in their own
+ * transactions. Backfill statements must return the number of updated nodes as "count" and are repeated until
+ * that reaches zero, so large graphs are migrated in bounded transactions.
+ */
+public class SchemaMigration {
+
+    private final int version;
+    private final String description;
+    private final List<String> schemaStatements = new ArrayList<>();
+    private final List<String> backfillStatements = new ArrayList<>();
+
+    public SchemaMigration(int version, String description) {
+        this.version = version;
+        this.description = description;
+    }
+
+    public SchemaMigration schema(String statement) {
+        schemaStatements.add(statement);
+        return this;
+    }
+
+    public SchemaMigration backfill(String statement) {
+        backfillStatements.add(statement);
+        return this;
+    }
+
+    public int getVersion() {
+        return version;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public List<String> getSchemaStatements() {
+        return Collections.unmodifiableList(schemaStatements);
+    }
+
+    public List<String> getBackfillStatements() {
+        return Collections.unmodifiableList(backfillStatements);
+    }
+}
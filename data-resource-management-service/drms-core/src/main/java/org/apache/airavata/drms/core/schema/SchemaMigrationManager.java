@@ -0,0 +1,157 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.airavata.drms.core.schema;
+
+import org.apache.airavata.drms.core.Neo4JConnector;
+import org.neo4j.driver.Record;
+import org.neo4j.driver.Value;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Applies pending {@link SchemaMigrations} and records the applied version on a single DRMSSchemaVersion node,
+ * so every instance only runs what the graph has not seen yet.
+ */
+public class SchemaMigrationManager {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SchemaMigrationManager.class);
+
+    private static final String VERSION_NODE_NAME = "drms";
+
+    private final Neo4JConnector neo4JConnector;
+    private final List<SchemaMigration> migrations;
+
+    private volatile int appliedVersion = -1;
+
+    public SchemaMigrationManager(Neo4JConnector neo4JConnector) {
+        this(neo4JConnector, SchemaMigrations.ALL);
+    }
+
+    public SchemaMigrationManager(Neo4JConnector neo4JConnector, List<SchemaMigration> migrations) {
+        this.neo4JConnector = neo4JConnector;
+        this.migrations = migrations;
+    }
+
+    /**
+     * @return the schema version of the graph after migrating
+     */
+    public int migrate() {
+        int currentVersion = readAppliedVersion();
+        LOGGER.info("Graph schema is at version {}, latest is {}", currentVersion, getLatestVersion());
+
+        for (SchemaMigration migration : migrations) {
+            if (migration.getVersion() <= currentVersion) {
+                continue;
+            }
+            LOGGER.info("Applying graph schema migration {}: {}", migration.getVersion(), migration.getDescription());
+            for (String statement : migration.getSchemaStatements()) {
+                neo4JConnector.runTransactionalQuery(statement);
+            }
+            for (String statement : migration.getBackfillStatements()) {
+                long total = 0;
+                long updated;
+                do {
+                    List<Record> records = neo4JConnector.runTransactionalQuery(Collections.emptyMap(), statement);
+                    updated = records.isEmpty() ? 0 : records.get(0).get("count").asLong();
+                    total += updated;
+                } while (updated > 0);
+                LOGGER.info("Backfilled {} nodes for schema migration {}", total, migration.getVersion());
+            }
+            recordVersion(migration);
+            currentVersion = migration.getVersion();
+        }
+        this.appliedVersion = currentVersion;
+        return currentVersion;
+    }
+
+    /**
+     * Blocks until all indexes are online, so queries are not served from label scans while indexes populate.
+     *
+     * @return true if every index came online within the timeout
+     */
+    public boolean awaitIndexes(long timeoutSeconds) {
+        try {
+            Map<String, Object> parameters = new HashMap<>();
+            parameters.put("timeout", timeoutSeconds);
+            neo4JConnector.searchNodes(parameters, "CALL db.awaitIndexes($timeout)");
+        } catch (Exception ex) {
+            LOGGER.warn("Indexes are not online after {} seconds: {}", timeoutSeconds, ex.getMessage());
+        }
+        List<IndexStatus> indexes = getIndexes();
+        indexes.stream().filter(index -> !index.isOnline())
+                .forEach(index -> LOGGER.warn("Index is not online: {}", index));
+        return indexes.stream().allMatch(IndexStatus::isOnline);
+    }
+
+    public List<IndexStatus> getIndexes() {
+        List<Record> records = neo4JConnector.searchNodes(Collections.emptyMap(),
+                "CALL db.indexes() YIELD name, state, populationPercent, labelsOrTypes, properties" +
+                        " RETURN name, state, populationPercent, labelsOrTypes, properties");
+        return records.stream().map(record -> new IndexStatus(
+                record.get("name").asString(),
+                record.get("state").asString(),
+                record.get("populationPercent").asDouble(0),
+                record.get("labelsOrTypes").asList(Value::asString),
+                record.get("properties").asList(Value::asString)))
+                .collect(Collectors.toList());
+    }
+
+    public int readAppliedVersion() {
+        List<Record> records = neo4JConnector.searchNodes(Collections.singletonMap("name", VERSION_NODE_NAME),
+                "MATCH (v:DRMSSchemaVersion {name: $name}) RETURN v.version AS version");
+        if (records.isEmpty() || records.get(0).get("version").isNull()) {
+            return 0;
+        }
+        return records.get(0).get("version").asInt();
+    }
+
+    public int getAppliedVersion() {
+        return appliedVersion;
+    }
+
+    public int getLatestVersion() {
+        return migrations.isEmpty() ? 0 : migrations.get(migrations.size() - 1).getVersion();
+    }
+
+    /**
+     * Healthy when the graph is on the latest schema version and no index is failed or still populating
+     */
+    public boolean isHealthy() {
+        if (appliedVersion != getLatestVersion()) {
+            return false;
+        }
+        try {
+            return getIndexes().stream().allMatch(IndexStatus::isOnline);
+        } catch (Exception ex) {
+            LOGGER.warn("Could not read index status: {}", ex.getMessage());
+            return false;
+        }
+    }
+
+    private void recordVersion(SchemaMigration migration) {
+        Map<String, Object> parameters = new HashMap<>();
+        parameters.put("name", VERSION_NODE_NAME);
+        parameters.put("version", migration.getVersion());
+        parameters.put("description", migration.getDescription());
+        neo4JConnector.runTransactionalQuery(parameters,
+                "MERGE (v:DRMSSchemaVersion {name: $name})" +
+                        " SET v.version = $version, v.description = $description, v.appliedAt = timestamp()");
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.airavata.drms.core.schema;
+
+import org.apache.airavata.drms.core.access.AccessIndex;
+import org.apache.airavata.drms.core.ancestry.AncestryIndex;
+import org.apache.airavata.drms.core.query.NodeLabel;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Ordered list of graph schema migrations. Append new versions at the end; never edit an applied one.
+ */
+public final class SchemaMigrations {
+
+    private SchemaMigrations() {
+    }
+
+    private static final int BACKFILL_BATCH_SIZE = 10000;
+
+    // Access entries walk the ancestors and groups of every node, so they are built in smaller transactions
+    private static final int ACCESS_BACKFILL_BATCH_SIZE = 1000;
+
+    // Labels of nodes which are not resources, the schema version node included; any other label is a resource
+    // type, see NodeLabel.isResourceLabel
+    private static final String NON_RESOURCE_LABELS = Stream.concat(Arrays.stream(NodeLabel.values())
+            .map(NodeLabel::getLabel)
+            .filter(label -> !NodeLabel.isResourceLabel(label)), Stream.of("DRMSSchemaVersion"))
+            .map(label -> "'" + label + "'")
+            .collect(Collectors.joining(", ", "[", "]"));
+
+    private static final String ANCESTRY_BACKFILL =
+            "MATCH (r:Resource) WHERE r.ancestorIds IS NULL WITH r LIMIT " + BACKFILL_BATCH_SIZE +
+                    AncestryIndex.ANCESTRY_OF_R +
+                    " SET r.ancestorIds = ancestorIds, r.ancestorDepths = ancestorDepths" +
+                    " RETURN count(r) AS count";
+
+    public static final List<SchemaMigration> ALL = Collections.unmodifiableList(Arrays.asList(
+
+            new SchemaMigration(1, "Base indexes and constraints")
+                    .schema("CREATE INDEX user_index_username IF NOT EXISTS FOR (n:User) ON (n.username, n.tenantId)")
+                    .schema("CREATE INDEX file_index IF NOT EXISTS FOR (n:FILE) ON (n.entityId, n.tenantId)")
+                    .schema("CREATE INDEX collection_index_username IF NOT EXISTS FOR (n:COLLECTION) ON (n.entityId, n.tenantId)")
+                    .schema("CREATE INDEX storage_index IF NOT EXISTS FOR (n:Storage) ON (n.entityId, n.tenantId)")
+                    .schema("CREATE CONSTRAINT IF NOT EXISTS ON (n:User) ASSERT n.username IS UNIQUE")
+                    .schema("CREATE CONSTRAINT IF NOT EXISTS ON (n:Group) ASSERT n.groupId IS UNIQUE")
+                    .schema("CREATE CONSTRAINT IF NOT EXISTS ON (n:COLLECTION) ASSERT n.entityId IS UNIQUE")
+                    .schema("CREATE CONSTRAINT IF NOT EXISTS ON (n:FILE) ASSERT n.entityId IS UNIQUE")
+                    .schema("CREATE CONSTRAINT IF NOT EXISTS ON (n:Storage) ASSERT n.entityId IS UNIQUE")
+                    .schema("CREATE CONSTRAINT IF NOT EXISTS ON (n:StoragePreference) ASSERT n.entityId IS UNIQUE"),
+
+            new SchemaMigration(2, "Composite (id, tenantId) indexes for the remaining labels")
+                    .schema("CREATE INDEX storage_preference_index IF NOT EXISTS FOR (n:StoragePreference) ON (n.entityId, n.tenantId)")
+                    .schema("CREATE INDEX metadata_node_index IF NOT EXISTS FOR (n:METADATA_NODE) ON (n.entityId, n.tenantId)")
+                    .schema("CREATE INDEX full_metadata_node_index IF NOT EXISTS FOR (n:FULL_METADATA_NODE) ON (n.entityId, n.tenantId)")
+                    .schema("CREATE INDEX transfer_mapping_index IF NOT EXISTS FOR (n:TransferMapping) ON (n.entityId, n.tenantId)")
+                    .schema("CREATE INDEX transfer_mapping_scope_index IF NOT EXISTS FOR (n:TransferMapping) ON (n.scope, n.tenantId)")
+                    .schema("CREATE INDEX group_index IF NOT EXISTS FOR (n:Group) ON (n.groupId, n.tenantId)"),
+
+            new SchemaMigration(3, "Shared Resource label for label-less resource lookups")
+                    .schema("CREATE INDEX resource_index IF NOT EXISTS FOR (n:Resource) ON (n.entityId, n.tenantId)")
+                    .backfill("MATCH (n) WHERE (n:COLLECTION OR n:FILE) AND NOT n:Resource" +
+                            " WITH n LIMIT " + BACKFILL_BATCH_SIZE + " SET n:Resource RETURN count(n) AS count"),
+
+            // searchText must be built the same way as FullTextQuery.searchText; (v + []) is a list for
+            // both scalar and array properties
+            new SchemaMigration(4, "Full-text indexes for metadata and resource property search")
+                    .schema("CREATE FULLTEXT INDEX metadata_search_text IF NOT EXISTS FOR (n:METADATA_NODE)" +
+                            " ON EACH [n.searchText]")
+                    .schema("CREATE FULLTEXT INDEX resource_search_text IF NOT EXISTS FOR (n:Resource)" +
+                            " ON EACH [n.resourceName, n.name, n.description]")
+                    .backfill("MATCH (n:METADATA_NODE) WHERE n.searchText IS NULL WITH n LIMIT " + BACKFILL_BATCH_SIZE +
+                            " SET n.searchText = trim(reduce(text = '', key IN [k IN keys(n) WHERE NOT k IN" +
+                            " ['entityId', 'tenantId', 'searchText', 'DATA_LAKE_METADATA_NODE_JSON_IDENTIFIER']] |" +
+                            " reduce(t = text, v IN (n[key] + []) | t + ' ' + toString(v))))" +
+                            " RETURN count(n) AS count"),
+
+            new SchemaMigration(5, "Materialised resource ancestry")
+                    .backfill(ANCESTRY_BACKFILL),
+
+            // Migration 3 only labelled collections and files. Nodes of client defined resource types get the
+            // Resource label, and with it their ancestry, here
+            new SchemaMigration(6, "Shared Resource label for client defined resource types")
+                    .backfill("MATCH (n) WHERE NOT n:Resource" +
+                            " AND any(label IN labels(n) WHERE NOT label IN " + NON_RESOURCE_LABELS + ")" +
+                            " WITH n LIMIT " + BACKFILL_BATCH_SIZE + " SET n:Resource RETURN count(n) AS count")
+                    .backfill(ANCESTRY_BACKFILL),
+
+            // First build of the access index, see AccessIndex. Access checks read only the index, so this has to
+            // finish before the server starts serving. Built nodes are marked so an interrupted run resumes where it
+            // stopped, and the marks are removed at the end
+            new SchemaMigration(7, "Materialised effective access")
+                    .backfill(accessBackfill("Resource"))
+                    .backfill(accessBackfill("Storage"))
+                    .backfill("MATCH (u:User) WHERE u._accessIndexed IS NULL WITH u LIMIT " +
+                            ACCESS_BACKFILL_BATCH_SIZE +
+                            AccessIndex.REFRESH_GROUPS_OF_U +
+                            " SET u._accessIndexed = true RETURN count(u) AS count")
+                    .backfill(removeAccessMarks("Resource"))
+                    .backfill(removeAccessMarks("Storage"))
+                    .backfill(removeAccessMarks("User"))
+    ));
+
+    private static String accessBackfill(String label) {
+        return "MATCH (r:" + label + ") WHERE r._accessIndexed IS NULL WITH r LIMIT " + ACCESS_BACKFILL_BATCH_SIZE +
+                AccessIndex.REFRESH_ACCESS_OF_R +
+                " SET r._accessIndexed = true RETURN count(r) AS count";
+    }
+
+    private static String removeAccessMarks(String label) {
+        return "MATCH (n:" + label + ") WHERE n._accessIndexed IS NOT NULL WITH n LIMIT " + BACKFILL_BATCH_SIZE +
+                " REMOVE n._accessIndexed RETURN count(n) AS count";
+    }
+}
@@ -3,8 +3,12 @@ package org.apache.airavata.drms.api;
 import io.grpc.ServerInterceptor;
 import org.apache.airavata.drms.api.interceptors.Authenticator;
 import org.apache.airavata.drms.api.interceptors.InterceptorPipelineExecutor;
+import org.apache.airavata.drms.api.interceptors.QueryOperationInterceptor;
 import org.apache.airavata.drms.api.interceptors.ServiceInterceptor;
 import org.apache.airavata.drms.core.Neo4JConnector;
+import org.apache.airavata.drms.core.access.AccessIndex;
+import org.apache.airavata.drms.core.ancestry.AncestryIndex;
+import org.apache.airavata.drms.core.connection.Neo4JConnectionConfig;
 import org.apache.custos.clients.CustosClientProvider;
 import org.lognet.springboot.grpc.GRpcGlobalInterceptor;
 import org.springframework.beans.factory.annotation.Value;
@@ -12,6 +16,7 @@ import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
 import java.util.Stack;
+import java.util.concurrent.TimeUnit;
 
 @Configuration
 public class Config {
@@ -25,6 +30,39 @@ public class Config {
     @org.springframework.beans.factory.annotation.Value("${neo4j.server.password}")
     public String neo4jServerPassword;
 
+    @Value("${neo4j.pool.max.size:100}")
+    private int neo4jPoolMaxSize;
+
+    @Value("${neo4j.pool.acquisition.timeout.ms:60000}")
+    private long neo4jPoolAcquisitionTimeoutMs;
+
+    @Value("${neo4j.pool.max.connection.lifetime.ms:3600000}")
+    private long neo4jPoolMaxConnectionLifetimeMs;
+
+    @Value("${neo4j.health.check.interval.ms:30000}")
+    private long neo4jHealthCheckIntervalMs;
+
+    @Value("${neo4j.driver.close.grace.ms:60000}")
+    private long neo4jDriverCloseGraceMs;
+
+    @Value("${drms.access.index.batch.size:500}")
+    private int accessIndexBatchSize;
+
+    @Value("${drms.ancestry.index.batch.size:500}")
+    private int ancestryIndexBatchSize;
+
+    @Value("${drms.query.profiling.enabled:true}")
+    private boolean queryProfilingEnabled;
+
+    @Value("${drms.query.slow.threshold.ms:500}")
+    private long slowQueryThresholdMs;
+
+    @Value("${drms.query.slow.profile.enabled:false}")
+    private boolean profileSlowQueries;
+
+    @Value("${drms.query.slow.profile.interval.seconds:300}")
+    private long slowQueryProfileIntervalSeconds;
+
     @Value("${custos.id}")
     private String custosId;
 
@@ -37,9 +75,32 @@ public class Config {
     @Value("${custos.port}")
     private int custosPort;
 
-    @Bean
+    @Bean(destroyMethod = "close")
     public Neo4JConnector neo4JConnector() {
-        return new Neo4JConnector(neo4jServerUri, neo4jServerUser, neo4jServerPassword);
+        Neo4JConnectionConfig connectionConfig = new Neo4JConnectionConfig(neo4jServerUri, neo4jServerUser,
+                neo4jServerPassword)
+                .setMaxPoolSize(neo4jPoolMaxSize)
+                .setAcquisitionTimeoutMs(neo4jPoolAcquisitionTimeoutMs)
+                .setMaxConnectionLifetimeMs(neo4jPoolMaxConnectionLifetimeMs)
+                .setHealthCheckIntervalMs(neo4jHealthCheckIntervalMs)
+                .setDriverCloseGraceMs(neo4jDriverCloseGraceMs);
+        Neo4JConnector neo4JConnector = new Neo4JConnector(connectionConfig);
+        neo4JConnector.getQueryProfiler()
+                .setEnabled(queryProfilingEnabled)
+                .setSlowQueryThresholdMillis(slowQueryThresholdMs)
+                .setProfileSlowQueries(profileSlowQueries)
+                .setProfileIntervalMillis(TimeUnit.SECONDS.toMillis(slowQueryProfileIntervalSeconds));
+        return neo4JConnector;
+    }
+
+    @Bean
+    public AccessIndex accessIndex(Neo4JConnector neo4JConnector) {
+        return new AccessIndex(neo4JConnector, accessIndexBatchSize);
+    }
+
+    @Bean
+    public AncestryIndex ancestryIndex(Neo4JConnector neo4JConnector) {
+        return new AncestryIndex(neo4JConnector, ancestryIndexBatchSize);
     }
 
     @Bean
@@ -56,6 +117,12 @@ public class Config {
         return new InterceptorPipelineExecutor(integrationServiceInterceptors);
     }
 
+    @Bean
+    @GRpcGlobalInterceptor
+    public ServerInterceptor queryOperationInterceptor() {
+        return new QueryOperationInterceptor();
+    }
+
 
     @Bean
     public CustosClientProvider custosClientsFactory() {
@@ -0,0 +1,184 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.airavata.drms.api.accesscache;
+
+import org.apache.airavata.drms.api.utils.BoundedTtlCache;
+import org.apache.airavata.drms.core.access.AccessInvalidation;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+/**
+ * Bounded, least recently used cache of (tenant, user, resource) access decisions. Entries expire after a TTL as a
+ * safety net; revocations are expected to invalidate them earlier through {@link AccessInvalidation}s, either
+ * applied locally after a DRMS write or received from the custos synchronizer and other API instances.
+ */
+@Component
+public class AccessDecisionCache {
+
+    @Value("${drms.access.cache.max.entries:100000}")
+    private int maxEntries;
+
+    @Value("${drms.access.cache.ttl.seconds:300}")
+    private long ttlSeconds;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong invalidatedEntries = new AtomicLong();
+
+    private BoundedTtlCache<Key, Boolean> decisions;
+
+    @PostConstruct
+    public void init() {
+        decisions = new BoundedTtlCache<>(maxEntries, ttlSeconds * 1000, key -> evictions.incrementAndGet());
+    }
+
+    /**
+     * @return the cached decision, or empty if there is none or it expired
+     */
+    public Optional<Boolean> get(String tenantId, String username, String entityId) {
+        Boolean allowed = decisions.get(new Key(tenantId, username, entityId));
+        if (allowed == null) {
+            misses.incrementAndGet();
+            return Optional.empty();
+        }
+        hits.incrementAndGet();
+        return Optional.of(allowed);
+    }
+
+    /**
+     * @return the current generation, to be passed to {@link #put} with a decision looked up afterwards
+     */
+    public long getGeneration() {
+        return decisions.getGeneration();
+    }
+
+    /**
+     * Caches a decision unless entries were invalidated since the given generation, in which case the decision may
+     * predate the revocation that invalidated them
+     */
+    public void put(String tenantId, String username, String entityId, boolean allowed, long generation) {
+        decisions.put(new Key(tenantId, username, entityId), allowed, generation);
+    }
+
+    public void invalidate(AccessInvalidation invalidation) {
+        switch (invalidation.getScope()) {
+            case USER:
+                invalidateUser(invalidation.getTenantId(), invalidation.getId());
+                break;
+            case RESOURCE:
+                invalidateResources(invalidation.getTenantId(), Collections.singleton(invalidation.getId()));
+                break;
+            case TENANT:
+                invalidateTenant(invalidation.getTenantId());
+                break;
+        }
+    }
+
+    public void invalidateUser(String tenantId, String username) {
+        removeIf(key -> key.tenantId.equals(tenantId) && key.username.equals(username));
+    }
+
+    public void invalidateResources(String tenantId, Collection<String> entityIds) {
+        if (entityIds.isEmpty()) {
+            return;
+        }
+        Set<String> ids = entityIds instanceof Set ? (Set<String>) entityIds : new HashSet<>(entityIds);
+        removeIf(key -> key.tenantId.equals(tenantId) && ids.contains(key.entityId));
+    }
+
+    public void invalidateTenant(String tenantId) {
+        removeIf(key -> key.tenantId.equals(tenantId));
+    }
+
+    public void clear() {
+        removeIf(key -> true);
+    }
+
+    /**
+     * Stops caching, for when invalidations can no longer be received
+     */
+    public void disable() {
+        invalidatedEntries.addAndGet(decisions.disable().size());
+    }
+
+    public boolean isEnabled() {
+        return decisions.isEnabled();
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    public long getInvalidations() {
+        return decisions.getGeneration();
+    }
+
+    public long getInvalidatedEntries() {
+        return invalidatedEntries.get();
+    }
+
+    public int getSize() {
+        return decisions.size();
+    }
+
+    private void removeIf(Predicate<Key> predicate) {
+        invalidatedEntries.addAndGet(decisions.removeIf(predicate).size());
+    }
+
+    private static final class Key {
+        private final String tenantId;
+        private final String username;
+        private final String entityId;
+
+        private Key(String tenantId, String username, String entityId) {
+            this.tenantId = tenantId;
+            this.username = username;
+            this.entityId = entityId;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            return tenantId.equals(key.tenantId) && username.equals(key.username) && entityId.equals(key.entityId);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(tenantId, username, entityId);
+        }
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.airavata.drms.api.accesscache;
+
+import org.apache.airavata.drms.api.storagecache.StorageCatalogCache;
+import org.apache.airavata.drms.core.access.AccessInvalidation;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.common.errors.WakeupException;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.Collections;
+import java.util.Properties;
+import java.util.UUID;
+
+/**
+ * Applies the access invalidations published by the custos synchronizer and by the sharing handlers of all API
+ * instances to the local decision cache and the storage catalog cache. Every API instance has to see every message, so each one consumes with its own consumer
+ * group, starting from the latest offset; anything older is covered by the cache TTL. Without a configured broker
+ * revocations made elsewhere would only show up once cached grants expire, so both caches are disabled instead.
+ */
+@Component
+public class AccessInvalidationListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(AccessInvalidationListener.class);
+
+    private static final long POLL_TIMEOUT_MS = 1000;
+
+    @Autowired
+    private AccessDecisionCache accessDecisionCache;
+
+    @Autowired
+    private StorageCatalogCache storageCatalogCache;
+
+    @Value("${drms.access.invalidation.broker.url:}")
+    private String brokerUrl;
+
+    @Value("${drms.access.invalidation.topic:drms-access-invalidation}")
+    private String topic;
+
+    @Value("${drms.access.invalidation.consumer.group.prefix:drms-api-access-cache}")
+    private String consumerGroupPrefix;
+
+    private KafkaConsumer<String, String> consumer;
+    private volatile boolean running;
+
+    @PostConstruct
+    public void start() {
+        if (brokerUrl == null || brokerUrl.isEmpty()) {
+            logger.warn("No access invalidation broker configured, disabling access decision and storage caches");
+            accessDecisionCache.disable();
+            storageCatalogCache.disable();
+            return;
+        }
+        Properties props = new Properties();
+        props.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, brokerUrl);
+        props.put(ConsumerConfig.GROUP_ID_CONFIG, consumerGroupPrefix + "-" + UUID.randomUUID());
+        props.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class.getName());
+        props.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class.getName());
+        props.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "latest");
+        props.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, "true");
+        consumer = new KafkaConsumer<>(props);
+        consumer.subscribe(Collections.singletonList(topic));
+        running = true;
+
+        Thread thread = new Thread(this::consume, "drms-access-invalidation-listener");
+        thread.setDaemon(true);
+        thread.start();
+        logger.info("Listening for access invalidations on topic {}", topic);
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        if (consumer != null) {
+            consumer.wakeup();
+        }
+    }
+
+    private void consume() {
+        try {
+            while (running) {
+                ConsumerRecords<String, String> records = consumer.poll(POLL_TIMEOUT_MS);
+                for (ConsumerRecord<String, String> record : records) {
+                    try {
+                        AccessInvalidation invalidation = AccessInvalidation.decode(record.value());
+                        logger.debug("Applying {}", invalidation);
+                        accessDecisionCache.invalidate(invalidation);
+                        storageCatalogCache.invalidate(invalidation);
+                    } catch (Exception ex) {
+                        logger.warn("Skipping access invalidation {}", record.value(), ex);
+                    }
+                }
+            }
+        } catch (WakeupException ex) {
+            // Raised by stop()
+        } catch (Exception ex) {
+            // Without invalidations cached grants could outlive a revocation, so stop caching
+            logger.error("Access invalidation listener stopped, disabling access decision and storage caches", ex);
+            accessDecisionCache.disable();
+            storageCatalogCache.disable();
+        } finally {
+            consumer.close();
+        }
+    }
+}
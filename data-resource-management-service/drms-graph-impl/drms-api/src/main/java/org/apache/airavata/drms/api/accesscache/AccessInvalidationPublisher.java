@@ -0,0 +1,98 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.airavata.drms.api.accesscache;
+
+import org.apache.airavata.drms.core.access.AccessInvalidation;
+import org.apache.kafka.clients.producer.KafkaProducer;
+import org.apache.kafka.clients.producer.Producer;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.Collection;
+import java.util.Properties;
+
+/**
+ * Publishes the access invalidations of sharing changes made through this instance on the topic the
+ * {@link AccessInvalidationListener}s of all API instances consume, so that other instances drop revoked grants
+ * before they expire. Disabled when no broker is configured.
+ */
+@Component
+public class AccessInvalidationPublisher {
+
+    private static final Logger logger = LoggerFactory.getLogger(AccessInvalidationPublisher.class);
+
+    // Above this many resources one tenant wide invalidation is cheaper than a message per resource
+    private static final int MAX_RESOURCE_INVALIDATIONS = 1000;
+
+    @Value("${drms.access.invalidation.broker.url:}")
+    private String brokerUrl;
+
+    @Value("${drms.access.invalidation.topic:drms-access-invalidation}")
+    private String topic;
+
+    private Producer<String, String> producer;
+
+    @PostConstruct
+    public void start() {
+        if (brokerUrl == null || brokerUrl.isEmpty()) {
+            return;
+        }
+        Properties props = new Properties();
+        props.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, brokerUrl);
+        props.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class.getName());
+        props.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, StringSerializer.class.getName());
+        props.put(ProducerConfig.ACKS_CONFIG, "1");
+        props.put(ProducerConfig.LINGER_MS_CONFIG, 5);
+        producer = new KafkaProducer<>(props);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (producer != null) {
+            producer.close();
+        }
+    }
+
+    public void publish(AccessInvalidation invalidation) {
+        if (producer == null) {
+            return;
+        }
+        producer.send(new ProducerRecord<>(topic, invalidation.getTenantId(), invalidation.encode()),
+                (metadata, exception) -> {
+                    if (exception != null) {
+                        logger.error("Failed to publish access invalidation {}", invalidation, exception);
+                    }
+                });
+    }
+
+    public void publishResources(String tenantId, Collection<String> entityIds) {
+        if (entityIds.size() > MAX_RESOURCE_INVALIDATIONS) {
+            publish(AccessInvalidation.tenant(tenantId));
+            return;
+        }
+        for (String entityId : entityIds) {
+            publish(AccessInvalidation.resource(tenantId, entityId));
+        }
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.airavata.drms.api.dboperation;
+
+import org.apache.airavata.drms.api.accesscache.AccessDecisionCache;
+import org.apache.airavata.drms.core.access.AccessIndex;
+import org.apache.airavata.drms.core.access.AccessIndexReport;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Periodically verifies the access index and repairs drift left behind by writes that bypassed the incremental
+ * refreshes, for example a synchronizer run that failed half way. The index itself is first built by a schema
+ * migration, before the server starts serving.
+ */
+@Component
+@DependsOn("schemaMigrationRunner")
+public class AccessIndexVerifier {
+
+    private static final Logger logger = LoggerFactory.getLogger(AccessIndexVerifier.class);
+
+    @Autowired
+    private AccessIndex accessIndex;
+
+    @Autowired
+    private AccessDecisionCache accessDecisionCache;
+
+    @Value("${drms.access.index.verify.interval.minutes:60}")
+    private long intervalMinutes;
+
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "drms-access-index-verifier");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private volatile AccessIndexReport lastReport;
+
+    @PostConstruct
+    public void start() {
+        if (intervalMinutes > 0) {
+            executor.scheduleWithFixedDelay(this::verifyQuietly, intervalMinutes, intervalMinutes, TimeUnit.MINUTES);
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        executor.shutdownNow();
+    }
+
+    public AccessIndexReport verify(boolean repair) {
+        AccessIndexReport report = accessIndex.verify(repair);
+        if (repair && !report.isConsistent()) {
+            // Repaired entries may back cached decisions
+            accessDecisionCache.clear();
+        }
+        lastReport = report;
+        return report;
+    }
+
+    public AccessIndexReport getLastReport() {
+        return lastReport;
+    }
+
+    private void verifyQuietly() {
+        try {
+            verify(true);
+        } catch (Exception ex) {
+            logger.error("Error occurred while verifying the access index", ex);
+        }
+    }
+}
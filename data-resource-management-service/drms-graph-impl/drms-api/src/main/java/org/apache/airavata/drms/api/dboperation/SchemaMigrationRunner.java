@@ -0,0 +1,63 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.airavata.drms.api.dboperation;
+
+import org.apache.airavata.drms.core.Neo4JConnector;
+import org.apache.airavata.drms.core.schema.SchemaMigrationManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+
+/**
+ * Migrates the graph schema while the context is being built, so the gRPC server only starts serving once the
+ * indexes are online. A failed migration fails the startup rather than serving from a partly migrated schema.
+ */
+@Component
+public class SchemaMigrationRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(SchemaMigrationRunner.class);
+
+    @Autowired
+    private Neo4JConnector neo4JConnector;
+
+    @Value("${neo4j.schema.index.await.timeout.seconds:300}")
+    private long indexAwaitTimeoutSeconds;
+
+    private SchemaMigrationManager schemaMigrationManager;
+
+    @PostConstruct
+    public void migrate() {
+        schemaMigrationManager = new SchemaMigrationManager(neo4JConnector);
+        try {
+            logger.info("Running neo4j schema migrations..........");
+            int version = schemaMigrationManager.migrate();
+            boolean online = schemaMigrationManager.awaitIndexes(indexAwaitTimeoutSeconds);
+            logger.info("Graph schema is at version {}, all indexes online: {}", version, online);
+        } catch (Exception ex) {
+            logger.error("Error occurred while migrating graph schema", ex);
+            throw new IllegalStateException("Graph schema migration failed", ex);
+        }
+    }
+
+    public SchemaMigrationManager getSchemaMigrationManager() {
+        return schemaMigrationManager;
+    }
+}
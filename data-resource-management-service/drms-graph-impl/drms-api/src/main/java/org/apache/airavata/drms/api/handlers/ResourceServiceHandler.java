@@ -16,35 +16,53 @@
  */
 package org.apache.airavata.drms.api.handlers;
 
-import com.google.gson.Gson;
 import com.google.protobuf.Empty;
-import com.google.protobuf.InvalidProtocolBufferException;
 import com.google.protobuf.MapEntry;
 import com.google.protobuf.Struct;
-import com.google.protobuf.util.JsonFormat;
 import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import io.grpc.stub.ServerCallStreamObserver;
 import io.grpc.stub.StreamObserver;
 import org.apache.airavata.datalake.drms.AuthenticatedUser;
 import org.apache.airavata.datalake.drms.resource.GenericResource;
 import org.apache.airavata.datalake.drms.storage.*;
+import org.apache.airavata.drms.api.accesscache.AccessDecisionCache;
+import org.apache.airavata.drms.api.metadata.MetadataPatch;
+import org.apache.airavata.drms.api.metadata.MetadataStorage;
+import org.apache.airavata.drms.api.search.StorageFanOutSearch;
+import org.apache.airavata.drms.api.storagecache.TransferMappingCatalog;
+import org.apache.airavata.drms.api.streaming.ChunkedResourceStreamer;
 import org.apache.airavata.drms.api.utils.CustosUtils;
+import org.apache.airavata.drms.api.utils.PageToken;
 import org.apache.airavata.drms.api.utils.Utils;
+import org.apache.airavata.drms.api.write.ResourceWritePipeline;
 import org.apache.airavata.drms.core.Neo4JConnector;
+import org.apache.airavata.drms.core.access.AccessIndex;
+import org.apache.airavata.drms.core.ancestry.AncestryIndex;
+import org.apache.airavata.drms.core.bulk.NodeDescriptor;
+import org.apache.airavata.drms.core.constants.ResourceConstants;
+import org.apache.airavata.drms.core.constants.SharingConstants;
 import org.apache.airavata.drms.core.constants.StoragePreferenceConstants;
 import org.apache.airavata.drms.core.deserializer.AnyStorageDeserializer;
 import org.apache.airavata.drms.core.deserializer.GenericResourceDeserializer;
-import org.apache.airavata.drms.core.deserializer.TransferMappingDeserializer;
+import org.apache.airavata.drms.core.deserializer.ResourceProjection;
+import org.apache.airavata.drms.core.metadata.MetadataDocument;
+import org.apache.airavata.drms.core.query.CypherTemplates;
+import org.apache.airavata.drms.core.query.FullTextQuery;
+import org.apache.airavata.drms.core.query.NodeLabel;
 import org.apache.airavata.drms.core.serializer.GenericResourceSerializer;
 import org.apache.custos.clients.CustosClientProvider;
 import org.apache.custos.sharing.service.Entity;
-import org.json.JSONObject;
 import org.lognet.springboot.grpc.GRpcService;
 import org.neo4j.driver.Record;
+import org.neo4j.driver.types.Node;
+import org.reactivestreams.Publisher;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
@@ -59,8 +77,48 @@ public class ResourceServiceHandler extends ResourceServiceGrpc.ResourceServiceI
     @Autowired
     private CustosClientProvider custosClientProvider;
 
+    @Autowired
+    private AccessIndex accessIndex;
+
+    @Autowired
+    private AccessDecisionCache accessDecisionCache;
+
+    @Autowired
+    private AncestryIndex ancestryIndex;
+
+    @Autowired
+    private StorageFanOutSearch storageFanOutSearch;
+
+    @Autowired
+    private TransferMappingCatalog transferMappingCatalog;
+
+    @Autowired
+    private MetadataStorage metadataStorage;
 
-    private static final String DATA_LAKE_JSON_IDENTIFIER = "DATA_LAKE_METADATA_NODE_JSON_IDENTIFIER";
+    @Autowired
+    private ResourceWritePipeline resourceWritePipeline;
+
+
+    private static final String DATA_LAKE_JSON_IDENTIFIER = MetadataPatch.JSON_IDENTIFIER;
+    // METADATA_NODE properties which are not metadata values, see FullTextQuery.searchText
+    private static final Set<String> METADATA_BOOKKEEPING_KEYS = new HashSet<>(Arrays.asList("entityId", "tenantId",
+            FullTextQuery.SEARCH_TEXT, DATA_LAKE_JSON_IDENTIFIER));
+    // Resource node properties written by createResource, which removing a metadata key must leave alone
+    private static final Set<String> RESOURCE_NODE_KEYS = new HashSet<>(Arrays.asList("entityId", "tenantId",
+            "entityType", "resourceId", "resourceName", "resourcePath", "parentResourcePath", "parentId", "type",
+            "description", "createdTime", "lastModifiedTime", "owner", "firstName", "lastName",
+            ResourceConstants.RESOURCE_VERSION, FullTextQuery.SEARCH_TEXT));
+    // JSON name of GenericResource.version, which serialized resources carry but nodes keep as resourceVersion
+    private static final String VERSION_FIELD = GenericResource.getDescriptor()
+            .findFieldByNumber(GenericResource.VERSION_FIELD_NUMBER).getJsonName();
+
+    private static final int DEFAULT_STREAM_CHUNK_SIZE = 100;
+    private static final int MAX_STREAM_CHUNK_SIZE = 1000;
+
+    private static final List<String> CHILD_RESOURCE_KEYS = Arrays.asList("cr:crRel", "chgr:chgrRel",
+            "chcgr:chcgrRel", "x:prRelU", "y:prRelG");
+    private static final List<String> CHILD_RESOURCE_PAGE_KEYS = Collections.singletonList("cr:crRel");
+    private static final List<String> LISTING_PAGE_KEYS = Collections.singletonList("r:relR");
 
     @Override
     public void fetchResource(ResourceFetchRequest request, StreamObserver<ResourceFetchResponse> responseObserver) {
@@ -70,34 +128,69 @@ public class ResourceServiceHandler extends ResourceServiceGrpc.ResourceServiceI
 
             String resourceId = request.getResourceId();
             String type = request.getType();
-            if (type == null || type.isEmpty()) {
-                type = "";
-            } else {
-                type = ":" + type;
+            ResourceProjection projection;
+            try {
+                projection = ResourceProjection.of(request.getReadMask());
+            } catch (IllegalArgumentException ex) {
+                logger.error("Invalid fetch request for resource {}", resourceId, ex);
+                responseObserver.onError(Status.INVALID_ARGUMENT.withDescription(ex.getMessage())
+                        .asRuntimeException());
+                return;
             }
             Map<String, Object> userProps = new HashMap<>();
             userProps.put("username", callUser.getUsername());
             userProps.put("tenantId", callUser.getTenantId());
             userProps.put("entityId", resourceId);
+            userProps.put("type", type == null || type.isEmpty() ? null : type);
 
+            long generation = this.accessDecisionCache.getGeneration();
+            Optional<Boolean> cachedAccess = this.accessDecisionCache.get(callUser.getTenantId(),
+                    callUser.getUsername(), resourceId);
+            if (!cachedAccess.orElse(true)) {
+                responseObserver.onNext(ResourceFetchResponse.newBuilder().build());
+                responseObserver.onCompleted();
+                return;
+            }
 
-            String query = " MATCH (u:User) where u.username = $username AND u.tenantId = $tenantId with u  " +
-                    " Match (r" + type + ") where r.entityId = $entityId AND r.tenantId = $tenantId with u, r" +
-                    " OPTIONAL MATCH (g:Group)<-[:MEMBER_OF]-(u) " +
-                    " OPTIONAL MATCH (cg:Group)-[:CHILD_OF]->(g)" +
-                    " OPTIONAL MATCH (r)-[:CHILD_OF*]->(x:COLLECTION)" +
-                    " return case when  exists((u)<-[:SHARED_WITH]-(r)) OR  exists((g)<-[:SHARED_WITH]-(r)) OR   " +
-                    "exists((cg)<-[:SHARED_WITH]-(r)) OR exists((u)<-[:SHARED_WITH]-(x)) OR exists((g)<-[:SHARED_WITH]-(x)) OR exists((cg)<-[:SHARED_WITH]-(x))" +
-                    "then r  else NULL end as value";
-
-            logger.debug("Fetch resource query {}", query);
+            if (request.hasIfNoneMatch()) {
+                // A cached grant is enough to compare versions, otherwise the version is read with the access check
+                List<Record> records = this.neo4JConnector.searchNodes(cachedAccess.isPresent() ?
+                        CypherTemplates.RESOURCE_VERSION : CypherTemplates.ACCESSIBLE_RESOURCE_VERSION,
+                        userProps, NodeLabel.RESOURCE);
+                if (!records.isEmpty()
+                        && records.get(0).get("version").asLong() == request.getIfNoneMatch().getValue()) {
+                    this.accessDecisionCache.put(callUser.getTenantId(), callUser.getUsername(), resourceId, true,
+                            generation);
+                    responseObserver.onNext(ResourceFetchResponse.newBuilder().setNotModified(true).build());
+                    responseObserver.onCompleted();
+                    return;
+                }
+            }
 
-            List<Record> records = this.neo4JConnector.searchNodes(userProps, query);
+            Set<String> propertiesToRead = projection.getPropertiesToRead();
+            List<GenericResource> genericResourceList;
+            if (propertiesToRead == null) {
+                String query = this.neo4JConnector.render(CypherTemplates.ACCESSIBLE_RESOURCE, NodeLabel.RESOURCE);
+                logger.debug("Fetch resource query {}", query);
+                List<Record> records = this.neo4JConnector.searchNodes(userProps, query);
+                genericResourceList = GenericResourceDeserializer.deserializeList(records);
+            } else {
+                // Only the properties in the read mask are returned by the query
+                List<String> fields = new ArrayList<>(GenericResourceDeserializer.IDENTITY_FIELDS);
+                fields.addAll(propertiesToRead);
+                userProps.put("fields", fields);
+                List<Record> records = this.neo4JConnector.searchNodes(CypherTemplates.ACCESSIBLE_RESOURCE_FIELDS,
+                        userProps, NodeLabel.RESOURCE);
+                genericResourceList = GenericResourceDeserializer.deserializeFields(records, fields);
+            }
             try {
-                List<GenericResource> genericResourceList = GenericResourceDeserializer.deserializeList(records);
                 ResourceFetchResponse.Builder builder = ResourceFetchResponse.newBuilder();
                 if (!genericResourceList.isEmpty()) {
-                    Optional<AnyStorage> anyStorage = findStorage(resourceId, type, callUser.getTenantId());
+                    // An empty result may also come from a type mismatch, so only grants are cached here
+                    this.accessDecisionCache.put(callUser.getTenantId(), callUser.getUsername(), resourceId, true,
+                            generation);
+                    Optional<AnyStorage> anyStorage = projection.includesStorage() ?
+                            findStorage(resourceId, type, callUser.getTenantId()) : Optional.empty();
                     GenericResource resource = genericResourceList.get(0);
                     if (anyStorage.isPresent()) {
                         if (anyStorage.get().getStorageCase().equals(AnyStorage.StorageCase.SSH_STORAGE)) {
@@ -106,7 +199,7 @@ public class ResourceServiceHandler extends ResourceServiceGrpc.ResourceServiceI
                             resource = resource.toBuilder().setS3Storage(anyStorage.get().getS3Storage()).build();
                         }
                     }
-                    builder.setResource(resource);
+                    builder.setResource(projection.apply(resource));
                 }
                 responseObserver.onNext(builder.build());
                 responseObserver.onCompleted();
@@ -131,97 +224,27 @@ public class ResourceServiceHandler extends ResourceServiceGrpc.ResourceServiceI
         try {
             AuthenticatedUser callUser = request.getAuthToken().getAuthenticatedUser();
 
-            String type = request.getResource().getType();
-
-            Map<String, Object> userProps = new HashMap<>();
-            userProps.put("username", callUser.getUsername());
-            userProps.put("tenantId", callUser.getTenantId());
-
             String parentId = request.getResource().getParentId();
 
-
             String entityId = request.getResource().getResourceId();
             if (entityId == null || entityId.isEmpty()) {
                 entityId = Utils.getId(request.getResource().toString());
             }
-            Map<String, Object> serializedMap = GenericResourceSerializer.serializeToMap(request.getResource());
-            Optional<Entity> exEntity = CustosUtils.mergeResourceEntity(custosClientProvider, callUser.getTenantId(),
-                    parentId, type, entityId,
-                    request.getResource().getResourceName(), request.getResource().getResourceName(),
-                    callUser.getUsername());
-
-            if (exEntity.isPresent()) {
-                serializedMap.put("description", exEntity.get().getDescription());
-                serializedMap.put("resourceName", exEntity.get().getName());
-                serializedMap.put("createdTime", String.valueOf(exEntity.get().getCreatedAt()));
-                serializedMap.put("tenantId", callUser.getTenantId());
-                serializedMap.put("entityId", exEntity.get().getId());
-                serializedMap.put("entityType", exEntity.get().getType());
-                serializedMap.put("lastModifiedTime", exEntity.get().getCreatedAt());
-                serializedMap.put("owner", exEntity.get().getOwnerId());
-                serializedMap.put("firstName", callUser.getFirstName());
-                serializedMap.put("lastName", callUser.getLastName());
-
-                if (serializedMap.containsKey("properties") && serializedMap.get("properties") instanceof List) {
-                    List propertiesList = (List) serializedMap.get("properties");
-                    propertiesList.forEach(property -> {
-                        MapEntry entry = (MapEntry) property;
-                        serializedMap.put(entry.getKey().toString(), entry.getValue());
-                    });
-                }
-                serializedMap.remove("properties");
-                if (!parentId.isEmpty()) {
-                    String parentLabel = request.getResource().getPropertiesMap().get("PARENT_TYPE");
-                    if (parentLabel == null || parentLabel.isEmpty()) {
-                        parentLabel = request.getResource().getPropertiesMap().get("parentType");
-                    }
-                    this.neo4JConnector.mergeNodesWithParentChildRelationShip(serializedMap, new HashMap<>(),
-                            request.getResource().getType(), parentLabel, callUser.getUsername(), entityId,
-                            parentId, callUser.getTenantId());
-                } else {
-                    this.neo4JConnector.mergeNode(serializedMap, request.getResource().getType(),
-                            callUser.getUsername(), entityId, callUser.getTenantId());
-                }
-            } else {
-                logger.error("Error occurred while creating resource entity in Custos {}", request.getResource().getResourceId());
-                String msg = "Error occurred while creating resource entity in Custos with id"
-                        + request.getResource().getResourceId();
-                responseObserver.onError(Status.INTERNAL.withDescription(msg).asRuntimeException());
-                return;
-            }
-            Map<String, Object> exProps = new HashMap<>();
-            exProps.put("username", callUser.getUsername());
-            exProps.put("tenantId", callUser.getTenantId());
-            exProps.put("entityId", exEntity.get().getId());
-
-            String query = " MATCH (u:User) where u.username = $username AND u.tenantId = $tenantId with u  " +
-                    " Match (r:" + type + ") where r.entityId = $entityId AND r.tenantId = $tenantId with u, r" +
-                    " OPTIONAL MATCH (g:Group)<-[:MEMBER_OF]-(u) " +
-                    " OPTIONAL MATCH (cg:Group)-[:CHILD_OF]->(g)" +
-                    " return case when  exists((u)<-[:SHARED_WITH]-(r)) OR  exists((g)<-[:SHARED_WITH]-(r)) OR   " +
-                    "exists((cg)<-[:SHARED_WITH]-(r)) then r  else NULL end as value";
-
-            logger.debug("Create resource query {}", query);
-
-            List<Record> records = this.neo4JConnector.searchNodes(exProps, query);
-
-            List<GenericResource> genericResourceList = GenericResourceDeserializer.deserializeList(records);
-            GenericResource genericResource = genericResourceList.get(0);
-            if (genericResource.getPropertiesMap().containsKey("name")) {
-                genericResource = genericResource.toBuilder()
-                        .setResourceName(genericResource.getPropertiesMap().get("name")).build();
-            } else if (genericResource.getPropertiesMap().containsKey("resourceName")) {
-                genericResource = genericResource.toBuilder()
-                        .setResourceName(genericResource.getPropertiesMap().get("resourceName")).build();
-            }
+            GenericResource resource = writeResource(request.getResource(), entityId,
+                    parentId.isEmpty() ? null : getParentLabel(request.getResource()), callUser, null)
+                    .orElseThrow(() -> Status.INTERNAL.withDescription("Resource " + request.getResource()
+                            .getResourceId() + " was not written").asRuntimeException());
             ResourceCreateResponse response = ResourceCreateResponse
                     .newBuilder()
-                    .setResource(genericResource)
+                    .setResource(resource)
                     .build();
             responseObserver.onNext(response);
             responseObserver.onCompleted();
 
 
+        } catch (StatusRuntimeException ex) {
+            logger.error("Could not create resource {}: {}", request.getResource().getResourceId(), ex.getMessage());
+            responseObserver.onError(ex);
         } catch (Exception ex) {
             logger.error("Error occurred while creating resource {}", request.getResource().getResourceId(), ex);
             String msg = "Error occurred while creating resource" + ex.getMessage();
@@ -231,6 +254,80 @@ public class ResourceServiceHandler extends ResourceServiceGrpc.ResourceServiceI
     }
 
 
+    /**
+     * Creates the resources of the request. Custos entities created for the batch are removed again when the batch
+     * fails; nodes already merged are kept, and retrying the same request merges them again.
+     */
+    @Override
+    public void createResources(ResourcesCreateRequest request,
+                                StreamObserver<ResourcesCreateResponse> responseObserver) {
+        try {
+            AuthenticatedUser callUser = request.getAuthToken().getAuthenticatedUser();
+
+            for (GenericResource resource : request.getResourcesList()) {
+                validateTypes(resource, getParentLabel(resource));
+            }
+
+            List<Entity> entities = new ArrayList<>(request.getResourcesCount());
+            for (GenericResource resource : request.getResourcesList()) {
+                String entityId = resource.getResourceId();
+                if (entityId == null || entityId.isEmpty()) {
+                    entityId = Utils.getId(resource.toString());
+                }
+                entities.add(Entity.newBuilder()
+                        .setId(entityId)
+                        .setName(resource.getResourceName())
+                        .setOwnerId(callUser.getUsername())
+                        .setParentId(resource.getParentId())
+                        .setType(resource.getType())
+                        .setDescription(resource.getResourceName())
+                        .build());
+            }
+
+            Set<String> registeredIds = ConcurrentHashMap.newKeySet();
+            List<NodeDescriptor> nodes = new ArrayList<>(entities.size());
+            List<String> createdIds;
+            try {
+                List<Entity> exEntities = resourceWritePipeline.registerEntities(callUser.getTenantId(), entities,
+                        registeredIds);
+                for (int i = 0; i < exEntities.size(); i++) {
+                    GenericResource resource = request.getResources(i);
+                    Entity exEntity = exEntities.get(i);
+                    if (exEntity.getId().isEmpty()) {
+                        throw Status.INTERNAL.withDescription("Error occurred while creating resource entity in " +
+                                "Custos with id " + entities.get(i).getId()).asRuntimeException();
+                    }
+                    NodeDescriptor node = new NodeDescriptor(resource.getType(), exEntity.getId(),
+                            toNodeProperties(resource, exEntity, callUser));
+                    if (!resource.getParentId().isEmpty()) {
+                        node.withParent(getParentLabel(resource), resource.getParentId());
+                    }
+                    nodes.add(node);
+                }
+
+                createdIds = this.neo4JConnector.mergeNodes(nodes, callUser.getUsername(), callUser.getTenantId());
+            } catch (Exception ex) {
+                resourceWritePipeline.discardEntities(callUser.getTenantId(), registeredIds);
+                throw ex;
+            }
+            Set<String> parentIds = new HashSet<>();
+            nodes.stream().filter(NodeDescriptor::hasParent).forEach(node -> parentIds.add(node.getParentEntityId()));
+            refreshAccess(callUser.getTenantId(), createdIds, parentIds);
+
+            responseObserver.onNext(ResourcesCreateResponse.newBuilder().addAllResourceIds(createdIds).build());
+            responseObserver.onCompleted();
+
+        } catch (StatusRuntimeException ex) {
+            logger.error("Could not create resources in bulk: {}", ex.getMessage());
+            responseObserver.onError(ex);
+        } catch (Exception ex) {
+            logger.error("Error occurred while creating resources in bulk", ex);
+            String msg = "Error occurred while creating resources " + ex.getMessage();
+            responseObserver.onError(Status.INTERNAL.withDescription(msg).asRuntimeException());
+        }
+    }
+
+
     @Override
     public void fetchChildResources(ChildResourceFetchRequest request,
                                     StreamObserver<ChildResourceFetchResponse> responseObserver) {
@@ -240,16 +337,23 @@ public class ResourceServiceHandler extends ResourceServiceGrpc.ResourceServiceI
             String resourceId = request.getResourceId();
             String type = request.getType();
             int depth = request.getDepth();
-            if (type == null || type.isEmpty()) {
-                type = "";
-            } else {
-                type = ":" + type;
+            ResourceProjection projection;
+            String cursor;
+            try {
+                projection = ResourceProjection.of(request.getReadMask());
+                cursor = PageToken.decode(request.getPageToken());
+            } catch (IllegalArgumentException ex) {
+                logger.error("Invalid child fetch request for resource {}", resourceId, ex);
+                responseObserver.onError(Status.INVALID_ARGUMENT.withDescription(ex.getMessage())
+                        .asRuntimeException());
+                return;
             }
 
             Map<String, Object> userProps = new HashMap<>();
             userProps.put("username", callUser.getUsername());
             userProps.put("tenantId", callUser.getTenantId());
             userProps.put("entityId", resourceId);
+            userProps.put("type", type == null || type.isEmpty() ? null : type);
 
 //            String query = " MATCH (u:User),  (r" + type + ") where u.username = $username AND u.tenantId = $tenantId AND " +
 //                    " r.entityId = $entityId AND r.tenantId = $tenantId" +
@@ -260,30 +364,31 @@ public class ResourceServiceHandler extends ResourceServiceGrpc.ResourceServiceI
 //                    " OPTIONAL MATCH (g)<-[prRelG:SHARED_WITH]-(prg:COLLECTION)<-[:CHILD_OF*]-(r)<-[:CHILD_OF]-(y)" +
 //                    " return distinct  cr,crRel, chgr,chgrRel, x, prRelU,y,prRelG";
 //
+            if (request.getPageSize() > 0) {
+                String query = this.neo4JConnector.render(CypherTemplates.CHILD_RESOURCES_PAGE, lookupLabel(type));
+                logger.debug("Fetch child page query {}", query);
+                Page page = readPage(query, userProps, CHILD_RESOURCE_PAGE_KEYS, request.getPageSize(), cursor,
+                        projection);
+                responseObserver.onNext(ChildResourceFetchResponse.newBuilder()
+                        .addAllResources(projection.apply(page.resources))
+                        .setNextPageToken(page.nextPageToken)
+                        .build());
+                responseObserver.onCompleted();
+                return;
+            }
+
 //            if (depth == 1) {
-            String query = " MATCH (u:User) where u.username = $username AND u.tenantId = $tenantId with u  " +
-                    " Match (r" + type + ") where r.entityId = $entityId AND r.tenantId = $tenantId with u, r" +
-                    " OPTIONAL MATCH (g:Group)<-[:MEMBER_OF]-(u)" +
-                    " OPTIONAL MATCH (u)<-[crRel:SHARED_WITH]-(r)<-[:CHILD_OF]-(cr)" +
-                    " OPTIONAL MATCH (g)<-[chgrRel:SHARED_WITH]-(r)<-[:CHILD_OF]-(chgr)" +
-                    " OPTIONAL MATCH (u)<-[prRelU:SHARED_WITH]-(pr:COLLECTION)<-[:CHILD_OF*]-(r)<-[:CHILD_OF]-(x)" +
-                    " OPTIONAL MATCH (g)<-[prRelG:SHARED_WITH]-(prg:COLLECTION)<-[:CHILD_OF*]-(r)<-[:CHILD_OF]-(y)" +
-                    " return distinct  cr,crRel, chgr,chgrRel, x, prRelU,y,prRelG";
+            String query = this.neo4JConnector.render(CypherTemplates.CHILD_RESOURCES, lookupLabel(type));
 //            }
 
             logger.debug("Fetch child query {}", query);
 
 
             List<Record> records = this.neo4JConnector.searchNodes(userProps, query);
-            List keyList = new ArrayList();
-            keyList.add("cr:crRel");
-            keyList.add("chgr:chgrRel");
-            keyList.add("chcgr:chcgrRel");
-            keyList.add("x:prRelU");
-            keyList.add("y:prRelG");
-            List<GenericResource> genericResourceList = GenericResourceDeserializer.deserializeList(records, keyList);
+            List<GenericResource> genericResourceList = GenericResourceDeserializer.deserializeList(records,
+                    CHILD_RESOURCE_KEYS, projection.getPropertiesToRead());
             ChildResourceFetchResponse.Builder builder = ChildResourceFetchResponse.newBuilder();
-            builder.addAllResources(genericResourceList);
+            builder.addAllResources(projection.apply(genericResourceList));
             responseObserver.onNext(builder.build());
             responseObserver.onCompleted();
 
@@ -296,94 +401,78 @@ public class ResourceServiceHandler extends ResourceServiceGrpc.ResourceServiceI
     }
 
     @Override
-    public void updateResource(ResourceUpdateRequest
-                                       request, StreamObserver<ResourceUpdateResponse> responseObserver) {
+    public void streamChildResources(ChildResourceFetchRequest request,
+                                     StreamObserver<ChildResourceFetchResponse> responseObserver) {
         try {
             AuthenticatedUser callUser = request.getAuthToken().getAuthenticatedUser();
 
-            String type = request.getResource().getType();
+            String type = request.getType();
 
+            NodeLabel typeLabel;
+            ResourceProjection projection;
+            try {
+                typeLabel = lookupLabel(type);
+                projection = ResourceProjection.of(request.getReadMask());
+            } catch (IllegalArgumentException ex) {
+                logger.error("Invalid child stream request for resource {}", request.getResourceId(), ex);
+                responseObserver.onError(Status.INVALID_ARGUMENT.withDescription(ex.getMessage())
+                        .asRuntimeException());
+                return;
+            }
             Map<String, Object> userProps = new HashMap<>();
             userProps.put("username", callUser.getUsername());
             userProps.put("tenantId", callUser.getTenantId());
+            userProps.put("entityId", request.getResourceId());
+            userProps.put("type", type == null || type.isEmpty() ? null : type);
 
-            String parentId = request.getResource().getParentId();
+            String query = this.neo4JConnector.render(CypherTemplates.CHILD_RESOURCES, typeLabel);
+            logger.debug("Stream child query {}", query);
 
-            String entityId = request.getResource().getResourceId();
-            Map<String, Object> serializedMap = GenericResourceSerializer.serializeToMap(request.getResource());
-            Optional<Entity> exEntity = CustosUtils.mergeResourceEntity(custosClientProvider, callUser.getTenantId(),
-                    parentId, type, entityId,
-                    request.getResource().getResourceName(), request.getResource().getResourceName(),
-                    callUser.getUsername());
-
-            if (exEntity.isPresent()) {
-                serializedMap.put("description", exEntity.get().getDescription());
-                serializedMap.put("resourceName", exEntity.get().getName());
-                serializedMap.put("createdTime", String.valueOf(exEntity.get().getCreatedAt()));
-                serializedMap.put("tenantId", callUser.getTenantId());
-                serializedMap.put("entityId", exEntity.get().getId());
-                serializedMap.put("entityType", exEntity.get().getType());
-                serializedMap.put("lastModifiedTime", exEntity.get().getCreatedAt());
-                serializedMap.put("owner", exEntity.get().getOwnerId());
-                serializedMap.putAll(request.getResource().getPropertiesMap());
-                if (serializedMap.containsKey("properties") && serializedMap.get("properties") instanceof List) {
-                    List propertiesList = (List) serializedMap.get("properties");
-                    propertiesList.forEach(property -> {
-                        MapEntry entry = (MapEntry) property;
-                        serializedMap.put(entry.getKey().toString(), entry.getValue());
-                    });
-                }
-                serializedMap.remove("properties");
+            ChunkedResourceStreamer<ChildResourceFetchResponse> streamer = new ChunkedResourceStreamer<>(
+                    (ServerCallStreamObserver<ChildResourceFetchResponse>) responseObserver, CHILD_RESOURCE_KEYS,
+                    getChunkSize(request.getChunkSize()),
+                    resources -> ChildResourceFetchResponse.newBuilder()
+                            .addAllResources(projection.apply(resources)).build());
+            streamer.start(Collections.singletonList(this.neo4JConnector.streamNodes(userProps, query)));
 
-                if (!parentId.isEmpty()) {
-                    this.neo4JConnector.mergeNodesWithParentChildRelationShip(serializedMap, new HashMap<>(),
-                            request.getResource().getType(), StoragePreferenceConstants.STORAGE_PREFERENCE_LABEL,
-                            callUser.getUsername(), entityId, parentId, callUser.getTenantId());
-                } else {
-                    this.neo4JConnector.mergeNode(serializedMap, request.getResource().getType(),
-                            callUser.getUsername(), entityId, callUser.getTenantId());
+        } catch (Exception ex) {
+            logger.error("Error occurred while streaming child resources {}", request.getResourceId(), ex);
+            responseObserver.onError(Status.INTERNAL.withDescription("Error occurred while streaming child resources "
+                    + ex.getMessage()).asRuntimeException());
+        }
+    }
+
+    @Override
+    public void updateResource(ResourceUpdateRequest
+                                       request, StreamObserver<ResourceUpdateResponse> responseObserver) {
+        try {
+            AuthenticatedUser callUser = request.getAuthToken().getAuthenticatedUser();
+
+            String type = request.getResource().getType();
+
+            String entityId = request.getResource().getResourceId();
+            Long expectedVersion = request.hasExpectedVersion() ? request.getExpectedVersion().getValue() : null;
+            Optional<GenericResource> resource = writeResource(request.getResource(), entityId,
+                    StoragePreferenceConstants.STORAGE_PREFERENCE_LABEL, callUser, expectedVersion);
+            if (!resource.isPresent()) {
+                if (expectedVersion != null) {
+                    throw versionMismatch(entityId, readResourceVersion(entityId, type, callUser.getTenantId()),
+                            expectedVersion);
                 }
-            } else {
-                logger.error("Error occurred while creating resource entity in Custos {}", request.getResource().getResourceId());
-                String msg = "Error occurred while creating resource entity in Custos with id"
-                        + request.getResource().getResourceId();
-                responseObserver.onError(Status.INTERNAL.withDescription(msg).asRuntimeException());
-                return;
-            }
-            Map<String, Object> exProps = new HashMap<>();
-            exProps.put("username", callUser.getUsername());
-            exProps.put("tenantId", callUser.getTenantId());
-            exProps.put("entityId", exEntity.get().getId());
-
-            String query = " MATCH (u:User) where u.username = $username AND u.tenantId = $tenantId with u  " +
-                    " Match (r:" + type + ") where r.entityId = $entityId AND r.tenantId = $tenantId with u, r" +
-                    " OPTIONAL MATCH (g:Group)<-[:MEMBER_OF]-(u) " +
-                    " OPTIONAL MATCH (cg:Group)-[:CHILD_OF]->(g)" +
-                    " return case when  exists((u)<-[:SHARED_WITH]-(r)) OR  exists((g)<-[:SHARED_WITH]-(r)) OR   " +
-                    "exists((cg)<-[:SHARED_WITH]-(r)) then r  else NULL end as value";
-
-
-            logger.debug("Update query {}", query);
-
-            List<Record> records = this.neo4JConnector.searchNodes(exProps, query);
-
-            List<GenericResource> genericResourceList = GenericResourceDeserializer.deserializeList(records);
-            GenericResource genericResource = genericResourceList.get(0);
-            if (genericResource.getPropertiesMap().containsKey("name")) {
-                genericResource = genericResource.toBuilder()
-                        .setResourceName(genericResource.getPropertiesMap().get("name")).build();
-            } else if (genericResource.getPropertiesMap().containsKey("resourceName")) {
-                genericResource = genericResource.toBuilder()
-                        .setResourceName(genericResource.getPropertiesMap().get("resourceName")).build();
+                throw Status.INTERNAL.withDescription("Resource " + entityId + " was not written")
+                        .asRuntimeException();
             }
             ResourceUpdateResponse response = ResourceUpdateResponse
                     .newBuilder()
-                    .setResource(genericResource)
+                    .setResource(resource.get())
                     .build();
             responseObserver.onNext(response);
             responseObserver.onCompleted();
 
 
+        } catch (StatusRuntimeException ex) {
+            logger.error("Could not update resource {}: {}", request.getResource().getResourceId(), ex.getMessage());
+            responseObserver.onError(ex);
         } catch (Exception ex) {
             logger.error("Error occurred while creating resource {}", request.getResource().getResourceId(), ex);
             String msg = "Error occurred while creating resource" + ex.getMessage();
@@ -413,24 +502,31 @@ public class ResourceServiceHandler extends ResourceServiceGrpc.ResourceServiceI
                                 .asRuntimeException());
                 return;
             }
-            List<GenericResource> allowedResourceList = new ArrayList<>();
-            List<String> storageList = new ArrayList<>();
-            Optional<List<String>> globalStorages = getGlobalSourceStorage(callUser.getTenantId());
-            if (globalStorages.isPresent()) {
-                globalStorages.get().forEach(str -> {
-                    storageList.add(str);
-                });
+            ResourceProjection projection;
+            NodeLabel typeLabel;
+            String cursor;
+            try {
+                projection = ResourceProjection.of(request.getReadMask());
+                typeLabel = NodeLabel.of(value);
+                cursor = PageToken.decode(request.getPageToken());
+            } catch (IllegalArgumentException ex) {
+                logger.error("Invalid search request; Message: {}", ex.getMessage(), ex);
+                responseObserver.onError(Status.INVALID_ARGUMENT.withDescription(ex.getMessage())
+                        .asRuntimeException());
+                return;
             }
+            List<GenericResource> allowedResourceList = new ArrayList<>();
+            List<String> storageList = resolveSearchStorages(resourceSearchQueries, callUser.getTenantId());
 
             List keyList = new ArrayList();
 
             keyList = new ArrayList();
             Map<String, Map<String, String>> searchParameterMap = new HashMap<>();
+            List<ResourceSearchQuery> fieldQueries = new ArrayList<>();
             boolean propertySearchEnabled = false;
             for (ResourceSearchQuery qry : resourceSearchQueries) {
                 if (qry.getField().equals("storageId")) {
-                    storageList.clear();
-                    storageList.add(qry.getValue());
+                    continue;
                 } else if (qry.getField().equals("sharedBy")) {
                     searchParameterMap.computeIfAbsent("sharedBy", map -> new HashMap<>()).put("username", qry.getValue());
                     propertySearchEnabled = true;
@@ -439,6 +535,7 @@ public class ResourceServiceHandler extends ResourceServiceGrpc.ResourceServiceI
                     propertySearchEnabled = true;
                 } else {
                     searchParameterMap.computeIfAbsent("searchParams", map -> new HashMap<>()).put(qry.getField(), qry.getValue());
+                    fieldQueries.add(qry);
                     propertySearchEnabled = true;
                 }
             }
@@ -447,268 +544,114 @@ public class ResourceServiceHandler extends ResourceServiceGrpc.ResourceServiceI
                 if (searchParameterMap.containsKey("sharedBy") &&
                         (!searchParameterMap.containsKey("searchParams") || searchParameterMap.get("searchParams").isEmpty())) {
                     String val = searchParameterMap.get("sharedBy").get("username");
-                    String query = " Match (m:" + value + ")-[r:SHARED_WITH]->(l) " +
-                            "where r.sharedBy=$sharedBy AND m.tenantId=$tenantId AND  l.tenantId=$tenantId  AND NOT l.username=$sharedBy " +
-                            "return m, r ";
                     Map<String, Object> objectMap = new HashMap<>();
                     objectMap.put("sharedBy", val);
                     objectMap.put("tenantId", callUser.getTenantId());
-                    List<Record> records = this.neo4JConnector.searchNodes(objectMap, query);
+                    List<Record> records = this.neo4JConnector.searchNodes(CypherTemplates.SHARED_BY, objectMap, typeLabel);
                     keyList.add("m:r");
-                    List<GenericResource> genericResourceList = GenericResourceDeserializer.deserializeList(records, keyList);
-                    ResourceSearchResponse.Builder builder = ResourceSearchResponse.newBuilder();
-                    builder.addAllResources(genericResourceList);
-                    responseObserver.onNext(builder.build());
+                    List<GenericResource> genericResourceList = GenericResourceDeserializer.deserializeList(records, keyList,
+                            projection.getPropertiesToRead());
+                    responseObserver.onNext(buildSearchResponse(filterAccessible(callUser, genericResourceList), request,
+                            cursor, projection));
                     responseObserver.onCompleted();
                     return;
                 } else if (searchParameterMap.containsKey("sharedWith") &&
                         (!searchParameterMap.containsKey("searchParams") || searchParameterMap.get("searchParams").isEmpty())) {
                     String val = searchParameterMap.get("sharedWith").get("username");
-                    String query = "MATCH (u:User) where u.username = $username AND u.tenantId = $tenantId " +
-                            " OPTIONAL MATCH (g:Group)<-[:MEMBER_OF]-(u)  " +
-                            " OPTIONAL MATCH (u)<-[pRel:SHARED_WITH]-(p:COLLECTION)" +
-                            " where NOT  p.owner  = '" + val + "'  " +
-                            " OPTIONAL MATCH (g)<-[pxRel:SHARED_WITH]-(pr:COLLECTION)" +
-                            " where NOT  pr.owner  = '" + val + "'" +
-                            " return distinct  p,pRel, pr,pxRel";
                     Map<String, Object> objectMap = new HashMap<>();
                     objectMap.put("username", val);
                     objectMap.put("tenantId", callUser.getTenantId());
-                    List<Record> records = this.neo4JConnector.searchNodes(objectMap, query);
+                    List<Record> records = this.neo4JConnector.searchNodes(CypherTemplates.SHARED_WITH, objectMap);
                     keyList.add("p:pRel");
-                    keyList.add("px:pxRel");
-                    List<GenericResource> genericResourceList = GenericResourceDeserializer.deserializeList(records, keyList);
-                    ResourceSearchResponse.Builder builder = ResourceSearchResponse.newBuilder();
-                    builder.addAllResources(genericResourceList);
-                    responseObserver.onNext(builder.build());
+                    keyList.add("pr:pxRel");
+                    List<GenericResource> genericResourceList = GenericResourceDeserializer.deserializeList(records, keyList,
+                            projection.getPropertiesToRead());
+                    responseObserver.onNext(buildSearchResponse(filterAccessible(callUser, genericResourceList), request,
+                            cursor, projection));
                     responseObserver.onCompleted();
                     return;
                 }
 
-                //TODO: replace with proper neo4j query
-
-
+                // Candidates of all branches are authorised together, in one query per batch
+                List<GenericResource> candidates = new ArrayList<>();
                 if (searchParameterMap.containsKey("sharedBy") && (searchParameterMap.containsKey("searchParams")
                         && !searchParameterMap.get("searchParams").isEmpty())) {
                     String username = searchParameterMap.get("sharedBy").get("username");
-                    searchParameterMap.get("searchParams").forEach((key, val) -> {
-                        try {
-                            for (String strId : storageList) {
-                                List<GenericResource> genericResourceList = Utils
-                                        .getMetadataSearchQueryForSharedByMe(value, key, val, strId, username, callUser.getTenantId(), neo4JConnector);
-                                genericResourceList.forEach(res -> {
-                                    try {
-                                        if (hasAccessForResource(callUser.getUsername(), callUser.getTenantId(), res.getResourceId(), "COLLECTION")) {
-                                            allowedResourceList.add(res);
-                                        }
-                                    } catch (Exception exception) {
-                                        logger.error("Errored while searching generic resources");
-                                        responseObserver
-                                                .onError(Status.INTERNAL.withDescription("Errored while searching generic resources ")
-                                                        .asRuntimeException());
-                                        return;
-                                    }
-                                });
-                            }
-
-                            List<GenericResource> genericResources = Utils
-                                    .getPropertySearchQueryForSharedByMe(value, key, val, username, callUser.getTenantId(), neo4JConnector);
-                            genericResources.forEach(res -> {
-                                try {
-                                    if (hasAccessForResource(callUser.getUsername(), callUser.getTenantId(), res.getResourceId(), "COLLECTION")) {
-                                        allowedResourceList.add(res);
-                                    }
-                                } catch (Exception exception) {
-                                    logger.error("Errored while searching generic resources");
-                                    responseObserver
-                                            .onError(Status.INTERNAL.withDescription("Errored while searching generic resources ")
-                                                    .asRuntimeException());
-                                    return;
-                                }
-                            });
-
-                        } catch (Exception exception) {
-                            logger.error("Errored while searching generic resources");
-                            responseObserver
-                                    .onError(Status.INTERNAL.withDescription("Errored while searching generic resources ")
-                                            .asRuntimeException());
-                            return;
+                    for (ResourceSearchQuery param : fieldQueries) {
+                        for (String strId : storageList) {
+                            candidates.addAll(Utils.getMetadataSearchQueryForSharedByMe(typeLabel, param, strId,
+                                    username, callUser.getTenantId(), neo4JConnector));
                         }
-                    });
+                        candidates.addAll(Utils.getPropertySearchQueryForSharedByMe(typeLabel, param, username,
+                                callUser.getTenantId(), neo4JConnector));
+                    }
                 } else if (searchParameterMap.containsKey("sharedWith") && (searchParameterMap.containsKey("searchParams")
                         && !searchParameterMap.get("searchParams").isEmpty())) {
                     String username = searchParameterMap.get("sharedWith").get("username");
-                    searchParameterMap.get("searchParams").forEach((key, val) -> {
-                        try {
-                            for (String strId : storageList) {
-                                List<GenericResource> genericResourceList = Utils
-                                        .getMetadataSearchQueryForSharedWithMe(value, key, val, strId, username, callUser.getTenantId(), neo4JConnector);
-                                genericResourceList.forEach(res -> {
-                                    try {
-                                        if (hasAccessForResource(callUser.getUsername(), callUser.getTenantId(), res.getResourceId(), "COLLECTION")) {
-                                            allowedResourceList.add(res);
-                                        }
-                                    } catch (Exception exception) {
-                                        logger.error("Errored while searching generic resources");
-                                        responseObserver
-                                                .onError(Status.INTERNAL.withDescription("Errored while searching generic resources ")
-                                                        .asRuntimeException());
-                                        return;
-                                    }
-                                });
-                            }
-
-                            List<GenericResource> genericResources = Utils
-                                    .getPropertySearchQueryForSharedWithMe(value, key, val, username, callUser.getTenantId(), neo4JConnector);
-                            genericResources.forEach(res -> {
-                                try {
-                                    if (hasAccessForResource(callUser.getUsername(), callUser.getTenantId(), res.getResourceId(), "COLLECTION")) {
-                                        allowedResourceList.add(res);
-                                    }
-                                } catch (Exception exception) {
-                                    logger.error("Errored while searching generic resources");
-                                    responseObserver
-                                            .onError(Status.INTERNAL.withDescription("Errored while searching generic resources ")
-                                                    .asRuntimeException());
-                                    return;
-                                }
-                            });
-                        } catch (Exception exception) {
-                            logger.error("Errored while searching generic resources");
-                            responseObserver
-                                    .onError(Status.INTERNAL.withDescription("Errored while searching generic resources ")
-                                            .asRuntimeException());
-                            return;
+                    for (ResourceSearchQuery param : fieldQueries) {
+                        for (String strId : storageList) {
+                            candidates.addAll(Utils.getMetadataSearchQueryForSharedWithMe(typeLabel, param, strId,
+                                    username, callUser.getTenantId(), neo4JConnector));
                         }
-                    });
-
+                        candidates.addAll(Utils.getPropertySearchQueryForSharedWithMe(typeLabel, param, username,
+                                callUser.getTenantId(), neo4JConnector));
+                    }
                 } else {
                     for (String strId : storageList) {
-                        Optional<String> metadataSearchQueryOP = Utils.getMetadataSearchQuery(resourceSearchQueries, value, strId);
-                        Optional<String> ownPropertySearchQuery = Utils.getPropertySearchQuery(resourceSearchQueries, value, strId);
-                        if (metadataSearchQueryOP.isPresent()) {
-                            String query = metadataSearchQueryOP.get();
-
-                            List<Record> records = this.neo4JConnector.searchNodes(query);
-                            List<GenericResource> genericResourceList = GenericResourceDeserializer.deserializeList(records);
-
-
-                            genericResourceList.forEach(res -> {
-                                try {
-                                    if (hasAccessForResource(callUser.getUsername(), callUser.getTenantId(), res.getResourceId(), "COLLECTION")) {
-                                        allowedResourceList.add(res);
-                                    }
-                                } catch (Exception exception) {
-                                    logger.error("Errored while searching generic resources");
-                                    responseObserver
-                                            .onError(Status.INTERNAL.withDescription("Errored while searching generic resources ")
-                                                    .asRuntimeException());
-                                    return;
-                                }
-                            });
-
-                            if (ownPropertySearchQuery.isPresent()) {
-                                List<Record> ownPropertySearchRecords = this.neo4JConnector.searchNodes(ownPropertySearchQuery.get());
-                                List<GenericResource> genericResources = GenericResourceDeserializer.deserializeList(ownPropertySearchRecords);
-                                genericResources.forEach(res -> {
-                                    try {
-                                        if (hasAccessForResource(callUser.getUsername(), callUser.getTenantId(), res.getResourceId(), "COLLECTION")) {
-                                            allowedResourceList.add(res);
-                                        }
-                                    } catch (Exception exception) {
-                                        logger.error("Errored while searching generic resources");
-                                        responseObserver
-                                                .onError(Status.INTERNAL.withDescription("Errored while searching generic resources ")
-                                                        .asRuntimeException());
-                                        return;
-                                    }
-                                });
-
-                            }
+                        if (!resourceSearchQueries.isEmpty()) {
+                            candidates.addAll(Utils.searchByMetadata(resourceSearchQueries, typeLabel, strId,
+                                    callUser.getTenantId(), neo4JConnector));
+                            candidates.addAll(Utils.searchByProperty(resourceSearchQueries, typeLabel, strId,
+                                    callUser.getTenantId(), neo4JConnector));
                         }
-
                     }
                 }
-                ResourceSearchResponse.Builder builder = ResourceSearchResponse.newBuilder();
-                builder.addAllResources(allowedResourceList);
-                responseObserver.onNext(builder.build());
+                allowedResourceList.addAll(filterAccessible(callUser, candidates));
+                responseObserver.onNext(buildSearchResponse(allowedResourceList, request, cursor, projection));
                 responseObserver.onCompleted();
                 return;
 
             } else {
-                String query = "";
                 Map<String, Object> userProps = new HashMap<>();
                 userProps.put("username", callUser.getUsername());
                 userProps.put("tenantId", callUser.getTenantId());
-                if ((value.equals("FILE") || value.equals("COLLECTION"))) {
-                    for (String storageId : storageList) {
-
-                        query = " MATCH (u:User) where u.username = $username AND u.tenantId = $tenantId with u" +
-                                " OPTIONAL MATCH (g:Group)<-[:MEMBER_OF]-(u) " +
-                                " OPTIONAL MATCH (u)<-[relRM:SHARED_WITH]-(m)<-[:CHILD_OF*]-(rm:" + value + ")-[:CHILD_OF*]->(s:Storage{entityId:'" + storageId + "'})" +
-                                " , (s:Storage{entityId:'" + storageId + "'})<-[:CHILD_OF*]-(r:" + value + ")-[relR:SHARED_WITH]->(u)" +
-                                " OPTIONAL MATCH (g)<-[relRMG:SHARED_WITH]-(mg)<-[:CHILD_OF*]-(rmg:" + value + ")-[:CHILD_OF*]->(s:Storage{entityId:'" + storageId + "'})" +
-                                " , (s:Storage{entityId:'" + storageId + "'})<-[:CHILD_OF*]-(rg:" + value + ")-[relRG:SHARED_WITH]->(g)" +
-                                " return distinct  rm,relRM, r,relR, rmg,relRMG, rg,relRG ";
-                        keyList = new ArrayList();
-                        keyList.add("rm:relRM");
-                        keyList.add("r:relR");
-                        keyList.add("rmg:relRMG");
-                        keyList.add("rg:relRG");
-                        if (depth == 1) {
-                            query = " MATCH (u:User) where u.username = $username AND u.tenantId = $tenantId with u" +
-                                    " OPTIONAL MATCH (g:Group)<-[:MEMBER_OF]-(u) " +
-                                    " OPTIONAL MATCH (s:Storage{entityId:'" + storageId + "'})<-[:CHILD_OF]-(r:" + value + ")-[relR:SHARED_WITH]->(u)" +
-                                    " OPTIONAL MATCH (sp:Storage{entityId:'" + storageId + "'})<-[:CHILD_OF]-(rg:" + value + ")-[relRG:SHARED_WITH]->(g)" +
-                                    " OPTIONAL MATCH (s2:Storage{entityId:'" + storageId + "'})<-[:CHILD_OF*]-(r2:" + value + ")-[relR2:SHARED_WITH]->(u) where NOT r2.owner=$username " +
-                                    " AND NOT (r2)-[:CHILD_OF*]->(r)" +
-                                    " return distinct   r,relR, rg,relRG, r2,relR2";
-                            keyList = new ArrayList();
-                            keyList.add("r:relR");
-                            keyList.add("rg:relRG");
-                            keyList.add("r2:relR2");
-                            keyList.add("r3:relR3");
-                        }
-                        logger.debug("Search query {}", query);
-
-                        List<Record> records = this.neo4JConnector.searchNodes(userProps, query);
+                if (request.getPageSize() > 0) {
+                    userProps.put("storageIds", storageList);
+                    String query = getListingPageQuery(typeLabel, depth);
+                    logger.debug("Search page query {}", query);
+                    Page page = readPage(query, userProps, LISTING_PAGE_KEYS, request.getPageSize(), cursor,
+                            projection);
+                    responseObserver.onNext(ResourceSearchResponse.newBuilder()
+                            .addAllResources(projection.apply(page.resources))
+                            .setNextPageToken(page.nextPageToken)
+                            .build());
+                    responseObserver.onCompleted();
+                    return;
+                }
+                if (request.getLimit() > 0) {
+                    List<GenericResource> resources = this.storageFanOutSearch.search(
+                            getListingPageQuery(typeLabel, depth), getListingSources(typeLabel, storageList, userProps),
+                            LISTING_PAGE_KEYS, Math.max(0, request.getOffset()), request.getLimit());
+                    responseObserver.onNext(ResourceSearchResponse.newBuilder()
+                            .addAllResources(projection.apply(resources)).build());
+                    responseObserver.onCompleted();
+                    return;
+                }
+                for (KeyedQuery keyedQuery : getListingQueries(typeLabel, depth, storageList)) {
+                    logger.debug("Search query {}", keyedQuery.query);
 
-                        List<GenericResource> genericResourceList = GenericResourceDeserializer.deserializeList(records, keyList);
-                        allowedResourceList.addAll(genericResourceList);
-                    }
-                } else {
-                    query = " MATCH (u:User) where u.username = $username AND u.tenantId = $tenantId with u" +
-                            " OPTIONAL MATCH (g:Group)<-[:MEMBER_OF]-(u) " +
-                            " OPTIONAL MATCH (u)<-[relRM:SHARED_WITH]-(m)<-[:CHILD_OF*]-(rm:" + value + ")" +
-                            " , (r:" + value + ")-[relR:SHARED_WITH]->(u)" +
-                            " OPTIONAL MATCH (g)<-[relRMG:SHARED_WITH]-(mg)<-[:CHILD_OF*]-(rmg:" + value + ")" +
-                            " , (rg:" + value + ")-[relRG:SHARED_WITH]->(g)" +
-                            " return distinct  rm,relRM, r,relR, rmg,relRMG, rg, relRG ";
-                    keyList = new ArrayList();
-                    keyList.add("rm:relRM");
-                    keyList.add("r:relR");
-                    keyList.add("rmg:relRMG");
-                    keyList.add("rg:relRG");
-                    if (depth == 1) {
-                        query = " MATCH (u:User) where u.username = $username AND u.tenantId = $tenantId with u" +
-                                " OPTIONAL MATCH (g:Group)<-[:MEMBER_OF]-(u) " +
-                                " OPTIONAL MATCH (r:" + value + ")-[relR:SHARED_WITH]->(u)" +
-                                " OPTIONAL MATCH (rg:" + value + ")-[relRG:SHARED_WITH]->(g)" +
-                                " return distinct   r,relR, rg, relRG ";
-                        keyList = new ArrayList();
-                        keyList.add("r:relR");
-                        keyList.add("rg:relRG");
-                    }
-                    List<Record> records = this.neo4JConnector.searchNodes(userProps, query);
+                    List<Record> records = this.neo4JConnector.searchNodes(keyedQuery.withParameters(userProps),
+                            keyedQuery.query);
 
-                    List<GenericResource> genericResourceList = GenericResourceDeserializer.deserializeList(records, keyList);
+                    List<GenericResource> genericResourceList = GenericResourceDeserializer
+                            .deserializeList(records, keyedQuery.keys, projection.getPropertiesToRead());
                     allowedResourceList.addAll(genericResourceList);
                 }
 
 
             }
             ResourceSearchResponse.Builder builder = ResourceSearchResponse.newBuilder();
-            builder.addAllResources(allowedResourceList);
+            builder.addAllResources(projection.apply(allowedResourceList));
             responseObserver.onNext(builder.build());
             responseObserver.onCompleted();
 
@@ -722,6 +665,95 @@ public class ResourceServiceHandler extends ResourceServiceGrpc.ResourceServiceI
     }
 
 
+    @Override
+    public void streamSearchResource(ResourceSearchRequest request,
+                                     StreamObserver<ResourceSearchResponse> responseObserver) {
+        try {
+            AuthenticatedUser callUser = request.getAuthToken().getAuthenticatedUser();
+            String value = request.getType();
+
+            if (value == null || value.isEmpty()) {
+                logger.error("Resource type required to continue search ");
+                responseObserver
+                        .onError(Status.FAILED_PRECONDITION.withDescription("Resource type required to continue search")
+                                .asRuntimeException());
+                return;
+            }
+            NodeLabel typeLabel;
+            ResourceProjection projection;
+            try {
+                typeLabel = NodeLabel.of(value);
+                projection = ResourceProjection.of(request.getReadMask());
+            } catch (IllegalArgumentException ex) {
+                logger.error("Invalid search request; Message: {}", ex.getMessage(), ex);
+                responseObserver.onError(Status.INVALID_ARGUMENT.withDescription(ex.getMessage())
+                        .asRuntimeException());
+                return;
+            }
+            int chunkSize = getChunkSize(request.getChunkSize());
+
+            boolean propertySearchEnabled = request.getQueriesList().stream()
+                    .anyMatch(qry -> !qry.getField().equals("storageId"));
+            if (propertySearchEnabled) {
+                // Property and sharing searches authorise their candidates as a set, so the result is evaluated eagerly
+                // and only the response is split into chunks
+                searchResource(request, new StreamObserver<ResourceSearchResponse>() {
+                    @Override
+                    public void onNext(ResourceSearchResponse response) {
+                        List<GenericResource> resources = response.getResourcesList();
+                        if (request.getLimit() > 0 && resources.size() > request.getLimit()) {
+                            resources = resources.subList(0, request.getLimit());
+                        }
+                        for (int from = 0; from < resources.size(); from += chunkSize) {
+                            responseObserver.onNext(ResourceSearchResponse.newBuilder()
+                                    .addAllResources(resources.subList(from, Math.min(from + chunkSize, resources.size())))
+                                    .build());
+                        }
+                    }
+
+                    @Override
+                    public void onError(Throwable throwable) {
+                        responseObserver.onError(throwable);
+                    }
+
+                    @Override
+                    public void onCompleted() {
+                        responseObserver.onCompleted();
+                    }
+                });
+                return;
+            }
+
+            Map<String, Object> userProps = new HashMap<>();
+            userProps.put("username", callUser.getUsername());
+            userProps.put("tenantId", callUser.getTenantId());
+
+            List<String> storageList = resolveSearchStorages(request.getQueriesList(), callUser.getTenantId());
+            List<KeyedQuery> queries = getListingQueries(typeLabel, request.getDepth(), storageList);
+
+            List<Publisher<Record>> sources = new ArrayList<>();
+            for (KeyedQuery keyedQuery : queries) {
+                logger.debug("Stream search query {}", keyedQuery.query);
+                sources.add(this.neo4JConnector.streamNodes(keyedQuery.withParameters(userProps), keyedQuery.query));
+            }
+            // Listing queries of a search share the same key list
+            List<String> keyList = queries.isEmpty() ? Collections.emptyList() : queries.get(0).keys;
+
+            ChunkedResourceStreamer<ResourceSearchResponse> streamer = new ChunkedResourceStreamer<>(
+                    (ServerCallStreamObserver<ResourceSearchResponse>) responseObserver, keyList, chunkSize,
+                    resources -> ResourceSearchResponse.newBuilder()
+                            .addAllResources(projection.apply(resources)).build());
+            streamer.setLimit(request.getLimit());
+            streamer.start(sources);
+
+        } catch (Exception e) {
+            logger.error("Errored while streaming generic resources; Message: {}", e.getMessage(), e);
+            responseObserver.onError(Status.INTERNAL.withDescription("Errored while streaming generic resources "
+                    + e.getMessage()).asRuntimeException());
+        }
+    }
+
+
     @Override
     public void addChildMembership(AddChildResourcesMembershipRequest request,
                                    StreamObserver<OperationStatusResponse> responseObserver) {
@@ -757,11 +789,14 @@ public class ResourceServiceHandler extends ResourceServiceGrpc.ResourceServiceI
                 userProps.put("tenantId", callUser.getTenantId());
                 userProps.put("entityId", resource.getResourceId());
                 userProps.put("childEntityId", childResource.getResourceId());
-                String query = "MATCH  (r:" + resource.getType() + "), (cr:" + childResource.getType() + ")  where " +
-                        " r.entityId = $entityId AND r.tenantId = $tenantId  AND cr.entityId = $childEntityId AND cr.tenantId = $tenantId " +
-                        " MERGE (cr)-[:CHILD_OF]->(r) return r, cr";
-                this.neo4JConnector.runTransactionalQuery(userProps, query);
+                userProps.put("parentType", resource.getType());
+                userProps.put("childType", childResource.getType());
+                this.neo4JConnector.runTransactionalQuery(userProps, this.neo4JConnector.render(
+                        CypherTemplates.ADD_CHILD_MEMBERSHIP, lookupLabel(resource.getType()),
+                        lookupLabel(childResource.getType())));
             });
+            refreshMovedAccess(callUser.getTenantId(), childResources.stream()
+                    .map(GenericResource::getResourceId).collect(Collectors.toList()));
 
             responseObserver.onNext(OperationStatusResponse.newBuilder().setStatus(true).build());
             responseObserver.onCompleted();
@@ -809,11 +844,14 @@ public class ResourceServiceHandler extends ResourceServiceGrpc.ResourceServiceI
                 userProps.put("tenantId", callUser.getTenantId());
                 userProps.put("entityId", resource.getResourceId());
                 userProps.put("childEntityId", childResource.getResourceId());
-                String query = "MATCH (cr:" + childResource.getType() + ")-[crel:CHILD_OF]->(r:" + resource.getType() + ")  where " +
-                        " r.entityId = $entityId AND r.tenantId = $tenantId  AND cr.entityId = $childEntityId AND cr.tenantId = $tenantId " +
-                        "delete crel";
-                this.neo4JConnector.runTransactionalQuery(userProps, query);
+                userProps.put("parentType", resource.getType());
+                userProps.put("childType", childResource.getType());
+                this.neo4JConnector.runTransactionalQuery(userProps, this.neo4JConnector.render(
+                        CypherTemplates.DELETE_CHILD_MEMBERSHIP, lookupLabel(resource.getType()),
+                        lookupLabel(childResource.getType())));
             });
+            refreshMovedAccess(callUser.getTenantId(), childResources.stream()
+                    .map(GenericResource::getResourceId).collect(Collectors.toList()));
 
             responseObserver.onNext(OperationStatusResponse.newBuilder().setStatus(true).build());
             responseObserver.onCompleted();
@@ -840,26 +878,26 @@ public class ResourceServiceHandler extends ResourceServiceGrpc.ResourceServiceI
             if (depth == 0) {
                 depth = 1;
             }
-            if (type == null || type.isEmpty()) {
-                type = "";
-            } else {
-                type = ":" + type;
-            }
 
             if (hasAccessForResource(callUser.getUsername(), callUser.getTenantId(), resourseId)) {
                 Map<String, Object> userProps = new HashMap<>();
                 userProps.put("tenantId", callUser.getTenantId());
                 userProps.put("entityId", resourseId);
-                String query = "MATCH  (r" + type + ")  where  r.entityId = $entityId AND r.tenantId = $tenantId  with r" +
-                        " MATCH (r)-[ch:CHILD_OF*1.." + depth + "]->(m) return distinct m";
-                List<Record> records = this.neo4JConnector.searchNodes(userProps, query);
+                userProps.put("type", type == null || type.isEmpty() ? null : type);
+                userProps.put("depth", depth);
+                List<Record> records = this.neo4JConnector.searchNodes(CypherTemplates.ANCESTORS, userProps,
+                        NodeLabel.RESOURCE);
                 if (!records.isEmpty()) {
                     List<GenericResource> genericResourceList = GenericResourceDeserializer.deserializeList(records);
                     Map<String, GenericResource> genericResourceMap = new HashMap<>();
                     AtomicInteger count = new AtomicInteger();
                     genericResourceList.forEach(resource -> {
                         try {
-                            if (hasAccessForResource(callUser.getUsername(), callUser.getTenantId(), resource.getResourceId(), "COLLECTION")) {
+                            // Ancestors are resources or storages, which carry their own access entries
+                            NodeLabel label = NodeLabel.STORAGE.getLabel().equals(resource.getType()) ?
+                                    NodeLabel.STORAGE : NodeLabel.RESOURCE;
+                            if (hasAccessForResource(callUser.getUsername(), callUser.getTenantId(),
+                                    resource.getResourceId(), label)) {
                                 genericResourceMap.put(String.valueOf(count.get()), resource);
                                 count.getAndIncrement();
                             }
@@ -893,47 +931,13 @@ public class ResourceServiceHandler extends ResourceServiceGrpc.ResourceServiceI
     public void addResourceMetadata(AddResourceMetadataRequest request, StreamObserver<Empty> responseObserver) {
         try {
             AuthenticatedUser callUser = request.getAuthToken().getAuthenticatedUser();
-
-            String parentResourceId = request.getResourceId();
-            String type = request.getType();
-
-
-            Struct struct = request.getMetadata();
-            String message = JsonFormat.printer().print(struct);
-            JSONObject json = new JSONObject(message);
-
-            Map<String, Object> map = json.toMap();
-
-            mergeProperties(parentResourceId, type, callUser.getTenantId(), parentResourceId, map);
-
-            Map<String, Object> parameters = new HashMap<>();
-            Map<String, Object> properties = new HashMap<>();
-
-//            parameters.put("props", properties);
-            parameters.put("parentResourceId", parentResourceId);
-            parameters.put("resourceId", UUID.randomUUID().toString());
-            parameters.put("tenantId", callUser.getTenantId());
-
-            if (type == null || type.isEmpty()) {
-                type = "";
-            } else {
-                type = ":" + type;
-            }
-            Optional<List<String>> jsonList = readMetadata(parentResourceId, type, callUser.getTenantId());
-
-            if (jsonList.isPresent() && !jsonList.get().isEmpty()) {
-
-                String oldJSON = jsonList.get().get(0);
-                message = mergeJSON(oldJSON, message);
-            }
-            parameters.put("metadata", message);
-            String query = " MATCH (r" + type + ") where r.entityId= $parentResourceId AND r.tenantId= $tenantId with r" +
-                    " MERGE (r)-[:HAS_FULL_METADATA]->(cr:FULL_METADATA_NODE{tenantId: $tenantId}) ON CREATE SET cr.metadata= $metadata " +
-                    " ON MATCH SET cr.metadata = $metadata";
-            this.neo4JConnector.runTransactionalQuery(parameters, query);
-
+            patchMetadata(request.getResourceId(), request.getType(), callUser.getTenantId(), request.getMetadata(),
+                    null);
             responseObserver.onNext(Empty.getDefaultInstance());
             responseObserver.onCompleted();
+        } catch (StatusRuntimeException ex) {
+            logger.error("Could not add metadata to resource {}: {}", request.getResourceId(), ex.getMessage());
+            responseObserver.onError(ex);
         } catch (Exception ex) {
             String msg = " Error occurred while adding resource metadata " + ex.getMessage();
             // Issue https://github.com/neo4j/neo4j-java-driver/issues/773
@@ -942,6 +946,33 @@ public class ResourceServiceHandler extends ResourceServiceGrpc.ResourceServiceI
         }
     }
 
+    @Override
+    public void patchResourceMetadata(PatchResourceMetadataRequest request,
+                                      StreamObserver<PatchResourceMetadataResponse> responseObserver) {
+        try {
+            AuthenticatedUser callUser = request.getAuthToken().getAuthenticatedUser();
+            if (!hasAccessForResource(callUser.getUsername(), callUser.getTenantId(), request.getResourceId(),
+                    SharingConstants.PERMISSION_TYPE_EDITOR, SharingConstants.PERMISSION_TYPE_OWNER)) {
+                String msg = " Cannot find editable resource ";
+                logger.error(" Cannot find editable resource {}", request.getResourceId());
+                responseObserver.onError(Status.PERMISSION_DENIED.withDescription(msg).asRuntimeException());
+                return;
+            }
+            Long expectedVersion = request.hasExpectedVersion() ? request.getExpectedVersion().getValue() : null;
+            long version = patchMetadata(request.getResourceId(), request.getType(), callUser.getTenantId(),
+                    request.getPatch(), expectedVersion);
+            responseObserver.onNext(PatchResourceMetadataResponse.newBuilder().setVersion(version).build());
+            responseObserver.onCompleted();
+        } catch (StatusRuntimeException ex) {
+            logger.error("Could not patch metadata of resource {}: {}", request.getResourceId(), ex.getMessage());
+            responseObserver.onError(ex);
+        } catch (Exception ex) {
+            String msg = " Error occurred while patching resource metadata " + ex.getMessage();
+            logger.error("Error occurred while patching resource metadata: Messages {}", ex.getMessage(), ex);
+            responseObserver.onError(Status.INTERNAL.withDescription(msg).asRuntimeException());
+        }
+    }
+
     @Override
     public void fetchResourceMetadata(FetchResourceMetadataRequest
                                               request, StreamObserver<FetchResourceMetadataResponse> responseObserver) {
@@ -949,29 +980,32 @@ public class ResourceServiceHandler extends ResourceServiceGrpc.ResourceServiceI
             AuthenticatedUser callUser = request.getAuthToken().getAuthenticatedUser();
 
             String resourceId = request.getResourceId();
-            String type = request.getType();
-            if (type == null || type.isEmpty()) {
-                type = "";
-            } else {
-                type = ":" + type;
-            }
 
             if (hasAccessForResource(callUser.getUsername(), callUser.getTenantId(), resourceId)) {
-                Optional<List<String>> metadataArray = readMetadata(resourceId, type, callUser.getTenantId());
+                String type = request.getType().isEmpty() ? null : request.getType();
+                if (request.hasIfNoneMatch()) {
+                    Map<String, Object> parameters = new HashMap<>();
+                    parameters.put("resourceId", resourceId);
+                    parameters.put("tenantId", callUser.getTenantId());
+                    parameters.put("type", type);
+                    List<Record> records = this.neo4JConnector.searchNodes(CypherTemplates.METADATA_VERSION,
+                            parameters, NodeLabel.RESOURCE);
+                    long version = records.isEmpty() ? 0 : records.get(0).get("version").asLong();
+                    if (!records.isEmpty() && version == request.getIfNoneMatch().getValue()) {
+                        responseObserver.onNext(FetchResourceMetadataResponse.newBuilder()
+                                .setVersion(version)
+                                .setNotModified(true)
+                                .build());
+                        responseObserver.onCompleted();
+                        return;
+                    }
+                }
+                List<MetadataDocument> documents = metadataStorage.read(resourceId, type, callUser.getTenantId());
                 FetchResourceMetadataResponse.Builder builder = FetchResourceMetadataResponse.newBuilder();
-                if (metadataArray.isPresent()) {
-                    metadataArray.get().forEach(val -> {
-                        try {
-                            Struct.Builder structBuilder = Struct.newBuilder();
-                            JsonFormat.parser().merge(val, structBuilder);
-                            builder.addMetadata(structBuilder.build());
-                        } catch (InvalidProtocolBufferException e) {
-                            String msg = " Error occurred while fetching resource metadata " + e.getMessage();
-                            logger.error(" Error occurred while fetching resource metadata: Messages {} ", e.getMessage(), e);
-                            responseObserver.onError(Status.INTERNAL.withDescription(msg).asRuntimeException());
-                            return;
-                        }
-                    });
+                for (MetadataDocument document : documents == null ? Collections.<MetadataDocument>emptyList()
+                        : documents) {
+                    builder.addMetadata(document.toStruct(request.getKeysList()));
+                    builder.setVersion(Math.max(builder.getVersion(), document.getVersion()));
                 }
                 responseObserver.onNext(builder.build());
                 responseObserver.onCompleted();
@@ -990,103 +1024,383 @@ public class ResourceServiceHandler extends ResourceServiceGrpc.ResourceServiceI
     }
 
 
-    private boolean hasAccessForResource(String username, String tenantId, String resourceId) throws
-            Exception {
-        Map<String, Object> userProps = new HashMap<>();
-        userProps.put("username", username);
-        userProps.put("tenantId", tenantId);
-        userProps.put("entityId", resourceId);
+    /**
+     * Label to look a node of the requested type up by, the type itself being matched as a parameter. Resource
+     * types, client defined ones included, are found through the shared Resource label; any other type has to be a
+     * known label.
+     */
+    private static NodeLabel lookupLabel(String type) {
+        if (type == null || type.isEmpty() || NodeLabel.isResourceLabel(type)) {
+            return NodeLabel.RESOURCE;
+        }
+        return NodeLabel.of(type);
+    }
 
-        String query = " MATCH (u:User) where u.username = $username AND u.tenantId = $tenantId with u  " +
-                " Match (r) where r.entityId = $entityId AND r.tenantId = $tenantId with u, r" +
-                " OPTIONAL MATCH (g:Group)<-[:MEMBER_OF]-(u)" +
-                " OPTIONAL MATCH (cg:Group)-[:CHILD_OF*]->(g)" +
-                " OPTIONAL MATCH (l)<-[:CHILD_OF*]-(r)" +
-                " return case when  exists((u)<-[:SHARED_WITH]-(r)) OR exists((u)<-[:SHARED_WITH]-(l)) OR  exists((g)<-[:SHARED_WITH]-(r)) OR   " +
-                " exists((g)<-[:SHARED_WITH]-(l)) OR exists((cg)<-[:SHARED_WITH]-(r)) OR  exists((cg)<-[:SHARED_WITH]-(l)) then r  else NULL end as value";
+    /**
+     * Keyset paginated listing of resources of the given type visible to the user. With depth 1 only resources
+     * shared directly are listed: top level resources of the storages and resources shared by other users.
+     */
+    private String getListingPageQuery(NodeLabel type, int depth) {
+        boolean storageScoped = type == NodeLabel.FILE || type == NodeLabel.COLLECTION;
+        if (storageScoped) {
+            return this.neo4JConnector.render(depth == 1 ? CypherTemplates.LISTING_PAGE_IN_STORAGE_DEPTH_ONE :
+                    CypherTemplates.LISTING_PAGE_IN_STORAGE, type);
+        }
+        return this.neo4JConnector.render(depth == 1 ? CypherTemplates.LISTING_PAGE_DEPTH_ONE :
+                CypherTemplates.LISTING_PAGE, type);
+    }
 
-        List<Record> records = this.neo4JConnector.searchNodes(userProps, query);
+    /**
+     * Runs a keyset paginated query. One extra row is fetched to find out whether a next page exists.
+     */
+    private Page readPage(String query, Map<String, Object> parameters, List<String> keys, int pageSize,
+                          String cursor, ResourceProjection projection) throws Exception {
+        Map<String, Object> pageParameters = new HashMap<>(parameters);
+        pageParameters.put("cursor", cursor);
+        pageParameters.put("limit", pageSize + 1);
+
+        List<Record> records = this.neo4JConnector.searchNodes(pageParameters, query);
+        List<GenericResource> resources = new ArrayList<>();
+        for (Record record : records.subList(0, Math.min(pageSize, records.size()))) {
+            resources.addAll(GenericResourceDeserializer.deserializeRecord(record, keys,
+                    projection.getPropertiesToRead()));
+        }
+        String nextPageToken = records.size() > pageSize && !resources.isEmpty() ?
+                PageToken.encode(resources.get(resources.size() - 1).getResourceId()) : "";
+        return new Page(resources, nextPageToken);
+    }
 
-        List<GenericResource> genericResourceList = GenericResourceDeserializer.deserializeList(records);
-        if (genericResourceList.isEmpty()) {
-            return false;
+    /**
+     * Property and sharing searches are assembled from several queries and a batch access check, so their
+     * pages are cut from the filtered result.
+     */
+    private ResourceSearchResponse buildSearchResponse(List<GenericResource> resources, ResourceSearchRequest request,
+                                                       String cursor, ResourceProjection projection) {
+        ResourceSearchResponse.Builder builder = ResourceSearchResponse.newBuilder();
+        if (request.getPageSize() <= 0) {
+            return builder.addAllResources(projection.apply(resources)).build();
         }
+        List<GenericResource> ordered = resources.stream()
+                .filter(res -> res.getResourceId().compareTo(cursor) > 0)
+                .collect(Collectors.toMap(GenericResource::getResourceId, res -> res, (first, second) -> first,
+                        TreeMap::new))
+                .values().stream().collect(Collectors.toList());
+        List<GenericResource> page = ordered.subList(0, Math.min(request.getPageSize(), ordered.size()));
+        builder.addAllResources(projection.apply(page));
+        if (ordered.size() > page.size()) {
+            builder.setNextPageToken(PageToken.encode(page.get(page.size() - 1).getResourceId()));
+        }
+        return builder.build();
+    }
+
+    private List<String> resolveSearchStorages(List<ResourceSearchQuery> resourceSearchQueries, String tenantId)
+            throws Exception {
+        List<String> storageList = new ArrayList<>();
+        Optional<List<String>> globalStorages = getGlobalSourceStorage(tenantId);
+        globalStorages.ifPresent(storageList::addAll);
+        for (ResourceSearchQuery qry : resourceSearchQueries) {
+            if (qry.getField().equals("storageId")) {
+                storageList.clear();
+                storageList.add(qry.getValue());
+            }
+        }
+        return storageList;
+    }
 
-        return true;
+    /**
+     * Queries listing every resource of the given type visible to the user, one per storage for FILE and
+     * COLLECTION types
+     */
+    private List<KeyedQuery> getListingQueries(NodeLabel type, int depth, List<String> storageList) {
+        List<KeyedQuery> queries = new ArrayList<>();
+        if (type == NodeLabel.FILE || type == NodeLabel.COLLECTION) {
+            for (String storageId : storageList) {
+                Map<String, Object> parameters = Collections.singletonMap("storageId", storageId);
+                if (depth == 1) {
+                    queries.add(new KeyedQuery(this.neo4JConnector.render(CypherTemplates.LISTING_IN_STORAGE_DEPTH_ONE,
+                            type), parameters, "r:relR", "rg:relRG", "r2:relR2", "r3:relR3"));
+                } else {
+                    queries.add(new KeyedQuery(this.neo4JConnector.render(CypherTemplates.LISTING_IN_STORAGE, type),
+                            parameters, "rm:relRM", "r:relR", "rmg:relRMG", "rg:relRG"));
+                }
+            }
+        } else if (depth == 1) {
+            queries.add(new KeyedQuery(this.neo4JConnector.render(CypherTemplates.LISTING_DEPTH_ONE, type),
+                    Collections.emptyMap(), "r:relR", "rg:relRG"));
+        } else {
+            queries.add(new KeyedQuery(this.neo4JConnector.render(CypherTemplates.LISTING, type),
+                    Collections.emptyMap(), "rm:relRM", "r:relR", "rmg:relRMG", "rg:relRG"));
+        }
+        return queries;
     }
 
-    private boolean hasAccessForResource(String username, String tenantId, String resourceId, String parentType) throws
-            Exception {
-        Map<String, Object> userProps = new HashMap<>();
-        userProps.put("username", username);
-        userProps.put("tenantId", tenantId);
-        userProps.put("entityId", resourceId);
+    /**
+     * Parameters of {@link #getListingPageQuery(NodeLabel, int)} for each storage searched, or a single set for
+     * types which are not storage scoped
+     */
+    private List<Map<String, Object>> getListingSources(NodeLabel type, List<String> storageList,
+                                                        Map<String, Object> userProps) {
+        if (type != NodeLabel.FILE && type != NodeLabel.COLLECTION) {
+            return Collections.singletonList(userProps);
+        }
+        List<Map<String, Object>> sources = new ArrayList<>(storageList.size());
+        for (String storageId : storageList) {
+            Map<String, Object> parameters = new HashMap<>(userProps);
+            parameters.put("storageIds", Collections.singletonList(storageId));
+            sources.add(parameters);
+        }
+        return sources;
+    }
 
-        String query = " MATCH (u:User) where u.username = $username AND u.tenantId = $tenantId with u  " +
-                " Match (r) where r.entityId = $entityId AND r.tenantId = $tenantId with u, r" +
-                " OPTIONAL MATCH (g:Group)<-[:MEMBER_OF]-(u)" +
-                " OPTIONAL MATCH (cg:Group)-[:CHILD_OF*]->(g)" +
-                " OPTIONAL MATCH (l:" + parentType + ")<-[:CHILD_OF*]-(r)" +
-                " return case when  exists((u)<-[:SHARED_WITH]-(r)) OR exists((u)<-[:SHARED_WITH]-(l)) OR  exists((g)<-[:SHARED_WITH]-(r)) OR   " +
-                " exists((g)<-[:SHARED_WITH]-(l)) OR exists((cg)<-[:SHARED_WITH]-(r)) OR  exists((cg)<-[:SHARED_WITH]-(l)) then r  else NULL end as value";
+    private int getChunkSize(int requested) {
+        if (requested <= 0) {
+            return DEFAULT_STREAM_CHUNK_SIZE;
+        }
+        return Math.min(requested, MAX_STREAM_CHUNK_SIZE);
+    }
 
-        List<Record> records = this.neo4JConnector.searchNodes(userProps, query);
+    private boolean hasAccessForResource(String username, String tenantId, String resourceId) {
+        return hasAccessForResource(username, tenantId, resourceId, NodeLabel.RESOURCE);
+    }
 
-        List<GenericResource> genericResourceList = GenericResourceDeserializer.deserializeList(records);
-        if (genericResourceList.isEmpty()) {
+    private boolean hasAccessForResource(String username, String tenantId, String resourceId, NodeLabel label) {
+        long generation = this.accessDecisionCache.getGeneration();
+        Optional<Boolean> cached = this.accessDecisionCache.get(tenantId, username, resourceId);
+        if (cached.isPresent()) {
+            return cached.get();
+        }
+        boolean allowed = this.accessIndex.hasAccess(username, tenantId, resourceId, label);
+        this.accessDecisionCache.put(tenantId, username, resourceId, allowed, generation);
+        return allowed;
+    }
+
+    /**
+     * Whether the user holds one of the permission types on the resource, for changes that seeing it does not allow.
+     * Cached denials of access are answered without a query.
+     */
+    private boolean hasAccessForResource(String username, String tenantId, String resourceId,
+                                         String... permissions) {
+        if (!hasAccessForResource(username, tenantId, resourceId)) {
             return false;
         }
+        Map<String, Object> parameters = new HashMap<>();
+        parameters.put("username", username);
+        parameters.put("tenantId", tenantId);
+        parameters.put("entityId", resourceId);
+        parameters.put("type", null);
+        parameters.put("permissions", Arrays.asList(permissions));
+        return !this.neo4JConnector.searchNodes(CypherTemplates.PERMITTED_RESOURCE, parameters, NodeLabel.RESOURCE)
+                .isEmpty();
+    }
 
-        return true;
+    /**
+     * Keeps the candidates the user can see, in their original order. Only candidates without a cached decision
+     * are sent to the access index.
+     */
+    private List<GenericResource> filterAccessible(AuthenticatedUser user, List<GenericResource> candidates) {
+        if (candidates.isEmpty()) {
+            return candidates;
+        }
+        long generation = this.accessDecisionCache.getGeneration();
+        Set<String> accessible = new HashSet<>();
+        Set<String> unknown = new HashSet<>();
+        for (GenericResource candidate : candidates) {
+            String id = candidate.getResourceId();
+            if (accessible.contains(id) || unknown.contains(id)) {
+                continue;
+            }
+            Optional<Boolean> cached = this.accessDecisionCache.get(user.getTenantId(), user.getUsername(), id);
+            if (!cached.isPresent()) {
+                unknown.add(id);
+            } else if (cached.get()) {
+                accessible.add(id);
+            }
+        }
+        if (!unknown.isEmpty()) {
+            Set<String> granted = this.accessIndex.filterAccessible(user.getUsername(), user.getTenantId(), unknown);
+            for (String id : unknown) {
+                this.accessDecisionCache.put(user.getTenantId(), user.getUsername(), id, granted.contains(id),
+                        generation);
+            }
+            accessible.addAll(granted);
+        }
+        return candidates.stream().filter(res -> accessible.contains(res.getResourceId()))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Refreshes the access and ancestry indexes after resources were merged, optionally under parents, or moved.
+     * The resources are refreshed with everything below them, since a merge can move an existing resource. Parents
+     * only get the owner share of the caller, which grants their other children nothing the caller could not
+     * already see, so only the parent nodes themselves are refreshed.
+     */
+    private void refreshAccess(String tenantId, Collection<String> entityIds, Collection<String> parentIds) {
+        List<String> subtree = this.accessIndex.refreshSubtrees(tenantId, entityIds);
+        this.accessDecisionCache.invalidateResources(tenantId, subtree);
+        this.ancestryIndex.refreshResources(tenantId, subtree);
+        this.accessIndex.refreshResources(tenantId, parentIds);
+        this.ancestryIndex.refreshResources(tenantId, parentIds);
+        this.accessDecisionCache.invalidateResources(tenantId, parentIds);
+    }
+
+    /**
+     * Refreshes the access index after resources were moved by a child membership change. Their ancestry is
+     * refreshed by the membership templates, in the transaction of the CHILD_OF change.
+     */
+    private void refreshMovedAccess(String tenantId, Collection<String> entityIds) {
+        this.accessDecisionCache.invalidateResources(tenantId, this.accessIndex.refreshSubtrees(tenantId, entityIds));
     }
 
 
-    private void mergeProperties(String parentResourceId, String parentType, String tenantId, String resourceId,
-                                 Map<String, Object> values) {
-        for (String key : values.keySet()) {
-            Map<String, Object> parameters = new HashMap<>();
-            parameters.put("parentResourceId", parentResourceId);
-            parameters.put("tenantId", tenantId);
-            if (parentResourceId.equals(resourceId) && !(values.get(key) instanceof Map) && !(values.get(key) instanceof List)) {
-                Map<String, String> props = new HashMap<>();
-                parameters.put("resourceId", resourceId);
-                String value = String.valueOf(values.get(key));
-                props.put(key, value);
-                parameters.put("props", props);
-                String query = " MATCH (r:" + parentType + ") where r.entityId= $parentResourceId " +
-                        "AND r.tenantId= $tenantId" +
-                        " SET r += $props  return r";
-                this.neo4JConnector.runTransactionalQuery(parameters, query);
-
-            } else if (values.get(key) instanceof Map) {
-                String newResourceId = UUID.randomUUID().toString();
-                parameters.put("resourceId", newResourceId);
-                String type = "METADATA_NODE";
-                Map<String, Object> hashMap = (Map<String, Object>) values.get(key);
-                Map<String, Object> newHashMap = new HashMap<>();
-                newHashMap.put(DATA_LAKE_JSON_IDENTIFIER, key);
-                newHashMap.putAll(hashMap);
-                String query = " MATCH (r:" + parentType + ") where r.entityId= $parentResourceId AND r.tenantId= $tenantId " +
-                        " MERGE (cr:" + type + " {entityId: $resourceId,tenantId: $tenantId})" +
-                        " MERGE (r)-[:HAS_METADATA]->(cr) return cr";
-                this.neo4JConnector.runTransactionalQuery(parameters, query);
-
-                mergeProperties(newResourceId, type, tenantId, newResourceId, newHashMap);
-
-            } else if (values.get(key) instanceof List) {
-                ArrayList arrayList = (ArrayList) values.get(key);
-                Map<String, Object[]> props = new HashMap<>();
-                parameters.put("resourceId", resourceId);
-                props.put(key, arrayList.toArray());
-                parameters.put("props", props);
-                String query = " MATCH (r:" + parentType + ") where r.entityId= $parentResourceId " +
-                        "AND r.tenantId= $tenantId" +
-                        " SET r += $props  return r";
-                this.neo4JConnector.runTransactionalQuery(parameters, query);
+    /**
+     * Applies a top level merge patch to the metadata document of a resource and to its per key projections in one
+     * transaction. A document still stored as a single JSON string, or with another codec than the configured one,
+     * is recoded first.
+     *
+     * @param type            resource label, or empty for any resource
+     * @param expectedVersion version the document must be at, or null to patch whatever the version is
+     * @return version of the document after the patch
+     */
+    private long patchMetadata(String resourceId, String type, String tenantId, Struct patch, Long expectedVersion)
+            throws Exception {
+        String label = type == null || type.isEmpty() ? null : type;
+        Map<String, Object> parameters = new MetadataPatch(patch, metadataStorage.getCodec(), RESOURCE_NODE_KEYS,
+                METADATA_BOOKKEEPING_KEYS).toParameters(resourceId, label, tenantId, expectedVersion);
+
+        for (int attempt = 0; ; attempt++) {
+            List<Record> records = this.neo4JConnector.runTransactionalQuery(CypherTemplates.PATCH_METADATA,
+                    parameters, NodeLabel.RESOURCE);
+            if (!records.isEmpty()) {
+                return records.get(0).get("version").asLong();
             }
+
+            List<MetadataDocument> documents = metadataStorage.read(resourceId, label, tenantId);
+            if (documents == null) {
+                throw Status.NOT_FOUND.withDescription("Could not find resource " + resourceId).asRuntimeException();
+            }
+            MetadataDocument document = documents.isEmpty() ? null : documents.get(0);
+            boolean recodable = document != null && (document.isLegacy() ||
+                    !document.getCodecName().equals(metadataStorage.getCodec().getName()));
+            if (!recodable || attempt > 0) {
+                long version = document == null ? 0 : document.getVersion();
+                throw Status.ABORTED.withDescription("Metadata of resource " + resourceId + " is at version " +
+                        version + ", expected " + expectedVersion).asRuntimeException();
+            }
+            metadataStorage.recode(Collections.singletonList(document));
         }
     }
 
+    private Map<String, Object> toNodeProperties(GenericResource resource, Entity entity, AuthenticatedUser callUser) {
+        Map<String, Object> entityFields = new HashMap<>();
+        entityFields.put("description", entity.getDescription());
+        entityFields.put("resourceName", entity.getName());
+        entityFields.put("createdTime", String.valueOf(entity.getCreatedAt()));
+        entityFields.put("entityId", entity.getId());
+        entityFields.put("entityType", entity.getType());
+        entityFields.put("lastModifiedTime", entity.getCreatedAt());
+        entityFields.put("owner", entity.getOwnerId());
+        entityFields.put("firstName", callUser.getFirstName());
+        entityFields.put("lastName", callUser.getLastName());
+        return toNodeProperties(resource, entityFields, callUser);
+    }
+
+    /**
+     * @param entityFields fields mirrored from the Custos entity, which resource properties of the same name
+     *                     override
+     */
+    private Map<String, Object> toNodeProperties(GenericResource resource, Map<String, Object> entityFields,
+                                                 AuthenticatedUser callUser) {
+        Map<String, Object> serializedMap = GenericResourceSerializer.serializeToMap(resource);
+        serializedMap.remove(VERSION_FIELD);
+        serializedMap.putAll(entityFields);
+        serializedMap.put("tenantId", callUser.getTenantId());
+
+        if (serializedMap.containsKey("properties") && serializedMap.get("properties") instanceof List) {
+            List propertiesList = (List) serializedMap.get("properties");
+            propertiesList.forEach(property -> {
+                MapEntry entry = (MapEntry) property;
+                serializedMap.put(entry.getKey().toString(), entry.getValue());
+            });
+        }
+        serializedMap.remove("properties");
+        return serializedMap;
+    }
+
+    /**
+     * Writes a single resource to Custos and Neo4j through {@link ResourceWritePipeline}. Fields mirrored from the
+     * Custos entity are set from the request, as the entity is registered while the node is written.
+     *
+     * @param parentLabel label of the parent node, used when the resource has a parent
+     * @return the resource as written, or empty when the node was not at the expected version
+     * @throws StatusRuntimeException INVALID_ARGUMENT when the type or parent label is not valid, before anything
+     *                                is written
+     */
+    private Optional<GenericResource> writeResource(GenericResource resource, String entityId, String parentLabel,
+                                                    AuthenticatedUser callUser, Long expectedVersion)
+            throws Exception {
+        validateTypes(resource, parentLabel);
+        long now = System.currentTimeMillis();
+        Map<String, Object> entityFields = new HashMap<>();
+        entityFields.put("description", resource.getResourceName());
+        entityFields.put("resourceName", resource.getResourceName());
+        entityFields.put("entityId", entityId);
+        entityFields.put("entityType", resource.getType());
+        entityFields.put("lastModifiedTime", now);
+        Map<String, Object> createProperties = new HashMap<>();
+        createProperties.put("createdTime", String.valueOf(now));
+        createProperties.put("owner", callUser.getUsername());
+        createProperties.put("firstName", callUser.getFirstName());
+        createProperties.put("lastName", callUser.getLastName());
+
+        String parentId = resource.getParentId();
+        NodeDescriptor node = new NodeDescriptor(resource.getType(), entityId,
+                toNodeProperties(resource, entityFields, callUser));
+        if (!parentId.isEmpty()) {
+            node.withParent(parentLabel, parentId);
+        }
+        Optional<Node> written = this.resourceWritePipeline.write(resource, node, createProperties, callUser,
+                expectedVersion, () -> refreshAccess(callUser.getTenantId(), Collections.singletonList(entityId),
+                        parentId.isEmpty() ? Collections.emptyList() : Collections.singletonList(parentId)));
+        return written.map(writtenNode -> withResourceName(
+                GenericResourceDeserializer.deriveGenericResource(writtenNode, null, null)));
+    }
+
+    private GenericResource withResourceName(GenericResource genericResource) {
+        if (genericResource.getPropertiesMap().containsKey("name")) {
+            return genericResource.toBuilder()
+                    .setResourceName(genericResource.getPropertiesMap().get("name")).build();
+        } else if (genericResource.getPropertiesMap().containsKey("resourceName")) {
+            return genericResource.toBuilder()
+                    .setResourceName(genericResource.getPropertiesMap().get("resourceName")).build();
+        }
+        return genericResource;
+    }
+
+    /**
+     * Checks the type of a resource, and its parent type when it has a parent, before anything is written, as both
+     * are rendered into Cypher as labels
+     *
+     * @throws StatusRuntimeException INVALID_ARGUMENT when one of them is not a valid label
+     */
+    private static void validateTypes(GenericResource resource, String parentLabel) {
+        try {
+            NodeLabel.validateResourceType(resource.getType());
+            if (!resource.getParentId().isEmpty()) {
+                NodeLabel.validateResourceType(parentLabel);
+            }
+        } catch (IllegalArgumentException ex) {
+            throw Status.INVALID_ARGUMENT.withDescription(ex.getMessage()).asRuntimeException();
+        }
+    }
+
+    private String getParentLabel(GenericResource resource) {
+        String parentLabel = resource.getPropertiesMap().get("PARENT_TYPE");
+        if (parentLabel == null || parentLabel.isEmpty()) {
+            parentLabel = resource.getPropertiesMap().get("parentType");
+        }
+        return parentLabel;
+    }
+
     private Map<String, Object> readProperties(String resourceId, String type, String tenantId, Map<String, Object> map) throws Exception {
 
         Map<String, Object> parameters = new HashMap<>();
@@ -1124,33 +1438,31 @@ public class ResourceServiceHandler extends ResourceServiceGrpc.ResourceServiceI
     }
 
 
-    private Optional<List<String>> readMetadata(String resourceId, String type, String tenantId) throws Exception {
+    /**
+     * @return version of the resource, 0 if it does not exist
+     */
+    private long readResourceVersion(String entityId, String type, String tenantId) {
         Map<String, Object> parameters = new HashMap<>();
-        parameters.put("entityId", resourceId);
+        parameters.put("entityId", entityId);
         parameters.put("tenantId", tenantId);
-        String query = " Match (r" + type + ") where r.entityId=$entityId and r.tenantId=$tenantId " +
-                " Match (r)-[:HAS_FULL_METADATA]->(m) return m";
-        List<Record> records = this.neo4JConnector.searchNodes(parameters, query);
-
-        List<GenericResource> genericResourceList = GenericResourceDeserializer.deserializeList(records);
-        if (!genericResourceList.isEmpty()) {
-            return Optional.ofNullable(genericResourceList.stream().map(val -> {
-                Map<String, String> proprties = val.getPropertiesMap();
-                return proprties.get("metadata");
-            }).collect(Collectors.toList()));
-        }
-        return Optional.empty();
+        parameters.put("type", type == null || type.isEmpty() ? null : type);
+        List<Record> records = this.neo4JConnector.searchNodes(CypherTemplates.RESOURCE_VERSION, parameters,
+                NodeLabel.RESOURCE);
+        return records.isEmpty() ? 0 : records.get(0).get("version").asLong();
     }
 
+    private StatusRuntimeException versionMismatch(String entityId, long version, long expectedVersion) {
+        return Status.ABORTED.withDescription("Resource " + entityId + " is at version " + version + ", expected "
+                + expectedVersion).asRuntimeException();
+    }
 
     private Optional<AnyStorage> findStorage(String entityId, String type, String tenantId) throws Exception {
         Map<String, Object> parameters = new HashMap<>();
         parameters.put("entityId", entityId);
         parameters.put("tenantId", tenantId);
-        String query = " Match (r" + type + ") where r.entityId=$entityId and r.tenantId=$tenantId " +
-                " Match (s:Storage)<-[:CHILD_OF*]-(r) return (s)";
-
-        List<Record> records = this.neo4JConnector.searchNodes(parameters, query);
+        parameters.put("type", type == null || type.isEmpty() ? null : type);
+        List<Record> records = this.neo4JConnector.searchNodes(CypherTemplates.ANCESTOR_STORAGES, parameters,
+                NodeLabel.RESOURCE);
         if (!records.isEmpty()) {
             List<AnyStorage> storageList = AnyStorageDeserializer.deserializeList(records);
             return Optional.ofNullable(storageList.get(0));
@@ -1160,13 +1472,7 @@ public class ResourceServiceHandler extends ResourceServiceGrpc.ResourceServiceI
     }
 
     private Optional<List<String>> getGlobalSourceStorage(String tenantId) throws Exception {
-        Map<String, Object> properties = new HashMap<>();
-        properties.put("tenantId", tenantId);
-        properties.put("scope", TransferScope.GLOBAL.name());
-        String query = " Match (srcStr:Storage)-[:TRANSFER_OUT]->(tm:TransferMapping) where tm.tenantId=$tenantId AND tm.scope='GLOBAL' " +
-                " AND srcStr.tenantId=$tenantId return srcStr, tm";
-        List<Record> records = this.neo4JConnector.searchNodes(properties, query);
-        List<TransferMapping> sourceTransfers = TransferMappingDeserializer.deserializeListExceptDestinationStorage(records);
+        List<TransferMapping> sourceTransfers = this.transferMappingCatalog.getGlobalSources(tenantId);
         List<String> arrayList = new ArrayList<>();
         if (sourceTransfers.isEmpty()) {
             return Optional.empty();
@@ -1189,18 +1495,31 @@ public class ResourceServiceHandler extends ResourceServiceGrpc.ResourceServiceI
         }
     }
 
-    private String mergeJSON(String oldJSON, String newJSON) {
-        Gson gson = new Gson();
-//read both jsons
-        Map<String, Object> json1 = gson.fromJson(oldJSON, Map.class);
-        Map<String, Object> json2 = gson.fromJson(newJSON, Map.class);
-//create combined json with contents of first json
-        Map<String, Object> combined = new HashMap<>(json1);
-//Add the contents of first json. It will overwrite the values of keys are
-//same. e.g. "foo" of json2 will take precedence if both json1 and json2 have "foo"
-        combined.putAll(json2);
-        return gson.toJson(combined);
+    private static final class Page {
+        private final List<GenericResource> resources;
+        private final String nextPageToken;
+
+        private Page(List<GenericResource> resources, String nextPageToken) {
+            this.resources = resources;
+            this.nextPageToken = nextPageToken;
+        }
     }
 
+    private static final class KeyedQuery {
+        private final String query;
+        private final Map<String, Object> parameters;
+        private final List<String> keys;
 
+        private KeyedQuery(String query, Map<String, Object> parameters, String... keys) {
+            this.query = query;
+            this.parameters = parameters;
+            this.keys = Arrays.asList(keys);
+        }
+
+        private Map<String, Object> withParameters(Map<String, Object> userProps) {
+            Map<String, Object> merged = new HashMap<>(userProps);
+            merged.putAll(parameters);
+            return merged;
+        }
+    }
 }
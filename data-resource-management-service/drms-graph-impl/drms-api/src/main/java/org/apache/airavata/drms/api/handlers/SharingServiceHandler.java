@@ -6,6 +6,14 @@ import io.grpc.Status;
 import io.grpc.stub.StreamObserver;
 import org.apache.airavata.datalake.drms.AuthenticatedUser;
 import org.apache.airavata.datalake.drms.sharing.*;
+import org.apache.airavata.drms.api.accesscache.AccessDecisionCache;
+import org.apache.airavata.drms.api.accesscache.AccessInvalidationPublisher;
+import org.apache.airavata.drms.api.storagecache.StorageCatalogCache;
+import org.apache.airavata.drms.api.storagecache.StorageCatalogCache.EntityType;
+import org.apache.airavata.drms.core.Neo4JConnector;
+import org.apache.airavata.drms.core.access.AccessIndex;
+import org.apache.airavata.drms.core.access.AccessInvalidation;
+import org.apache.airavata.drms.core.query.NodeLabel;
 import org.apache.custos.clients.CustosClientProvider;
 import org.apache.custos.sharing.management.client.SharingManagementClient;
 import org.apache.custos.sharing.service.Entity;
@@ -16,13 +24,40 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
 @GRpcService
 public class SharingServiceHandler extends DRMSSharingServiceGrpc.DRMSSharingServiceImplBase {
     private static final Logger LOGGER = LoggerFactory.getLogger(SharingServiceHandler.class);
 
+    // Resources and storages can be shared; both are looked up through their (entityId, tenantId) index
+    private static final String SHARED_ENTITY =
+            "CALL {" +
+                    " MATCH (r:Resource) WHERE r.entityId = $entityId AND r.tenantId = $tenantId RETURN r" +
+                    " UNION" +
+                    " MATCH (r:Storage) WHERE r.entityId = $entityId AND r.tenantId = $tenantId RETURN r }";
+
     @Autowired
     private CustosClientProvider custosClientProvider;
 
+    @Autowired
+    private Neo4JConnector neo4JConnector;
+
+    @Autowired
+    private AccessIndex accessIndex;
+
+    @Autowired
+    private AccessDecisionCache accessDecisionCache;
+
+    @Autowired
+    private AccessInvalidationPublisher accessInvalidationPublisher;
+
+    @Autowired
+    private StorageCatalogCache storageCatalogCache;
+
 
     @Override
     public void shareEntityWithUser(ShareEntityWithUserRequest request, StreamObserver<Empty> responseObserver) {
@@ -62,6 +97,8 @@ public class SharingServiceHandler extends DRMSSharingServiceGrpc.DRMSSharingSer
                             .setPermissionType(PermissionType.newBuilder().setId(request.getPermissionId()).build())
                             .addOwnerId(request.getSharedUserId()).build();
                     sharingManagementClient.shareEntityWithUsers(tenantId, shrRequest);
+                    mergeGraphSharing(tenantId, request.getEntityId(), NodeLabel.USER, "username",
+                            request.getSharedUserId(), request.getPermissionId(), username);
                     responseObserver.onNext(Empty.newBuilder().build());
                     responseObserver.onCompleted();
 
@@ -117,6 +154,8 @@ public class SharingServiceHandler extends DRMSSharingServiceGrpc.DRMSSharingSer
                             .setPermissionType(PermissionType.newBuilder().setId(request.getPermissionId()).build())
                             .addOwnerId(request.getSharedGroupId()).build();
                     sharingManagementClient.shareEntityWithGroups(tenantId, shrRequest);
+                    mergeGraphSharing(tenantId, request.getEntityId(), NodeLabel.GROUP, "groupId",
+                            request.getSharedGroupId(), request.getPermissionId(), username);
                     responseObserver.onNext(Empty.newBuilder().build());
                     responseObserver.onCompleted();
 
@@ -170,6 +209,8 @@ public class SharingServiceHandler extends DRMSSharingServiceGrpc.DRMSSharingSer
                             .setPermissionType(PermissionType.newBuilder().setId(request.getPermissionId()).build())
                             .addOwnerId(request.getRevokedUserId()).build();
                     sharingManagementClient.revokeEntitySharingFromUsers(tenantId, shrRequest);
+                    deleteGraphSharing(tenantId, request.getEntityId(), NodeLabel.USER, "username",
+                            request.getRevokedUserId(), request.getPermissionId());
                     responseObserver.onNext(Empty.newBuilder().build());
                     responseObserver.onCompleted();
 
@@ -223,6 +264,8 @@ public class SharingServiceHandler extends DRMSSharingServiceGrpc.DRMSSharingSer
                             .setPermissionType(PermissionType.newBuilder().setId(request.getPermissionId()).build())
                             .addOwnerId(request.getRevokedGroupId()).build();
                     sharingManagementClient.revokeEntitySharingFromGroups(tenantId, shrRequest);
+                    deleteGraphSharing(tenantId, request.getEntityId(), NodeLabel.GROUP, "groupId",
+                            request.getRevokedGroupId(), request.getPermissionId());
                     responseObserver.onNext(Empty.newBuilder().build());
                     responseObserver.onCompleted();
 
@@ -238,4 +281,60 @@ public class SharingServiceHandler extends DRMSSharingServiceGrpc.DRMSSharingSer
             responseObserver.onError(Status.INTERNAL.withDescription(msg).asRuntimeException());
         }
     }
+
+    /**
+     * Mirrors a sharing accepted by Custos into the graph and refreshes the access index of the shared subtree, so
+     * the new access is visible without waiting for the custos synchronizer. The synchronizer merges the same
+     * relationship, so applying it twice is harmless.
+     */
+    private void mergeGraphSharing(String tenantId, String entityId, NodeLabel principalLabel, String principalKey,
+                                   String principalId, String permission, String sharedBy) {
+        String query = SHARED_ENTITY +
+                " MATCH (p:" + principalLabel.getLabel() + ") WHERE p." + principalKey + " = $principalId" +
+                " AND p.tenantId = $tenantId" +
+                " MERGE (r)-[s:SHARED_WITH]->(p) SET s += $props";
+        Map<String, Object> props = new HashMap<>();
+        props.put("permission", permission);
+        props.put("sharedBy", sharedBy);
+        Map<String, Object> parameters = new HashMap<>();
+        parameters.put("entityId", entityId);
+        parameters.put("tenantId", tenantId);
+        parameters.put("principalId", principalId);
+        parameters.put("props", props);
+        updateGraphSharing(parameters, query);
+    }
+
+    private void deleteGraphSharing(String tenantId, String entityId, NodeLabel principalLabel, String principalKey,
+                                    String principalId, String permission) {
+        String query = SHARED_ENTITY +
+                " MATCH (r)-[s:SHARED_WITH]->(p:" + principalLabel.getLabel() + ")" +
+                " WHERE p." + principalKey + " = $principalId AND p.tenantId = $tenantId" +
+                " AND s.permission = $permission DELETE s";
+        Map<String, Object> parameters = new HashMap<>();
+        parameters.put("entityId", entityId);
+        parameters.put("tenantId", tenantId);
+        parameters.put("principalId", principalId);
+        parameters.put("permission", permission);
+        updateGraphSharing(parameters, query);
+    }
+
+    private void updateGraphSharing(Map<String, Object> parameters, String query) {
+        String tenantId = (String) parameters.get("tenantId");
+        String entityId = (String) parameters.get("entityId");
+        try {
+            neo4JConnector.runTransactionalQuery(parameters, query);
+            List<String> subtree = accessIndex.refreshSubtrees(tenantId, Collections.singletonList(entityId));
+            accessDecisionCache.invalidateResources(tenantId, subtree);
+            // Other API instances cache decisions of the same subtree
+            accessInvalidationPublisher.publishResources(tenantId, subtree);
+        } catch (Exception ex) {
+            // Custos already holds the change; the synchronizer and the access index verifier reconcile the graph
+            LOGGER.error("Error occurred while updating graph sharing of entity {}", entityId, ex);
+            accessDecisionCache.invalidateTenant(tenantId);
+            accessInvalidationPublisher.publish(AccessInvalidation.tenant(tenantId));
+        }
+        // Cached storages and storage preferences are per user, and their visibility follows the shares of storages
+        storageCatalogCache.invalidateType(EntityType.STORAGE, tenantId);
+        storageCatalogCache.invalidateType(EntityType.STORAGE_PREFERENCE, tenantId);
+    }
 }
@@ -20,6 +20,8 @@ import com.google.protobuf.Empty;
 import io.grpc.stub.StreamObserver;
 import org.apache.airavata.datalake.drms.AuthenticatedUser;
 import org.apache.airavata.datalake.drms.storage.*;
+import org.apache.airavata.drms.api.storagecache.StorageCatalogCache;
+import org.apache.airavata.drms.api.storagecache.StorageCatalogCache.EntityType;
 import org.apache.airavata.drms.api.utils.CustosUtils;
 import org.apache.airavata.drms.core.Neo4JConnector;
 import org.apache.airavata.drms.core.constants.StorageConstants;
@@ -38,6 +40,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 
 @GRpcService
 public class StoragePreferenceServiceHandler extends StoragePreferenceServiceGrpc.StoragePreferenceServiceImplBase {
@@ -50,6 +53,9 @@ public class StoragePreferenceServiceHandler extends StoragePreferenceServiceGrp
     @Autowired
     private CustosClientProvider custosClientProvider;
 
+    @Autowired
+    private StorageCatalogCache storageCatalogCache;
+
 
 
 
@@ -69,39 +75,15 @@ public class StoragePreferenceServiceHandler extends StoragePreferenceServiceGrp
             userProps.put("tenantId", callUser.getTenantId());
             userProps.put("storagePreferenceId", request.getStoragePreferenceId());
 
-            List<Record> records = this.neo4JConnector.searchNodes(userProps,
-                    " MATCH (u:User) where u.username = $username AND u.tenantId = $tenantId" +
-                            " OPTIONAL MATCH (u)<-[:SHARED_WITH]-(s1:Storage)<-[:CHILD_OF]-(sp1:StoragePreference) where sp1.storagePreferenceId = $storagePreferenceId" +
-                            " OPTIONAL MATCH  (g:Group)<-[:MEMBER_OF]-(u)" +
-                            " OPTIONAL MATCH (cg:Group)-[:CHILD_OF*]->(g)" +
-                            " OPTIONAL MATCH (sp2:StoragePreference)-[:CHILD_OF]->(s2:Storage)-[:SHARED_WITH]->(cg) where sp2.storagePreferenceId = $storagePreferenceId" +
-                            " OPTIONAL MATCH (sp3:StoragePreference)-[:CHILD_OF]->(s3:Storage)-[:SHARED_WITH]->(g) where sp3.storagePreferenceId = $storagePreferenceId" +
-                            " OPTIONAL MATCH (s4:Storage)<-[:CHILD_OF]-(sp4:StoragePreference)-[:SHARED_WITH]->(u) where sp4.storagePreferenceId = $storagePreferenceId" +
-                            " OPTIONAL MATCH (s5:Storage)<-[:CHILD_OF]-(sp5:StoragePreference)-[:SHARED_WITH]->(cg) where sp5.storagePreferenceId = $storagePreferenceId" +
-                            " OPTIONAL MATCH (s6:Storage)<-[:CHILD_OF]-(sp6:StoragePreference)-[:SHARED_WITH]->(g) where sp6.storagePreferenceId = $storagePreferenceId" +
-                            " return distinct s1, sp1, s2, sp2, s3, sp3, s4,sp4, s5,sp5, s6,sp6");
+            Optional<AnyStoragePreference> storagePreference = this.storageCatalogCache.get(
+                    EntityType.STORAGE_PREFERENCE, callUser.getTenantId(), request.getStoragePreferenceId(),
+                    callUser.getUsername(), () -> loadStoragePreference(userProps));
 
-            if (!records.isEmpty()) {
-                try {
-                    List keyList = new ArrayList();
-                    keyList.add("s1:sp1");
-                    keyList.add("s2:sp2");
-                    keyList.add("s3:sp3");
-                    keyList.add("s4:sp4");
-                    keyList.add("s5:sp5");
-                    keyList.add("s6:sp6");
-                    List<AnyStoragePreference> storagePrefList = AnyStoragePreferenceDeserializer.deserializeList(records, keyList);
-                    StoragePreferenceFetchResponse.Builder builder = StoragePreferenceFetchResponse.newBuilder();
-                    if (!storagePrefList.isEmpty()) {
-                        builder.setStoragePreference(storagePrefList.get(0));
-                    }
-                    responseObserver.onNext(builder.build());
-                    responseObserver.onCompleted();
-                } catch (Exception e) {
-                    String msg = "Errored while searching storage preferences; Message:" + e.getMessage();
-                    logger.error("Errored while searching storage preferences; Message: {}", e.getMessage(), e);
-                    responseObserver.onError(io.grpc.Status.INTERNAL.withDescription(msg).asRuntimeException());
-                }
+            if (storagePreference != null) {
+                StoragePreferenceFetchResponse.Builder builder = StoragePreferenceFetchResponse.newBuilder();
+                storagePreference.ifPresent(builder::setStoragePreference);
+                responseObserver.onNext(builder.build());
+                responseObserver.onCompleted();
             } else {
                 String msg = "Could not find a storage preference with id" + request.getStoragePreferenceId();
                 logger.error("Could not find a storage preference with id {}", request.getStoragePreferenceId());
@@ -114,6 +96,36 @@ public class StoragePreferenceServiceHandler extends StoragePreferenceServiceGrp
         }
     }
 
+    /**
+     * @return the storage preference if the user can see it, or null if the user is unknown
+     */
+    private Optional<AnyStoragePreference> loadStoragePreference(Map<String, Object> userProps) throws Exception {
+        List<Record> records = this.neo4JConnector.searchNodes(userProps,
+                " MATCH (u:User) where u.username = $username AND u.tenantId = $tenantId" +
+                        " OPTIONAL MATCH (u)<-[:SHARED_WITH]-(s1:Storage)<-[:CHILD_OF]-(sp1:StoragePreference) where sp1.storagePreferenceId = $storagePreferenceId" +
+                        " OPTIONAL MATCH  (g:Group)<-[:MEMBER_OF]-(u)" +
+                        " OPTIONAL MATCH (cg:Group)-[:CHILD_OF*]->(g)" +
+                        " OPTIONAL MATCH (sp2:StoragePreference)-[:CHILD_OF]->(s2:Storage)-[:SHARED_WITH]->(cg) where sp2.storagePreferenceId = $storagePreferenceId" +
+                        " OPTIONAL MATCH (sp3:StoragePreference)-[:CHILD_OF]->(s3:Storage)-[:SHARED_WITH]->(g) where sp3.storagePreferenceId = $storagePreferenceId" +
+                        " OPTIONAL MATCH (s4:Storage)<-[:CHILD_OF]-(sp4:StoragePreference)-[:SHARED_WITH]->(u) where sp4.storagePreferenceId = $storagePreferenceId" +
+                        " OPTIONAL MATCH (s5:Storage)<-[:CHILD_OF]-(sp5:StoragePreference)-[:SHARED_WITH]->(cg) where sp5.storagePreferenceId = $storagePreferenceId" +
+                        " OPTIONAL MATCH (s6:Storage)<-[:CHILD_OF]-(sp6:StoragePreference)-[:SHARED_WITH]->(g) where sp6.storagePreferenceId = $storagePreferenceId" +
+                        " return distinct s1, sp1, s2, sp2, s3, sp3, s4,sp4, s5,sp5, s6,sp6");
+
+        if (records.isEmpty()) {
+            return null;
+        }
+        List keyList = new ArrayList();
+        keyList.add("s1:sp1");
+        keyList.add("s2:sp2");
+        keyList.add("s3:sp3");
+        keyList.add("s4:sp4");
+        keyList.add("s5:sp5");
+        keyList.add("s6:sp6");
+        List<AnyStoragePreference> storagePrefList = AnyStoragePreferenceDeserializer.deserializeList(records, keyList);
+        return storagePrefList.isEmpty() ? Optional.empty() : Optional.of(storagePrefList.get(0));
+    }
+
     @Override
     public void createStoragePreference(StoragePreferenceCreateRequest request, StreamObserver<StoragePreferenceCreateResponse> responseObserver) {
         try {
@@ -172,6 +184,8 @@ public class StoragePreferenceServiceHandler extends StoragePreferenceServiceGrp
                 this.neo4JConnector.mergeNodesWithParentChildRelationShip(serializedMap, parentPropertiesMap,
                         StoragePreferenceConstants.STORAGE_PREFERENCE_LABEL, StorageConstants.STORAGE_LABEL,
                         callUser.getUsername(), storagePreferenceId, storageId, callUser.getTenantId());
+                this.storageCatalogCache.invalidate(EntityType.STORAGE_PREFERENCE, callUser.getTenantId(),
+                        storagePreferenceId);
             }
             StoragePreferenceCreateResponse response = StoragePreferenceCreateResponse.newBuilder().setStoragePreference(storage).build();
             responseObserver.onNext(response);
@@ -223,6 +237,8 @@ public class StoragePreferenceServiceHandler extends StoragePreferenceServiceGrp
                 this.neo4JConnector.mergeNodesWithParentChildRelationShip(serializedMap, parentPropertiesMap,
                         StoragePreferenceConstants.STORAGE_PREFERENCE_LABEL, StorageConstants.STORAGE_LABEL,
                         callUser.getUsername(), storagePreferenceId, storageId, callUser.getTenantId());
+                this.storageCatalogCache.invalidate(EntityType.STORAGE_PREFERENCE, callUser.getTenantId(),
+                        storagePreferenceId);
             }
             StoragePreferenceUpdateResponse response = StoragePreferenceUpdateResponse.newBuilder().setStoragePreference(storage).build();
             responseObserver.onNext(response);
@@ -241,6 +257,7 @@ public class StoragePreferenceServiceHandler extends StoragePreferenceServiceGrp
 
             String id = request.getStoragePreferenceId();
             this.neo4JConnector.deleteNode(StoragePreferenceConstants.STORAGE_PREFERENCE_LABEL, id, callUser.getTenantId());
+            this.storageCatalogCache.invalidate(EntityType.STORAGE_PREFERENCE, callUser.getTenantId(), id);
             responseObserver.onNext(Empty.newBuilder().build());
             responseObserver.onCompleted();
         } catch (Exception ex) {
@@ -282,14 +299,15 @@ public class StoragePreferenceServiceHandler extends StoragePreferenceServiceGrp
             }
 
             if (storageId != null) {
+                userProps.put("storageId", storageId);
                 query = " MATCH (u:User) where u.username = $username AND u.tenantId = $tenantId" +
-                        " OPTIONAL MATCH (u)<-[:SHARED_WITH]-(s1:Storage{storageId:'" + storageId + "'})<-[:CHILD_OF]->(sp1:StoragePreference)" +
+                        " OPTIONAL MATCH (u)<-[:SHARED_WITH]-(s1:Storage{storageId: $storageId})<-[:CHILD_OF]->(sp1:StoragePreference)" +
                         " OPTIONAL MATCH (cg:Group)-[:CHILD_OF *0..]->(g:Group)<-[:MEMBER_OF]-(u)" +
-                        " OPTIONAL MATCH (sp2:StoragePreference)-[:CHILD_OF]->(s2:Storage{storageId:'" + storageId + "'})-[:SHARED_WITH]->(cg) " +
-                        " OPTIONAL MATCH (sp3:StoragePreference)-[:CHILD_OF]->(s3:Storage{storageId:'" + storageId + "'})-[:SHARED_WITH]->(g)" +
-                        " OPTIONAL MATCH (s4:Storage{storageId:'" + storageId + "'})<-[:CHILD_OF]-(sp4:StoragePreference)-[:SHARED_WITH]->(u)" +
-                        " OPTIONAL MATCH (s5:Storage{storageId:'" + storageId + "'})<-[:CHILD_OF]-(sp5:StoragePreference)-[:SHARED_WITH]->(cg)" +
-                        " OPTIONAL MATCH (s6:Storage{storageId:'" + storageId + "'})<-[:CHILD_OF]-(sp6:StoragePreference)-[:SHARED_WITH]->(g)" +
+                        " OPTIONAL MATCH (sp2:StoragePreference)-[:CHILD_OF]->(s2:Storage{storageId: $storageId})-[:SHARED_WITH]->(cg) " +
+                        " OPTIONAL MATCH (sp3:StoragePreference)-[:CHILD_OF]->(s3:Storage{storageId: $storageId})-[:SHARED_WITH]->(g)" +
+                        " OPTIONAL MATCH (s4:Storage{storageId: $storageId})<-[:CHILD_OF]-(sp4:StoragePreference)-[:SHARED_WITH]->(u)" +
+                        " OPTIONAL MATCH (s5:Storage{storageId: $storageId})<-[:CHILD_OF]-(sp5:StoragePreference)-[:SHARED_WITH]->(cg)" +
+                        " OPTIONAL MATCH (s6:Storage{storageId: $storageId})<-[:CHILD_OF]-(sp6:StoragePreference)-[:SHARED_WITH]->(g)" +
                         " return distinct s1, sp1, s2, sp2, s3, sp3, s4,sp4, s5,sp5, s6,sp6";
             }
 
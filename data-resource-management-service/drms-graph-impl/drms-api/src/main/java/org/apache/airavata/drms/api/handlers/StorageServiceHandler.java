@@ -20,9 +20,16 @@ import com.google.protobuf.Empty;
 import io.grpc.stub.StreamObserver;
 import org.apache.airavata.datalake.drms.AuthenticatedUser;
 import org.apache.airavata.datalake.drms.storage.*;
+import org.apache.airavata.drms.api.accesscache.AccessDecisionCache;
+import org.apache.airavata.drms.api.accesscache.AccessInvalidationPublisher;
+import org.apache.airavata.drms.api.storagecache.StorageCatalogCache;
+import org.apache.airavata.drms.api.storagecache.StorageCatalogCache.EntityType;
+import org.apache.airavata.drms.api.storagecache.TransferMappingCatalog;
 import org.apache.airavata.drms.api.utils.CustosUtils;
 import org.apache.airavata.drms.api.utils.Utils;
 import org.apache.airavata.drms.core.Neo4JConnector;
+import org.apache.airavata.drms.core.access.AccessIndex;
+import org.apache.airavata.drms.core.ancestry.AncestryIndex;
 import org.apache.airavata.drms.core.constants.StorageConstants;
 import org.apache.airavata.drms.core.deserializer.AnyStorageDeserializer;
 import org.apache.airavata.drms.core.deserializer.TransferMappingDeserializer;
@@ -38,6 +45,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 
 @GRpcService
 public class StorageServiceHandler extends StorageServiceGrpc.StorageServiceImplBase {
@@ -50,6 +58,23 @@ public class StorageServiceHandler extends StorageServiceGrpc.StorageServiceImpl
     @Autowired
     private CustosClientProvider custosClientProvider;
 
+    @Autowired
+    private StorageCatalogCache storageCatalogCache;
+
+    @Autowired
+    private TransferMappingCatalog transferMappingCatalog;
+
+    @Autowired
+    private AncestryIndex ancestryIndex;
+
+    @Autowired
+    private AccessIndex accessIndex;
+
+    @Autowired
+    private AccessDecisionCache accessDecisionCache;
+
+    @Autowired
+    private AccessInvalidationPublisher accessInvalidationPublisher;
 
     @Override
     public void fetchStorage(StorageFetchRequest request, StreamObserver<StorageFetchResponse> responseObserver) {
@@ -60,6 +85,29 @@ public class StorageServiceHandler extends StorageServiceGrpc.StorageServiceImpl
         userProps.put("username", callUser.getUsername());
         userProps.put("tenantId", callUser.getTenantId());
         userProps.put("storageId", request.getStorageId());
+        try {
+            Optional<AnyStorage> storage = this.storageCatalogCache.get(EntityType.STORAGE, callUser.getTenantId(),
+                    request.getStorageId(), callUser.getUsername(), () -> loadStorage(userProps));
+            if (storage.isPresent()) {
+                StorageFetchResponse.Builder builder = StorageFetchResponse.newBuilder();
+                builder.setStorage(storage.get());
+                responseObserver.onNext(builder.build());
+                responseObserver.onCompleted();
+            } else {
+                logger.error("Could not find a storage with id {}", request.getStorageId());
+                responseObserver.onError(new Exception("Could not find a storage with id " + request.getStorageId()));
+            }
+        } catch (Exception e) {
+            String msg = "(Errored while searching storages; Message: {}, e.getMessage())";
+            logger.error(msg, e);
+            responseObserver.onError(io.grpc.Status.INTERNAL.withDescription(msg).asRuntimeException());
+        }
+    }
+
+    /**
+     * @return the storage if the user can see it
+     */
+    private Optional<AnyStorage> loadStorage(Map<String, Object> userProps) throws Exception {
         List<Record> records = this.neo4JConnector.searchNodes(userProps,
                 " MATCH (u:User) where u.username = $username = $username AND u.tenantId = $tenantId" +
                         " OPTIONAL MATCH (u)<-[r2:SHARED_WITH]-(s:Storage) where s.storageId = $storageId AND s.tenantId = $tenantId" +
@@ -67,22 +115,11 @@ public class StorageServiceHandler extends StorageServiceGrpc.StorageServiceImpl
                         " OPTIONAL MATCH (cs:Storage)-[SHARED_WITH]->(ch) where cs.storageId = $storageId AND s.tenantId = $tenantId" +
                         " OPTIONAL MATCH (ds:Storage)-[SHARED_WITH]->(g)where ds.storageId = $storageId AND s.tenantId = $tenantId" +
                         " return distinct s, cs, ds");
-        if (!records.isEmpty()) {
-            try {
-                List<AnyStorage> storageList = AnyStorageDeserializer.deserializeList(records);
-                StorageFetchResponse.Builder builder = StorageFetchResponse.newBuilder();
-                builder.setStorage(storageList.get(0));
-                responseObserver.onNext(builder.build());
-                responseObserver.onCompleted();
-            } catch (Exception e) {
-                String msg = "(Errored while searching storages; Message: {}, e.getMessage())";
-                logger.error(msg, e);
-                responseObserver.onError(io.grpc.Status.INTERNAL.withDescription(msg).asRuntimeException());
-            }
-        } else {
-            logger.error("Could not find a storage with id {}", request.getStorageId());
-            responseObserver.onError(new Exception("Could not find a storage with id " + request.getStorageId()));
+        if (records.isEmpty()) {
+            return Optional.empty();
         }
+        List<AnyStorage> storageList = AnyStorageDeserializer.deserializeList(records);
+        return storageList.isEmpty() ? Optional.empty() : Optional.of(storageList.get(0));
     }
 
     @Override
@@ -99,6 +136,7 @@ public class StorageServiceHandler extends StorageServiceGrpc.StorageServiceImpl
                     mergeStorageEntity(custosClientProvider, callUser.getTenantId(), storageId, callUser.getUsername());
             this.neo4JConnector.mergeNode(serializedMap, StorageConstants.STORAGE_LABEL, callUser.getUsername(), storageId,
                     callUser.getTenantId());
+            invalidateStorage(callUser.getTenantId(), storageId);
             StorageCreateResponse response = StorageCreateResponse.newBuilder().setStorage(storage).build();
             responseObserver.onNext(response);
             responseObserver.onCompleted();
@@ -119,6 +157,7 @@ public class StorageServiceHandler extends StorageServiceGrpc.StorageServiceImpl
             String storageId = (String) serializedMap.get("storageId");
             this.neo4JConnector.mergeNode(serializedMap, StorageConstants.STORAGE_LABEL, callUser.getUsername(), storageId,
                     callUser.getTenantId());
+            invalidateStorage(callUser.getTenantId(), storageId);
             StorageUpdateResponse response = StorageUpdateResponse.newBuilder().setStorage(storage).build();
             responseObserver.onNext(response);
             responseObserver.onCompleted();
@@ -138,7 +177,14 @@ public class StorageServiceHandler extends StorageServiceGrpc.StorageServiceImpl
 
             CustosUtils.deleteStorageEntity(custosClientProvider, callUser.getTenantId(), request.getStorageId());
 
+            // Resources of the storage keep it in their ancestry, and the access its shares granted, until refreshed
+            List<String> orphaned = this.ancestryIndex.getResourcesUnder(callUser.getTenantId(), id);
             this.neo4JConnector.deleteNode(StorageConstants.STORAGE_LABEL, id, callUser.getTenantId());
+            this.ancestryIndex.refreshResources(callUser.getTenantId(), orphaned);
+            this.accessIndex.refreshResources(callUser.getTenantId(), orphaned);
+            this.accessDecisionCache.invalidateResources(callUser.getTenantId(), orphaned);
+            this.accessInvalidationPublisher.publishResources(callUser.getTenantId(), orphaned);
+            invalidateStorage(callUser.getTenantId(), id);
             responseObserver.onNext(Empty.newBuilder().build());
             responseObserver.onCompleted();
         } catch (Exception ex) {
@@ -237,6 +283,7 @@ public class StorageServiceHandler extends StorageServiceGrpc.StorageServiceImpl
                             " Merge (tm)<-[:TRANSFER_OUT]-(srcSp)" +
                             " return (tm)";
                     this.neo4JConnector.runTransactionalQuery(properties, query);
+                    this.transferMappingCatalog.invalidate(authenticatedUser.getTenantId());
 
                     String searchQuery = " Match (srcStr:Storage)-[:TRANSFER_OUT]->(tm:TransferMapping)" +
                             " where " +
@@ -251,10 +298,8 @@ public class StorageServiceHandler extends StorageServiceGrpc.StorageServiceImpl
                 String sourceId = null;
 
                 if (sourceStorage.getSshStorage() == null || sourceStorage.getSshStorage().getStorageId().isEmpty()) {
-                    String query = " Match (srcStr:Storage)-[:TRANSFER_OUT]->(tm:TransferMapping) where tm.tenantId=$tenantId AND tm.scope='GLOBAL' " +
-                            " AND srcStr.tenantId=$tenantId return srcStr, tm";
-                    List<Record> sourceRecords = this.neo4JConnector.searchNodes(properties, query);
-                    List<TransferMapping> sourceTransfers = TransferMappingDeserializer.deserializeListExceptDestinationStorage(sourceRecords);
+                    List<TransferMapping> sourceTransfers = this.transferMappingCatalog
+                            .getGlobalSources(authenticatedUser.getTenantId());
                     if (sourceTransfers.isEmpty()) {
                         String msg = "Errored while creating transfer mapping; Message: Cannot find global source storage ";
                         logger.error("Errored while creating transfer mapping; Message: Cannot find global source storage ");
@@ -296,6 +341,7 @@ public class StorageServiceHandler extends StorageServiceGrpc.StorageServiceImpl
                             " Merge (tm)<-[:TRANSFER_OUT]-(srcSp)" +
                             " Merge (tm)-[:TRANSFER_IN]->(dstSp) return (tm)";
                     this.neo4JConnector.runTransactionalQuery(properties, query);
+                    this.transferMappingCatalog.invalidate(authenticatedUser.getTenantId());
 
                     String searchQuery = " Match (srcStr:Storage)-[:TRANSFER_OUT]->(tm:TransferMapping)" +
                             "-[:TRANSFER_IN]->(dstStr:Storage)  where " +
@@ -330,26 +376,10 @@ public class StorageServiceHandler extends StorageServiceGrpc.StorageServiceImpl
     @Override
     public void getTransferMappings(FindTransferMappingsRequest request, StreamObserver<FindTransferMappingsResponse> responseObserver) {
         try {
-            List<TransferMapping> transferMappings = new ArrayList<>();
             AuthenticatedUser authenticatedUser = request.getAuthToken().getAuthenticatedUser();
-            Map<String, Object> properties = new HashMap<>();
-            properties.put("username", authenticatedUser.getUsername());
-            properties.put("tenantId", authenticatedUser.getTenantId());
-            properties.put("scope", TransferScope.USER.name());
-            String query = " MATCH (u:User)-[:HAS_TRANSFER_MAPPING]->(t:TransferMapping{scope:$scope}) where u.username = $username AND u.tenantId = $tenantId" +
-                    " Match (srcStr:Storage)-[:TRANSFER_OUT]->(t)-[:TRANSFER_IN]->(dstStr:Storage)" +
-                    " return srcStr,  dstStr,  t";
-            List<Record> records = this.neo4JConnector.searchNodes(properties, query);
-            properties.put("scope", TransferScope.GLOBAL.name());
-            String queryFetchGlobal = "Match (srcStr:Storage)-[:TRANSFER_OUT]->(t:TransferMapping{scope:$scope, tenantId:$tenantId})-[:TRANSFER_IN]->(dstStr:Storage)" +
-                    " return srcStr,  dstStr,  t";
-            List<Record> globalRecords = this.neo4JConnector.searchNodes(properties, queryFetchGlobal);
-            if (!records.isEmpty()) {
-                transferMappings = TransferMappingDeserializer.deserializeList(records);
-            }
-            if (!globalRecords.isEmpty()) {
-                transferMappings.addAll(TransferMappingDeserializer.deserializeList(globalRecords));
-            }
+            List<TransferMapping> transferMappings = new ArrayList<>(this.transferMappingCatalog
+                    .getUserMappings(authenticatedUser.getTenantId(), authenticatedUser.getUsername()));
+            transferMappings.addAll(this.transferMappingCatalog.getGlobal(authenticatedUser.getTenantId()));
             FindTransferMappingsResponse findTransferMappingsResponse = FindTransferMappingsResponse
                     .newBuilder()
                     .addAllMappings(transferMappings)
@@ -377,6 +407,7 @@ public class StorageServiceHandler extends StorageServiceGrpc.StorageServiceImpl
                     "(t:TransferMapping{entityId:$entityId})" +
                     " where u.username = $username AND u.tenantId = $tenantId detach delete t";
             this.neo4JConnector.runTransactionalQuery(properties, query);
+            this.transferMappingCatalog.invalidate(authenticatedUser.getTenantId());
             responseObserver.onNext(Empty.newBuilder().build());
             responseObserver.onCompleted();
 
@@ -388,6 +419,15 @@ public class StorageServiceHandler extends StorageServiceGrpc.StorageServiceImpl
     }
 
 
+    /**
+     * Storage preferences and transfer mappings embed their storage, so they are dropped with it
+     */
+    private void invalidateStorage(String tenantId, String storageId) {
+        this.storageCatalogCache.invalidate(EntityType.STORAGE, tenantId, storageId);
+        this.storageCatalogCache.invalidateType(EntityType.STORAGE_PREFERENCE, tenantId);
+        this.transferMappingCatalog.invalidate(tenantId);
+    }
+
     private String getStorageId(AnyStorage storage) {
         if (storage.getStorageCase()
                 .equals(AnyStorage.StorageCase.S3_STORAGE)) {
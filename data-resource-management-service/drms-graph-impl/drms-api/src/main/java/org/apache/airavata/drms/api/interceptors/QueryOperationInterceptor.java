@@ -0,0 +1,71 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.airavata.drms.api.interceptors;
+
+import io.grpc.*;
+import org.apache.airavata.drms.core.profiling.QueryProfiler;
+
+/**
+ * Names the Neo4j queries issued while serving a call after the called method, for example fetchResource, so
+ * {@link QueryProfiler} reports them per RPC. Queries run on other threads, such as the storage fan out of
+ * searches, are reported under their template name only.
+ */
+public class QueryOperationInterceptor implements ServerInterceptor {
+
+    @Override
+    public <ReqT, RespT> ServerCall.Listener<ReqT> interceptCall(ServerCall<ReqT, RespT> serverCall,
+                                                                 Metadata metadata,
+                                                                 ServerCallHandler<ReqT, RespT> serverCallHandler) {
+        String operation = operationName(serverCall.getMethodDescriptor().getFullMethodName());
+
+        String previous = QueryProfiler.enterOperation(operation);
+        ServerCall.Listener<ReqT> listener;
+        try {
+            listener = serverCallHandler.startCall(serverCall, metadata);
+        } finally {
+            QueryProfiler.exitOperation(previous);
+        }
+
+        return new ForwardingServerCallListener.SimpleForwardingServerCallListener<ReqT>(listener) {
+
+            @Override
+            public void onMessage(ReqT message) {
+                String previous = QueryProfiler.enterOperation(operation);
+                try {
+                    super.onMessage(message);
+                } finally {
+                    QueryProfiler.exitOperation(previous);
+                }
+            }
+
+            @Override
+            public void onHalfClose() {
+                String previous = QueryProfiler.enterOperation(operation);
+                try {
+                    super.onHalfClose();
+                } finally {
+                    QueryProfiler.exitOperation(previous);
+                }
+            }
+        };
+    }
+
+    private static String operationName(String fullMethodName) {
+        String method = fullMethodName.substring(fullMethodName.lastIndexOf('/') + 1);
+        return method.isEmpty() ? method : Character.toLowerCase(method.charAt(0)) + method.substring(1);
+    }
+}
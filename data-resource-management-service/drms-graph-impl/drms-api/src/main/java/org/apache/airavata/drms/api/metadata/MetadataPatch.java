@@ -0,0 +1,131 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.airavata.drms.api.metadata;
+
+import com.google.protobuf.Struct;
+import com.google.protobuf.Value;
+import com.google.protobuf.util.JsonFormat;
+import org.apache.airavata.drms.core.constants.ResourceConstants;
+import org.apache.airavata.drms.core.metadata.MetadataCodec;
+import org.apache.airavata.drms.core.metadata.MetadataDocument;
+import org.apache.airavata.drms.core.query.FullTextQuery;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * Parameters of {@link org.apache.airavata.drms.core.query.CypherTemplates#PATCH_METADATA} for a top level JSON
+ * Merge Patch of a resource metadata document. Besides the document entries, a patch rewrites the per key
+ * projections searches run against: scalar and list values are set on the resource node, and every object value
+ * replaces the METADATA_NODE tree of its key.
+ */
+public class MetadataPatch {
+
+    public static final String JSON_IDENTIFIER = "DATA_LAKE_METADATA_NODE_JSON_IDENTIFIER";
+
+    private final Map<String, Object> properties = new HashMap<>();
+    private final Map<String, Object> entries = new HashMap<>();
+    private final List<Map<String, Object>> metadataNodes = new ArrayList<>();
+    private final List<String> replacedKeys = new ArrayList<>();
+    private final MetadataCodec codec;
+    private final Set<String> searchTextExcludedKeys;
+
+    /**
+     * @param patch         top level keys to values, null values removing the key
+     * @param codec         encoding of the document entries
+     * @param protectedKeys resource node properties which a removed key must not delete
+     */
+    public MetadataPatch(Struct patch, MetadataCodec codec, Set<String> protectedKeys,
+                         Set<String> searchTextExcludedKeys) throws IOException {
+        this.codec = codec;
+        this.searchTextExcludedKeys = searchTextExcludedKeys;
+        for (Map.Entry<String, Value> field : patch.getFieldsMap().entrySet()) {
+            boolean removed = field.getValue().getKindCase() == Value.KindCase.NULL_VALUE;
+            entries.put(MetadataDocument.ENTRY_PREFIX + field.getKey(), removed ? null : codec.encode(field.getValue()));
+        }
+
+        Map<String, Object> values = new JSONObject(JsonFormat.printer().print(patch)).toMap();
+        for (Map.Entry<String, Object> entry : values.entrySet()) {
+            String key = entry.getKey();
+            Object value = entry.getValue();
+            replacedKeys.add(key);
+            if (value instanceof Map) {
+                addMetadataNode(key, (Map<String, Object>) value, null);
+                if (!protectedKeys.contains(key)) {
+                    properties.put(key, null);
+                }
+            } else if (value instanceof List) {
+                properties.put(key, value);
+            } else if (value != null) {
+                properties.put(key, String.valueOf(value));
+            } else if (!protectedKeys.contains(key)) {
+                properties.put(key, null);
+            }
+        }
+        // Bumped by the patch itself, so a metadata key of that name is only kept in the document
+        properties.remove(ResourceConstants.RESOURCE_VERSION);
+    }
+
+    /**
+     * @param expectedVersion null to apply the patch whatever the current version is
+     */
+    public Map<String, Object> toParameters(String resourceId, String type, String tenantId, Long expectedVersion) {
+        Map<String, Object> parameters = new HashMap<>();
+        parameters.put("resourceId", resourceId);
+        parameters.put("type", type);
+        parameters.put("tenantId", tenantId);
+        parameters.put("expectedVersion", expectedVersion);
+        parameters.put("codec", codec.getName());
+        parameters.put("properties", properties);
+        parameters.put("entries", entries);
+        parameters.put("metadataNodes", metadataNodes);
+        parameters.put("replacedKeys", replacedKeys);
+        return parameters;
+    }
+
+    /**
+     * Nodes are listed before their children, which the template relies on to link them
+     */
+    private void addMetadataNode(String key, Map<String, Object> values, String parentId) {
+        String entityId = UUID.randomUUID().toString();
+        Map<String, Object> nodeValues = new HashMap<>();
+        nodeValues.put(JSON_IDENTIFIER, key);
+        nodeValues.putAll(values);
+
+        Map<String, Object> nodeProperties = new HashMap<>();
+        for (Map.Entry<String, Object> value : nodeValues.entrySet()) {
+            if (value.getValue() instanceof List) {
+                nodeProperties.put(value.getKey(), value.getValue());
+            } else if (value.getValue() != null && !(value.getValue() instanceof Map)) {
+                nodeProperties.put(value.getKey(), String.valueOf(value.getValue()));
+            }
+        }
+        Map<String, Object> node = new HashMap<>();
+        node.put("entityId", entityId);
+        node.put("parentId", parentId);
+        node.put("properties", nodeProperties);
+        node.put("searchText", FullTextQuery.searchText(nodeValues, searchTextExcludedKeys));
+        metadataNodes.add(node);
+
+        for (Map.Entry<String, Object> value : values.entrySet()) {
+            if (value.getValue() instanceof Map) {
+                addMetadataNode(value.getKey(), (Map<String, Object>) value.getValue(), entityId);
+            }
+        }
+    }
+}
@@ -0,0 +1,183 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.airavata.drms.api.metadata;
+
+import org.apache.airavata.drms.core.Neo4JConnector;
+import org.apache.airavata.drms.core.metadata.MetadataCodec;
+import org.apache.airavata.drms.core.metadata.MetadataCodecs;
+import org.apache.airavata.drms.core.metadata.MetadataDocument;
+import org.apache.airavata.drms.core.query.CypherTemplates;
+import org.apache.airavata.drms.core.query.NodeLabel;
+import org.neo4j.driver.Record;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Reads and recodes FULL_METADATA_NODE documents. New entries are written with the configured codec, and documents
+ * of another codec or still stored as a single JSON string are recoded when they are next patched, or all at once by
+ * {@link #migrate(int)}, optionally run in the background on startup.
+ */
+@Component
+@DependsOn("schemaMigrationRunner")
+public class MetadataStorage {
+
+    private static final Logger logger = LoggerFactory.getLogger(MetadataStorage.class);
+
+    @Autowired
+    private Neo4JConnector neo4JConnector;
+
+    @Value("${drms.metadata.codec:json}")
+    private String codecName;
+
+    @Value("${drms.metadata.codec.migrate.on.startup:false}")
+    private boolean migrateOnStartup;
+
+    @Value("${drms.metadata.codec.migrate.batch.size:500}")
+    private int migrationBatchSize;
+
+    private MetadataCodec codec;
+
+    private final AtomicLong recoded = new AtomicLong();
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "drms-metadata-migration");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @PostConstruct
+    public void start() {
+        codec = MetadataCodecs.of(codecName);
+        if (migrateOnStartup) {
+            executor.execute(() -> {
+                try {
+                    migrate(migrationBatchSize);
+                } catch (Exception ex) {
+                    logger.error("Error occurred while recoding metadata documents to {}", codecName, ex);
+                }
+            });
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        executor.shutdownNow();
+    }
+
+    public MetadataCodec getCodec() {
+        return codec;
+    }
+
+    /**
+     * @return documents recoded since startup
+     */
+    public long getRecoded() {
+        return recoded.get();
+    }
+
+    /**
+     * @param type resource label, or null for any resource
+     * @return FULL_METADATA_NODEs of the resource, or null if there is no such resource
+     */
+    public List<MetadataDocument> read(String resourceId, String type, String tenantId) {
+        Map<String, Object> parameters = new HashMap<>();
+        parameters.put("resourceId", resourceId);
+        parameters.put("tenantId", tenantId);
+        parameters.put("type", type);
+        List<Record> records = this.neo4JConnector.searchNodes(CypherTemplates.FULL_METADATA, parameters,
+                NodeLabel.RESOURCE);
+        if (records.isEmpty()) {
+            return null;
+        }
+        List<MetadataDocument> documents = new ArrayList<>();
+        for (Record record : records) {
+            if (!record.get("m").isNull()) {
+                documents.add(new MetadataDocument(record.get("nodeId").asLong(), record.get("m").asNode().asMap()));
+            }
+        }
+        return documents;
+    }
+
+    /**
+     * Rewrites the documents as entries of the configured codec, skipping documents changed since they were read
+     *
+     * @return number of documents recoded
+     */
+    public int recode(Collection<MetadataDocument> documents) throws IOException {
+        List<Map<String, Object>> rows = new ArrayList<>(documents.size());
+        for (MetadataDocument document : documents) {
+            Map<String, Object> row = new HashMap<>();
+            row.put("nodeId", document.getNodeId());
+            row.put("version", document.getStoredVersion());
+            row.put("codec", document.getCodecName());
+            row.put("entries", document.encodeEntries(codec));
+            rows.add(row);
+        }
+        if (rows.isEmpty()) {
+            return 0;
+        }
+        Map<String, Object> parameters = new HashMap<>();
+        parameters.put("rows", rows);
+        parameters.put("codec", codec.getName());
+        List<Record> records = this.neo4JConnector.runTransactionalQuery(CypherTemplates.RECODE_METADATA,
+                parameters, NodeLabel.RESOURCE);
+        int count = records.isEmpty() ? 0 : records.get(0).get("recoded").asInt();
+        recoded.addAndGet(count);
+        return count;
+    }
+
+    /**
+     * Recodes every document not yet stored with the configured codec, batchSize documents per transaction
+     *
+     * @return number of documents recoded
+     */
+    public long migrate(int batchSize) throws IOException {
+        long total = 0;
+        while (true) {
+            Map<String, Object> parameters = new HashMap<>();
+            parameters.put("codec", codec.getName());
+            parameters.put("limit", batchSize);
+            List<Record> records = this.neo4JConnector.searchNodes(CypherTemplates.METADATA_TO_RECODE, parameters,
+                    NodeLabel.RESOURCE);
+            List<MetadataDocument> documents = new ArrayList<>(records.size());
+            for (Record record : records) {
+                documents.add(new MetadataDocument(record.get("nodeId").asLong(), record.get("m").asNode().asMap()));
+            }
+            int count = recode(documents);
+            total += count;
+            // Documents patched while the batch was encoded are skipped and picked up again by the next batch,
+            // but a batch recoding nothing would only be read again
+            if (records.size() < batchSize || count == 0) {
+                break;
+            }
+        }
+        logger.info("Recoded {} metadata documents to {}", total, codec.getName());
+        return total;
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.airavata.drms.api.metrics;
+
+import org.apache.airavata.drms.api.accesscache.AccessDecisionCache;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Component;
+
+/**
+ * Publishes access decision cache counters over JMX
+ */
+@Component
+@ManagedResource(objectName = "org.apache.airavata.drms:type=Cache,name=AccessDecisions")
+public class AccessDecisionCacheMetricsExporter {
+
+    @Autowired
+    private AccessDecisionCache accessDecisionCache;
+
+    @ManagedAttribute
+    public long getHits() {
+        return accessDecisionCache.getHits();
+    }
+
+    @ManagedAttribute
+    public long getMisses() {
+        return accessDecisionCache.getMisses();
+    }
+
+    @ManagedAttribute
+    public double getHitRatio() {
+        long hits = accessDecisionCache.getHits();
+        long total = hits + accessDecisionCache.getMisses();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    @ManagedAttribute
+    public long getEvictions() {
+        return accessDecisionCache.getEvictions();
+    }
+
+    @ManagedAttribute
+    public long getInvalidations() {
+        return accessDecisionCache.getInvalidations();
+    }
+
+    @ManagedAttribute
+    public long getInvalidatedEntries() {
+        return accessDecisionCache.getInvalidatedEntries();
+    }
+
+    @ManagedAttribute
+    public int getSize() {
+        return accessDecisionCache.getSize();
+    }
+
+    @ManagedAttribute
+    public boolean isEnabled() {
+        return accessDecisionCache.isEnabled();
+    }
+
+    @ManagedOperation
+    public void clear() {
+        accessDecisionCache.clear();
+    }
+}
@@ -0,0 +1,50 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.airavata.drms.api.metrics;
+
+import org.apache.airavata.drms.api.metadata.MetadataStorage;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Component;
+
+/**
+ * Publishes the metadata document codec over JMX and lets operators recode the remaining documents to it
+ */
+@Component
+@ManagedResource(objectName = "org.apache.airavata.drms:type=Metadata,name=Storage")
+public class MetadataStorageMetricsExporter {
+
+    @Autowired
+    private MetadataStorage metadataStorage;
+
+    @ManagedAttribute
+    public String getCodec() {
+        return metadataStorage.getCodec().getName();
+    }
+
+    @ManagedAttribute
+    public long getRecodedDocuments() {
+        return metadataStorage.getRecoded();
+    }
+
+    @ManagedOperation
+    public long migrate(int batchSize) throws Exception {
+        return metadataStorage.migrate(batchSize);
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.airavata.drms.api.metrics;
+
+import org.apache.airavata.drms.core.Neo4JConnector;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Component;
+
+/**
+ * Publishes the Neo4j connection pool status over JMX
+ */
+@Component
+@ManagedResource(objectName = "org.apache.airavata.drms:type=Neo4j,name=ConnectionPool")
+public class Neo4JPoolMetricsExporter {
+
+    @Autowired
+    private Neo4JConnector neo4JConnector;
+
+    @ManagedAttribute
+    public int getInUse() {
+        return neo4JConnector.getPoolMetrics().getInUse();
+    }
+
+    @ManagedAttribute
+    public int getIdle() {
+        return neo4JConnector.getPoolMetrics().getIdle();
+    }
+
+    @ManagedAttribute
+    public int getAcquiring() {
+        return neo4JConnector.getPoolMetrics().getAcquiring();
+    }
+
+    @ManagedAttribute
+    public long getTimedOutToAcquire() {
+        return neo4JConnector.getPoolMetrics().getTimedOutToAcquire();
+    }
+
+    @ManagedAttribute
+    public double getAverageAcquisitionWaitMs() {
+        return neo4JConnector.getPoolMetrics().getAverageAcquisitionWaitMs();
+    }
+
+    @ManagedAttribute
+    public long getDriverRebuilds() {
+        return neo4JConnector.getPoolMetrics().getDriverRebuilds();
+    }
+
+    @ManagedAttribute
+    public boolean isHealthy() {
+        return neo4JConnector.isOpen();
+    }
+}
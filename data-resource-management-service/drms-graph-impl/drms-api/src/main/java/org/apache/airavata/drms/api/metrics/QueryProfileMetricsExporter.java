@@ -0,0 +1,112 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.airavata.drms.api.metrics;
+
+import org.apache.airavata.drms.core.Neo4JConnector;
+import org.apache.airavata.drms.core.profiling.QueryStats;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Publishes per query latency, row and db hit statistics over JMX
+ */
+@Component
+@ManagedResource(objectName = "org.apache.airavata.drms:type=Neo4j,name=QueryProfiles")
+public class QueryProfileMetricsExporter {
+
+    @Autowired
+    private Neo4JConnector neo4JConnector;
+
+    @ManagedAttribute
+    public List<String> getQueryNames() {
+        List<String> names = new ArrayList<>();
+        for (QueryStats stats : neo4JConnector.getQueryProfiler().getStats()) {
+            names.add(stats.getName());
+        }
+        return names;
+    }
+
+    /**
+     * One line per query, most total time first
+     */
+    @ManagedAttribute
+    public String getReport() {
+        StringBuilder report = new StringBuilder();
+        for (QueryStats stats : neo4JConnector.getQueryProfiler().getStats()) {
+            report.append(String.format(Locale.ROOT,
+                    "%s count=%d failures=%d slow=%d rows=%d total=%.1fms avg=%.2fms p50=%.0fms p95=%.0fms" +
+                            " p99=%.0fms max=%.1fms dbHits=%.0f%n",
+                    stats.getName(), stats.getCount(), stats.getFailures(), stats.getSlowCount(), stats.getRows(),
+                    stats.getTotalMillis(), stats.getAverageMillis(), stats.getPercentileMillis(50),
+                    stats.getPercentileMillis(95), stats.getPercentileMillis(99), stats.getMaxMillis(),
+                    stats.getAverageProfiledDbHits()));
+        }
+        return report.toString();
+    }
+
+    @ManagedOperation
+    public String describe(String queryName) {
+        QueryStats stats = neo4JConnector.getQueryProfiler().getStats(queryName);
+        if (stats == null) {
+            return null;
+        }
+        StringBuilder histogram = new StringBuilder();
+        long[] buckets = stats.getHistogram();
+        for (int i = 0; i < buckets.length; i++) {
+            histogram.append(i < QueryStats.BUCKET_BOUNDS_MS.length ? "<" + QueryStats.BUCKET_BOUNDS_MS[i] + "ms"
+                    : ">=" + QueryStats.BUCKET_BOUNDS_MS[i - 1] + "ms").append('=').append(buckets[i]).append(' ');
+        }
+        return String.format(Locale.ROOT, "%s%ncount=%d rows=%d p50=%.0fms p95=%.0fms p99=%.0fms%n%s%n" +
+                        "profiles=%d avgDbHits=%.0f lastDbHits=%d%n%s",
+                stats.getName(), stats.getCount(), stats.getRows(), stats.getPercentileMillis(50),
+                stats.getPercentileMillis(95), stats.getPercentileMillis(99), histogram.toString().trim(),
+                stats.getProfiles(), stats.getAverageProfiledDbHits(), stats.getLastProfiledDbHits(),
+                stats.getStatement());
+    }
+
+    @ManagedOperation
+    public void reset() {
+        neo4JConnector.getQueryProfiler().reset();
+    }
+
+    @ManagedAttribute
+    public long getSlowQueryThresholdMillis() {
+        return neo4JConnector.getQueryProfiler().getSlowQueryThresholdMillis();
+    }
+
+    @ManagedAttribute
+    public void setSlowQueryThresholdMillis(long slowQueryThresholdMillis) {
+        neo4JConnector.getQueryProfiler().setSlowQueryThresholdMillis(slowQueryThresholdMillis);
+    }
+
+    @ManagedAttribute
+    public boolean isProfileSlowQueries() {
+        return neo4JConnector.getQueryProfiler().isProfileSlowQueries();
+    }
+
+    @ManagedAttribute
+    public void setProfileSlowQueries(boolean profileSlowQueries) {
+        neo4JConnector.getQueryProfiler().setProfileSlowQueries(profileSlowQueries);
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.airavata.drms.api.metrics;
+
+import org.apache.airavata.drms.api.write.ResourceWritePipeline;
+import org.apache.airavata.drms.api.write.WritePhaseStats;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Component;
+
+import java.util.Locale;
+
+/**
+ * Publishes per phase latencies of single resource writes over JMX
+ */
+@Component
+@ManagedResource(objectName = "org.apache.airavata.drms:type=Resources,name=WritePipeline")
+public class ResourceWriteMetricsExporter {
+
+    @Autowired
+    private ResourceWritePipeline resourceWritePipeline;
+
+    /**
+     * One line per phase, in pipeline order
+     */
+    @ManagedAttribute
+    public String getReport() {
+        StringBuilder report = new StringBuilder();
+        for (WritePhaseStats stats : resourceWritePipeline.getStats()) {
+            report.append(String.format(Locale.ROOT, "%s count=%d failures=%d avg=%.2fms max=%.1fms%n",
+                    stats.getPhase(), stats.getCount(), stats.getFailures(), stats.getAverageMillis(),
+                    stats.getMaxMillis()));
+        }
+        return report.toString();
+    }
+
+    @ManagedAttribute
+    public long getCompensations() {
+        return phase(ResourceWritePipeline.COMPENSATION_PHASE).getCount();
+    }
+
+    @ManagedAttribute
+    public double getCustosAverageMillis() {
+        return phase(ResourceWritePipeline.CUSTOS_PHASE).getAverageMillis();
+    }
+
+    @ManagedAttribute
+    public double getGraphAverageMillis() {
+        return phase(ResourceWritePipeline.GRAPH_PHASE).getAverageMillis();
+    }
+
+    @ManagedAttribute
+    public double getTotalAverageMillis() {
+        return phase(ResourceWritePipeline.TOTAL_PHASE).getAverageMillis();
+    }
+
+    @ManagedOperation
+    public void reset() {
+        resourceWritePipeline.reset();
+    }
+
+    private WritePhaseStats phase(String name) {
+        for (WritePhaseStats stats : resourceWritePipeline.getStats()) {
+            if (stats.getPhase().equals(name)) {
+                return stats;
+            }
+        }
+        throw new IllegalArgumentException("Unknown write phase " + name);
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.airavata.drms.api.metrics;
+
+import org.apache.airavata.drms.api.dboperation.SchemaMigrationRunner;
+import org.apache.airavata.drms.core.schema.IndexStatus;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Publishes graph schema version and index state over JMX. Neo4j 4.3 does not expose per index usage counters,
+ * so state and population progress are reported instead.
+ */
+@Component
+@ManagedResource(objectName = "org.apache.airavata.drms:type=Neo4j,name=Schema")
+public class SchemaMetricsExporter {
+
+    @Autowired
+    private SchemaMigrationRunner schemaMigrationRunner;
+
+    @ManagedAttribute
+    public int getAppliedVersion() {
+        return schemaMigrationRunner.getSchemaMigrationManager().getAppliedVersion();
+    }
+
+    @ManagedAttribute
+    public int getLatestVersion() {
+        return schemaMigrationRunner.getSchemaMigrationManager().getLatestVersion();
+    }
+
+    @ManagedAttribute
+    public boolean isHealthy() {
+        return schemaMigrationRunner.getSchemaMigrationManager().isHealthy();
+    }
+
+    @ManagedAttribute
+    public long getOnlineIndexCount() {
+        return getIndexes().stream().filter(IndexStatus::isOnline).count();
+    }
+
+    @ManagedAttribute
+    public long getPopulatingIndexCount() {
+        return getIndexes().stream().filter(index -> !index.isOnline() && !index.isFailed()).count();
+    }
+
+    @ManagedAttribute
+    public long getFailedIndexCount() {
+        return getIndexes().stream().filter(IndexStatus::isFailed).count();
+    }
+
+    @ManagedAttribute
+    public String[] getIndexStatus() {
+        List<String> report = getIndexes().stream().map(IndexStatus::toString).collect(Collectors.toList());
+        return report.toArray(new String[0]);
+    }
+
+    private List<IndexStatus> getIndexes() {
+        return schemaMigrationRunner.getSchemaMigrationManager().getIndexes();
+    }
+}
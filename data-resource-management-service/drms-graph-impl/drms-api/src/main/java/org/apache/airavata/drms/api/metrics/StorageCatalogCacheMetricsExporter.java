@@ -0,0 +1,115 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.airavata.drms.api.metrics;
+
+import org.apache.airavata.drms.api.storagecache.StorageCatalogCache;
+import org.apache.airavata.drms.api.storagecache.StorageCatalogCache.EntityType;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Component;
+
+/**
+ * Publishes storage catalog cache counters over JMX, per cached entity type
+ */
+@Component
+@ManagedResource(objectName = "org.apache.airavata.drms:type=Cache,name=StorageCatalog")
+public class StorageCatalogCacheMetricsExporter {
+
+    @Autowired
+    private StorageCatalogCache storageCatalogCache;
+
+    @ManagedAttribute
+    public double getStorageHitRatio() {
+        return getHitRatio(EntityType.STORAGE);
+    }
+
+    @ManagedAttribute
+    public long getStorageMisses() {
+        return storageCatalogCache.getMisses(EntityType.STORAGE);
+    }
+
+    @ManagedAttribute
+    public int getStorageSize() {
+        return storageCatalogCache.getSize(EntityType.STORAGE);
+    }
+
+    @ManagedAttribute
+    public double getStoragePreferenceHitRatio() {
+        return getHitRatio(EntityType.STORAGE_PREFERENCE);
+    }
+
+    @ManagedAttribute
+    public long getStoragePreferenceMisses() {
+        return storageCatalogCache.getMisses(EntityType.STORAGE_PREFERENCE);
+    }
+
+    @ManagedAttribute
+    public int getStoragePreferenceSize() {
+        return storageCatalogCache.getSize(EntityType.STORAGE_PREFERENCE);
+    }
+
+    @ManagedAttribute
+    public double getTransferMappingHitRatio() {
+        return getHitRatio(EntityType.TRANSFER_MAPPING);
+    }
+
+    @ManagedAttribute
+    public long getTransferMappingMisses() {
+        return storageCatalogCache.getMisses(EntityType.TRANSFER_MAPPING);
+    }
+
+    @ManagedAttribute
+    public int getTransferMappingSize() {
+        return storageCatalogCache.getSize(EntityType.TRANSFER_MAPPING);
+    }
+
+    @ManagedAttribute
+    public long getEvictions() {
+        long evictions = 0;
+        for (EntityType type : EntityType.values()) {
+            evictions += storageCatalogCache.getEvictions(type);
+        }
+        return evictions;
+    }
+
+    @ManagedAttribute
+    public long getInvalidatedEntries() {
+        long invalidated = 0;
+        for (EntityType type : EntityType.values()) {
+            invalidated += storageCatalogCache.getInvalidatedEntries(type);
+        }
+        return invalidated;
+    }
+
+    @ManagedAttribute
+    public boolean isEnabled() {
+        return storageCatalogCache.isEnabled();
+    }
+
+    @ManagedOperation
+    public void clear() {
+        storageCatalogCache.clear();
+    }
+
+    private double getHitRatio(EntityType type) {
+        long hits = storageCatalogCache.getHits(type);
+        long total = hits + storageCatalogCache.getMisses(type);
+        return total == 0 ? 0 : (double) hits / total;
+    }
+}
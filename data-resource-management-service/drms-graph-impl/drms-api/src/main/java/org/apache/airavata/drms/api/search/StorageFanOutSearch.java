@@ -0,0 +1,197 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.airavata.drms.api.search;
+
+import org.apache.airavata.datalake.drms.resource.GenericResource;
+import org.apache.airavata.drms.core.Neo4JConnector;
+import org.apache.airavata.drms.core.deserializer.GenericResourceDeserializer;
+import org.neo4j.driver.Record;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs a keyset paginated listing against several storages concurrently and merges the partial results in
+ * entityId order. Every storage is read in pages of a share of the requested window, and a further page of a
+ * storage is only fetched when the merge runs out of its records, so storages holding few of the first results
+ * cost one small query. Queries still queued or running once the window is filled are cancelled.
+ * <p>
+ * The listing query has to order by r.entityId and take $cursor and $limit, like the LISTING_PAGE templates.
+ */
+@Component
+public class StorageFanOutSearch {
+
+    private static final int MIN_SOURCE_PAGE_SIZE = 25;
+
+    @Autowired
+    private Neo4JConnector neo4JConnector;
+
+    @Value("${drms.search.fanout.parallelism:8}")
+    private int parallelism;
+
+    @Value("${drms.search.fanout.queue.capacity:1000}")
+    private int queueCapacity;
+
+    @Value("${drms.search.fanout.timeout.seconds:60}")
+    private long timeoutSeconds;
+
+    private ThreadPoolExecutor executor;
+
+    @PostConstruct
+    public void start() {
+        AtomicInteger threadCount = new AtomicInteger();
+        // A saturated pool runs the storage query on the calling gRPC thread instead of failing the search
+        executor = new ThreadPoolExecutor(parallelism, parallelism, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+            Thread thread = new Thread(runnable, "drms-search-fanout-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }, new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    @PreDestroy
+    public void stop() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * @param query   keyset paginated listing
+     * @param sources complete parameters of the query for each storage, without $cursor and $limit
+     * @param keys    node and relationship keys of the query
+     * @return at most limit resources after the first offset ones, in entityId order
+     */
+    public List<GenericResource> search(String query, List<Map<String, Object>> sources, List<String> keys,
+                                        int offset, int limit) throws Exception {
+        // Offset and limit come from the client, so their sum may not fit an int
+        int window = (int) Math.min(Integer.MAX_VALUE, (long) offset + limit);
+        int pageSize = Math.min(window, Math.max(MIN_SOURCE_PAGE_SIZE, window / Math.max(1, sources.size()) + 1));
+
+        List<Source> openSources = new ArrayList<>(sources.size());
+        for (Map<String, Object> parameters : sources) {
+            Source source = new Source(query, parameters, keys, pageSize);
+            source.fetchNext();
+            openSources.add(source);
+        }
+
+        List<GenericResource> merged = new ArrayList<>(Math.min(window, 1024));
+        String lastId = null;
+        try {
+            while (merged.size() < window) {
+                Source next = null;
+                for (Iterator<Source> iterator = openSources.iterator(); iterator.hasNext(); ) {
+                    Source source = iterator.next();
+                    GenericResource head = source.peek();
+                    if (head == null) {
+                        iterator.remove();
+                    } else if (next == null || head.getResourceId().compareTo(next.peek().getResourceId()) < 0) {
+                        next = source;
+                    }
+                }
+                if (next == null) {
+                    break;
+                }
+                GenericResource resource = next.poll();
+                // A resource reachable from two storages is listed by both
+                if (!resource.getResourceId().equals(lastId)) {
+                    merged.add(resource);
+                    lastId = resource.getResourceId();
+                }
+            }
+        } finally {
+            for (Source source : openSources) {
+                source.cancel();
+            }
+        }
+        return offset >= merged.size() ? Collections.emptyList() : merged.subList(offset, merged.size());
+    }
+
+    private class Source {
+        private final String query;
+        private final Map<String, Object> parameters;
+        private final List<String> keys;
+        private final int pageSize;
+        private final Deque<GenericResource> buffer = new ArrayDeque<>();
+        private Future<List<GenericResource>> pending;
+        private String lastFetchedId = "";
+        private boolean exhausted;
+
+        private Source(String query, Map<String, Object> parameters, List<String> keys, int pageSize) {
+            this.query = query;
+            this.parameters = parameters;
+            this.keys = keys;
+            this.pageSize = pageSize;
+        }
+
+        private void fetchNext() {
+            Map<String, Object> pageParameters = new HashMap<>(parameters);
+            pageParameters.put("cursor", lastFetchedId);
+            pageParameters.put("limit", pageSize);
+            pending = executor.submit(() -> {
+                List<GenericResource> page = new ArrayList<>();
+                for (Record record : neo4JConnector.searchNodes(pageParameters, query)) {
+                    page.addAll(GenericResourceDeserializer.deserializeRecord(record, keys));
+                }
+                return page;
+            });
+        }
+
+        /**
+         * @return the smallest unmerged resource of this storage, waiting for its page if needed, or null
+         */
+        private GenericResource peek() throws Exception {
+            if (buffer.isEmpty() && !exhausted) {
+                if (pending == null) {
+                    fetchNext();
+                }
+                List<GenericResource> page = awaitPending();
+                exhausted = page.size() < pageSize;
+                if (!page.isEmpty()) {
+                    lastFetchedId = page.get(page.size() - 1).getResourceId();
+                    buffer.addAll(page);
+                }
+            }
+            return buffer.peekFirst();
+        }
+
+        private GenericResource poll() {
+            return buffer.pollFirst();
+        }
+
+        private List<GenericResource> awaitPending() throws Exception {
+            try {
+                return pending.get(timeoutSeconds, TimeUnit.SECONDS);
+            } catch (ExecutionException e) {
+                throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+            } finally {
+                pending = null;
+            }
+        }
+
+        private void cancel() {
+            if (pending != null) {
+                pending.cancel(true);
+            }
+        }
+    }
+}
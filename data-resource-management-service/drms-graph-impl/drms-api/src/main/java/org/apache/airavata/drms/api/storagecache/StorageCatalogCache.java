@@ -0,0 +1,233 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.airavata.drms.api.storagecache;
+
+import org.apache.airavata.drms.api.utils.BoundedTtlCache;
+import org.apache.airavata.drms.core.access.AccessInvalidation;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+/**
+ * Bounded, least recently used read-through cache of storage, storage preference and transfer mapping
+ * projections. Entries are scoped to a tenant and either shared by the whole tenant or, when they depend on what
+ * the caller may see, to a user. The RPCs writing these entities invalidate them; revocations are applied through
+ * {@link AccessInvalidation}s like for the access decision cache, and a TTL bounds anything missed.
+ */
+@Component
+public class StorageCatalogCache {
+
+    public enum EntityType {
+        STORAGE, STORAGE_PREFERENCE, TRANSFER_MAPPING
+    }
+
+    /**
+     * User of the entries shared by a whole tenant
+     */
+    public static final String TENANT_WIDE = "";
+
+    @Value("${drms.storage.cache.max.entries:10000}")
+    private int maxEntries;
+
+    @Value("${drms.storage.cache.ttl.seconds:600}")
+    private long ttlSeconds;
+
+    private final Map<EntityType, Counters> counters = new EnumMap<>(EntityType.class);
+
+    private BoundedTtlCache<Key, Object> entries;
+
+    public StorageCatalogCache() {
+        for (EntityType type : EntityType.values()) {
+            counters.put(type, new Counters());
+        }
+    }
+
+    @PostConstruct
+    public void init() {
+        entries = new BoundedTtlCache<>(maxEntries, ttlSeconds * 1000,
+                key -> counters.get(key.type).evictions.incrementAndGet());
+    }
+
+    /**
+     * Returns the cached projection, or loads and caches it. The loader runs outside the cache lock, so concurrent
+     * misses of the same key may load it more than once. Null and empty {@link Optional} results are returned but
+     * not cached, so an entity becoming visible to a user is seen at once.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(EntityType type, String tenantId, String id, String username, Callable<T> loader)
+            throws Exception {
+        Counters typeCounters = counters.get(type);
+        long generation = entries.getGeneration();
+        Object cached = entries.get(new Key(type, tenantId, id, username));
+        if (cached != null) {
+            typeCounters.hits.incrementAndGet();
+            return (T) cached;
+        }
+        typeCounters.misses.incrementAndGet();
+        T value = loader.call();
+        if (value != null && !(value instanceof Optional && !((Optional<?>) value).isPresent())) {
+            put(type, tenantId, id, username, value, generation);
+        }
+        return value;
+    }
+
+    /**
+     * @return the current generation, to be passed to {@link #put} with a projection loaded afterwards
+     */
+    public long getGeneration() {
+        return entries.getGeneration();
+    }
+
+    /**
+     * Caches a projection unless entries were invalidated since the given generation, in which case it may have
+     * been loaded before the write that invalidated them
+     */
+    public void put(EntityType type, String tenantId, String id, String username, Object value, long generation) {
+        entries.put(new Key(type, tenantId, id, username), value, generation);
+    }
+
+    /**
+     * Drops the entries of an entity for every user of the tenant
+     */
+    public void invalidate(EntityType type, String tenantId, String id) {
+        removeIf(key -> key.type == type && key.tenantId.equals(tenantId) && key.id.equals(id));
+    }
+
+    /**
+     * Drops the entries of an entity of any type, for when only its id is known
+     */
+    public void invalidateEntity(String tenantId, String id) {
+        removeIf(key -> key.tenantId.equals(tenantId) && key.id.equals(id));
+    }
+
+    public void invalidateType(EntityType type, String tenantId) {
+        removeIf(key -> key.type == type && key.tenantId.equals(tenantId));
+    }
+
+    public void invalidate(AccessInvalidation invalidation) {
+        switch (invalidation.getScope()) {
+            case USER:
+                invalidateUser(invalidation.getTenantId(), invalidation.getId());
+                break;
+            case RESOURCE:
+                // Sharing changed on the entity; storage preferences are visible through the shares of their storage
+                removeIf(key -> key.tenantId.equals(invalidation.getTenantId())
+                        && (key.id.equals(invalidation.getId()) || key.type == EntityType.STORAGE_PREFERENCE));
+                break;
+            case TENANT:
+                invalidateTenant(invalidation.getTenantId());
+                break;
+        }
+    }
+
+    public void invalidateUser(String tenantId, String username) {
+        removeIf(key -> key.tenantId.equals(tenantId) && key.username.equals(username));
+    }
+
+    public void invalidateTenant(String tenantId) {
+        removeIf(key -> key.tenantId.equals(tenantId));
+    }
+
+    public void clear() {
+        removeIf(key -> true);
+    }
+
+    /**
+     * Stops caching, for when invalidations can no longer be received
+     */
+    public void disable() {
+        countInvalidated(entries.disable());
+    }
+
+    public boolean isEnabled() {
+        return entries.isEnabled();
+    }
+
+    public long getHits(EntityType type) {
+        return counters.get(type).hits.get();
+    }
+
+    public long getMisses(EntityType type) {
+        return counters.get(type).misses.get();
+    }
+
+    public long getEvictions(EntityType type) {
+        return counters.get(type).evictions.get();
+    }
+
+    public long getInvalidatedEntries(EntityType type) {
+        return counters.get(type).invalidatedEntries.get();
+    }
+
+    public int getSize(EntityType type) {
+        return entries.count(key -> key.type == type);
+    }
+
+    private void removeIf(Predicate<Key> predicate) {
+        countInvalidated(entries.removeIf(predicate));
+    }
+
+    private void countInvalidated(List<Key> keys) {
+        for (Key key : keys) {
+            counters.get(key.type).invalidatedEntries.incrementAndGet();
+        }
+    }
+
+    private static final class Counters {
+        private final AtomicLong hits = new AtomicLong();
+        private final AtomicLong misses = new AtomicLong();
+        private final AtomicLong evictions = new AtomicLong();
+        private final AtomicLong invalidatedEntries = new AtomicLong();
+    }
+
+    private static final class Key {
+        private final EntityType type;
+        private final String tenantId;
+        private final String id;
+        private final String username;
+
+        private Key(EntityType type, String tenantId, String id, String username) {
+            this.type = type;
+            this.tenantId = tenantId;
+            this.id = id;
+            this.username = username;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            return type == key.type && tenantId.equals(key.tenantId) && id.equals(key.id)
+                    && username.equals(key.username);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(type, tenantId, id, username);
+        }
+    }
+}
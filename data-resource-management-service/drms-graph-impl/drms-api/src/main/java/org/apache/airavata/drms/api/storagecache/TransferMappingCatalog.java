@@ -0,0 +1,164 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.airavata.drms.api.storagecache;
+
+import org.apache.airavata.datalake.drms.storage.TransferMapping;
+import org.apache.airavata.datalake.drms.storage.TransferScope;
+import org.apache.airavata.drms.api.storagecache.StorageCatalogCache.EntityType;
+import org.apache.airavata.drms.core.Neo4JConnector;
+import org.apache.airavata.drms.core.deserializer.TransferMappingDeserializer;
+import org.neo4j.driver.Record;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Cached transfer mapping projections. The GLOBAL mappings of a tenant are read by every resource search to
+ * resolve the storages to search in, so they are loaded for every tenant in the background on startup.
+ * Returned lists are shared and unmodifiable.
+ */
+@Component
+@DependsOn("schemaMigrationRunner")
+public class TransferMappingCatalog {
+
+    private static final Logger logger = LoggerFactory.getLogger(TransferMappingCatalog.class);
+
+    private static final String GLOBAL_SOURCES = "GLOBAL_SOURCES";
+    private static final String GLOBAL = "GLOBAL";
+    private static final String USER = "USER";
+
+    @Autowired
+    private Neo4JConnector neo4JConnector;
+
+    @Autowired
+    private StorageCatalogCache storageCatalogCache;
+
+    @Value("${drms.storage.cache.warmup.enabled:true}")
+    private boolean warmUpEnabled;
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "drms-storage-cache-warmup");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @PostConstruct
+    public void start() {
+        if (warmUpEnabled) {
+            executor.execute(this::warmUpQuietly);
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * @return GLOBAL mappings of the tenant with their source storages only
+     */
+    public List<TransferMapping> getGlobalSources(String tenantId) throws Exception {
+        return storageCatalogCache.get(EntityType.TRANSFER_MAPPING, tenantId, GLOBAL_SOURCES,
+                StorageCatalogCache.TENANT_WIDE, () -> loadGlobalSources(tenantId));
+    }
+
+    /**
+     * @return GLOBAL mappings of the tenant with their source and destination storages
+     */
+    public List<TransferMapping> getGlobal(String tenantId) throws Exception {
+        return storageCatalogCache.get(EntityType.TRANSFER_MAPPING, tenantId, GLOBAL,
+                StorageCatalogCache.TENANT_WIDE, () -> loadGlobal(tenantId));
+    }
+
+    /**
+     * @return USER mappings owned by the user, with their source and destination storages
+     */
+    public List<TransferMapping> getUserMappings(String tenantId, String username) throws Exception {
+        return storageCatalogCache.get(EntityType.TRANSFER_MAPPING, tenantId, USER, username,
+                () -> loadUserMappings(tenantId, username));
+    }
+
+    /**
+     * Drops every cached mapping of the tenant. Mappings embed their storages, so storage writes invalidate them too
+     */
+    public void invalidate(String tenantId) {
+        storageCatalogCache.invalidateType(EntityType.TRANSFER_MAPPING, tenantId);
+    }
+
+    private List<TransferMapping> loadGlobalSources(String tenantId) throws Exception {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("tenantId", tenantId);
+        String query = " Match (srcStr:Storage)-[:TRANSFER_OUT]->(tm:TransferMapping) where tm.tenantId=$tenantId AND tm.scope='GLOBAL' " +
+                " AND srcStr.tenantId=$tenantId return srcStr, tm";
+        List<Record> records = this.neo4JConnector.searchNodes(properties, query);
+        return Collections.unmodifiableList(TransferMappingDeserializer.deserializeListExceptDestinationStorage(records));
+    }
+
+    private List<TransferMapping> loadGlobal(String tenantId) throws Exception {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("tenantId", tenantId);
+        properties.put("scope", TransferScope.GLOBAL.name());
+        String query = "Match (srcStr:Storage)-[:TRANSFER_OUT]->(t:TransferMapping{scope:$scope, tenantId:$tenantId})-[:TRANSFER_IN]->(dstStr:Storage)" +
+                " return srcStr,  dstStr,  t";
+        List<Record> records = this.neo4JConnector.searchNodes(properties, query);
+        return records.isEmpty() ? Collections.emptyList() :
+                Collections.unmodifiableList(TransferMappingDeserializer.deserializeList(records));
+    }
+
+    private List<TransferMapping> loadUserMappings(String tenantId, String username) throws Exception {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("username", username);
+        properties.put("tenantId", tenantId);
+        properties.put("scope", TransferScope.USER.name());
+        String query = " MATCH (u:User)-[:HAS_TRANSFER_MAPPING]->(t:TransferMapping{scope:$scope}) where u.username = $username AND u.tenantId = $tenantId" +
+                " Match (srcStr:Storage)-[:TRANSFER_OUT]->(t)-[:TRANSFER_IN]->(dstStr:Storage)" +
+                " return srcStr,  dstStr,  t";
+        List<Record> records = this.neo4JConnector.searchNodes(properties, query);
+        return records.isEmpty() ? Collections.emptyList() :
+                Collections.unmodifiableList(TransferMappingDeserializer.deserializeList(records));
+    }
+
+    private void warmUpQuietly() {
+        try {
+            List<Record> records = this.neo4JConnector.searchNodes(new HashMap<>(),
+                    "MATCH (tm:TransferMapping) WHERE tm.scope = 'GLOBAL' AND tm.tenantId IS NOT NULL" +
+                            " RETURN DISTINCT tm.tenantId AS tenantId");
+            for (Record record : records) {
+                String tenantId = record.get("tenantId").asString();
+                // A storage or mapping write during the load invalidates the cache, and then the result is dropped
+                long generation = storageCatalogCache.getGeneration();
+                storageCatalogCache.put(EntityType.TRANSFER_MAPPING, tenantId, GLOBAL_SOURCES,
+                        StorageCatalogCache.TENANT_WIDE, loadGlobalSources(tenantId), generation);
+                generation = storageCatalogCache.getGeneration();
+                storageCatalogCache.put(EntityType.TRANSFER_MAPPING, tenantId, GLOBAL,
+                        StorageCatalogCache.TENANT_WIDE, loadGlobal(tenantId), generation);
+            }
+            logger.info("Loaded GLOBAL transfer mappings of {} tenants into the storage cache", records.size());
+        } catch (Exception ex) {
+            logger.error("Error occurred while warming up the storage cache", ex);
+        }
+    }
+}
@@ -0,0 +1,187 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.airavata.drms.api.streaming;
+
+import io.grpc.Status;
+import io.grpc.stub.ServerCallStreamObserver;
+import org.apache.airavata.datalake.drms.resource.GenericResource;
+import org.apache.airavata.drms.core.deserializer.GenericResourceDeserializer;
+import org.neo4j.driver.Record;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * Bridges Neo4j record publishers to a server streaming gRPC call. Resources are sent in chunks as records arrive,
+ * and the next chunk of records is only requested from Neo4j once the gRPC transport is ready to accept more,
+ * so a slow client holds back the query instead of filling the heap. Sources are consumed one after the other.
+ * A resource repeated in the records of one requested chunk is sent once; only the ids of that chunk are kept, so
+ * memory stays bounded by the chunk size however long the listing is.
+ */
+public class ChunkedResourceStreamer<R> implements Subscriber<Record> {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChunkedResourceStreamer.class);
+
+    private final ServerCallStreamObserver<R> responseObserver;
+    private final List<String> keyList;
+    private final int chunkSize;
+    private final Function<List<GenericResource>, R> responseBuilder;
+
+    private final Set<String> chunkResourceIds = new HashSet<>();
+    private long remaining = Long.MAX_VALUE;
+    private List<GenericResource> buffer = new ArrayList<>();
+    private Iterator<Publisher<Record>> sources;
+    private Subscription subscription;
+    private long outstanding;
+    private boolean cancelled;
+    private boolean terminated;
+
+    public ChunkedResourceStreamer(ServerCallStreamObserver<R> responseObserver, List<String> keyList, int chunkSize,
+                                   Function<List<GenericResource>, R> responseBuilder) {
+        this.responseObserver = responseObserver;
+        this.keyList = keyList;
+        this.chunkSize = chunkSize;
+        this.responseBuilder = responseBuilder;
+        // Handlers have to be registered before the service method returns
+        this.responseObserver.setOnReadyHandler(this::requestIfReady);
+        this.responseObserver.setOnCancelHandler(this::cancel);
+    }
+
+    /**
+     * Completes the call once the given number of resources was sent. A limit of zero or less sends everything.
+     */
+    public synchronized void setLimit(long limit) {
+        this.remaining = limit > 0 ? limit : Long.MAX_VALUE;
+    }
+
+    public void start(List<Publisher<Record>> sources) {
+        synchronized (this) {
+            this.sources = sources.iterator();
+        }
+        subscribeNext();
+    }
+
+    @Override
+    public synchronized void onSubscribe(Subscription subscription) {
+        if (cancelled || terminated) {
+            subscription.cancel();
+            return;
+        }
+        this.subscription = subscription;
+        this.outstanding = 0;
+        requestIfReady();
+    }
+
+    @Override
+    public synchronized void onNext(Record record) {
+        outstanding--;
+        if (terminated) {
+            return;
+        }
+        try {
+            for (GenericResource resource : GenericResourceDeserializer.deserializeRecord(record, keyList)) {
+                if (remaining > 0 && chunkResourceIds.add(resource.getResourceId())) {
+                    buffer.add(resource);
+                    remaining--;
+                }
+            }
+        } catch (Exception ex) {
+            subscription.cancel();
+            onError(ex);
+            return;
+        }
+        if (remaining <= 0) {
+            subscription.cancel();
+            terminated = true;
+            flush();
+            responseObserver.onCompleted();
+            return;
+        }
+        if (buffer.size() >= chunkSize) {
+            flush();
+        }
+        requestIfReady();
+    }
+
+    @Override
+    public synchronized void onError(Throwable throwable) {
+        if (terminated) {
+            return;
+        }
+        terminated = true;
+        logger.error("Error occurred while streaming resources", throwable);
+        if (!cancelled) {
+            responseObserver.onError(Status.INTERNAL.withDescription("Error occurred while streaming resources "
+                    + throwable.getMessage()).asRuntimeException());
+        }
+    }
+
+    @Override
+    public void onComplete() {
+        synchronized (this) {
+            subscription = null;
+        }
+        subscribeNext();
+    }
+
+    private void subscribeNext() {
+        Publisher<Record> next;
+        synchronized (this) {
+            if (terminated) {
+                return;
+            }
+            if (cancelled || !sources.hasNext()) {
+                terminated = true;
+                if (!cancelled) {
+                    flush();
+                    responseObserver.onCompleted();
+                }
+                return;
+            }
+            next = sources.next();
+        }
+        next.subscribe(this);
+    }
+
+    private synchronized void requestIfReady() {
+        if (subscription != null && !cancelled && !terminated && outstanding <= 0 && responseObserver.isReady()) {
+            outstanding = chunkSize;
+            chunkResourceIds.clear();
+            subscription.request(chunkSize);
+        }
+    }
+
+    private synchronized void cancel() {
+        cancelled = true;
+        if (subscription != null) {
+            subscription.cancel();
+        }
+    }
+
+    private void flush() {
+        if (buffer.isEmpty()) {
+            return;
+        }
+        responseObserver.onNext(responseBuilder.apply(buffer));
+        buffer = new ArrayList<>();
+    }
+}
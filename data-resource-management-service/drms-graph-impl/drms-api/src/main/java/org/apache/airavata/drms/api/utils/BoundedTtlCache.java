@@ -0,0 +1,156 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.airavata.drms.api.utils;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * Bounded, least recently used map whose entries expire after a TTL. Every removal starts a new generation, and a
+ * value is only put if no removal happened since the generation its caller read before looking the value up, so a
+ * lookup racing an invalidation cannot put back what the invalidation dropped.
+ */
+public class BoundedTtlCache<K, V> {
+
+    private final long ttlMillis;
+    private final AtomicLong generation = new AtomicLong();
+    private volatile boolean enabled = true;
+
+    private final Map<K, Entry<V>> entries;
+
+    /**
+     * @param evictionListener called with the key of every entry evicted to stay within maxEntries
+     */
+    public BoundedTtlCache(int maxEntries, long ttlMillis, Consumer<K> evictionListener) {
+        this.ttlMillis = ttlMillis;
+        this.entries = new LinkedHashMap<K, Entry<V>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+                if (size() > maxEntries) {
+                    evictionListener.accept(eldest.getKey());
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * @return the cached value, or null if there is none, it expired or caching is disabled
+     */
+    public V get(K key) {
+        if (!enabled) {
+            return null;
+        }
+        synchronized (entries) {
+            Entry<V> entry = entries.get(key);
+            if (entry == null) {
+                return null;
+            }
+            if (entry.expiresAt < System.currentTimeMillis()) {
+                entries.remove(key);
+                return null;
+            }
+            return entry.value;
+        }
+    }
+
+    /**
+     * @return the current generation, to be passed to {@link #put} with a value looked up afterwards
+     */
+    public long getGeneration() {
+        return generation.get();
+    }
+
+    /**
+     * Caches a value unless entries were removed since the given generation
+     */
+    public void put(K key, V value, long generation) {
+        if (!enabled) {
+            return;
+        }
+        Entry<V> entry = new Entry<>(value, System.currentTimeMillis() + ttlMillis);
+        synchronized (entries) {
+            if (this.generation.get() == generation) {
+                entries.put(key, entry);
+            }
+        }
+    }
+
+    /**
+     * Removes the matching entries and starts a new generation
+     *
+     * @return the removed keys
+     */
+    public List<K> removeIf(Predicate<? super K> predicate) {
+        List<K> removed = new ArrayList<>();
+        synchronized (entries) {
+            Iterator<K> keys = entries.keySet().iterator();
+            while (keys.hasNext()) {
+                K key = keys.next();
+                if (predicate.test(key)) {
+                    keys.remove();
+                    removed.add(key);
+                }
+            }
+            generation.incrementAndGet();
+        }
+        return removed;
+    }
+
+    /**
+     * Stops caching, for when invalidations can no longer be received
+     */
+    public List<K> disable() {
+        enabled = false;
+        return removeIf(key -> true);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public int count(Predicate<? super K> predicate) {
+        int count = 0;
+        synchronized (entries) {
+            for (K key : entries.keySet()) {
+                if (predicate.test(key)) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    private static final class Entry<V> {
+        private final V value;
+        private final long expiresAt;
+
+        private Entry(V value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
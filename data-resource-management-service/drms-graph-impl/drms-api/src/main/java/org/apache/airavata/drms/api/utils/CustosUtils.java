@@ -9,7 +9,18 @@ import org.apache.custos.sharing.service.EntityType;
 import org.apache.custos.sharing.service.Status;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 public class CustosUtils {
 
@@ -84,6 +95,18 @@ public class CustosUtils {
 
     public static Optional<Entity> mergeResourceEntity(CustosClientProvider custosClientProvider, String tenantId, String storagePreferenceId,
                                                        String entityTypeId, String entityId, String entityName, String description, String username) throws IOException {
+        return registerResourceEntity(custosClientProvider, tenantId, storagePreferenceId, entityTypeId, entityId,
+                entityName, description, username).getEntity();
+    }
+
+    /**
+     * Variant of {@link #mergeResourceEntity} which also tells whether the entity was created by this call, so a
+     * failed write can remove it again with {@link #deleteResourceEntity}.
+     */
+    public static EntityMerge registerResourceEntity(CustosClientProvider custosClientProvider, String tenantId,
+                                                     String storagePreferenceId, String entityTypeId,
+                                                     String entityId, String entityName, String description,
+                                                     String username) throws IOException {
         try(SharingManagementClient sharingManagementClient = custosClientProvider.getSharingManagementClient()) {
             EntityType entityType = EntityType.newBuilder().setId(entityTypeId).build();
             EntityType type = sharingManagementClient.getEntityType(tenantId, entityType);
@@ -105,11 +128,114 @@ public class CustosUtils {
                     .build();
 
             Status status = sharingManagementClient.isEntityExists(tenantId, entity);
-            if (!status.getStatus()) {
+            boolean created = !status.getStatus();
+            if (created) {
                 sharingManagementClient.createEntity(tenantId, entity);
             }
 
-            return Optional.ofNullable(sharingManagementClient.getEntity(tenantId, entity));
+            return new EntityMerge(Optional.ofNullable(sharingManagementClient.getEntity(tenantId, entity)), created);
+        }
+    }
+
+    public static void deleteResourceEntity(CustosClientProvider custosClientProvider, String tenantId,
+                                            String entityId) throws IOException {
+        try (SharingManagementClient sharingManagementClient = custosClientProvider.getSharingManagementClient()) {
+            sharingManagementClient.deleteEntity(tenantId, Entity.newBuilder().setId(entityId).build());
+        }
+    }
+
+    /**
+     * Batch variant of {@link #mergeResourceEntity} which reuses a single sharing client, checks each entity type
+     * only once and merges up to parallelism entities at a time on the given executor.
+     *
+     * @param createdIds thread safe collection to which the ids of the entities created by this call are added as
+     *                   they are created, so that they are known when the call fails
+     * @return the entities as stored in Custos, in the order they were given
+     */
+    public static List<Entity> mergeResourceEntities(CustosClientProvider custosClientProvider, String tenantId,
+                                                     List<Entity> entities, Executor executor, int parallelism,
+                                                     Collection<String> createdIds) throws IOException {
+        try (SharingManagementClient sharingManagementClient = custosClientProvider.getSharingManagementClient()) {
+            Set<String> types = new LinkedHashSet<>();
+            entities.forEach(entity -> types.add(entity.getType()));
+            for (String typeId : types) {
+                EntityType entityType = EntityType.newBuilder().setId(typeId).build();
+                EntityType type = sharingManagementClient.getEntityType(tenantId, entityType);
+                if (!type.isInitialized() || type.getId().isEmpty()) {
+                    EntityType resEntityType = EntityType.newBuilder()
+                            .setId(typeId)
+                            .setName(typeId)
+                            .setDescription("Resource  entity type " + typeId)
+                            .build();
+                    sharingManagementClient.createEntityType(tenantId, resEntityType);
+                }
+            }
+
+            Semaphore permits = new Semaphore(parallelism);
+            AtomicBoolean failed = new AtomicBoolean();
+            List<CompletableFuture<Entity>> merges = new ArrayList<>(entities.size());
+            try {
+                for (Entity entity : entities) {
+                    permits.acquire();
+                    if (failed.get()) {
+                        permits.release();
+                        break;
+                    }
+                    CompletableFuture<Entity> merge = CompletableFuture.supplyAsync(() -> {
+                        Status status = sharingManagementClient.isEntityExists(tenantId, entity);
+                        if (!status.getStatus()) {
+                            sharingManagementClient.createEntity(tenantId, entity);
+                            createdIds.add(entity.getId());
+                        }
+                        return sharingManagementClient.getEntity(tenantId, entity);
+                    }, executor);
+                    merge.whenComplete((merged, ex) -> {
+                        if (ex != null) {
+                            failed.set(true);
+                        }
+                        permits.release();
+                    });
+                    merges.add(merge);
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                failed.set(true);
+            } finally {
+                // The client is closed on return, so every merge in flight has to complete first
+                CompletableFuture.allOf(merges.toArray(new CompletableFuture[0])).handle((v, ex) -> null).join();
+            }
+
+            List<Entity> mergedEntities = new ArrayList<>(entities.size());
+            for (CompletableFuture<Entity> merge : merges) {
+                try {
+                    mergedEntities.add(merge.join());
+                } catch (CompletionException ex) {
+                    throw new IOException("Error occurred while merging resource entities in Custos", ex.getCause());
+                }
+            }
+            if (mergedEntities.size() < entities.size()) {
+                throw new InterruptedIOException("Interrupted while merging resource entities in Custos");
+            }
+            return mergedEntities;
+        }
+    }
+
+    public static class EntityMerge {
+
+        private final Optional<Entity> entity;
+        private final boolean created;
+
+        private EntityMerge(Optional<Entity> entity, boolean created) {
+            this.entity = entity;
+            this.created = created;
+        }
+
+        public Optional<Entity> getEntity() {
+            return entity;
+        }
+
+        public boolean isCreated() {
+            return created;
         }
     }
 }
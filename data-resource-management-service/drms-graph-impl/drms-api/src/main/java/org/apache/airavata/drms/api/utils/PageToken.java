@@ -0,0 +1,49 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.airavata.drms.api.utils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Opaque continuation token of keyset paginated listings. The token carries the ordering key (entityId) of the
+ * last resource of a page and the next page starts strictly after it.
+ */
+public class PageToken {
+
+    private static final String VERSION_PREFIX = "k1:";
+
+    public static String encode(String lastKey) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((VERSION_PREFIX + lastKey).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @return the ordering key to continue after, or an empty string for the first page
+     * @throws IllegalArgumentException if the token was not issued by {@link #encode(String)}
+     */
+    public static String decode(String token) {
+        if (token == null || token.isEmpty()) {
+            return "";
+        }
+        String decoded = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+        if (!decoded.startsWith(VERSION_PREFIX)) {
+            throw new IllegalArgumentException("Invalid page token " + token);
+        }
+        return decoded.substring(VERSION_PREFIX.length());
+    }
+}
@@ -5,6 +5,9 @@ import org.apache.airavata.datalake.drms.resource.GenericResource;
 import org.apache.airavata.datalake.drms.storage.ResourceSearchQuery;
 import org.apache.airavata.drms.core.Neo4JConnector;
 import org.apache.airavata.drms.core.deserializer.GenericResourceDeserializer;
+import org.apache.airavata.drms.core.query.CypherTemplates;
+import org.apache.airavata.drms.core.query.FullTextQuery;
+import org.apache.airavata.drms.core.query.NodeLabel;
 import org.neo4j.driver.Record;
 
 import java.math.BigInteger;
@@ -13,6 +16,7 @@ import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
 
 public class Utils {
 
@@ -20,6 +24,8 @@ public class Utils {
 
     public static final String CONTEXT_HOLDER = "CONTEXT_HOLDER";
 
+    private static final List<String> FULLTEXT_SHARED_KEYS = Collections.singletonList("r:rel");
+
     public static Context.Key<Object> getUserContextKey() {
         if (keyMap.containsKey("AUTHORIZED_USER")) {
             return keyMap.get("AUTHORIZED_USER");
@@ -29,81 +35,119 @@ public class Utils {
     }
 
 
-    public static Optional<String> getMetadataSearchQuery(List<ResourceSearchQuery> resourceSearchQueries, String type, String storageId) {
-        if (!resourceSearchQueries.isEmpty()) {
-            String preRegex = "'(?i).*";
-            String postRegex = ".*'";
-            String query = "";
-            if ((type.equals("FILE") || type.equals("COLLECTION")) && !storageId.isEmpty()) {
-                query = " MATCH (s:Storage{entityId:'" + storageId + "'})<-[:CHILD_OF*]-(r:" + type + ")-[:HAS_METADATA*]->(m) WHERE ";
-            } else {
-                query = " MATCH (r:" + type + ")-[:HAS_METADATA*]->(m) WHERE ";
-            }
-            //TODO: works only for one property
-            for (ResourceSearchQuery qry : resourceSearchQueries) {
-                if (qry.getField().contains(" ")) {
-                    query = " MATCH (r:" + type + ")-[:HAS_METADATA*]->(m:METADATA_NODE{`" + qry.getField() + "`: '" + qry.getValue() + "'})" +
-                            " Return r ";
-                    return Optional.ofNullable(query);
-                } else {
-                    String finalSearchStr = preRegex + qry.getValue() + postRegex;
-                    query = query + " m." + qry.getField() + "=~ " + finalSearchStr + " AND ";
-                }
-            }
-            query = query.substring(0, query.length() - 5);
-            query = query + " RETURN r";
-            return Optional.ofNullable(query);
-
-        }
-        return Optional.empty();
-    }
-
-    public static Optional<String> getPropertySearchQuery(List<ResourceSearchQuery> resourceSearchQueries, String type, String storageId) {
-        if (!resourceSearchQueries.isEmpty()) {
-            for (ResourceSearchQuery qry : resourceSearchQueries) {
-                String query = "";
-                if ((type.equals("FILE") || type.equals("COLLECTION")) && !storageId.isEmpty()) {
-                    query = " MATCH (s:Storage{entityId:'" + storageId + "'})<-[:CHILD_OF*]-(r:" + type +
-                            ") where r." + qry.getField() + " contains  '" + qry.getValue() + "' Return r ";
-                } else {
-                    query = " MATCH (r:" + type +
-                            ") where r." + qry.getField() + " contains  '" + qry.getValue() + "' Return r ";
-                }
-                return Optional.ofNullable(query);
+    /**
+     * Resources with a metadata node matching every query. Queries with a full-text operator are looked up in the
+     * metadata full-text index; otherwise every query is a case insensitive substring match, and a field containing
+     * a space is matched exactly on METADATA_NODE instead, using only that query.
+     */
+    public static List<GenericResource> searchByMetadata(List<ResourceSearchQuery> resourceSearchQueries, NodeLabel type,
+                                                         String storageId, String tenantId,
+                                                         Neo4JConnector neo4JConnector) throws Exception {
+        if (resourceSearchQueries.isEmpty()) {
+            return Collections.emptyList();
+        }
+        if (isFullTextSearch(resourceSearchQueries)) {
+            FullTextQuery fullTextQuery = toFullTextQuery(resourceSearchQueries, true);
+            List<Record> records = neo4JConnector.searchNodes(CypherTemplates.METADATA_FULLTEXT_SEARCH,
+                    getFullTextParameters(fullTextQuery, tenantId, getStorageScope(type, storageId)), type);
+            return GenericResourceDeserializer.deserializeList(records);
+        }
+
+        Map<String, Object> parameters = new HashMap<>();
+        //TODO: works only for one property
+        for (ResourceSearchQuery qry : resourceSearchQueries) {
+            if (qry.getField().contains(" ")) {
+                parameters.put("field", qry.getField());
+                parameters.put("value", qry.getValue());
+                List<Record> records = neo4JConnector.searchNodes(CypherTemplates.METADATA_EXACT_SEARCH, parameters, type);
+                return GenericResourceDeserializer.deserializeList(records);
             }
         }
-        return Optional.empty();
-    }
 
-    public static List<GenericResource> getMetadataSearchQueryForSharedByMe(String type, String key, String value, String storageId,
-                                                                            String sharedBy, String tenantId, Neo4JConnector neo4JConnector) throws Exception {
-        String preRegex = "'(?i).*";
-        String postRegex = ".*'";
-        String query = "";
+        List<Map<String, Object>> criteria = new ArrayList<>();
+        for (ResourceSearchQuery qry : resourceSearchQueries) {
+            Map<String, Object> criterion = new HashMap<>();
+            criterion.put("field", qry.getField());
+            criterion.put("pattern", getContainsPattern(qry.getValue()));
+            criteria.add(criterion);
+        }
+        parameters.put("criteria", criteria);
 
-        if ((type.equals("FILE") || type.equals("COLLECTION")) && !storageId.isEmpty()) {
-            query = " MATCH (s:Storage{entityId:'" + storageId + "'})<-[:CHILD_OF*]-(r:" + type + ")-[:HAS_METADATA*]->(m)," +
-                    " (r)-[rel:SHARED_WITH]->(l)" +
-                    " WHERE ";
+        List<Record> records;
+        if (isStorageScoped(type, storageId)) {
+            parameters.put("storageId", storageId);
+            records = neo4JConnector.searchNodes(CypherTemplates.METADATA_SEARCH_IN_STORAGE, parameters, type);
         } else {
-            query = " MATCH (r:" + type + ")-[:HAS_METADATA*]->(m), (r)-[rel:SHARED_WITH]->(l) " +
-                    " WHERE ";
+            records = neo4JConnector.searchNodes(CypherTemplates.METADATA_SEARCH, parameters, type);
         }
+        return GenericResourceDeserializer.deserializeList(records);
+    }
 
-        if (key.contains(" ")) {
-            query = " MATCH (r:" + type + ")-[:HAS_METADATA*]->(m:METADATA_NODE{`" + key + "`: '" + value + "'}), (r)-[rel:SHARED_WITH]->(l) " +
-                    " where r.sharedBy=$sharedBy AND r.tenantId=$tenantId AND  l.tenantId=$tenantId  AND NOT l.username=$sharedBy  " +
-                    " Return r ";
+    /**
+     * Resources with properties matching the queries. Queries with a full-text operator are all applied, through the
+     * resource full-text index where the field is covered by it; otherwise only the first query is used, as a
+     * substring match.
+     */
+    public static List<GenericResource> searchByProperty(List<ResourceSearchQuery> resourceSearchQueries, NodeLabel type,
+                                                         String storageId, String tenantId,
+                                                         Neo4JConnector neo4JConnector) throws Exception {
+        if (resourceSearchQueries.isEmpty()) {
+            return Collections.emptyList();
+        }
+        if (isFullTextSearch(resourceSearchQueries)) {
+            FullTextQuery fullTextQuery = toFullTextQuery(resourceSearchQueries, false);
+            List<Record> records = neo4JConnector.searchNodes(fullTextQuery.isIndexed()
+                            ? CypherTemplates.PROPERTY_FULLTEXT_SEARCH : CypherTemplates.PROPERTY_MATCH_SEARCH,
+                    getFullTextParameters(fullTextQuery, tenantId, getStorageScope(type, storageId)), type);
+            return GenericResourceDeserializer.deserializeList(records);
+        }
+
+        ResourceSearchQuery qry = resourceSearchQueries.get(0);
+        Map<String, Object> parameters = new HashMap<>();
+        parameters.put("field", qry.getField());
+        parameters.put("value", qry.getValue());
+
+        List<Record> records;
+        if (isStorageScoped(type, storageId)) {
+            parameters.put("storageId", storageId);
+            records = neo4JConnector.searchNodes(CypherTemplates.PROPERTY_SEARCH_IN_STORAGE, parameters, type);
         } else {
-            String finalSearchStr = preRegex + value + postRegex;
-            query = query + " m." + key + "=~ " + finalSearchStr + " AND  r.sharedBy=$sharedBy AND " +
-                    "r.tenantId=$tenantId AND  l.tenantId=$tenantId  AND NOT l.username=$sharedBy return r,rel";
+            records = neo4JConnector.searchNodes(CypherTemplates.PROPERTY_SEARCH, parameters, type);
+        }
+        return GenericResourceDeserializer.deserializeList(records);
+    }
+
+    public static List<GenericResource> getMetadataSearchQueryForSharedByMe(NodeLabel type, ResourceSearchQuery query,
+                                                                            String storageId, String sharedBy, String tenantId,
+                                                                            Neo4JConnector neo4JConnector) throws Exception {
+        if (isFullTextSearch(query)) {
+            Map<String, Object> parameters = getFullTextParameters(toFullTextQuery(Collections.singletonList(query), true),
+                    tenantId, getStorageScope(type, storageId));
+            parameters.put("sharedBy", sharedBy);
+            List<Record> records = neo4JConnector.searchNodes(CypherTemplates.SHARED_BY_METADATA_FULLTEXT_SEARCH,
+                    parameters, type);
+            return GenericResourceDeserializer.deserializeList(records, FULLTEXT_SHARED_KEYS);
         }
 
+        String key = query.getField();
+        String value = query.getValue();
         Map<String, Object> objectMap = new HashMap<>();
         objectMap.put("sharedBy", sharedBy);
         objectMap.put("tenantId", tenantId);
-        List<Record> records = neo4JConnector.searchNodes(objectMap, query);
+        objectMap.put("field", key);
+
+        List<Record> records;
+        if (key.contains(" ")) {
+            objectMap.put("value", value);
+            records = neo4JConnector.searchNodes(CypherTemplates.SHARED_BY_METADATA_EXACT_SEARCH, objectMap, type);
+        } else if (isStorageScoped(type, storageId)) {
+            objectMap.put("pattern", getContainsPattern(value));
+            objectMap.put("storageId", storageId);
+            records = neo4JConnector.searchNodes(CypherTemplates.SHARED_BY_METADATA_SEARCH_IN_STORAGE, objectMap, type);
+        } else {
+            objectMap.put("pattern", getContainsPattern(value));
+            records = neo4JConnector.searchNodes(CypherTemplates.SHARED_BY_METADATA_SEARCH, objectMap, type);
+        }
         List<String> keyList = new ArrayList<>();
         keyList.add("r:rel");
         return GenericResourceDeserializer.deserializeList(records, keyList);
@@ -111,18 +155,25 @@ public class Utils {
     }
 
 
-    public static List<GenericResource> getPropertySearchQueryForSharedByMe(String type, String key, String value,
-                                                                            String sharedBy, String tenantId, Neo4JConnector neo4JConnector) throws Exception {
-        String query = " match (m)-[r:SHARED_WITH]-(l) where r.sharedBy=$sharedBy AND m.tenantId=$tenantId AND " +
-                " l.tenantId=$tenantId  AND NOT l.username=$sharedBy " +
-                " OPTIONAL MATCH (m)<-[:CHILD_OF*]-(x) where x." + key + " contains  '" + value + "'" +
-                " OPTIONAL MATCH (m2)-[r2:SHARED_WITH]->(l) where  m2.tenantId=$tenantId AND  m2." + key + " contains  '" + value + "'" +
-                " return m2,r2 ,x,r ";
+    public static List<GenericResource> getPropertySearchQueryForSharedByMe(NodeLabel type, ResourceSearchQuery query,
+                                                                            String sharedBy, String tenantId,
+                                                                            Neo4JConnector neo4JConnector) throws Exception {
+        if (isFullTextSearch(query)) {
+            FullTextQuery fullTextQuery = toFullTextQuery(Collections.singletonList(query), false);
+            Map<String, Object> parameters = getFullTextParameters(fullTextQuery, tenantId, null);
+            parameters.put("sharedBy", sharedBy);
+            List<Record> records = neo4JConnector.searchNodes(fullTextQuery.isIndexed()
+                    ? CypherTemplates.SHARED_BY_PROPERTY_FULLTEXT_SEARCH
+                    : CypherTemplates.SHARED_BY_PROPERTY_MATCH_SEARCH, parameters, type);
+            return GenericResourceDeserializer.deserializeList(records, FULLTEXT_SHARED_KEYS);
+        }
 
         Map<String, Object> objectMap = new HashMap<>();
         objectMap.put("sharedBy", sharedBy);
         objectMap.put("tenantId", tenantId);
-        List<Record> records = neo4JConnector.searchNodes(objectMap, query);
+        objectMap.put("field", query.getField());
+        objectMap.put("value", query.getValue());
+        List<Record> records = neo4JConnector.searchNodes(CypherTemplates.SHARED_BY_PROPERTY_SEARCH, objectMap);
         List<String> keyList = new ArrayList<>();
         keyList.add("m2:r2");
         keyList.add("x:r");
@@ -130,51 +181,40 @@ public class Utils {
     }
 
 
-    public static List<GenericResource> getMetadataSearchQueryForSharedWithMe(String type, String key, String value, String storageId,
-                                                                              String sharedWith, String tenantId, Neo4JConnector neo4JConnector) throws Exception {
-        String preRegex = "'(?i).*";
-        String postRegex = ".*'";
-        String finalSearchStr = preRegex + value + postRegex;
-        String query = "";
-
-        if ((type.equals("FILE") || type.equals("COLLECTION")) && !storageId.isEmpty()) {
-            query = " MATCH (u:User) where u.username = $username AND u.tenantId = $tenantId " +
-                    " OPTIONAL MATCH (g:Group)<-[:MEMBER_OF]-(u)  " +
-                    " OPTIONAL MATCH (u)<-[pRel:SHARED_WITH]-(p:COLLECTION)<-[:CHILD_OF*] -(x:" + type + ")-[relR:SHARED_WITH]->(u)," +
-                    " (s:Storage{entityId:'" + storageId + "'})<-[:CHILD_OF*]-(x)-[:HAS_METADATA*]->(m)" +
-                    " where NOT  x.owner  = $sharedWith AND m." + key + "=~ " + finalSearchStr +
-                    " OPTIONAL MATCH (g)<-[pxRel:SHARED_WITH]-(pr:COLLECTION)<-[:CHILD_OF*] -(px:" + type + ")-[relR:SHARED_WITH]->(g)," +
-                    " (s:Storage{entityId:'" + storageId + "'})<-[:CHILD_OF*]-(px)-[:HAS_METADATA*]->(m)" +
-                    " where NOT  px.owner  = $sharedWith AND m." + key + "=~ " + finalSearchStr +
-                    " return distinct  p,pRel, px,pxRel";
-        } else {
-            query = " MATCH (u:User) where u.username = $username AND u.tenantId = $tenantId " +
-                    " OPTIONAL MATCH (g:Group)<-[:MEMBER_OF]-(u)  " +
-                    " OPTIONAL MATCH (u)<-[pRel:SHARED_WITH]-(p:COLLECTION)<-[:CHILD_OF*] -(x:" + type + ")-[relR:SHARED_WITH]->(u), " +
-                    " (x)-[:HAS_METADATA*]->(m)" +
-                    " where NOT  x.owner  = $sharedWith AND m." + key + "=~ " + finalSearchStr +
-                    " OPTIONAL MATCH (g)<-[pxRel:SHARED_WITH]-(pr:COLLECTION)<-[:CHILD_OF*] -(px:" + type + ")-[relR:SHARED_WITH]->(g), " +
-                    " (px)-[:HAS_METADATA*]->(m) " +
-                    " where NOT  px.owner  = $sharedWith AND m." + key + "=~ " + finalSearchStr +
-                    " return distinct  p,pRel, px,pxRel";
+    public static List<GenericResource> getMetadataSearchQueryForSharedWithMe(NodeLabel type, ResourceSearchQuery query,
+                                                                              String storageId, String sharedWith,
+                                                                              String tenantId,
+                                                                              Neo4JConnector neo4JConnector) throws Exception {
+        if (isFullTextSearch(query)) {
+            Map<String, Object> parameters = getFullTextParameters(toFullTextQuery(Collections.singletonList(query), true),
+                    tenantId, getStorageScope(type, storageId));
+            parameters.put("sharedWith", sharedWith);
+            parameters.put("username", sharedWith);
+            List<Record> records = neo4JConnector.searchNodes(CypherTemplates.SHARED_WITH_METADATA_FULLTEXT_SEARCH,
+                    parameters, type);
+            return GenericResourceDeserializer.deserializeList(records, FULLTEXT_SHARED_KEYS);
         }
 
-        if (key.contains(" ")) {
-            query = "MATCH (u:User) where u.username = $username AND u.tenantId = $tenantId " +
-                    " OPTIONAL MATCH (g:Group)<-[:MEMBER_OF]-(u)  " +
-                    " OPTIONAL MATCH (u)<-[pRel:SHARED_WITH]-(p:COLLECTION)<-[:CHILD_OF*] -(x:" + type + ")-[relR:SHARED_WITH]->(u), " +
-                    " (x)-[:HAS_METADATA*]->(m:METADATA_NODE{`" + key + "`: '" + value + "'})" +
-                    " where NOT  x.owner  = $sharedWith" +
-                    " OPTIONAL MATCH (g)<-[pxRel:SHARED_WITH]-(pr:COLLECTION)<-[:CHILD_OF*] -(px:" + value + ")-[relR:SHARED_WITH]->(g)" +
-                    " (px)-[:HAS_METADATA*]->(m:METADATA_NODE{`" + key + "`: '" + value + "'})" +
-                    " where NOT  px.owner  = $sharedWith" +
-                    " return distinct  p,pRel, px,pxRel";
-        }
+        String key = query.getField();
+        String value = query.getValue();
         Map<String, Object> objectMap = new HashMap<>();
         objectMap.put("sharedWith", sharedWith);
         objectMap.put("username", sharedWith);
         objectMap.put("tenantId", tenantId);
-        List<Record> records = neo4JConnector.searchNodes(objectMap, query);
+        objectMap.put("field", key);
+
+        List<Record> records;
+        if (key.contains(" ")) {
+            objectMap.put("value", value);
+            records = neo4JConnector.searchNodes(CypherTemplates.SHARED_WITH_METADATA_EXACT_SEARCH, objectMap, type);
+        } else if (isStorageScoped(type, storageId)) {
+            objectMap.put("pattern", getContainsPattern(value));
+            objectMap.put("storageId", storageId);
+            records = neo4JConnector.searchNodes(CypherTemplates.SHARED_WITH_METADATA_SEARCH_IN_STORAGE, objectMap, type);
+        } else {
+            objectMap.put("pattern", getContainsPattern(value));
+            records = neo4JConnector.searchNodes(CypherTemplates.SHARED_WITH_METADATA_SEARCH, objectMap, type);
+        }
         List<String> keyList = new ArrayList<>();
         keyList.add("p:pRel");
         keyList.add("px:pxRel");
@@ -182,27 +222,102 @@ public class Utils {
     }
 
 
-    public static List<GenericResource> getPropertySearchQueryForSharedWithMe(String type, String key, String value,
-                                                                              String sharedWith, String tenantId, Neo4JConnector neo4JConnector) throws Exception {
-        String query = "MATCH (u:User) where u.username = $username AND u.tenantId = $tenantId " +
-                " OPTIONAL MATCH (g:Group)<-[:MEMBER_OF]-(u)  " +
-                " OPTIONAL MATCH (u)<-[pRel:SHARED_WITH]-(p:COLLECTION)<-[:CHILD_OF*] -(x:" + type + ")" +
-                " where NOT  x.owner  = $sharedWith AND x." + key + " contains  '" + value + "'" +
-                " OPTIONAL MATCH (g)<-[pxRel:SHARED_WITH]-(pr:COLLECTION)<-[:CHILD_OF*] -(px:" + type + ")" +
-                " where NOT  px.owner  = $sharedWith AND px." + key + " contains  '" + value + "'" +
-                " return distinct  x,pRel, px,pxRel";
+    public static List<GenericResource> getPropertySearchQueryForSharedWithMe(NodeLabel type, ResourceSearchQuery query,
+                                                                              String sharedWith, String tenantId,
+                                                                              Neo4JConnector neo4JConnector) throws Exception {
+        if (isFullTextSearch(query)) {
+            FullTextQuery fullTextQuery = toFullTextQuery(Collections.singletonList(query), false);
+            Map<String, Object> parameters = getFullTextParameters(fullTextQuery, tenantId, null);
+            parameters.put("sharedWith", sharedWith);
+            parameters.put("username", sharedWith);
+            List<Record> records = neo4JConnector.searchNodes(fullTextQuery.isIndexed()
+                    ? CypherTemplates.SHARED_WITH_PROPERTY_FULLTEXT_SEARCH
+                    : CypherTemplates.SHARED_WITH_PROPERTY_MATCH_SEARCH, parameters, type);
+            return GenericResourceDeserializer.deserializeList(records, FULLTEXT_SHARED_KEYS);
+        }
 
         Map<String, Object> objectMap = new HashMap<>();
         objectMap.put("sharedWith", sharedWith);
         objectMap.put("username", sharedWith);
         objectMap.put("tenantId", tenantId);
-        List<Record> records = neo4JConnector.searchNodes(objectMap, query);
+        objectMap.put("field", query.getField());
+        objectMap.put("value", query.getValue());
+        List<Record> records = neo4JConnector.searchNodes(CypherTemplates.SHARED_WITH_PROPERTY_SEARCH, objectMap, type);
         List<String> keyList = new ArrayList<>();
         keyList.add("x:pRel");
         keyList.add("px:pxRel");
         return GenericResourceDeserializer.deserializeList(records, keyList);
     }
 
+    private static boolean isFullTextSearch(ResourceSearchQuery query) {
+        return query.getOperator() != ResourceSearchQuery.MatchOperator.CONTAINS;
+    }
+
+    private static boolean isFullTextSearch(List<ResourceSearchQuery> queries) {
+        return queries.stream().anyMatch(qry -> !qry.getField().equals("storageId") && isFullTextSearch(qry));
+    }
+
+    /**
+     * Substring queries mixed into a full-text search are applied as filters on the indexed candidates
+     *
+     * @param metadata true to look the queries up in the metadata index, false for resource properties
+     */
+    private static FullTextQuery toFullTextQuery(List<ResourceSearchQuery> queries, boolean metadata) {
+        FullTextQuery fullTextQuery = new FullTextQuery();
+        for (ResourceSearchQuery qry : queries) {
+            if (qry.getField().equals("storageId")) {
+                continue;
+            }
+            if (!isFullTextSearch(qry)) {
+                fullTextQuery.filter(qry.getField(), getContainsPattern(qry.getValue()));
+                continue;
+            }
+            String indexField = metadata ? FullTextQuery.SEARCH_TEXT
+                    : FullTextQuery.RESOURCE_FIELDS.contains(qry.getField()) ? qry.getField() : null;
+            fullTextQuery.match(indexField, qry.getField(), toOperator(qry.getOperator()), qry.getValue());
+        }
+        return fullTextQuery;
+    }
+
+    private static FullTextQuery.Operator toOperator(ResourceSearchQuery.MatchOperator operator) {
+        switch (operator) {
+            case EXACT:
+                return FullTextQuery.Operator.EXACT;
+            case PREFIX:
+                return FullTextQuery.Operator.PREFIX;
+            case TOKENS:
+                return FullTextQuery.Operator.TOKENS;
+            default:
+                throw new IllegalArgumentException("Unsupported search operator " + operator);
+        }
+    }
+
+    private static Map<String, Object> getFullTextParameters(FullTextQuery fullTextQuery, String tenantId,
+                                                             String storageId) {
+        Map<String, Object> parameters = fullTextQuery.toParameters();
+        parameters.put("tenantId", tenantId);
+        parameters.put("storageId", storageId);
+        return parameters;
+    }
+
+    /**
+     * @return the storage to restrict a full-text search to, or null
+     */
+    private static String getStorageScope(NodeLabel type, String storageId) {
+        return isStorageScoped(type, storageId) ? storageId : null;
+    }
+
+    private static boolean isStorageScoped(NodeLabel type, String storageId) {
+        return (type == NodeLabel.FILE || type == NodeLabel.COLLECTION) && !storageId.isEmpty();
+    }
+
+    /**
+     * Case insensitive "contains" regular expression, bound as a parameter. The value is matched literally
+     */
+    private static String getContainsPattern(String value) {
+        return "(?i).*" + Pattern.quote(value) + ".*";
+    }
+
 
     public static String getId(String message) throws NoSuchAlgorithmException {
         MessageDigest md = MessageDigest.getInstance("SHA-256");
@@ -0,0 +1,307 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.airavata.drms.api.write;
+
+import io.grpc.Status;
+import org.apache.airavata.datalake.drms.AuthenticatedUser;
+import org.apache.airavata.datalake.drms.resource.GenericResource;
+import org.apache.airavata.drms.api.utils.CustosUtils;
+import org.apache.airavata.drms.core.Neo4JConnector;
+import org.apache.airavata.drms.core.bulk.NodeDescriptor;
+import org.apache.airavata.drms.core.constants.ResourceConstants;
+import org.apache.airavata.drms.core.query.CypherTemplates;
+import org.apache.airavata.drms.core.query.NodeLabel;
+import org.apache.custos.clients.CustosClientProvider;
+import org.apache.custos.sharing.service.Entity;
+import org.neo4j.driver.Record;
+import org.neo4j.driver.types.Node;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Writes a single resource to Custos and Neo4j concurrently. The Custos entity is registered on a pool thread
+ * while the node is merged on the calling thread, and the merge returns the node so it is not read back. When one
+ * side fails the other is undone: an entity this write created is deleted from Custos, and the node is deleted or
+ * put back to its previous properties. Fields mirrored from the Custos entity are set from the request and only
+ * written again when an entity which already existed differs.
+ * <p>
+ * Latencies are kept per phase, see {@link #getStats()}.
+ */
+@Component
+public class ResourceWritePipeline {
+
+    public static final String CUSTOS_PHASE = "custos";
+    public static final String GRAPH_PHASE = "graph";
+    public static final String RECONCILE_PHASE = "reconcile";
+    public static final String AFTER_WRITE_PHASE = "afterWrite";
+    public static final String COMPENSATION_PHASE = "compensation";
+    public static final String TOTAL_PHASE = "total";
+
+    private static final Logger logger = LoggerFactory.getLogger(ResourceWritePipeline.class);
+
+    @Autowired
+    private Neo4JConnector neo4JConnector;
+
+    @Autowired
+    private CustosClientProvider custosClientProvider;
+
+    @Value("${drms.resource.write.parallelism:16}")
+    private int parallelism;
+
+    @Value("${drms.resource.write.queue.capacity:1000}")
+    private int queueCapacity;
+
+    @Value("${drms.resource.write.custos.timeout.seconds:60}")
+    private long custosTimeoutSeconds;
+
+    private final Map<String, WritePhaseStats> stats = new LinkedHashMap<>();
+    private ThreadPoolExecutor executor;
+
+    public ResourceWritePipeline() {
+        for (String phase : Arrays.asList(CUSTOS_PHASE, GRAPH_PHASE, RECONCILE_PHASE, AFTER_WRITE_PHASE,
+                COMPENSATION_PHASE, TOTAL_PHASE)) {
+            stats.put(phase, new WritePhaseStats(phase));
+        }
+    }
+
+    @PostConstruct
+    public void start() {
+        AtomicInteger threadCount = new AtomicInteger();
+        // A saturated pool registers the entity on the calling gRPC thread, before the node is merged
+        executor = new ThreadPoolExecutor(parallelism, parallelism, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+            Thread thread = new Thread(runnable, "drms-resource-write-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }, new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    @PreDestroy
+    public void stop() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * @param resource         resource of the request, which names the Custos entity
+     * @param node             resource node with the properties set on every write
+     * @param createProperties node properties only set when the node is created
+     * @param expectedVersion  resourceVersion the node has to be at, or null
+     * @param afterWrite       run once both sides are written, for example to refresh derived indexes
+     * @return the node as written, or empty when it was not at the expected version
+     * @throws io.grpc.StatusRuntimeException INTERNAL when Custos returned no entity
+     */
+    public Optional<Node> write(GenericResource resource, NodeDescriptor node, Map<String, Object> createProperties,
+                                AuthenticatedUser callUser, Long expectedVersion, Runnable afterWrite)
+            throws Exception {
+        String tenantId = callUser.getTenantId();
+        String entityId = node.getEntityId();
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            CompletableFuture<CustosUtils.EntityMerge> custos = CompletableFuture.supplyAsync(() -> {
+                try {
+                    return timed(CUSTOS_PHASE, () -> CustosUtils.registerResourceEntity(custosClientProvider,
+                            tenantId, resource.getParentId(), resource.getType(), entityId,
+                            resource.getResourceName(), resource.getResourceName(), callUser.getUsername()));
+                } catch (Exception ex) {
+                    throw new CompletionException(ex);
+                }
+            }, executor);
+
+            Optional<Record> written;
+            try {
+                written = timed(GRAPH_PHASE, () -> neo4JConnector.mergeResourceNode(node, createProperties,
+                        callUser.getUsername(), tenantId, expectedVersion));
+            } catch (Exception ex) {
+                discardEntity(custos, tenantId, entityId);
+                throw ex;
+            }
+            if (!written.isPresent()) {
+                discardEntity(custos, tenantId, entityId);
+                return Optional.empty();
+            }
+
+            Optional<Entity> entity;
+            try {
+                entity = awaitEntity(custos, tenantId, entityId).getEntity();
+            } catch (Exception ex) {
+                restoreNode(written.get(), node.getLabel(), tenantId, entityId);
+                throw ex;
+            }
+            if (!entity.isPresent()) {
+                restoreNode(written.get(), node.getLabel(), tenantId, entityId);
+                throw Status.INTERNAL.withDescription("Error occurred while creating resource entity in Custos with id "
+                        + entityId).asRuntimeException();
+            }
+
+            Node resourceNode = timed(RECONCILE_PHASE, () -> reconcile(written.get().get("n").asNode(),
+                    entity.get(), node.getLabel(), tenantId));
+            timed(AFTER_WRITE_PHASE, () -> {
+                afterWrite.run();
+                return null;
+            });
+            failed = false;
+            return Optional.of(resourceNode);
+        } finally {
+            long nanos = System.nanoTime() - start;
+            stats.get(TOTAL_PHASE).record(nanos, failed);
+            logger.debug("Wrote resource {} in {} ms", entityId, nanos / 1_000_000);
+        }
+    }
+
+    /**
+     * Registers the Custos entities of a bulk write, up to drms.resource.write.parallelism at a time
+     *
+     * @param createdIds thread safe collection which receives the ids of the entities this call created, for
+     *                   {@link #discardEntities(String, Collection)} when the write fails
+     * @return the entities as stored in Custos, in the order they were given
+     */
+    public List<Entity> registerEntities(String tenantId, List<Entity> entities, Collection<String> createdIds)
+            throws IOException {
+        return CustosUtils.mergeResourceEntities(custosClientProvider, tenantId, entities, executor, parallelism,
+                createdIds);
+    }
+
+    /**
+     * Removes the Custos entities a failed bulk write created, so they are not left without nodes
+     */
+    public void discardEntities(String tenantId, Collection<String> entityIds) {
+        for (String entityId : entityIds) {
+            try {
+                timed(COMPENSATION_PHASE, () -> {
+                    CustosUtils.deleteResourceEntity(custosClientProvider, tenantId, entityId);
+                    return null;
+                });
+            } catch (Exception ex) {
+                logger.error("Could not remove Custos entity of resource {} after a failed write", entityId, ex);
+            }
+        }
+    }
+
+    /**
+     * @return counters of each phase, in pipeline order
+     */
+    public Collection<WritePhaseStats> getStats() {
+        return Collections.unmodifiableCollection(stats.values());
+    }
+
+    public void reset() {
+        stats.values().forEach(WritePhaseStats::reset);
+    }
+
+    private CustosUtils.EntityMerge awaitEntity(CompletableFuture<CustosUtils.EntityMerge> custos, String tenantId,
+                                                String entityId) throws Exception {
+        try {
+            return custos.get(custosTimeoutSeconds, TimeUnit.SECONDS);
+        } catch (TimeoutException ex) {
+            // The registration may still complete, so the entity is removed whenever it does
+            custos.thenAccept(merge -> deleteEntity(merge, tenantId, entityId));
+            throw ex;
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause() instanceof CompletionException && ex.getCause().getCause() != null ?
+                    ex.getCause().getCause() : ex.getCause();
+            throw cause instanceof Exception ? (Exception) cause : ex;
+        }
+    }
+
+    private void discardEntity(CompletableFuture<CustosUtils.EntityMerge> custos, String tenantId,
+                               String entityId) {
+        try {
+            deleteEntity(awaitEntity(custos, tenantId, entityId), tenantId, entityId);
+        } catch (Exception ex) {
+            // Nothing was registered, or the entity is removed once the registration completes
+            logger.debug("No Custos entity to remove for resource {}: {}", entityId, ex.getMessage());
+        }
+    }
+
+    private void deleteEntity(CustosUtils.EntityMerge merge, String tenantId, String entityId) {
+        if (!merge.isCreated()) {
+            return;
+        }
+        try {
+            timed(COMPENSATION_PHASE, () -> {
+                CustosUtils.deleteResourceEntity(custosClientProvider, tenantId, entityId);
+                return null;
+            });
+        } catch (Exception ex) {
+            logger.error("Could not remove Custos entity of resource {} after a failed write", entityId, ex);
+        }
+    }
+
+    private void restoreNode(Record written, String label, String tenantId, String entityId) {
+        Node node = written.get("n").asNode();
+        Map<String, Object> previous = written.get("previous").isNull() ? null :
+                written.get("previous").asMap();
+        long writtenVersion = node.get(ResourceConstants.RESOURCE_VERSION).asLong(0);
+        try {
+            boolean restored = timed(COMPENSATION_PHASE, () -> neo4JConnector.restoreResourceNode(label, entityId,
+                    tenantId, previous, writtenVersion));
+            if (!restored) {
+                logger.warn("Resource {} was written again before a failed write could be undone", entityId);
+            }
+        } catch (Exception ex) {
+            logger.error("Could not undo the write of resource {}", entityId, ex);
+        }
+    }
+
+    private Node reconcile(Node node, Entity entity, String label, String tenantId) {
+        Map<String, Object> props = new HashMap<>();
+        mismatch(node, "owner", entity.getOwnerId(), props);
+        mismatch(node, "resourceName", entity.getName(), props);
+        mismatch(node, "description", entity.getDescription(), props);
+        if (props.isEmpty()) {
+            return node;
+        }
+        Map<String, Object> parameters = new HashMap<>();
+        parameters.put("entityId", node.get("entityId").asString());
+        parameters.put("tenantId", tenantId);
+        parameters.put("type", label);
+        parameters.put("props", props);
+        List<Record> records = neo4JConnector.runTransactionalQuery(CypherTemplates.SET_RESOURCE_ENTITY_FIELDS,
+                parameters, NodeLabel.RESOURCE);
+        return records.isEmpty() ? node : records.get(0).get("r").asNode();
+    }
+
+    private static void mismatch(Node node, String key, String entityValue, Map<String, Object> props) {
+        if (!entityValue.isEmpty() && !entityValue.equals(node.get(key).asString(""))) {
+            props.put(key, entityValue);
+        }
+    }
+
+    private <T> T timed(String phase, Callable<T> work) throws Exception {
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            T result = work.call();
+            failed = false;
+            return result;
+        } finally {
+            stats.get(phase).record(System.nanoTime() - start, failed);
+        }
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.airavata.drms.api.write;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency counters of one phase of {@link ResourceWritePipeline}
+ */
+public class WritePhaseStats {
+
+    private final String phase;
+    private final LongAdder count = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    WritePhaseStats(String phase) {
+        this.phase = phase;
+    }
+
+    void record(long nanos, boolean failed) {
+        count.increment();
+        if (failed) {
+            failures.increment();
+        }
+        totalNanos.add(nanos);
+        maxNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    void reset() {
+        count.reset();
+        failures.reset();
+        totalNanos.reset();
+        maxNanos.set(0);
+    }
+
+    public String getPhase() {
+        return phase;
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public long getFailures() {
+        return failures.sum();
+    }
+
+    public double getAverageMillis() {
+        long executions = count.sum();
+        return executions == 0 ? 0 : totalNanos.sum() / 1_000_000.0 / executions;
+    }
+
+    public double getMaxMillis() {
+        return maxNanos.get() / 1_000_000.0;
+    }
+}
@@ -1,5 +1,7 @@
 package org.apache.airavata.drms.custos.synchronizer;
 
+import org.apache.airavata.drms.core.connection.Neo4JConnectionConfig;
+
 public class Configuration {
 
     private long pollingInterval;
@@ -45,6 +47,7 @@ public class Configuration {
         private String consumerGroup;
         private int maxPollRecordsConfig;
         private String[] topics;
+        private String accessInvalidationTopic;
 
         public Custos(String host, int port, String custosId, String custosSec, String[] tenantsToBeSynced,
                       String custosBrokerURL, String consumerGroup, int maxPollRecordsConfig, String[] topics) {
@@ -134,6 +137,14 @@ public class Configuration {
         public void setTopics(String[] topics) {
             this.topics = topics;
         }
+
+        public String getAccessInvalidationTopic() {
+            return accessInvalidationTopic;
+        }
+
+        public void setAccessInvalidationTopic(String accessInvalidationTopic) {
+            this.accessInvalidationTopic = accessInvalidationTopic;
+        }
     }
 
     public static class DataResourceManagementService {
@@ -141,6 +152,10 @@ public class Configuration {
         private String dbURI;
         private String dbUser;
         private String dbPassword;
+        private int maxPoolSize = Neo4JConnectionConfig.DEFAULT_MAX_POOL_SIZE;
+        private long acquisitionTimeoutMs = Neo4JConnectionConfig.DEFAULT_ACQUISITION_TIMEOUT_MS;
+        private long maxConnectionLifetimeMs = Neo4JConnectionConfig.DEFAULT_MAX_CONNECTION_LIFETIME_MS;
+        private long healthCheckIntervalMs = Neo4JConnectionConfig.DEFAULT_HEALTH_CHECK_INTERVAL_MS;
 
         public DataResourceManagementService(String dbURI, String dbUser, String dbPassword) {
             this.dbURI = dbURI;
@@ -174,6 +189,38 @@ public class Configuration {
         public void setDbPassword(String dbPassword) {
             this.dbPassword = dbPassword;
         }
+
+        public int getMaxPoolSize() {
+            return maxPoolSize;
+        }
+
+        public void setMaxPoolSize(int maxPoolSize) {
+            this.maxPoolSize = maxPoolSize;
+        }
+
+        public long getAcquisitionTimeoutMs() {
+            return acquisitionTimeoutMs;
+        }
+
+        public void setAcquisitionTimeoutMs(long acquisitionTimeoutMs) {
+            this.acquisitionTimeoutMs = acquisitionTimeoutMs;
+        }
+
+        public long getMaxConnectionLifetimeMs() {
+            return maxConnectionLifetimeMs;
+        }
+
+        public void setMaxConnectionLifetimeMs(long maxConnectionLifetimeMs) {
+            this.maxConnectionLifetimeMs = maxConnectionLifetimeMs;
+        }
+
+        public long getHealthCheckIntervalMs() {
+            return healthCheckIntervalMs;
+        }
+
+        public void setHealthCheckIntervalMs(long healthCheckIntervalMs) {
+            this.healthCheckIntervalMs = healthCheckIntervalMs;
+        }
     }
 
 
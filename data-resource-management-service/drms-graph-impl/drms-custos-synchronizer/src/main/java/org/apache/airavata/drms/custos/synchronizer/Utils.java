@@ -1,6 +1,10 @@
 package org.apache.airavata.drms.custos.synchronizer;
 
 import org.apache.airavata.drms.core.Neo4JConnector;
+import org.apache.airavata.drms.core.access.AccessIndex;
+import org.apache.airavata.drms.core.ancestry.AncestryIndex;
+import org.apache.airavata.drms.core.connection.Neo4JConnectionConfig;
+import org.apache.airavata.drms.custos.synchronizer.handlers.events.AccessInvalidationPublisher;
 import org.apache.custos.clients.CustosClientProvider;
 import org.apache.custos.group.management.client.GroupManagementClient;
 import org.apache.custos.sharing.management.client.SharingManagementClient;
@@ -18,10 +22,13 @@ public class Utils {
     private static final Logger LOGGER = LoggerFactory.getLogger(Utils.class);
 
     private static final Neo4JConnector neo4JConnector = new Neo4JConnector();
+    private static final AccessIndex accessIndex = new AccessIndex(neo4JConnector);
+    private static final AncestryIndex ancestryIndex = new AncestryIndex(neo4JConnector);
     private static CustosClientProvider custosClientProvider = null;
     private static SharingManagementClient sharingManagementClient;
     private static UserManagementClient userManagementClient;
     private static GroupManagementClient groupManagementClient;
+    private static AccessInvalidationPublisher accessInvalidationPublisher;
     private static Configuration configuration;
 
 
@@ -47,9 +54,7 @@ public class Utils {
 
     public static void initializeConnectors(Configuration config) throws IOException {
         configuration = config;
-        neo4JConnector.init(configuration.getDataResourceManagementService().getDbURI(),
-                configuration.getDataResourceManagementService().getDbUser(),
-                configuration.getDataResourceManagementService().getDbPassword());
+        neo4JConnector.init(getNeo4JConnectionConfig(configuration.getDataResourceManagementService()));
         custosClientProvider = new CustosClientProvider.Builder()
                 .setClientId(configuration.getCustos().getCustosId())
                 .setClientSec(configuration.getCustos().getCustosSec())
@@ -59,18 +64,40 @@ public class Utils {
         sharingManagementClient = custosClientProvider.getSharingManagementClient();
         groupManagementClient = custosClientProvider.getGroupManagementClient();
         userManagementClient = custosClientProvider.getUserManagementClient();
-    }
 
-    public synchronized static Neo4JConnector getNeo4JConnector() {
-        if (neo4JConnector.isOpen()) {
-            return neo4JConnector;
-        } else {
-            neo4JConnector.init(configuration.getDataResourceManagementService().getDbURI(),
-                    configuration.getDataResourceManagementService().getDbUser(),
-                    configuration.getDataResourceManagementService().getDbPassword());
-            return neo4JConnector;
+        String invalidationTopic = configuration.getCustos().getAccessInvalidationTopic();
+        if (invalidationTopic != null && !invalidationTopic.isEmpty()) {
+            accessInvalidationPublisher = new AccessInvalidationPublisher(
+                    configuration.getCustos().getCustosBrokerURL(), invalidationTopic);
         }
+    }
+
+    public static Neo4JConnector getNeo4JConnector() {
+        // Liveness is tracked by the connector's background probe, which rebuilds the driver on failure
+        return neo4JConnector;
+    }
+
+    public static AccessIndex getAccessIndex() {
+        return accessIndex;
+    }
+
+    public static AncestryIndex getAncestryIndex() {
+        return ancestryIndex;
+    }
+
+    /**
+     * @return the publisher for access cache invalidations, or null when no topic is configured
+     */
+    public static AccessInvalidationPublisher getAccessInvalidationPublisher() {
+        return accessInvalidationPublisher;
+    }
 
+    private static Neo4JConnectionConfig getNeo4JConnectionConfig(Configuration.DataResourceManagementService drms) {
+        return new Neo4JConnectionConfig(drms.getDbURI(), drms.getDbUser(), drms.getDbPassword())
+                .setMaxPoolSize(drms.getMaxPoolSize())
+                .setAcquisitionTimeoutMs(drms.getAcquisitionTimeoutMs())
+                .setMaxConnectionLifetimeMs(drms.getMaxConnectionLifetimeMs())
+                .setHealthCheckIntervalMs(drms.getHealthCheckIntervalMs());
     }
 
     public synchronized static SharingManagementClient getSharingManagementClient() throws IOException {
@@ -1,6 +1,7 @@
 package org.apache.airavata.drms.custos.synchronizer.handlers;
 
 import org.apache.airavata.drms.custos.synchronizer.Configuration;
+import org.apache.airavata.drms.core.query.NodeLabel;
 import org.apache.airavata.drms.custos.synchronizer.Utils;
 import org.apache.custos.sharing.management.client.SharingManagementClient;
 import org.apache.custos.sharing.service.Entity;
@@ -10,10 +11,7 @@ import org.apache.custos.sharing.service.SharingRequest;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.Arrays;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import java.util.*;
 
 public class SharingHandler {
 
@@ -50,10 +48,14 @@ public class SharingHandler {
                     mergeEntities(metadata.getEntity(), clientId);
 
                 });
+                Set<String> entityIds = new HashSet<>();
                 metadataList.forEach(metadata -> {
                     mergeEntityParentChildRelationShips(sharingManagementClient, metadata.getEntity(), clientId);
                     mergeEntitySharings(metadata, clientId);
+                    entityIds.add(metadata.getEntity().getId());
                 });
+                refreshAccess(clientId, entityIds);
+                refreshAncestry(clientId, entityIds);
             });
 
         } catch (UnsupportedOperationException exception) {
@@ -69,7 +71,9 @@ public class SharingHandler {
     private void mergeEntities(Entity entity, String clientId) {
         String query = "Merge (u: " + entity.getType() + " {entityId: $entityId,"
                 + "tenantId:$tenantId})"
-                + " SET u += $props return u ";
+                + " SET u += $props"
+                + (NodeLabel.isResourceLabel(entity.getType()) ? " SET u:" + NodeLabel.RESOURCE.getLabel() : "")
+                + " return u ";
         Map<String, Object> map = new HashMap<>();
         map.put("description", entity.getDescription());
         map.put("name", entity.getName());
@@ -168,7 +172,12 @@ public class SharingHandler {
         map.put("entityId", entityId);
         map.put("tenantId", clientId);
         try {
+            // Descendants lose the access they inherited through the deleted entity, and the entity as an ancestor
+            List<String> subtree = Utils.getAccessIndex().getSubtree(clientId, Collections.singletonList(entityId));
+            subtree.remove(entityId);
             Utils.getNeo4JConnector().runTransactionalQuery(map, query);
+            Utils.getAccessIndex().refreshResources(clientId, subtree);
+            Utils.getAncestryIndex().refreshResources(clientId, subtree);
         } catch (UnsupportedOperationException exception) {
             LOGGER.debug("Error occurred while merging", exception);
         } catch (Exception ex) {
@@ -198,6 +207,7 @@ public class SharingHandler {
         map.put("userId", userId);
         try {
             Utils.getNeo4JConnector().runTransactionalQuery(map, query);
+            refreshAccess(clientId, Collections.singletonList(entityId));
         } catch (UnsupportedOperationException exception) {
             LOGGER.debug("Error occurred while merging", exception);
         } catch (Exception ex) {
@@ -207,5 +217,21 @@ public class SharingHandler {
 
     }
 
+    private void refreshAccess(String clientId, Collection<String> entityIds) {
+        try {
+            Utils.getAccessIndex().refreshSubtrees(clientId, entityIds);
+        } catch (Exception ex) {
+            String msg = "Error occurred while refreshing access index, " + ex.getMessage();
+            LOGGER.error(msg, ex);
+        }
+    }
 
+    private void refreshAncestry(String clientId, Collection<String> entityIds) {
+        try {
+            Utils.getAncestryIndex().refreshSubtrees(clientId, entityIds);
+        } catch (Exception ex) {
+            String msg = "Error occurred while refreshing ancestry index, " + ex.getMessage();
+            LOGGER.error(msg, ex);
+        }
+    }
 }
@@ -9,9 +9,7 @@ import org.apache.custos.user.profile.service.GetAllUserProfilesResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.Arrays;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.*;
 
 
 public class UserAndGroupHandler {
@@ -103,18 +101,22 @@ public class UserAndGroupHandler {
         try {
             Arrays.stream(clientIds).forEach(val -> {
                 GetAllGroupsResponse response = groupManagementClient.getAllGroups(val);
+                Set<String> members = new HashSet<>();
                 response.getGroupsList().forEach(gr -> {
                     GetAllUserProfilesResponse userProfilesResponse = groupManagementClient.getAllChildUsers(val, gr.getId());
                     userProfilesResponse.getProfilesList().forEach(prof -> {
                         String memberShipType = prof.getMembershipType();
                         String userId = prof.getUsername();
                         mergeUserMemberShip(userId, gr.getId(), val, memberShipType);
+                        members.add(userId);
                     });
                     GetAllGroupsResponse getAllGroupsResponse = groupManagementClient.getAllChildGroups(val, gr.getId());
                     getAllGroupsResponse.getGroupsList().forEach(grMem -> {
                         mergeGroupMemberShip(gr.getId(), grMem.getId(), val);
                     });
                 });
+                // Every member of every group was visited, which covers users affected by group nesting as well
+                refreshAccess(val, members);
             });
         } catch (Exception ex) {
             LOGGER.error("Error occurred while merging groups ", ex);
@@ -178,7 +180,9 @@ public class UserAndGroupHandler {
         map.put("groupId", groupId);
         map.put("tenantId", clientId);
         try {
+            List<String> affectedUsers = Utils.getAccessIndex().getAffectedUsers(clientId, groupId);
             Utils.getNeo4JConnector().runTransactionalQuery(map, query);
+            refreshAccess(clientId, affectedUsers);
         } catch (Exception ex) {
             String msg = "Error occurred while deleting group ";
             LOGGER.error(msg, ex);
@@ -195,6 +199,7 @@ public class UserAndGroupHandler {
         map.put("tenantId", tenantId);
         try {
             Utils.getNeo4JConnector().runTransactionalQuery(map, query);
+            refreshAccess(tenantId, Collections.singletonList(username));
         } catch (Exception ex) {
             String msg = "Error occurred while deleting user group membership from user " +
                     "" + username + " in group " + groupId;
@@ -212,7 +217,9 @@ public class UserAndGroupHandler {
         map.put("childGroupId", childGroupId);
         map.put("tenantId", tenantId);
         try {
+            List<String> affectedUsers = Utils.getAccessIndex().getAffectedUsers(tenantId, parentGroupId);
             Utils.getNeo4JConnector().runTransactionalQuery(map, query);
+            refreshAccess(tenantId, affectedUsers);
         } catch (Exception ex) {
             String msg = "Error occurred while deleting  group memberships from "
                     + parentGroupId + " to " + childGroupId;
@@ -221,4 +228,12 @@ public class UserAndGroupHandler {
 
     }
 
+    private void refreshAccess(String tenantId, Collection<String> usernames) {
+        try {
+            Utils.getAccessIndex().refreshUsers(tenantId, usernames);
+        } catch (Exception ex) {
+            LOGGER.error("Error occurred while refreshing access index ", ex);
+        }
+    }
+
 }
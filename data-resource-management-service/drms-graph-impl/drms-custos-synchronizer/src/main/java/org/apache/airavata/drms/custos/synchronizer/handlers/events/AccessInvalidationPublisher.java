@@ -0,0 +1,48 @@
+package org.apache.airavata.drms.custos.synchronizer.handlers.events;
+
+import org.apache.airavata.drms.core.access.AccessInvalidation;
+import org.apache.kafka.clients.producer.KafkaProducer;
+import org.apache.kafka.clients.producer.Producer;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Properties;
+
+/**
+ * Announces access index changes applied from Custos events so that DRMS API instances can drop
+ * cached permission decisions. Messages are keyed by tenant to keep a tenant's invalidations ordered.
+ */
+public class AccessInvalidationPublisher {
+    private static final Logger LOGGER = LoggerFactory.getLogger(AccessInvalidationPublisher.class);
+
+    private final Producer<String, String> producer;
+    private final String topic;
+
+    public AccessInvalidationPublisher(String brokerURL, String topic) {
+        final Properties props = new Properties();
+        props.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, brokerURL);
+        props.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class.getName());
+        props.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, StringSerializer.class.getName());
+        props.put(ProducerConfig.ACKS_CONFIG, "1");
+        props.put(ProducerConfig.LINGER_MS_CONFIG, 5);
+
+        this.producer = new KafkaProducer<>(props);
+        this.topic = topic;
+    }
+
+    public void publish(AccessInvalidation invalidation) {
+        producer.send(new ProducerRecord<>(topic, invalidation.getTenantId(), invalidation.encode()),
+                (metadata, exception) -> {
+                    if (exception != null) {
+                        LOGGER.error("Failed to publish access invalidation {}", invalidation, exception);
+                    }
+                });
+    }
+
+    public void close() {
+        producer.close();
+    }
+}
@@ -1,5 +1,7 @@
 package org.apache.airavata.drms.custos.synchronizer.handlers.events;
 
+import org.apache.airavata.drms.core.access.AccessInvalidation;
+import org.apache.airavata.drms.custos.synchronizer.Utils;
 import org.apache.airavata.drms.custos.synchronizer.handlers.SharingHandler;
 import org.apache.airavata.drms.custos.synchronizer.handlers.UserAndGroupHandler;
 import org.apache.custos.messaging.service.Message;
@@ -59,6 +61,8 @@ public class EventDemux {
         String entityId = message.getPropertiesMap().get("ENTITY_ID");
         String entityType = message.getPropertiesMap().get("ENTITY_TYPE");
         sharingHandler.deleteEntity(entityId, entityType, clientId);
+        // Orphaned descendants may lose inherited access for any user of the tenant
+        publish(AccessInvalidation.tenant(clientId));
     }
 
     private static void deleteEntitySharingsForUsers(Message message) {
@@ -69,6 +73,7 @@ public class EventDemux {
         String userId = message.getPropertiesMap().get("USER_ID");
         String permission = message.getPropertiesMap().get("PERMISSION_TYPE");
         sharingHandler.deleteEntitySharings(entityId, entityType, "USER", userId, permission, clientId);
+        publish(AccessInvalidation.user(clientId, userId));
     }
 
     private static void deleteEntitySharingsForGroups(Message message) {
@@ -80,6 +85,7 @@ public class EventDemux {
         String permission = message.getPropertiesMap().get("PERMISSION_TYPE");
         sharingHandler.deleteEntity(entityId, entityType, clientId);
         sharingHandler.deleteEntitySharings(entityId, entityType, "GROUP", userId, permission, clientId);
+        publish(AccessInvalidation.tenant(clientId));
     }
 
     private static void deleteGroup(Message message) {
@@ -87,6 +93,7 @@ public class EventDemux {
         String clientId = message.getClientId();
         String groupId = message.getPropertiesMap().get("GROUP_ID");
         userAndGroupHandler.deleteGroup(groupId, clientId);
+        publish(AccessInvalidation.tenant(clientId));
     }
 
     private static void deleteGroupMembership(Message message) {
@@ -95,6 +102,14 @@ public class EventDemux {
         String groupId = message.getPropertiesMap().get("GROUP_ID");
         String userId = message.getPropertiesMap().get("USER_ID");
         userAndGroupHandler.deleteUserGroupMembership(userId, clientId, groupId);
+        publish(AccessInvalidation.user(clientId, userId));
+    }
+
+    private static void publish(AccessInvalidation invalidation) {
+        AccessInvalidationPublisher publisher = Utils.getAccessInvalidationPublisher();
+        if (publisher != null) {
+            publisher.publish(invalidation);
+        }
     }
 
 }
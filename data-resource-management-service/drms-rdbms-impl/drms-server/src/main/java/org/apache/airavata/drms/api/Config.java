@@ -1,6 +1,8 @@
 package org.apache.airavata.drms.api;
 
 import io.grpc.ServerInterceptor;
+import org.apache.airavata.drms.api.access.CustosSharingAccessChecker;
+import org.apache.airavata.drms.api.access.SharingAccessChecker;
 import org.apache.airavata.drms.api.interceptors.Authenticator;
 import org.apache.airavata.drms.api.interceptors.InterceptorPipelineExecutor;
 import org.apache.airavata.drms.api.interceptors.ServiceInterceptor;
@@ -10,6 +12,7 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.io.IOException;
 import java.util.Stack;
 
 @Configuration
@@ -52,5 +55,10 @@ public class Config {
                 .setClientSec(custosSec).build();
     }
 
+    @Bean(destroyMethod = "close")
+    public SharingAccessChecker sharingAccessChecker(CustosClientProvider custosClientProvider) throws IOException {
+        return new CustosSharingAccessChecker(custosClientProvider);
+    }
+
 
 }
@@ -0,0 +1,199 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.airavata.drms.api.access;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+/**
+ * Bounded, least recently used cache of (tenant, user, entity, permission type) decisions of Custos. Denials are
+ * cached as well, for a shorter time than grants, so that a caller probing entities it cannot see does not reach
+ * Custos on every call while a new share still shows up soon. Sharing changes made through DRMS invalidate entries
+ * right away; changes made in Custos directly are picked up when the entries expire.
+ */
+@Component
+public class AccessDecisionCache {
+
+    private final int maxEntries;
+    private final long ttlMillis;
+    private final long negativeTtlMillis;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+
+    private final Map<Key, Decision> decisions = new LinkedHashMap<Key, Decision>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, Decision> eldest) {
+            if (size() > maxEntries) {
+                evictions.incrementAndGet();
+                return true;
+            }
+            return false;
+        }
+    };
+
+    public AccessDecisionCache(@Value("${drms.access.cache.max.entries:100000}") int maxEntries,
+                               @Value("${drms.access.cache.ttl.seconds:60}") long ttlSeconds,
+                               @Value("${drms.access.cache.negative.ttl.seconds:10}") long negativeTtlSeconds) {
+        this.maxEntries = maxEntries;
+        this.ttlMillis = ttlSeconds * 1000;
+        this.negativeTtlMillis = negativeTtlSeconds * 1000;
+    }
+
+    /**
+     * @return the cached decision, or empty if there is none or it expired
+     */
+    public Optional<Boolean> get(String tenantId, String username, String entityId, String permissionId) {
+        Key key = new Key(tenantId, username, entityId, permissionId);
+        Decision decision;
+        synchronized (decisions) {
+            decision = decisions.get(key);
+            if (decision != null && decision.expiresAt < System.currentTimeMillis()) {
+                decisions.remove(key);
+                decision = null;
+            }
+        }
+        if (decision == null) {
+            misses.incrementAndGet();
+            return Optional.empty();
+        }
+        hits.incrementAndGet();
+        return Optional.of(decision.allowed);
+    }
+
+    /**
+     * @return the current generation, to be passed to {@link #put} with a decision looked up afterwards
+     */
+    public long getGeneration() {
+        return invalidations.get();
+    }
+
+    /**
+     * Caches a decision unless entries were invalidated since the given generation, in which case the decision may
+     * predate the change that invalidated them
+     */
+    public void put(String tenantId, String username, String entityId, String permissionId, boolean allowed,
+                    long generation) {
+        long ttl = allowed ? ttlMillis : negativeTtlMillis;
+        if (ttl <= 0) {
+            return;
+        }
+        Decision decision = new Decision(allowed, System.currentTimeMillis() + ttl);
+        synchronized (decisions) {
+            if (invalidations.get() == generation) {
+                decisions.put(new Key(tenantId, username, entityId, permissionId), decision);
+            }
+        }
+    }
+
+    public void invalidateUser(String tenantId, String username) {
+        removeIf(key -> key.tenantId.equals(tenantId) && key.username.equals(username));
+    }
+
+    public void invalidateEntities(String tenantId, Collection<String> entityIds) {
+        if (entityIds.isEmpty()) {
+            return;
+        }
+        Set<String> ids = new HashSet<>(entityIds);
+        removeIf(key -> key.tenantId.equals(tenantId) && ids.contains(key.entityId));
+    }
+
+    public void invalidateTenant(String tenantId) {
+        removeIf(key -> key.tenantId.equals(tenantId));
+    }
+
+    public void clear() {
+        removeIf(key -> true);
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    public long getInvalidations() {
+        return invalidations.get();
+    }
+
+    public int getSize() {
+        synchronized (decisions) {
+            return decisions.size();
+        }
+    }
+
+    private void removeIf(Predicate<Key> predicate) {
+        synchronized (decisions) {
+            decisions.keySet().removeIf(predicate);
+            invalidations.incrementAndGet();
+        }
+    }
+
+    private static final class Decision {
+        private final boolean allowed;
+        private final long expiresAt;
+
+        private Decision(boolean allowed, long expiresAt) {
+            this.allowed = allowed;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private static final class Key {
+        private final String tenantId;
+        private final String username;
+        private final String entityId;
+        private final String permissionId;
+
+        private Key(String tenantId, String username, String entityId, String permissionId) {
+            this.tenantId = tenantId;
+            this.username = username;
+            this.entityId = entityId;
+            this.permissionId = permissionId;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            return tenantId.equals(key.tenantId) && username.equals(key.username) && entityId.equals(key.entityId)
+                    && permissionId.equals(key.permissionId);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(tenantId, username, entityId, permissionId);
+        }
+    }
+}
@@ -0,0 +1,221 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.airavata.drms.api.access;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Answers whether users hold permission types on Custos entities. Decisions come from the {@link AccessDecisionCache}
+ * when present, and the remaining (entity, permission type) pairs of a call are checked against the
+ * {@link SharingAccessChecker} concurrently, at most drms.access.check.parallelism at a time. A single entity access
+ * check is the exception, as it needs only one grant.
+ */
+@Component
+public class AuthorizationService {
+
+    private final SharingAccessChecker accessChecker;
+    private final AccessDecisionCache decisionCache;
+    private final long timeoutSeconds;
+    private final ThreadPoolExecutor executor;
+
+    public AuthorizationService(SharingAccessChecker accessChecker, AccessDecisionCache decisionCache,
+                                @Value("${drms.access.check.parallelism:16}") int parallelism,
+                                @Value("${drms.access.check.queue.capacity:1000}") int queueCapacity,
+                                @Value("${drms.access.check.timeout.seconds:30}") long timeoutSeconds) {
+        this.accessChecker = accessChecker;
+        this.decisionCache = decisionCache;
+        this.timeoutSeconds = timeoutSeconds;
+        AtomicInteger threadCount = new AtomicInteger();
+        // A saturated pool runs the check on the calling gRPC thread instead of failing the request
+        this.executor = new ThreadPoolExecutor(parallelism, parallelism, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+            Thread thread = new Thread(runnable, "drms-access-check-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }, new ThreadPoolExecutor.CallerRunsPolicy());
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    @PreDestroy
+    public void stop() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Checks the permission types in the order they were given and stops at the first one the user holds, after
+     * looking all of them up in the cache, so that a user with the first type costs one check rather than one per type
+     *
+     * @return whether the user holds any of the permission types on the entity
+     */
+    public boolean hasAccess(String tenantId, String username, String entityId, String... permissionIds)
+            throws IOException {
+        List<String> uncached = new ArrayList<>();
+        for (String permissionId : permissionIds) {
+            Optional<Boolean> cached = decisionCache.get(tenantId, username, entityId, permissionId);
+            if (!cached.isPresent()) {
+                uncached.add(permissionId);
+            } else if (cached.get()) {
+                return true;
+            }
+        }
+        long generation = decisionCache.getGeneration();
+        for (String permissionId : uncached) {
+            if (lookup(tenantId, username, new Check(entityId, permissionId), generation)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the permission types the user holds on the entity, in the order they were given
+     */
+    public List<String> grantedPermissions(String tenantId, String username, String entityId,
+                                           String... permissionIds) throws IOException {
+        return check(tenantId, username, Collections.singleton(entityId), Arrays.asList(permissionIds))
+                .get(entityId);
+    }
+
+    /**
+     * @return the entities of which the user holds any of the permission types, in the order they were given
+     */
+    public Set<String> filterAccessible(String tenantId, String username, Collection<String> entityIds,
+                                        String... permissionIds) throws IOException {
+        Set<String> accessible = new LinkedHashSet<>();
+        check(tenantId, username, entityIds, Arrays.asList(permissionIds)).forEach((entityId, granted) -> {
+            if (!granted.isEmpty()) {
+                accessible.add(entityId);
+            }
+        });
+        return accessible;
+    }
+
+    /**
+     * Checks every permission type on every entity with one call
+     *
+     * @return the permission types the user holds on each entity, with entities and permission types in the order
+     * they were given
+     */
+    public Map<String, List<String>> check(String tenantId, String username, Collection<String> entityIds,
+                                           Collection<String> permissionIds) throws IOException {
+        Map<String, Map<String, Boolean>> decisions = new LinkedHashMap<>();
+        List<Check> pending = new ArrayList<>();
+        for (String entityId : entityIds) {
+            Map<String, Boolean> entityDecisions = decisions.computeIfAbsent(entityId, id -> new LinkedHashMap<>());
+            for (String permissionId : permissionIds) {
+                if (entityDecisions.containsKey(permissionId)) {
+                    continue;
+                }
+                Optional<Boolean> cached = decisionCache.get(tenantId, username, entityId, permissionId);
+                entityDecisions.put(permissionId, cached.orElse(null));
+                if (!cached.isPresent()) {
+                    pending.add(new Check(entityId, permissionId));
+                }
+            }
+        }
+
+        long generation = decisionCache.getGeneration();
+        if (pending.size() == 1) {
+            // Nothing to overlap a single check with
+            Check check = pending.get(0);
+            decisions.get(check.entityId).put(check.permissionId, lookup(tenantId, username, check, generation));
+        } else if (!pending.isEmpty()) {
+            await(tenantId, username, pending, generation, decisions);
+        }
+
+        Map<String, List<String>> granted = new LinkedHashMap<>();
+        decisions.forEach((entityId, entityDecisions) -> {
+            List<String> permissions = new ArrayList<>();
+            entityDecisions.forEach((permissionId, allowed) -> {
+                if (allowed) {
+                    permissions.add(permissionId);
+                }
+            });
+            granted.put(entityId, permissions);
+        });
+        return granted;
+    }
+
+    /**
+     * Drops the decisions of a tenant, for after its sharing changed. Shares cascade to child entities, so the
+     * decisions of the shared entity alone do not cover the change.
+     */
+    public void invalidateTenant(String tenantId) {
+        decisionCache.invalidateTenant(tenantId);
+    }
+
+    public void invalidateEntities(String tenantId, Collection<String> entityIds) {
+        decisionCache.invalidateEntities(tenantId, entityIds);
+    }
+
+    private void await(String tenantId, String username, List<Check> pending, long generation,
+                       Map<String, Map<String, Boolean>> decisions) throws IOException {
+        List<Future<Boolean>> futures = new ArrayList<>(pending.size());
+        for (Check check : pending) {
+            futures.add(executor.submit(() -> lookup(tenantId, username, check, generation)));
+        }
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(timeoutSeconds);
+        try {
+            for (int i = 0; i < pending.size(); i++) {
+                Check check = pending.get(i);
+                boolean allowed = futures.get(i).get(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                decisions.get(check.entityId).put(check.permissionId, allowed);
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while checking access of user " + username);
+        } catch (TimeoutException ex) {
+            throw new IOException("Timed out checking access of user " + username + " after " + timeoutSeconds
+                    + " seconds", ex);
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException("Failed to check access of user " + username, cause);
+        } finally {
+            futures.forEach(future -> future.cancel(true));
+        }
+    }
+
+    private boolean lookup(String tenantId, String username, Check check, long generation) throws IOException {
+        boolean allowed = accessChecker.userHasAccess(tenantId, username, check.entityId, check.permissionId);
+        decisionCache.put(tenantId, username, check.entityId, check.permissionId, allowed, generation);
+        return allowed;
+    }
+
+    private static final class Check {
+        private final String entityId;
+        private final String permissionId;
+
+        private Check(String entityId, String permissionId) {
+            this.entityId = entityId;
+            this.permissionId = permissionId;
+        }
+    }
+}
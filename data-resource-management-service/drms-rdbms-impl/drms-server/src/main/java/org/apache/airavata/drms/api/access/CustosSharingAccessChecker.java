@@ -0,0 +1,55 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.airavata.drms.api.access;
+
+import org.apache.custos.clients.CustosClientProvider;
+import org.apache.custos.sharing.core.Entity;
+import org.apache.custos.sharing.core.PermissionType;
+import org.apache.custos.sharing.management.client.SharingManagementClient;
+import org.apache.custos.sharing.service.SharingRequest;
+
+import java.io.IOException;
+
+/**
+ * Checks access against Custos over one sharing management client, whose channel is opened once and shared by all
+ * checks until the server stops
+ */
+public class CustosSharingAccessChecker implements SharingAccessChecker {
+
+    private final SharingManagementClient sharingManagementClient;
+
+    public CustosSharingAccessChecker(CustosClientProvider custosClientProvider) throws IOException {
+        this.sharingManagementClient = custosClientProvider.getSharingManagementClient();
+    }
+
+    @Override
+    public boolean userHasAccess(String tenantId, String username, String entityId, String permissionId)
+            throws IOException {
+        SharingRequest sharingRequest = SharingRequest
+                .newBuilder()
+                .setEntity(Entity.newBuilder().setId(entityId).build())
+                .setPermissionType(PermissionType.newBuilder().setId(permissionId).build())
+                .addOwnerId(username)
+                .build();
+        return sharingManagementClient.userHasAccess(tenantId, sharingRequest).getStatus();
+    }
+
+    @Override
+    public void close() throws IOException {
+        sharingManagementClient.close();
+    }
+}
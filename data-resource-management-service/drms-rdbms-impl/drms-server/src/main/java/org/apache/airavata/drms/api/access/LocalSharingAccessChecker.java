@@ -0,0 +1,79 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.airavata.drms.api.access;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In memory stand-in for the Custos sharing endpoint, so that access checks run without a Custos server. Grants are
+ * matched exactly, without groups or inheritance from parents, and each check can be delayed to model the round trip
+ * to Custos.
+ */
+public class LocalSharingAccessChecker implements SharingAccessChecker {
+
+    private final Set<List<String>> grants = ConcurrentHashMap.newKeySet();
+    private final AtomicLong checks = new AtomicLong();
+    private volatile long latencyMillis;
+
+    public LocalSharingAccessChecker grant(String tenantId, String username, String entityId, String permissionId) {
+        grants.add(Arrays.asList(tenantId, username, entityId, permissionId));
+        return this;
+    }
+
+    public void revoke(String tenantId, String username, String entityId, String permissionId) {
+        grants.remove(Arrays.asList(tenantId, username, entityId, permissionId));
+    }
+
+    /**
+     * @param latencyMillis time each check takes before it is answered
+     */
+    public void setLatencyMillis(long latencyMillis) {
+        this.latencyMillis = latencyMillis;
+    }
+
+    /**
+     * @return number of checks answered, as the number of calls Custos would have received
+     */
+    public long getChecks() {
+        return checks.get();
+    }
+
+    @Override
+    public boolean userHasAccess(String tenantId, String username, String entityId, String permissionId)
+            throws IOException {
+        checks.incrementAndGet();
+        if (latencyMillis > 0) {
+            try {
+                Thread.sleep(latencyMillis);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while checking access to " + entityId);
+            }
+        }
+        return grants.contains(Arrays.asList(tenantId, username, entityId, permissionId));
+    }
+
+    @Override
+    public void close() {
+    }
+}
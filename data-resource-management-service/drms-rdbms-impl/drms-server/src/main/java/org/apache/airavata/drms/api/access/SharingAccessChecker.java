@@ -0,0 +1,32 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.airavata.drms.api.access;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * The userHasAccess endpoint of the Custos sharing service. Implementations are shared by all request threads and
+ * must be thread safe.
+ */
+public interface SharingAccessChecker extends Closeable {
+
+    /**
+     * @return whether the user holds the permission type on the entity
+     */
+    boolean userHasAccess(String tenantId, String username, String entityId, String permissionId) throws IOException;
+}
@@ -17,6 +17,7 @@
 package org.apache.airavata.drms.api.handlers;
 
 import com.google.protobuf.Empty;
+import com.google.protobuf.ListValue;
 import com.google.protobuf.Struct;
 import com.google.protobuf.Value;
 import com.google.protobuf.util.JsonFormat;
@@ -28,17 +29,20 @@ import org.apache.airavata.datalake.drms.AuthenticatedUser;
 import org.apache.airavata.datalake.drms.resource.GenericResource;
 import org.apache.airavata.datalake.drms.storage.*;
 import org.apache.airavata.dataorchestrator.clients.core.NotificationClient;
+import org.apache.airavata.drms.api.access.AuthorizationService;
+import org.apache.airavata.drms.api.persistance.loader.ResourceBatchLoader;
 import org.apache.airavata.drms.api.persistance.mapper.ResourceMapper;
 import org.apache.airavata.drms.api.persistance.mapper.StorageMapper;
 import org.apache.airavata.drms.api.persistance.model.Resource;
-import org.apache.airavata.drms.api.persistance.model.ResourceProperty;
+import org.apache.airavata.drms.api.persistance.projection.ResourceLink;
+import org.apache.airavata.drms.api.persistance.projection.ResourceView;
 import org.apache.airavata.drms.api.persistance.model.TransferMapping;
 import org.apache.airavata.drms.api.persistance.model.UnverifiedResource;
-import org.apache.airavata.drms.api.persistance.repository.ResourcePropertyRepository;
 import org.apache.airavata.drms.api.persistance.repository.ResourceRepository;
 import org.apache.airavata.drms.api.persistance.repository.TransferMappingRepository;
 import org.apache.airavata.drms.api.persistance.repository.UnverifiedResourceRepository;
 import org.apache.airavata.drms.api.utils.CustosUtils;
+import org.apache.airavata.drms.api.utils.PageToken;
 import org.apache.airavata.drms.core.constants.SharingConstants;
 import org.apache.airavata.drms.core.constants.StorageConstants;
 import org.apache.custos.clients.CustosClientProvider;
@@ -71,10 +75,10 @@ public class ResourceServiceHandler extends ResourceServiceGrpc.ResourceServiceI
     private CustosClientProvider custosClientProvider;
 
     @Autowired
-    private ResourceRepository resourceRepository;
+    private AuthorizationService authorizationService;
 
     @Autowired
-    private ResourcePropertyRepository resourcePropertyRepository;
+    private ResourceRepository resourceRepository;
 
     @Autowired
     private TransferMappingRepository transferMappingRepository;
@@ -82,6 +86,9 @@ public class ResourceServiceHandler extends ResourceServiceGrpc.ResourceServiceI
     @Autowired
     private UnverifiedResourceRepository unverifiedResourceRepository;
 
+    @Autowired
+    private ResourceBatchLoader resourceBatchLoader;
+
     @org.springframework.beans.factory.annotation.Value("${orch.host}")
     private String orchHost;
 
@@ -97,7 +104,7 @@ public class ResourceServiceHandler extends ResourceServiceGrpc.ResourceServiceI
 
             String resourceId = request.getResourceId();
 
-            boolean access = CustosUtils.userHasAccess(custosClientProvider, callUser.getTenantId(),
+            boolean access = authorizationService.hasAccess(callUser.getTenantId(),
                     callUser.getUsername(), resourceId,
                     new String[]{SharingConstants.PERMISSION_TYPE_VIEWER, SharingConstants.PERMISSION_TYPE_EDITOR, SharingConstants.PERMISSION_TYPE_OWNER});
 
@@ -112,20 +119,29 @@ public class ResourceServiceHandler extends ResourceServiceGrpc.ResourceServiceI
                     Entity entity = sharingManagementClient
                             .getEntity(callUser.getTenantId(), sharedEntity);
 
-                    Optional<Resource> resourceOptional = resourceRepository.findById(resourceId);
+                    Optional<ResourceView> resourceOptional = resourceBatchLoader.load(resourceId);
                     if (resourceOptional.isPresent()) {
 
-                        Resource persistedRes = resourceOptional.get();
-                        GenericResource resource = ResourceMapper.map(resourceOptional.get(), entity);
-
-                        while (persistedRes.getParentResourceId() != null && !persistedRes.getParentResourceId().isEmpty()) {
-                            Optional<Resource> perResourceOptional = resourceRepository.findById(persistedRes.getParentResourceId());
-                            if (perResourceOptional.isPresent()) {
-                                persistedRes = perResourceOptional.get();
+                        ResourceView persistedRes = resourceOptional.get();
+                        GenericResource resource = ResourceMapper.map(persistedRes, entity);
+
+                        // Ancestors are walked through their links, only the storage at the root is loaded
+                        String rootId = persistedRes.getId();
+                        String rootType = persistedRes.getResourceType();
+                        String parentId = persistedRes.getParentResourceId();
+                        while (parentId != null && !parentId.isEmpty()) {
+                            Optional<ResourceLink> parentOptional = resourceRepository.findLinkById(parentId);
+                            if (!parentOptional.isPresent()) {
+                                break;
                             }
+                            rootId = parentOptional.get().getId();
+                            rootType = parentOptional.get().getResourceType();
+                            parentId = parentOptional.get().getParentResourceId();
                         }
-                        if (persistedRes.getResourceType().equals(StorageConstants.STORAGE_LABEL)) {
-                            AnyStorage storage = StorageMapper.map(persistedRes);
+                        Optional<Resource> storageOptional = StorageConstants.STORAGE_LABEL.equals(rootType) ?
+                                resourceRepository.findById(rootId) : Optional.empty();
+                        if (storageOptional.isPresent()) {
+                            AnyStorage storage = StorageMapper.map(storageOptional.get());
                             if (storage.getSshStorage().isInitialized()) {
                                 resource = resource.toBuilder().setSshStorage(storage.getSshStorage()).build();
                             } else {
@@ -207,21 +223,39 @@ public class ResourceServiceHandler extends ResourceServiceGrpc.ResourceServiceI
             if (limit == 0) {
                 limit = -1;
             }
+            PageToken after;
+            try {
+                after = PageToken.decode(request.getPageToken());
+            } catch (IllegalArgumentException ex) {
+                logger.error("Invalid page token {}", request.getPageToken(), ex);
+                responseObserver.onError(Status.INVALID_ARGUMENT.withDescription(ex.getMessage()).asRuntimeException());
+                return;
+            }
 
-            boolean access = CustosUtils.userHasAccess(custosClientProvider, callUser.getTenantId(),
+            boolean access = authorizationService.hasAccess(callUser.getTenantId(),
                     callUser.getUsername(), resourceId, new String[]{SharingConstants.PERMISSION_TYPE_VIEWER,
                             SharingConstants.PERMISSION_TYPE_EDITOR, SharingConstants.PERMISSION_TYPE_OWNER});
             if (access) {
                 try (SharingManagementClient sharingManagementClient = custosClientProvider.getSharingManagementClient()) {
                     List<GenericResource> genericResources = new ArrayList<>();
-                    List<Resource> resources;
-                    if (limit > 0) {
-                        resources = resourceRepository.findAllByParentResourceIdAndTenantIdAndResourceTypeWithPagination(resourceId
+                    List<String> childIds;
+                    String nextPageToken = "";
+                    if (request.getPageSize() > 0) {
+                        childIds = findChildIds(resourceId, callUser.getTenantId(), after,
+                                request.getPageSize() + 1);
+                        if (childIds.size() > request.getPageSize()) {
+                            childIds = childIds.subList(0, request.getPageSize());
+                            nextPageToken = PageToken.encode(childIds.get(childIds.size() - 1));
+                        }
+                    } else if (limit > 0) {
+                        // Deprecated offset paging, kept for clients which do not send a page size
+                        childIds = resourceRepository.findIdsByParentResourceIdAndTenantIdWithPagination(resourceId
                                 , callUser.getTenantId(), limit, offset);
                     } else {
-                        resources = resourceRepository.findAllByParentResourceIdAndTenantId(resourceId,
+                        childIds = resourceRepository.findIdsByParentResourceIdAndTenantId(resourceId,
                                 callUser.getTenantId());
                     }
+                    Collection<ResourceView> resources = resourceBatchLoader.load(childIds).values();
 
                     resources.forEach(resource -> {
                         String id = resource.getId();
@@ -248,6 +282,7 @@ public class ResourceServiceHandler extends ResourceServiceGrpc.ResourceServiceI
                             ChildResourceFetchResponse
                                     .newBuilder()
                                     .addAllResources(genericResources)
+                                    .setNextPageToken(nextPageToken)
                                     .build();
                     responseObserver.onNext(childResourceFetchResponse);
                     responseObserver.onCompleted();
@@ -275,15 +310,14 @@ public class ResourceServiceHandler extends ResourceServiceGrpc.ResourceServiceI
 
             Optional<Resource> exResource = resourceRepository.findById(entityId);
             if (exResource.isPresent()) {
-                List<ResourceProperty> resourceProperties = resourcePropertyRepository.
-                        findByPropertyKeyAndResourceId("owner", exResource.get().getId());
+                String owner = exResource.get().getOwnerId();
                 if (parentId == null || parentId.isEmpty())
                     parentId = exResource.get().getParentResourceId();
-                if (!resourceProperties.isEmpty()) {
+                if (owner != null) {
                     Optional<Entity> exEntity = CustosUtils.mergeResourceEntity(custosClientProvider, callUser.getTenantId(),
                             parentId, type, entityId,
                             request.getResource().getResourceName(), request.getResource().getResourceName(),
-                            resourceProperties.get(0).getPropertyValue());
+                            owner);
 
                     if (exEntity.isPresent()) {
                         Resource resource = ResourceMapper.map(request.getResource(), exResource.get(), exEntity.get(), callUser);
@@ -380,36 +414,73 @@ public class ResourceServiceHandler extends ResourceServiceGrpc.ResourceServiceI
                 .setClientId(callUser.getTenantId())
                 .build();
 
+        PageToken after;
+        try {
+            after = PageToken.decode(request.getPageToken());
+        } catch (IllegalArgumentException ex) {
+            logger.error("Invalid page token {}", request.getPageToken(), ex);
+            responseObserver.onError(Status.INVALID_ARGUMENT.withDescription(ex.getMessage()).asRuntimeException());
+            return;
+        }
 
         try (SharingManagementClient sharingManagementClient = custosClientProvider.getSharingManagementClient()) {
 
 
             Entities entities = sharingManagementClient.searchEntities(callUser.getTenantId(), searchRequest);
-            List<GenericResource> metadataList = new ArrayList<>();
-            entities.getEntityArrayList().stream().filter(en -> en.getType().equals(type)).forEach(shrMetadata -> {
+            List<Entity> hits = entities.getEntityArrayList().stream().filter(en -> en.getType().equals(type))
+                    .collect(Collectors.toList());
+            List<String> hitIds = hits.stream().map(Entity::getId).collect(Collectors.toList());
+
+            // Resources are looked up per batch of hits rather than per hit, and filtered on their loaded properties
+            Map<String, ResourceView> resources = resourceBatchLoader.load(hitIds);
+            Map<String, Set<String>> matchesByKey = new LinkedHashMap<>();
+            searchMap.forEach((key, val) -> matchesByKey.put(key, resources.values().stream()
+                    .filter(resource -> resource.getPropertyValues(key).contains(val))
+                    .map(ResourceView::getId)
+                    .collect(Collectors.toSet())));
+
+            List<Entity> pageHits = hits;
+            String nextPageToken = "";
+            if (request.getPageSize() > 0) {
+                // Search hits come from Custos, so keyset pages are cut from the loaded and filtered resources
+                List<ResourceView> ordered = resources.values().stream()
+                        .filter(resource -> searchMap.isEmpty() || matchesByKey.values().stream()
+                                .anyMatch(matches -> matches.contains(resource.getId())))
+                        .filter(resource -> after == null || after.precedes(resource.getId()))
+                        .sorted(Comparator.comparing(ResourceView::getId))
+                        .collect(Collectors.toList());
+                List<ResourceView> page = ordered.subList(0, Math.min(request.getPageSize(), ordered.size()));
+                if (ordered.size() > page.size()) {
+                    ResourceView last = page.get(page.size() - 1);
+                    nextPageToken = PageToken.encode(last.getId());
+                }
+                Map<String, Entity> hitsById = hits.stream()
+                        .collect(Collectors.toMap(Entity::getId, hit -> hit, (first, second) -> first));
+                pageHits = page.stream().map(resource -> hitsById.get(resource.getId())).collect(Collectors.toList());
+            }
 
+            List<GenericResource> metadataList = new ArrayList<>();
+            for (Entity shrMetadata : pageHits) {
+                ResourceView resource = resources.get(shrMetadata.getId());
+                if (resource == null) {
+                    continue;
+                }
                 if (!searchMap.isEmpty()) {
-                    searchMap.forEach((key, val) -> {
-                        List<ResourceProperty> resourceProperties = resourcePropertyRepository
-                                .findByPropertyKeyAndPropertyValueAndResourceId(key, val, shrMetadata.getId());
-                        resourceProperties.forEach(rp -> {
-                            metadataList.add(ResourceMapper.map(rp.getResource(), shrMetadata));
-                        });
-                    });
-                } else {
-
-
-                    Optional<Resource> resourceOptional = resourceRepository.findById(shrMetadata.getId());
-                    if (resourceOptional.isPresent()) {
-                        metadataList.add(ResourceMapper.map(resourceOptional.get(), shrMetadata));
+                    // A hit is listed once per matching filter, as when each filter was queried on its own
+                    for (Set<String> matches : matchesByKey.values()) {
+                        if (matches.contains(shrMetadata.getId())) {
+                            metadataList.add(ResourceMapper.map(resource, shrMetadata));
+                        }
                     }
+                } else {
+                    metadataList.add(ResourceMapper.map(resource, shrMetadata));
                 }
-
-            });
+            }
 
             ResourceSearchResponse resourceSearchResponse = ResourceSearchResponse
                     .newBuilder()
                     .addAllResources(metadataList)
+                    .setNextPageToken(nextPageToken)
                     .build();
 
             responseObserver.onNext(resourceSearchResponse);
@@ -433,14 +504,13 @@ public class ResourceServiceHandler extends ResourceServiceGrpc.ResourceServiceI
             List<GenericResource> childResources = request.getChildResourcesList();
             childResources.forEach(childResource -> {
 
-                List<ResourceProperty> resourceProperties = resourcePropertyRepository.
-                        findByPropertyKeyAndResourceId("resourceName", childResource.getResourceId());
                 Optional<Resource> exRes = resourceRepository.findById(childResource.getResourceId());
+                String resourceName = exRes.map(Resource::getResourceName).orElse(null);
                 try {
-                    if (!resourceProperties.isEmpty() && exRes.isPresent()) {
+                    if (resourceName != null) {
                         CustosUtils.mergeResourceEntity(custosClientProvider, callUser.getTenantId(),
                                 resource.getResourceId(), childResource.getType(), childResource.getResourceId(),
-                                resourceProperties.get(0).getPropertyValue(), resourceProperties.get(0).getPropertyValue(),
+                                resourceName, resourceName,
                                 callUser.getUsername());
                         Resource chResource = exRes.get();
                         chResource.setParentResourceId(resource.getResourceId());
@@ -453,6 +523,8 @@ public class ResourceServiceHandler extends ResourceServiceGrpc.ResourceServiceI
                     logger.error(" Error occurred while adding  child memberships: Messages {} ", e.getMessage(), e);
                 }
             });
+            // Custos permissions cascade from the parent entity, which the children changed
+            authorizationService.invalidateTenant(callUser.getTenantId());
             OperationStatusResponse operationStatusResponse = OperationStatusResponse
                     .newBuilder().
                             setStatus(true)
@@ -477,13 +549,13 @@ public class ResourceServiceHandler extends ResourceServiceGrpc.ResourceServiceI
             GenericResource resource = request.getParentResource();
             List<GenericResource> childResources = request.getChildResourcesList();
             childResources.forEach(childResource -> {
-                List<ResourceProperty> resourceProperties = resourcePropertyRepository.findByPropertyKeyAndResourceId("resourceName", childResource.getResourceId());
                 Optional<Resource> exRes = resourceRepository.findById(childResource.getResourceId());
+                String resourceName = exRes.map(Resource::getResourceName).orElse(null);
                 try {
-                    if (!resourceProperties.isEmpty() && exRes.isPresent()) {
+                    if (resourceName != null) {
                         CustosUtils.mergeResourceEntity(custosClientProvider, callUser.getTenantId(),
                                 "", childResource.getType(), childResource.getResourceId(),
-                                resourceProperties.get(0).getPropertyValue(), resourceProperties.get(0).getPropertyValue(),
+                                resourceName, resourceName,
                                 callUser.getUsername());
                         Resource chResource = exRes.get();
                         chResource.setParentResourceId(null);
@@ -494,6 +566,8 @@ public class ResourceServiceHandler extends ResourceServiceGrpc.ResourceServiceI
                     logger.error(" Error occurred while adding  child memberships: Messages {} ", e.getMessage(), e);
                 }
             });
+            // Custos permissions cascade from the parent entity, which the children changed
+            authorizationService.invalidateTenant(callUser.getTenantId());
             OperationStatusResponse operationStatusResponse = OperationStatusResponse
                     .newBuilder().
                             setStatus(true)
@@ -520,13 +594,13 @@ public class ResourceServiceHandler extends ResourceServiceGrpc.ResourceServiceI
             String resourseId = request.getResourceId();
             String type = request.getType();
 
-            Optional<Resource> optionalResource = resourceRepository.findById(resourseId);
+            Optional<ResourceLink> optionalResource = resourceRepository.findLinkById(resourseId);
 
             if (optionalResource.isPresent() && !optionalResource.get().getParentResourceId().isEmpty()) {
 
                 String parentId = optionalResource.get().getParentResourceId();
 
-                List<String> allAccess = CustosUtils.getAllAccess(custosClientProvider, callUser.getTenantId(),
+                List<String> allAccess = authorizationService.grantedPermissions(callUser.getTenantId(),
                         callUser.getUsername(), parentId, new String[]{SharingConstants.PERMISSION_TYPE_VIEWER,
                                 SharingConstants.PERMISSION_TYPE_EDITOR, SharingConstants.PERMISSION_TYPE_OWNER});
 
@@ -534,7 +608,7 @@ public class ResourceServiceHandler extends ResourceServiceGrpc.ResourceServiceI
                     try (SharingManagementClient sharingManagementClient = custosClientProvider.getSharingManagementClient()) {
                         Entity enitity = Entity.newBuilder().setId(parentId).build();
                         Entity exEntity = sharingManagementClient.getEntity(callUser.getTenantId(), enitity);
-                        Optional<Resource> parentResourceOp = resourceRepository.findById(parentId);
+                        Optional<ResourceView> parentResourceOp = resourceBatchLoader.load(parentId);
                         GenericResource resource = ResourceMapper.map(parentResourceOp.get(), exEntity, allAccess);
 
                         Map<String, GenericResource> genericResourceMap = new HashMap<>();
@@ -575,7 +649,7 @@ public class ResourceServiceHandler extends ResourceServiceGrpc.ResourceServiceI
 
             Map<String, Object> map = json.toMap();
 
-            boolean status = CustosUtils.userHasAccess(custosClientProvider, callUser.getTenantId(),
+            boolean status = authorizationService.hasAccess(callUser.getTenantId(),
                     callUser.getUsername(), resourceId, new String[]{SharingConstants.PERMISSION_TYPE_EDITOR, SharingConstants.PERMISSION_TYPE_OWNER});
 
             if (status) {
@@ -583,17 +657,8 @@ public class ResourceServiceHandler extends ResourceServiceGrpc.ResourceServiceI
 
                 if (optionalResource.isPresent()) {
                     Resource resource = optionalResource.get();
-                    Set<ResourceProperty> resourcePropertySet = mergeProperties(resource, map);
-
-                    ResourceProperty resourceProperty = new ResourceProperty();
-                    resourceProperty.setPropertyKey("metadata");
-                    resourceProperty.setPropertyValue(message);
-                    resourceProperty.setResource(resource);
-                    resourcePropertySet.add(resourceProperty);
-
-                    resourcePropertySet.addAll(resource.getResourceProperty());
-
-                    resource.setResourceProperty(resourcePropertySet);
+                    mergeProperties(resource, map);
+                    resource.setProperty("metadata", message);
                     resourceRepository.save(resource);
                     responseObserver.onNext(Empty.newBuilder().build());
                     responseObserver.onCompleted();
@@ -615,8 +680,8 @@ public class ResourceServiceHandler extends ResourceServiceGrpc.ResourceServiceI
             AuthenticatedUser callUser = request.getAuthToken().getAuthenticatedUser();
             String resourceId = request.getResourceId();
 
-            boolean status = CustosUtils.userHasAccess(custosClientProvider,
-                    callUser.getTenantId(), callUser.getUsername(), resourceId,
+            boolean status = authorizationService.hasAccess(callUser.getTenantId(),
+                    callUser.getUsername(), resourceId,
                     new String[]{SharingConstants.PERMISSION_TYPE_VIEWER, SharingConstants.PERMISSION_TYPE_EDITOR, SharingConstants.PERMISSION_TYPE_OWNER});
 
             if (status) {
@@ -626,20 +691,16 @@ public class ResourceServiceHandler extends ResourceServiceGrpc.ResourceServiceI
 
                 if (resourceOptional.isPresent()) {
 
-                    List<ResourceProperty> resourceProperty = resourcePropertyRepository
-                            .findByPropertyKeyAndResourceId("metadata", resourceOptional.get().getId());
-                    if (!resourceProperty.isEmpty()) {
-                        String message = resourceProperty.get(0).getPropertyValue();
+                    String message = resourceOptional.get().getProperty("metadata");
+                    if (message != null) {
                         Struct.Builder structBuilder = Struct.newBuilder();
                         JsonFormat.parser().merge(message, structBuilder);
                         builder.addMetadata(structBuilder.build());
                     } else {
-                        List<ResourceProperty> resourceProperties = resourcePropertyRepository.findAllByResourceId(resourceId);
                         Struct.Builder structBuilder = Struct.newBuilder();
 
-                        Map<String, Value> valueMap = resourceProperties.stream()
-                                .collect(Collectors.toMap(ResourceProperty::getPropertyKey,
-                                        e -> Value.newBuilder().setStringValue(e.getPropertyValue()).build()));
+                        Map<String, Value> valueMap = resourceOptional.get().getPropertyValues().entrySet().stream()
+                                .collect(Collectors.toMap(Map.Entry::getKey, e -> toValue(e.getValue())));
 
                         structBuilder.putAllFields(valueMap);
 
@@ -748,42 +809,51 @@ public class ResourceServiceHandler extends ResourceServiceGrpc.ResourceServiceI
         }
     }
 
-    private Set<ResourceProperty> mergeProperties(Resource resource, Map<String, Object> values) {
-
-        Set<ResourceProperty> exProperties = resource.getResourceProperty();
-        Set<ResourceProperty> newProperties = new HashSet<>();
-
+    /**
+     * Sets the given metadata values as properties of the resource, keeping values it already has for keys the
+     * metadata does not contain
+     */
+    private void mergeProperties(Resource resource, Map<String, Object> values) {
 
         for (String key : values.keySet()) {
 
             if (values.get(key) instanceof Map) {
                 //TODO: Implement MAP
             } else if (values.get(key) instanceof List) {
-                ArrayList arrayList = (ArrayList) values.get(key);
-
-                arrayList.forEach(val -> {
-                    ResourceProperty resourceProperty = new ResourceProperty();
-                    resourceProperty.setPropertyKey(key);
-                    resourceProperty.setPropertyValue(val.toString());
-                    resourceProperty.setResource(resource);
-                    newProperties.add(resourceProperty);
-                });
+                List<?> list = (List<?>) values.get(key);
 
+                if (!list.isEmpty()) {
+                    resource.setPropertyValues(key, list.stream().map(String::valueOf)
+                            .collect(Collectors.toList()));
+                }
 
             } else {
-                String value = String.valueOf(values.get(key));
-                ResourceProperty resourceProperty = new ResourceProperty();
-                resourceProperty.setPropertyKey(key);
-                resourceProperty.setPropertyValue(value);
-                resourceProperty.setResource(resource);
-                newProperties.add(resourceProperty);
+                resource.setProperty(key, String.valueOf(values.get(key)));
             }
         }
+    }
 
-        return newProperties;
+    private static Value toValue(List<String> values) {
+        if (values.size() == 1) {
+            return Value.newBuilder().setStringValue(values.get(0)).build();
+        }
+        ListValue.Builder list = ListValue.newBuilder();
+        values.forEach(value -> list.addValues(Value.newBuilder().setStringValue(value)));
+        return Value.newBuilder().setListValue(list).build();
     }
 
 
+    /**
+     * @return ids of up to limit children of the resource after the given key, in keyset order
+     */
+    private List<String> findChildIds(String parentId, String tenantId, PageToken after, int limit) {
+        PageRequest page = PageRequest.of(0, limit);
+        if (after == null) {
+            return resourceRepository.findChildIds(parentId, tenantId, page);
+        }
+        return resourceRepository.findChildIdsAfter(parentId, tenantId, after.getId(), page);
+    }
+
     private void invokeUnVerifiedResourceRegistrationWorkflow(String username) {
         List<UnverifiedResource> unverifiedResources = unverifiedResourceRepository
                 .getUnverifiedResourceByUnverifiedAssociatedOwnerAndErrorCode(username, "ERR_0002");
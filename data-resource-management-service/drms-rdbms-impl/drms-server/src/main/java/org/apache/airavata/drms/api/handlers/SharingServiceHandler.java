@@ -6,6 +6,7 @@ import io.grpc.Status;
 import io.grpc.stub.StreamObserver;
 import org.apache.airavata.datalake.drms.AuthenticatedUser;
 import org.apache.airavata.datalake.drms.sharing.*;
+import org.apache.airavata.drms.api.access.AuthorizationService;
 import org.apache.custos.clients.CustosClientProvider;
 import org.apache.custos.sharing.management.client.SharingManagementClient;
 import org.apache.custos.sharing.core.Entity;
@@ -23,6 +24,9 @@ public class SharingServiceHandler extends DRMSSharingServiceGrpc.DRMSSharingSer
     @Autowired
     private CustosClientProvider custosClientProvider;
 
+    @Autowired
+    private AuthorizationService authorizationService;
+
 
     @Override
     public void shareEntityWithUser(ShareEntityWithUserRequest request, StreamObserver<Empty> responseObserver) {
@@ -63,6 +67,7 @@ public class SharingServiceHandler extends DRMSSharingServiceGrpc.DRMSSharingSer
                             .setPermissionType(PermissionType.newBuilder().setId(request.getPermissionId()).build())
                             .addOwnerId(request.getSharedUserId()).build();
                     sharingManagementClient.shareEntityWithUsers(tenantId, shrRequest);
+                    authorizationService.invalidateTenant(tenantId);
                     responseObserver.onNext(Empty.newBuilder().build());
                     responseObserver.onCompleted();
 
@@ -119,6 +124,7 @@ public class SharingServiceHandler extends DRMSSharingServiceGrpc.DRMSSharingSer
                             .setPermissionType(PermissionType.newBuilder().setId(request.getPermissionId()).build())
                             .addOwnerId(request.getSharedGroupId()).build();
                     sharingManagementClient.shareEntityWithGroups(tenantId, shrRequest);
+                    authorizationService.invalidateTenant(tenantId);
                     responseObserver.onNext(Empty.newBuilder().build());
                     responseObserver.onCompleted();
 
@@ -172,6 +178,7 @@ public class SharingServiceHandler extends DRMSSharingServiceGrpc.DRMSSharingSer
                             .setPermissionType(PermissionType.newBuilder().setId(request.getPermissionId()).build())
                             .addOwnerId(request.getRevokedUserId()).build();
                     sharingManagementClient.revokeEntitySharingFromUsers(tenantId, shrRequest);
+                    authorizationService.invalidateTenant(tenantId);
                     responseObserver.onNext(Empty.newBuilder().build());
                     responseObserver.onCompleted();
 
@@ -225,6 +232,7 @@ public class SharingServiceHandler extends DRMSSharingServiceGrpc.DRMSSharingSer
                             .setPermissionType(PermissionType.newBuilder().setId(request.getPermissionId()).build())
                             .addOwnerId(request.getRevokedGroupId()).build();
                     sharingManagementClient.revokeEntitySharingFromGroups(tenantId, shrRequest);
+                    authorizationService.invalidateTenant(tenantId);
                     responseObserver.onNext(Empty.newBuilder().build());
                     responseObserver.onCompleted();
 
@@ -21,11 +21,10 @@ import io.grpc.Status;
 import io.grpc.stub.StreamObserver;
 import org.apache.airavata.datalake.drms.AuthenticatedUser;
 import org.apache.airavata.datalake.drms.storage.*;
+import org.apache.airavata.drms.api.access.AuthorizationService;
 import org.apache.airavata.drms.api.persistance.mapper.StorageMapper;
 import org.apache.airavata.drms.api.persistance.mapper.StoragePreferenceMapper;
 import org.apache.airavata.drms.api.persistance.model.Resource;
-import org.apache.airavata.drms.api.persistance.model.ResourceProperty;
-import org.apache.airavata.drms.api.persistance.repository.ResourcePropertyRepository;
 import org.apache.airavata.drms.api.persistance.repository.ResourceRepository;
 import org.apache.airavata.drms.api.utils.CustosUtils;
 import org.apache.airavata.drms.core.constants.SharingConstants;
@@ -53,12 +52,12 @@ public class StoragePreferenceServiceHandler extends StoragePreferenceServiceGrp
     @Autowired
     private CustosClientProvider custosClientProvider;
 
-
     @Autowired
-    private ResourceRepository resourceRepository;
+    private AuthorizationService authorizationService;
+
 
     @Autowired
-    private ResourcePropertyRepository resourcePropertyRepository;
+    private ResourceRepository resourceRepository;
 
 
     public StoragePreferenceServiceHandler() {
@@ -73,7 +72,7 @@ public class StoragePreferenceServiceHandler extends StoragePreferenceServiceGrp
 
             String storagePreferenceId = request.getStoragePreferenceId();
 
-            CustosUtils.userHasAccess(custosClientProvider, callUser.getTenantId(), callUser.getUsername(),
+            authorizationService.hasAccess(callUser.getTenantId(), callUser.getUsername(),
                     storagePreferenceId, new String[]{SharingConstants.PERMISSION_TYPE_VIEWER, SharingConstants.PERMISSION_TYPE_EDITOR, SharingConstants.PERMISSION_TYPE_OWNER});
 
             Optional<Resource> optionalResource = resourceRepository.findById(storagePreferenceId);
@@ -163,12 +162,9 @@ public class StoragePreferenceServiceHandler extends StoragePreferenceServiceGrp
             CustosUtils.
                     mergeStoragePreferenceEntity(custosClientProvider, callUser.getTenantId(),
                             storagePreferenceId, storageId, callUser.getUsername());
-            Set<ResourceProperty> resourcePropertySet = new HashSet<>();
-
             serializedMap.forEach((key, value) -> {
-                resourcePropertySet.add(new ResourceProperty(key, value.toString(), resource));
+                resource.setProperty(key, value.toString());
             });
-            resource.setResourceProperty(resourcePropertySet);
 
             resourceRepository.save(resource);
 
@@ -195,10 +191,9 @@ public class StoragePreferenceServiceHandler extends StoragePreferenceServiceGrp
             String storageId = null;
 
 
-            boolean access = CustosUtils.
-                    userHasAccess(custosClientProvider, callUser.getTenantId(), callUser.getUsername(),
-                            storagePreferenceId, new String[]{SharingConstants.PERMISSION_TYPE_VIEWER,
-                                    SharingConstants.PERMISSION_TYPE_EDITOR, SharingConstants.PERMISSION_TYPE_OWNER});
+            boolean access = authorizationService.hasAccess(callUser.getTenantId(), callUser.getUsername(),
+                    storagePreferenceId, new String[]{SharingConstants.PERMISSION_TYPE_VIEWER,
+                            SharingConstants.PERMISSION_TYPE_EDITOR, SharingConstants.PERMISSION_TYPE_OWNER});
 
             if (access) {
                 if (storage.getStorageCase().name()
@@ -228,16 +223,10 @@ public class StoragePreferenceServiceHandler extends StoragePreferenceServiceGrp
 
                         Resource resource = storagePrefOptional.get();
 
-                        resource.getResourceProperty().forEach(property -> {
-
-                            resourcePropertyRepository.delete(property);
-
-                        });
-
-                        Set<ResourceProperty> resourcePropertySet = new HashSet<>();
+                        resource.clearProperties();
 
                         serializedMap.forEach((key, value) -> {
-                            resourcePropertySet.add(new ResourceProperty(key, value.toString(), resource));
+                            resource.setProperty(key, value.toString());
                         });
 
                         resourceRepository.save(resource);
@@ -262,7 +251,7 @@ public class StoragePreferenceServiceHandler extends StoragePreferenceServiceGrp
 
             String id = request.getStoragePreferenceId();
 
-            boolean accessEditor = CustosUtils.userHasAccess(custosClientProvider, callUser.getTenantId(),
+            boolean accessEditor = authorizationService.hasAccess(callUser.getTenantId(),
                     callUser.getUsername(), id, new String[]{SharingConstants.PERMISSION_TYPE_VIEWER,
                             SharingConstants.PERMISSION_TYPE_EDITOR, SharingConstants.PERMISSION_TYPE_OWNER});
             if (accessEditor) {
@@ -21,10 +21,9 @@ import io.grpc.Status;
 import io.grpc.stub.StreamObserver;
 import org.apache.airavata.datalake.drms.AuthenticatedUser;
 import org.apache.airavata.datalake.drms.storage.*;
+import org.apache.airavata.drms.api.access.AuthorizationService;
 import org.apache.airavata.drms.api.persistance.mapper.StorageMapper;
 import org.apache.airavata.drms.api.persistance.model.Resource;
-import org.apache.airavata.drms.api.persistance.model.ResourceProperty;
-import org.apache.airavata.drms.api.persistance.repository.ResourcePropertyRepository;
 import org.apache.airavata.drms.api.persistance.repository.ResourceRepository;
 import org.apache.airavata.drms.api.persistance.repository.TransferMappingRepository;
 import org.apache.airavata.drms.api.utils.CustosUtils;
@@ -50,11 +49,10 @@ public class StorageServiceHandler extends StorageServiceGrpc.StorageServiceImpl
     private CustosClientProvider custosClientProvider;
 
     @Autowired
-    private ResourceRepository resourceRepository;
-
+    private AuthorizationService authorizationService;
 
     @Autowired
-    private ResourcePropertyRepository resourcePropertyRepository;
+    private ResourceRepository resourceRepository;
 
 
     @Autowired
@@ -74,7 +72,7 @@ public class StorageServiceHandler extends StorageServiceGrpc.StorageServiceImpl
 
             String storageId = request.getStorageId();
 
-            boolean access = CustosUtils.userHasAccess(custosClientProvider, callUser.getTenantId(),
+            boolean access = authorizationService.hasAccess(callUser.getTenantId(),
                     callUser.getUsername(), request.getStorageId(),
                     new String[]{SharingConstants.PERMISSION_TYPE_VIEWER,
                             SharingConstants.PERMISSION_TYPE_EDITOR, SharingConstants.PERMISSION_TYPE_OWNER});
@@ -154,7 +152,7 @@ public class StorageServiceHandler extends StorageServiceGrpc.StorageServiceImpl
             Resource resource = StorageMapper.map(storage, callUser);
 
 
-            boolean access = CustosUtils.userHasAccess(custosClientProvider, callUser.getTenantId(),
+            boolean access = authorizationService.hasAccess(callUser.getTenantId(),
                     callUser.getUsername(), resource.getId(),
                     new String[]{SharingConstants.PERMISSION_TYPE_VIEWER,
                             SharingConstants.PERMISSION_TYPE_EDITOR, SharingConstants.PERMISSION_TYPE_OWNER});
@@ -165,14 +163,6 @@ public class StorageServiceHandler extends StorageServiceGrpc.StorageServiceImpl
 
                 if (optionalResource.isPresent()) {
 
-                    Resource resource1 = optionalResource.get();
-
-                    Set<ResourceProperty> resourceProperties = resource1.getResourceProperty();
-
-                    resourceProperties.forEach(res -> {
-                        resourcePropertyRepository.delete(res);
-                    });
-
                     resourceRepository.save(resource);
 
                     StorageUpdateResponse response = StorageUpdateResponse.newBuilder().setStorage(storage).build();
@@ -200,7 +190,7 @@ public class StorageServiceHandler extends StorageServiceGrpc.StorageServiceImpl
 
             String id = request.getStorageId();
 
-            boolean access = CustosUtils.userHasAccess(custosClientProvider, callUser.getTenantId(),
+            boolean access = authorizationService.hasAccess(callUser.getTenantId(),
                     callUser.getUsername(), id,
                     new String[]{SharingConstants.PERMISSION_TYPE_VIEWER,
                             SharingConstants.PERMISSION_TYPE_EDITOR, SharingConstants.PERMISSION_TYPE_OWNER});
@@ -229,7 +219,7 @@ public class StorageServiceHandler extends StorageServiceGrpc.StorageServiceImpl
             String key = request.getKey();
             String value = request.getValue();
 
-            boolean access = CustosUtils.userHasAccess(custosClientProvider, callUser.getTenantId(),
+            boolean access = authorizationService.hasAccess(callUser.getTenantId(),
                     callUser.getUsername(), storageId,
                     new String[]{SharingConstants.PERMISSION_TYPE_VIEWER,
                             SharingConstants.PERMISSION_TYPE_EDITOR, SharingConstants.PERMISSION_TYPE_OWNER});
@@ -242,10 +232,7 @@ public class StorageServiceHandler extends StorageServiceGrpc.StorageServiceImpl
 
                     Resource res = resource.get();
 
-                    Set<ResourceProperty> resourcePropertySet = resource.get().getResourceProperty();
-                    resourcePropertySet.add(new ResourceProperty(key, value, res));
-
-                    res.setResourceProperty(resourcePropertySet);
+                    res.setProperty(key, value);
 
                     resourceRepository.save(res);
 
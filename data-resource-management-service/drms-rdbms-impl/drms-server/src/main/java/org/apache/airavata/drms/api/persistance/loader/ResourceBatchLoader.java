@@ -0,0 +1,87 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.airavata.drms.api.persistance.loader;
+
+import org.apache.airavata.drms.api.persistance.model.Resource;
+import org.apache.airavata.drms.api.persistance.projection.ResourceView;
+import org.apache.airavata.drms.api.persistance.repository.ResourceRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+
+/**
+ * Loads read only views of resources with one IN list query per batch of ids, instead of a lookup per entity. Views
+ * are selected from the columns of the rows without managing the entities, and resources which have not been migrated
+ * yet are loaded together with their legacy rows.
+ */
+@Component
+public class ResourceBatchLoader {
+
+    private final ResourceRepository resourceRepository;
+    private final int batchSize;
+
+    public ResourceBatchLoader(ResourceRepository resourceRepository,
+                               @Value("${drms.search.batch.size:500}") int batchSize) {
+        this.resourceRepository = resourceRepository;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * @return the resources of the given ids which exist, by id, in the order of the ids
+     */
+    public Map<String, ResourceView> load(Collection<String> ids) {
+        Map<String, ResourceView> loaded = new HashMap<>();
+        List<String> legacy = new ArrayList<>();
+        for (List<String> batch : batches(ids)) {
+            for (ResourceView view : resourceRepository.findViewsByIdIn(batch)) {
+                if (view.isComplete()) {
+                    loaded.put(view.getId(), view);
+                } else {
+                    legacy.add(view.getId());
+                }
+            }
+        }
+        for (List<String> batch : batches(legacy)) {
+            for (Resource resource : resourceRepository.findAllWithLegacyPropertiesByIdIn(batch)) {
+                loaded.put(resource.getId(), ResourceView.of(resource));
+            }
+        }
+
+        Map<String, ResourceView> ordered = new LinkedHashMap<>();
+        for (String id : ids) {
+            ResourceView view = loaded.get(id);
+            if (view != null) {
+                ordered.put(id, view);
+            }
+        }
+        return ordered;
+    }
+
+    public Optional<ResourceView> load(String id) {
+        return Optional.ofNullable(load(Collections.singletonList(id)).get(id));
+    }
+
+    private List<List<String>> batches(Collection<String> ids) {
+        List<String> distinct = new ArrayList<>(new LinkedHashSet<>(ids));
+        List<List<String>> batches = new ArrayList<>();
+        for (int from = 0; from < distinct.size(); from += batchSize) {
+            batches.add(distinct.subList(from, Math.min(distinct.size(), from + batchSize)));
+        }
+        return batches;
+    }
+}
@@ -4,16 +4,25 @@ import com.google.protobuf.Descriptors;
 import org.apache.airavata.datalake.drms.AuthenticatedUser;
 import org.apache.airavata.datalake.drms.resource.GenericResource;
 import org.apache.airavata.drms.api.persistance.model.Resource;
-import org.apache.airavata.drms.api.persistance.model.ResourceProperty;
+import org.apache.airavata.drms.api.persistance.projection.ResourceView;
 import org.apache.custos.sharing.core.Entity;
 import org.apache.custos.sharing.core.PermissionType;
 import org.apache.custos.sharing.core.SharingMetadata;
 
 import java.util.*;
+import java.util.function.Function;
 
 public class ResourceMapper {
 
     public static GenericResource map(Resource resource, Entity entity) {
+        return map(resource::getProperty, entity);
+    }
+
+    public static GenericResource map(ResourceView resource, Entity entity) {
+        return map(resource::getProperty, entity);
+    }
+
+    private static GenericResource map(Function<String, String> properties, Entity entity) {
 
         GenericResource.Builder genericResourceBuilder = GenericResource.newBuilder();
 
@@ -27,7 +36,6 @@ public class ResourceMapper {
         genericResourceBuilder.putProperties("description", entity.getDescription());
         genericResourceBuilder.putProperties("createdTime", String.valueOf(entity.getCreatedAt()));
         genericResourceBuilder.putProperties("lastModifiedTime", String.valueOf(entity.getUpdatedAt()));
-        Set<ResourceProperty> resourcePropertySet = resource.getResourceProperty();
 
 
         SharingMetadata sharingMetadata = entity.getSharingMetadata();
@@ -45,32 +53,28 @@ public class ResourceMapper {
         }
 
 
-        Iterator<ResourceProperty> iterator = resourcePropertySet.iterator();
-
-        while (iterator.hasNext()) {
-            ResourceProperty resourceProperty = iterator.next();
-            if (resourceProperty.getPropertyKey().equals("resourcePath")) {
-                genericResourceBuilder.setResourcePath(resourceProperty.getPropertyValue());
-            }
-            if (resourceProperty.getPropertyKey().equals("note")) {
-                genericResourceBuilder.putProperties(resourceProperty.getPropertyKey(), resourceProperty.getPropertyValue());
-            }
+        String resourcePath = properties.apply(Resource.PATH_PROPERTY);
+        if (resourcePath != null) {
+            genericResourceBuilder.setResourcePath(resourcePath);
+        }
+        String note = properties.apply("note");
+        if (note != null) {
+            genericResourceBuilder.putProperties("note", note);
+        }
 
-            if (resourceProperty.getPropertyKey().equals("image") || resourceProperty.getPropertyKey().equals("thumbnail")) {
-                String[] urlArrays = resourceProperty.getPropertyValue().split("/");
+        for (String key : new String[]{"image", "thumbnail"}) {
+            String url = properties.apply(key);
+            if (url != null) {
+                String[] urlArrays = url.split("/");
                 String imagePath = "https://gateway.iubemcenter.indiana.edu/resource-images/";
                 String fullPath = imagePath + urlArrays[urlArrays.length - 1];
-                genericResourceBuilder.putProperties(resourceProperty.getPropertyKey(), fullPath);
+                genericResourceBuilder.putProperties(key, fullPath);
             }
-
-
-//            genericResourceBuilder.putProperties(resourceProperty.getPropertyKey(), resourceProperty.getPropertyValue());
-
         }
         return genericResourceBuilder.build();
     }
 
-    public static GenericResource map(Resource resource, Entity entity, List<String> permissions) {
+    public static GenericResource map(ResourceView resource, Entity entity, List<String> permissions) {
 
         GenericResource genericResource = map(resource, entity);
         GenericResource.Builder builder =null;
@@ -96,46 +100,44 @@ public class ResourceMapper {
 
         Map<Descriptors.FieldDescriptor, Object> allFields = resource.getAllFields();
 
-        Set<ResourceProperty> resourcePropertySet = new HashSet<>();
+        // The first value of a key is kept, as request values take precedence over those of the entity
+        Map<String, String> values = new LinkedHashMap<>();
 
         Resource prResource = new Resource();
 
        Map<String,String> resourceMap =  resource.getPropertiesMap();
 
        for(Map.Entry<String,String> entry: resourceMap.entrySet()){
-           resourcePropertySet.add(new ResourceProperty(entry.getKey(), entry.getValue(), prResource));
+           values.putIfAbsent(entry.getKey(), entry.getValue());
         }
        
         if (allFields != null) {
             allFields.forEach((descriptor, value) -> {
                 String fieldName = descriptor.getJsonName();
-                ResourceProperty resourceProperty = new ResourceProperty(fieldName, value.toString(), prResource);
-                resourcePropertySet.add(resourceProperty);
+                values.putIfAbsent(fieldName, value.toString());
             });
         }
 
-        resourcePropertySet.add(new ResourceProperty("description", entity.getDescription(), prResource));
-        resourcePropertySet.add(new ResourceProperty("resourceName", entity.getName(), prResource));
-        resourcePropertySet.add(new ResourceProperty("createdTime", String.valueOf(entity.getCreatedAt()), prResource));
-        resourcePropertySet.add(new ResourceProperty("tenantId", authenticatedUser.getTenantId(), prResource));
-        resourcePropertySet.add(new ResourceProperty("lastModifiedTime", String.valueOf(entity.getCreatedAt()), prResource));
-        resourcePropertySet.add(new ResourceProperty("owner", entity.getOwnerId(), prResource));
+        values.putIfAbsent("description", entity.getDescription());
+        values.putIfAbsent("resourceName", entity.getName());
+        values.putIfAbsent("createdTime", String.valueOf(entity.getCreatedAt()));
+        values.putIfAbsent("tenantId", authenticatedUser.getTenantId());
+        values.putIfAbsent("lastModifiedTime", String.valueOf(entity.getCreatedAt()));
+        values.putIfAbsent("owner", entity.getOwnerId());
 
         if(exResource != null){
-          Set<ResourceProperty> properties =  exResource.getResourceProperty();
-          for(ResourceProperty property: properties){
-              if (property.getPropertyKey().equals("metadata")||
-                      property.getPropertyKey().equals("firstName")||
-                      property.getPropertyKey().equals("lastName")){
-                  resourcePropertySet.add(property);
+          for (String key : new String[]{"metadata", "firstName", "lastName"}) {
+              String value = exResource.getProperty(key);
+              if (value != null) {
+                  values.putIfAbsent(key, value);
               }
           }
         }
 
+        prResource.clearProperties();
+        values.forEach(prResource::setProperty);
         prResource.setId(entity.getId());
-        prResource.setResourceProperty(resourcePropertySet);
         prResource.setTenantId(authenticatedUser.getTenantId());
-        prResource.setResourceProperty(resourcePropertySet);
         prResource.setSourceTransferMapping(new HashSet<>());
         prResource.setDestinationTransferMapping(new HashSet<>());
 
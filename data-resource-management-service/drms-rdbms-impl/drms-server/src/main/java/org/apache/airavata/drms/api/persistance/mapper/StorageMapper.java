@@ -6,7 +6,6 @@ import org.apache.airavata.datalake.drms.storage.AnyStorage;
 import org.apache.airavata.datalake.drms.storage.s3.S3Storage;
 import org.apache.airavata.datalake.drms.storage.ssh.SSHStorage;
 import org.apache.airavata.drms.api.persistance.model.Resource;
-import org.apache.airavata.drms.api.persistance.model.ResourceProperty;
 import org.apache.airavata.drms.core.constants.StorageConstants;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -14,9 +13,7 @@ import org.springframework.beans.BeanWrapper;
 import org.springframework.beans.PropertyAccessorFactory;
 
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Map;
-import java.util.Set;
 
 public class StorageMapper {
 
@@ -26,24 +23,18 @@ public class StorageMapper {
 
         AnyStorage.Builder anyStorageBuilder = AnyStorage.newBuilder();
 
-        String type = null;
-        for (ResourceProperty resourceProperty : resource.getResourceProperty()) {
-            if (resourceProperty.getPropertyKey().equals("type")) {
-                type = resourceProperty.getPropertyValue();
-                break;
-            }
-        }
+        String type = resource.getProperty("type");
 
         switch (type) {
             case StorageConstants.SSH_STORAGE_TYPE_LABEL:
                 SSHStorage.Builder builder = SSHStorage.newBuilder();
-                setObjectFieldsUsingMap(builder, resource.getResourceProperty());
+                setObjectFieldsUsingMap(builder, resource.getProperties());
                 SSHStorage sshStorage = builder.build();
                 anyStorageBuilder.setSshStorage(sshStorage);
                 break;
             case StorageConstants.S3_STORAGE_TYPE_LABEL:
                 S3Storage.Builder s3Builder = S3Storage.newBuilder();
-                setObjectFieldsUsingMap(s3Builder, resource.getResourceProperty());
+                setObjectFieldsUsingMap(s3Builder, resource.getProperties());
                 anyStorageBuilder.setS3Storage(s3Builder.build());
                 break;
             default:
@@ -58,24 +49,22 @@ public class StorageMapper {
         Map<String, Object> fields = new HashMap<>();
         Map<Descriptors.FieldDescriptor, Object> allFields = null;
 
-        Set<ResourceProperty> resourcePropertySet = new HashSet<>();
-
         Resource prResource = new Resource();
         prResource.setResourceType(StorageConstants.STORAGE_LABEL);
         switch (anyStorage.getStorageCase()) {
             case SSH_STORAGE:
                 SSHStorage sshStorage = anyStorage.getSshStorage();
                 allFields = sshStorage.getAllFields();
-                resourcePropertySet.add(new ResourceProperty(StorageConstants.STORAGE_TYPE_LABEL,
-                        StorageConstants.SSH_STORAGE_TYPE_LABEL, prResource));
+                prResource.setProperty(StorageConstants.STORAGE_TYPE_LABEL,
+                        StorageConstants.SSH_STORAGE_TYPE_LABEL);
 
                 prResource.setId(sshStorage.getStorageId());
                 break;
             case S3_STORAGE:
                 S3Storage s3Storage = anyStorage.getS3Storage();
                 allFields = s3Storage.getAllFields();
-                resourcePropertySet.add(new ResourceProperty(StorageConstants.STORAGE_TYPE_LABEL,
-                        StorageConstants.S3_STORAGE_TYPE_LABEL, prResource));
+                prResource.setProperty(StorageConstants.STORAGE_TYPE_LABEL,
+                        StorageConstants.S3_STORAGE_TYPE_LABEL);
                 prResource.setId(s3Storage.getStorageId());
                 break;
             case STORAGE_NOT_SET:
@@ -85,22 +74,25 @@ public class StorageMapper {
         if (allFields != null) {
             allFields.forEach((descriptor, value) -> {
                 String fieldName = descriptor.getJsonName();
-                resourcePropertySet.add(new ResourceProperty(fieldName, value.toString(), prResource));
+                if (prResource.getProperty(fieldName) == null) {
+                    prResource.setProperty(fieldName, value.toString());
+                }
             });
         }
 
-        resourcePropertySet.add(new ResourceProperty("tenantId", authenticatedUser.getTenantId(), prResource));
-        prResource.setResourceProperty(resourcePropertySet);
+        if (prResource.getProperty("tenantId") == null) {
+            prResource.setProperty("tenantId", authenticatedUser.getTenantId());
+        }
         prResource.setTenantId(authenticatedUser.getTenantId());
         return prResource;
     }
 
 
-    private static void setObjectFieldsUsingMap(Object target, Set<ResourceProperty> values) {
-        for (ResourceProperty field : values) {
+    private static void setObjectFieldsUsingMap(Object target, Map<String, String> values) {
+        for (Map.Entry<String, String> field : values.entrySet()) {
             BeanWrapper beanWrapper = PropertyAccessorFactory.forBeanPropertyAccess(target);
             try {
-                beanWrapper.setPropertyValue(field.getPropertyKey(), field.getPropertyValue());
+                beanWrapper.setPropertyValue(field.getKey(), field.getValue());
             } catch (Exception ex) {
 //                LOGGER.error(" Error occurred during field setting ", ex);
                 continue;
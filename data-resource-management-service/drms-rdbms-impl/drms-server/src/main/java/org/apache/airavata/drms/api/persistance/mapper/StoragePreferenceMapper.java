@@ -6,14 +6,13 @@ import org.apache.airavata.datalake.drms.storage.preference.s3.S3StoragePreferen
 import org.apache.airavata.datalake.drms.storage.preference.sda.SDAStoragePreference;
 import org.apache.airavata.datalake.drms.storage.preference.ssh.SSHStoragePreference;
 import org.apache.airavata.drms.api.persistance.model.Resource;
-import org.apache.airavata.drms.api.persistance.model.ResourceProperty;
 import org.apache.airavata.drms.core.constants.StoragePreferenceConstants;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.BeanWrapper;
 import org.springframework.beans.PropertyAccessorFactory;
 
-import java.util.Set;
+import java.util.Map;
 
 public class StoragePreferenceMapper {
 
@@ -25,14 +24,7 @@ public class StoragePreferenceMapper {
 
         AnyStoragePreference.Builder anyStoragePrefBuilder = AnyStoragePreference.newBuilder();
 
-        Set<ResourceProperty> resourcePropertySet = resource.getResourceProperty();
-        String type = null;
-        for (ResourceProperty resourceProperty : resourcePropertySet) {
-            if (resourceProperty.getPropertyKey().equals("type")) {
-                type = resourceProperty.getPropertyValue();
-                break;
-            }
-        }
+        String type = resource.getProperty("type");
 
         switch (type) {
             case StoragePreferenceConstants.SSH_STORAGE_PREFERENCE_TYPE_LABEL:
@@ -65,10 +57,10 @@ public class StoragePreferenceMapper {
 
 
     private static void setObjectFieldsUsingMap(Object target, Resource resource) {
-        for (ResourceProperty field : resource.getResourceProperty()) {
+        for (Map.Entry<String, String> field : resource.getProperties().entrySet()) {
             BeanWrapper beanWrapper = PropertyAccessorFactory.forBeanPropertyAccess(target);
             try {
-                beanWrapper.setPropertyValue(field.getPropertyKey(), field.getPropertyValue());
+                beanWrapper.setPropertyValue(field.getKey(), field.getValue());
             } catch (Exception ex) {
                 continue;
             }
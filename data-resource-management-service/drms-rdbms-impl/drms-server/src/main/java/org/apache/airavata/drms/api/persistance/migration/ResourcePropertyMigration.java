@@ -0,0 +1,170 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.airavata.drms.api.persistance.migration;
+
+import org.apache.airavata.drms.api.persistance.model.Resource;
+import org.apache.airavata.drms.api.persistance.repository.ResourcePropertyRepository;
+import org.apache.airavata.drms.api.persistance.repository.ResourceRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Moves resource properties from the legacy RESOURCE_PROPERTY rows into the columns of {@link Resource} while the
+ * server keeps serving. Resources are migrated in batches of their own transaction, locking only the resources of
+ * the batch, so that concurrent writes wait for at most one batch. Until a resource is migrated it is read from its
+ * legacy rows, and a resource written in the meantime is stored in the new layout and skipped.
+ * <p>
+ * Once every resource is migrated the legacy rows can be purged, again in batches. Rows are only purged when the
+ * resource holds every value of the keys with several rows, which migrations used to cut down to their first value;
+ * such keys are restored where they still hold that value, and the rows of any other resource are kept and logged.
+ * Both phases run on a background thread when enabled and can be run again at any time, as each only picks up what
+ * is left.
+ */
+@Component
+public class ResourcePropertyMigration {
+
+    private static final Logger logger = LoggerFactory.getLogger(ResourcePropertyMigration.class);
+
+    @Autowired
+    private ResourceRepository resourceRepository;
+
+    @Autowired
+    private ResourcePropertyRepository resourcePropertyRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${drms.migration.resource.properties.enabled:false}")
+    private boolean enabled;
+
+    @Value("${drms.migration.resource.properties.batch.size:500}")
+    private int batchSize;
+
+    @Value("${drms.migration.resource.properties.pause.millis:100}")
+    private long pauseMillis;
+
+    @Value("${drms.migration.resource.properties.purge:false}")
+    private boolean purge;
+
+    private TransactionTemplate transactionTemplate;
+    private Thread worker;
+
+    @PostConstruct
+    public void start() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        if (!enabled) {
+            return;
+        }
+        worker = new Thread(this::run, "drms-resource-property-migration");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (worker != null) {
+            worker.interrupt();
+        }
+    }
+
+    /**
+     * Migrates all remaining resources, then purges legacy rows when configured to
+     */
+    public void run() {
+        try {
+            logger.info("Migrating properties of {} resources out of legacy rows",
+                    resourceRepository.countByPropertiesIsNull());
+            long migrated = 0;
+            int count;
+            while ((count = migrateBatch()) > 0) {
+                migrated += count;
+                logger.debug("Migrated properties of {} resources", migrated);
+                Thread.sleep(pauseMillis);
+            }
+            logger.info("Migrated properties of {} resources", migrated);
+
+            if (purge) {
+                long purged = 0;
+                String after = "";
+                List<String> ids;
+                while (!(ids = resourcePropertyRepository.findMigratedResourceIdsAfter(after,
+                        PageRequest.of(0, batchSize))).isEmpty()) {
+                    purged += purgeBatch(ids);
+                    after = ids.get(ids.size() - 1);
+                    Thread.sleep(pauseMillis);
+                }
+                logger.info("Purged {} legacy resource property rows", purged);
+            }
+        } catch (InterruptedException ex) {
+            logger.info("Resource property migration stopped");
+            Thread.currentThread().interrupt();
+        } catch (Exception ex) {
+            logger.error("Resource property migration failed, it is resumed on the next run", ex);
+        }
+    }
+
+    /**
+     * @return number of resources migrated, 0 once none is left
+     */
+    public int migrateBatch() {
+        Integer migrated = transactionTemplate.execute(status -> {
+            List<String> ids = resourceRepository.findUnmigratedIds(PageRequest.of(0, batchSize));
+            if (ids.isEmpty()) {
+                return 0;
+            }
+            List<Resource> resources = resourceRepository.lockUnmigratedByIdIn(ids);
+            resources.forEach(Resource::migrateLegacyProperties);
+            resourceRepository.saveAll(resources);
+            return ids.size();
+        });
+        return migrated == null ? 0 : migrated;
+    }
+
+    /**
+     * Deletes the legacy rows of the given migrated resources, except for resources which lack values of their rows
+     *
+     * @return number of rows deleted
+     */
+    public int purgeBatch(List<String> ids) {
+        Integer purged = transactionTemplate.execute(status -> {
+            List<Resource> resources = resourceRepository.lockMigratedByIdIn(ids);
+            List<String> purgeable = new ArrayList<>();
+            for (Resource resource : resources) {
+                if (resource.restoreLegacyValues()) {
+                    purgeable.add(resource.getId());
+                } else {
+                    logger.warn("Keeping legacy property rows of resource {}, it lacks values of keys with several" +
+                            " rows", resource.getId());
+                }
+            }
+            resourceRepository.saveAll(resources);
+            return purgeable.isEmpty() ? 0 : resourcePropertyRepository.deleteAllByResourceIdIn(purgeable);
+        });
+        return purged == null ? 0 : purged;
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.airavata.drms.api.persistance.model;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import javax.persistence.AttributeConverter;
+import javax.persistence.Converter;
+import java.util.*;
+
+/**
+ * Stores properties as a JSON object, with a string for a key holding one value and an array of strings for a key
+ * holding several
+ */
+@Converter
+public class PropertiesConverter implements AttributeConverter<Map<String, List<String>>, String> {
+
+    @Override
+    public String convertToDatabaseColumn(Map<String, List<String>> properties) {
+        if (properties == null) {
+            return null;
+        }
+        JSONObject object = new JSONObject();
+        properties.forEach((key, values) -> {
+            if (values.size() == 1) {
+                object.put(key, values.get(0));
+            } else if (!values.isEmpty()) {
+                object.put(key, new JSONArray(values));
+            }
+        });
+        return object.toString();
+    }
+
+    @Override
+    public Map<String, List<String>> convertToEntityAttribute(String json) {
+        if (json == null) {
+            return null;
+        }
+        JSONObject object = new JSONObject(json);
+        Map<String, List<String>> properties = new HashMap<>();
+        for (String key : object.keySet()) {
+            JSONArray array = object.optJSONArray(key);
+            if (array == null) {
+                properties.put(key, Collections.singletonList(object.optString(key)));
+            } else {
+                List<String> values = new ArrayList<>(array.length());
+                for (int i = 0; i < array.length(); i++) {
+                    values.add(array.optString(i));
+                }
+                properties.put(key, values);
+            }
+        }
+        return properties;
+    }
+}
@@ -1,15 +1,46 @@
 package org.apache.airavata.drms.api.persistance.model;
 
+import org.hibernate.annotations.BatchSize;
+import org.json.JSONArray;
 import org.springframework.data.jpa.domain.support.AuditingEntityListener;
 
 import javax.persistence.*;
-import java.util.Set;
+import java.util.*;
 
+/**
+ * A resource with its most queried properties in indexed columns and all other properties in a JSON column.
+ * Properties are read and written by key through {@link #getProperty(String)} and {@link #setProperty(String, String)},
+ * whichever column holds them. A key may hold several values, which are kept in the JSON column in their order and
+ * read through {@link #getPropertyValues(String)}.
+ * <p>
+ * Resources stored before the JSON column existed have it null and are read from their legacy
+ * {@link ResourceProperty} rows, until they are written again or moved by
+ * {@link org.apache.airavata.drms.api.persistance.migration.ResourcePropertyMigration}.
+ */
 @Entity
-@Table(name = "RESOURCE")
+@Table(name = "RESOURCE", indexes = {
+        @Index(name = "IDX_RESOURCE_TENANT_NAME", columnList = "TENANT_ID,RESOURCE_NAME"),
+        @Index(name = "IDX_RESOURCE_TENANT_OWNER", columnList = "TENANT_ID,OWNER_ID"),
+        @Index(name = "IDX_RESOURCE_TENANT_PATH", columnList = "TENANT_ID,RESOURCE_PATH"),
+        @Index(name = "IDX_RESOURCE_TENANT_SIZE", columnList = "TENANT_ID,RESOURCE_SIZE"),
+        @Index(name = "IDX_RESOURCE_TENANT_CREATED", columnList = "TENANT_ID,CREATED_TIME"),
+        @Index(name = "IDX_RESOURCE_TENANT_MODIFIED", columnList = "TENANT_ID,LAST_MODIFIED_TIME"),
+        // Keyset order of child listings, by the ID primary key which InnoDB appends to it
+        @Index(name = "IDX_RESOURCE_TENANT_PARENT", columnList = "TENANT_ID,PARENT_RESOURCE_ID")})
 @EntityListeners(AuditingEntityListener.class)
 public class Resource {
 
+    public static final String NAME_PROPERTY = "resourceName";
+    public static final String OWNER_PROPERTY = "owner";
+    public static final String PATH_PROPERTY = "resourcePath";
+    public static final String SIZE_PROPERTY = "size";
+    public static final String CREATED_TIME_PROPERTY = "createdTime";
+    public static final String LAST_MODIFIED_TIME_PROPERTY = "lastModifiedTime";
+
+    // Longer values are kept in the JSON column, so that tenant and value fit in one InnoDB index key
+    private static final int NAME_LENGTH = 255;
+    private static final int PATH_LENGTH = 512;
+
     @Id
     @Column(name="ID")
     private String id;
@@ -23,8 +54,38 @@ public class Resource {
     @Column(name="RESOURCE_TYPE")
     private String resourceType;
 
-    @OneToMany(fetch = FetchType.EAGER, mappedBy = "resource", orphanRemoval = true, cascade = CascadeType.ALL)
-    private Set<ResourceProperty> resourceProperty;
+    @Column(name = "RESOURCE_NAME", length = NAME_LENGTH)
+    private String resourceName;
+
+    @Column(name = "OWNER_ID", length = NAME_LENGTH)
+    private String ownerId;
+
+    @Column(name = "RESOURCE_PATH", length = PATH_LENGTH)
+    private String resourcePath;
+
+    @Column(name = "RESOURCE_SIZE")
+    private Long resourceSize;
+
+    @Column(name = "CREATED_TIME")
+    private Long createdTime;
+
+    @Column(name = "LAST_MODIFIED_TIME")
+    private Long lastModifiedTime;
+
+    /**
+     * Values of the properties without a column of their own or with several values, null until the legacy rows of
+     * the resource are moved. Replaced on every change rather than modified, so that Hibernate sees the change.
+     */
+    @Lob
+    @Column(name = "PROPERTIES")
+    @Convert(converter = PropertiesConverter.class)
+    private Map<String, List<String>> properties;
+
+    // A list rather than a set, as a key may have several rows and rows of the same key are equal
+    @OneToMany(fetch = FetchType.LAZY, mappedBy = "resource", cascade = CascadeType.REMOVE)
+    @OrderBy("id")
+    @BatchSize(size = 100)
+    private List<ResourceProperty> legacyProperties;
 
     @OneToMany(fetch = FetchType.LAZY, mappedBy = "source", orphanRemoval = true, cascade = CascadeType.ALL)
     private Set<TransferMapping> sourceTransferMapping;
@@ -65,12 +126,229 @@ public class Resource {
         this.resourceType = type;
     }
 
-    public Set<ResourceProperty> getResourceProperty() {
-        return resourceProperty;
+    public String getResourceName() {
+        return getProperty(NAME_PROPERTY);
+    }
+
+    public String getOwnerId() {
+        return getProperty(OWNER_PROPERTY);
     }
 
-    public void setResourceProperty(Set<ResourceProperty> resourceProperty) {
-        this.resourceProperty = resourceProperty;
+    public String getResourcePath() {
+        return getProperty(PATH_PROPERTY);
+    }
+
+    /**
+     * @return the value of the property, the first one when it has several, or null when the resource does not
+     * have it
+     */
+    public String getProperty(String key) {
+        List<String> values = getPropertyValues(key);
+        return values.isEmpty() ? null : values.get(0);
+    }
+
+    /**
+     * @return the values of the property in their order, empty when the resource does not have it
+     */
+    public List<String> getPropertyValues(String key) {
+        if (!isMigrated()) {
+            return legacyValues().getOrDefault(key, Collections.emptyList());
+        }
+        Object column;
+        switch (key) {
+            case NAME_PROPERTY:
+                column = resourceName;
+                break;
+            case OWNER_PROPERTY:
+                column = ownerId;
+                break;
+            case PATH_PROPERTY:
+                column = resourcePath;
+                break;
+            case SIZE_PROPERTY:
+                column = resourceSize;
+                break;
+            case CREATED_TIME_PROPERTY:
+                column = createdTime;
+                break;
+            case LAST_MODIFIED_TIME_PROPERTY:
+                column = lastModifiedTime;
+                break;
+            default:
+                column = null;
+        }
+        if (column != null) {
+            return Collections.singletonList(String.valueOf(column));
+        }
+        return Collections.unmodifiableList(properties.getOrDefault(key, Collections.emptyList()));
+    }
+
+    /**
+     * @return all properties of the resource by key, with the values of a key holding several as a JSON array
+     */
+    public Map<String, String> getProperties() {
+        return Collections.unmodifiableMap(flatten(getPropertyValues()));
+    }
+
+    /**
+     * @return the values of all properties of the resource by key
+     */
+    public Map<String, List<String>> getPropertyValues() {
+        if (!isMigrated()) {
+            return Collections.unmodifiableMap(legacyValues());
+        }
+        return Collections.unmodifiableMap(mergeProperties(properties, resourceName, ownerId, resourcePath,
+                resourceSize, createdTime, lastModifiedTime));
+    }
+
+    /**
+     * @return the property values of a resource stored with the given column values and JSON properties
+     */
+    public static Map<String, List<String>> mergeProperties(Map<String, List<String>> properties,
+                                                            String resourceName, String ownerId,
+                                                            String resourcePath, Long resourceSize,
+                                                            Long createdTime, Long lastModifiedTime) {
+        Map<String, List<String>> values = properties == null ? new HashMap<>() : new HashMap<>(properties);
+        putIfSet(values, NAME_PROPERTY, resourceName);
+        putIfSet(values, OWNER_PROPERTY, ownerId);
+        putIfSet(values, PATH_PROPERTY, resourcePath);
+        putIfSet(values, SIZE_PROPERTY, resourceSize);
+        putIfSet(values, CREATED_TIME_PROPERTY, createdTime);
+        putIfSet(values, LAST_MODIFIED_TIME_PROPERTY, lastModifiedTime);
+        return values;
+    }
+
+    /**
+     * @return the given values by key, with the values of a key holding several as a JSON array
+     */
+    public static Map<String, String> flatten(Map<String, List<String>> values) {
+        Map<String, String> flat = new HashMap<>();
+        values.forEach((key, keyValues) -> {
+            if (keyValues.size() == 1) {
+                flat.put(key, keyValues.get(0));
+            } else if (!keyValues.isEmpty()) {
+                flat.put(key, new JSONArray(keyValues).toString());
+            }
+        });
+        return flat;
+    }
+
+    /**
+     * Sets the property to a single value. A null value removes the property.
+     */
+    public void setProperty(String key, String value) {
+        setPropertyValues(key, value == null ? Collections.emptyList() : Collections.singletonList(value));
+    }
+
+    /**
+     * Sets the values of the property. A single value goes in the column of the property when it has one and the
+     * value is stored there unchanged; anything else goes in the JSON column. No values removes the property.
+     */
+    public void setPropertyValues(String key, List<String> values) {
+        migrateLegacyProperties();
+        Map<String, List<String>> tail = new HashMap<>(properties);
+        tail.remove(key);
+        String value = values.size() == 1 ? values.get(0) : null;
+        boolean inColumn;
+        switch (key) {
+            case NAME_PROPERTY:
+                resourceName = fits(value, NAME_LENGTH);
+                inColumn = resourceName != null;
+                break;
+            case OWNER_PROPERTY:
+                ownerId = fits(value, NAME_LENGTH);
+                inColumn = ownerId != null;
+                break;
+            case PATH_PROPERTY:
+                resourcePath = fits(value, PATH_LENGTH);
+                inColumn = resourcePath != null;
+                break;
+            case SIZE_PROPERTY:
+                resourceSize = parseLong(value);
+                inColumn = resourceSize != null;
+                break;
+            case CREATED_TIME_PROPERTY:
+                createdTime = parseLong(value);
+                inColumn = createdTime != null;
+                break;
+            case LAST_MODIFIED_TIME_PROPERTY:
+                lastModifiedTime = parseLong(value);
+                inColumn = lastModifiedTime != null;
+                break;
+            default:
+                inColumn = false;
+        }
+        if (!inColumn && !values.isEmpty()) {
+            tail.put(key, new ArrayList<>(values));
+        }
+        properties = tail;
+    }
+
+    public void removeProperty(String key) {
+        setProperty(key, null);
+    }
+
+    /**
+     * Removes all properties. Legacy rows of the resource are no longer read afterwards.
+     */
+    public void clearProperties() {
+        resourceName = null;
+        ownerId = null;
+        resourcePath = null;
+        resourceSize = null;
+        createdTime = null;
+        lastModifiedTime = null;
+        properties = new HashMap<>();
+    }
+
+    /**
+     * @return whether the properties of the resource are stored in its columns rather than in legacy rows
+     */
+    public boolean isMigrated() {
+        return properties != null;
+    }
+
+    /**
+     * Copies the legacy rows of the resource into its columns, every value of a key with several rows included. The
+     * rows themselves are left in place.
+     */
+    public void migrateLegacyProperties() {
+        if (isMigrated()) {
+            return;
+        }
+        Map<String, List<String>> legacy = legacyValues();
+        properties = new HashMap<>();
+        legacy.forEach(this::setPropertyValues);
+    }
+
+    /**
+     * Makes sure every value of a key with several legacy rows is held by the migrated resource, before the rows are
+     * purged. Migrations used to keep only the first value of such a key, which is restored to all of them as long
+     * as the key still holds that single value.
+     *
+     * @return false when a key with several legacy rows holds other values, so that purging its rows would lose
+     * values which were never migrated
+     */
+    public boolean restoreLegacyValues() {
+        if (!isMigrated()) {
+            return false;
+        }
+        for (Map.Entry<String, List<String>> legacy : legacyValues().entrySet()) {
+            List<String> legacyValues = legacy.getValue();
+            if (legacyValues.size() < 2) {
+                continue;
+            }
+            List<String> values = getPropertyValues(legacy.getKey());
+            if (values.containsAll(legacyValues)) {
+                continue;
+            }
+            if (values.size() == 1 && legacyValues.contains(values.get(0))) {
+                setPropertyValues(legacy.getKey(), legacyValues);
+            } else {
+                return false;
+            }
+        }
+        return true;
     }
 
     public Set<TransferMapping> getSourceTransferMapping() {
@@ -89,5 +367,40 @@ public class Resource {
         this.destinationTransferMapping = destinationTransferMapping;
     }
 
+    private Map<String, List<String>> legacyValues() {
+        Map<String, List<String>> values = new LinkedHashMap<>();
+        if (legacyProperties != null) {
+            for (ResourceProperty property : legacyProperties) {
+                values.computeIfAbsent(property.getPropertyKey(), key -> new ArrayList<>())
+                        .add(property.getPropertyValue());
+            }
+        }
+        return values;
+    }
+
+    private static void putIfSet(Map<String, List<String>> values, String key, Object value) {
+        if (value != null) {
+            values.put(key, Collections.singletonList(String.valueOf(value)));
+        }
+    }
 
+    private static String fits(String value, int length) {
+        return value != null && value.length() <= length ? value : null;
+    }
+
+    /**
+     * @return the number, or null when the value is not one or would not be read back unchanged from the column,
+     * like "007" or "+5"
+     */
+    private static Long parseLong(String value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            Long parsed = Long.valueOf(value);
+            return String.valueOf(parsed).equals(value) ? parsed : null;
+        } catch (NumberFormatException ex) {
+            return null;
+        }
+    }
 }
@@ -5,6 +5,11 @@ import org.springframework.data.jpa.domain.support.AuditingEntityListener;
 import javax.persistence.*;
 import java.util.Objects;
 
+/**
+ * A property row of the former key value layout of resource properties. Only read for resources which have not been
+ * moved to the columns of {@link Resource} yet, see
+ * {@link org.apache.airavata.drms.api.persistance.migration.ResourcePropertyMigration}.
+ */
 @Entity
 @Table(name = "RESOURCE_PROPERTY")
 @EntityListeners(AuditingEntityListener.class)
@@ -0,0 +1,116 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.airavata.drms.api.persistance.projection;
+
+import org.apache.airavata.drms.api.persistance.model.Resource;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A read only copy of a resource and its properties, selected without loading the entity into a persistence context.
+ * Resources whose properties are still in legacy rows are selected as views which are not
+ * {@link #isComplete() complete}, and have to be read through the entity instead.
+ */
+public class ResourceView {
+
+    private final String id;
+    private final String tenantId;
+    private final String parentResourceId;
+    private final String resourceType;
+    private final Map<String, List<String>> properties;
+    private final boolean complete;
+
+    /**
+     * Used by the select clauses of {@link org.apache.airavata.drms.api.persistance.repository.ResourceRepository}
+     */
+    public ResourceView(String id, String tenantId, String parentResourceId, String resourceType,
+                        String resourceName, String ownerId, String resourcePath, Long resourceSize,
+                        Long createdTime, Long lastModifiedTime, Map<String, List<String>> properties) {
+        this.id = id;
+        this.tenantId = tenantId;
+        this.parentResourceId = parentResourceId;
+        this.resourceType = resourceType;
+        this.properties = Collections.unmodifiableMap(Resource.mergeProperties(properties, resourceName, ownerId,
+                resourcePath, resourceSize, createdTime, lastModifiedTime));
+        this.complete = properties != null;
+    }
+
+    private ResourceView(Resource resource) {
+        this.id = resource.getId();
+        this.tenantId = resource.getTenantId();
+        this.parentResourceId = resource.getParentResourceId();
+        this.resourceType = resource.getResourceType();
+        this.properties = resource.getPropertyValues();
+        this.complete = true;
+    }
+
+    public static ResourceView of(Resource resource) {
+        return new ResourceView(resource);
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getTenantId() {
+        return tenantId;
+    }
+
+    public String getParentResourceId() {
+        return parentResourceId;
+    }
+
+    public String getResourceType() {
+        return resourceType;
+    }
+
+    public String getResourcePath() {
+        return getProperty(Resource.PATH_PROPERTY);
+    }
+
+    /**
+     * @return the value of the property, the first one when it has several, or null when the resource does not
+     * have it
+     */
+    public String getProperty(String key) {
+        List<String> values = getPropertyValues(key);
+        return values.isEmpty() ? null : values.get(0);
+    }
+
+    /**
+     * @return the values of the property in their order, empty when the resource does not have it
+     */
+    public List<String> getPropertyValues(String key) {
+        return properties.getOrDefault(key, Collections.emptyList());
+    }
+
+    /**
+     * @return all properties by key, with the values of a key holding several as a JSON array
+     */
+    public Map<String, String> getProperties() {
+        return Collections.unmodifiableMap(Resource.flatten(properties));
+    }
+
+    /**
+     * @return false when the properties of the resource were not selected, as they are still in legacy rows
+     */
+    public boolean isComplete() {
+        return complete;
+    }
+}
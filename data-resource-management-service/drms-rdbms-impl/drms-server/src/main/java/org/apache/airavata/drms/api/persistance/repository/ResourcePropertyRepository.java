@@ -1,8 +1,13 @@
 package org.apache.airavata.drms.api.persistance.repository;
 
 import org.apache.airavata.drms.api.persistance.model.ResourceProperty;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -15,4 +20,16 @@ public interface ResourcePropertyRepository extends JpaRepository<ResourceProper
     List<ResourceProperty> findAllByResourceId(String resourceId);
 
     void deleteAllByPropertyKeyAndResourceId(String propertyKey, String resourceId);
+
+    /**
+     * Ids of resources after the given one whose properties were moved to their columns but which still have legacy
+     * rows, in id order
+     */
+    @Query("select distinct p.resource.id from ResourceProperty p where p.resource.properties is not null " +
+            "and p.resource.id > :after order by p.resource.id")
+    List<String> findMigratedResourceIdsAfter(@Param("after") String after, Pageable pageable);
+
+    @Modifying
+    @Query("delete from ResourceProperty p where p.resource.id in :resourceIds")
+    int deleteAllByResourceIdIn(@Param("resourceIds") Collection<String> resourceIds);
 }
@@ -1,20 +1,112 @@
 package org.apache.airavata.drms.api.persistance.repository;
 
 import org.apache.airavata.drms.api.persistance.model.Resource;
-import org.apache.airavata.drms.api.persistance.model.ResourceProperty;
+import org.apache.airavata.drms.api.persistance.projection.ResourceLink;
+import org.apache.airavata.drms.api.persistance.projection.ResourceView;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import javax.persistence.LockModeType;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 public interface ResourceRepository extends JpaRepository<Resource, String> {
 
 
-    @Query(value = "select * from RESOURCE t where t.PARENT_RESOURCE_ID =?1 and  t.TENANT_ID = ?2 " +
+    /**
+     * @deprecated offset pages scan all preceding rows and shift with concurrent inserts, use
+     * {@link #findChildIds(String, String, Pageable)} and {@link #findChildIdsAfter(String, String, String, Pageable)}
+     */
+    @Deprecated
+    @Query(value = "select t.ID from RESOURCE t where t.PARENT_RESOURCE_ID =?1 and  t.TENANT_ID = ?2 " +
             "order by t.id limit ?3 offset ?4", nativeQuery = true)
-    List<Resource> findAllByParentResourceIdAndTenantIdAndResourceTypeWithPagination(String parentResourdeId, String tenantId,
-                                                                             int limit, int offset);
+    List<String> findIdsByParentResourceIdAndTenantIdWithPagination(String parentResourdeId, String tenantId,
+                                                                    int limit, int offset);
 
+    /**
+     * First keyset page of the ids of the children of a resource, in id order
+     */
+    @Query("select r.id from Resource r where r.tenantId = :tenantId and r.parentResourceId = :parentId " +
+            "order by r.id")
+    List<String> findChildIds(@Param("parentId") String parentId, @Param("tenantId") String tenantId,
+                              Pageable pageable);
 
-    List<Resource> findAllByParentResourceIdAndTenantId(String parentResourdeId, String tenantId);
+    /**
+     * Keyset page of the ids of the children of a resource after the given id
+     */
+    @Query("select r.id from Resource r where r.tenantId = :tenantId and r.parentResourceId = :parentId " +
+            "and r.id > :id order by r.id")
+    List<String> findChildIdsAfter(@Param("parentId") String parentId, @Param("tenantId") String tenantId,
+                                   @Param("id") String id, Pageable pageable);
+
+
+    @Query("select r.id from Resource r where r.parentResourceId = ?1 and r.tenantId = ?2")
+    List<String> findIdsByParentResourceIdAndTenantId(String parentResourdeId, String tenantId);
+
+    /**
+     * Views of the resources of the given ids, read from their columns without managing the entities
+     */
+    @Query("select new org.apache.airavata.drms.api.persistance.projection.ResourceView(r.id, r.tenantId, " +
+            "r.parentResourceId, r.resourceType, r.resourceName, r.ownerId, r.resourcePath, r.resourceSize, " +
+            "r.createdTime, r.lastModifiedTime, r.properties) from Resource r where r.id in :ids")
+    List<ResourceView> findViewsByIdIn(@Param("ids") Collection<String> ids);
+
+    @Query("select r.id as id, r.parentResourceId as parentResourceId, r.resourceType as resourceType " +
+            "from Resource r where r.id = :id")
+    Optional<ResourceLink> findLinkById(@Param("id") String id);
+
+    /**
+     * Resources of the given ids together with their legacy property rows, for resources which are not migrated
+     */
+    @Query("select distinct r from Resource r left join fetch r.legacyProperties where r.id in :ids")
+    List<Resource> findAllWithLegacyPropertiesByIdIn(@Param("ids") Collection<String> ids);
+
+    List<Resource> findAllByTenantIdAndResourceName(String tenantId, String resourceName, Pageable pageable);
+
+    List<Resource> findAllByTenantIdAndOwnerId(String tenantId, String ownerId, Pageable pageable);
+
+    List<Resource> findAllByTenantIdAndResourcePath(String tenantId, String resourcePath);
+
+    /**
+     * Resources under a directory, with the trailing separator in the prefix
+     */
+    List<Resource> findAllByTenantIdAndResourcePathStartingWith(String tenantId, String pathPrefix, Pageable pageable);
+
+    List<Resource> findAllByTenantIdAndResourceSizeBetween(String tenantId, long minSize, long maxSize,
+                                                           Pageable pageable);
+
+    List<Resource> findAllByTenantIdAndCreatedTimeBetween(String tenantId, long from, long to, Pageable pageable);
+
+    List<Resource> findAllByTenantIdAndLastModifiedTimeGreaterThanEqual(String tenantId, long since,
+                                                                        Pageable pageable);
+
+    long countByPropertiesIsNull();
+
+    /**
+     * Ids of resources whose properties are still in legacy rows
+     */
+    @Query("select r.id from Resource r where r.properties is null order by r.id")
+    List<String> findUnmigratedIds(Pageable pageable);
+
+    /**
+     * Locks the resources of the given ids which are still unmigrated, so that a concurrent save of the same
+     * resource is applied after their migration rather than overwritten by it
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select distinct r from Resource r left join fetch r.legacyProperties " +
+            "where r.id in :ids and r.properties is null")
+    List<Resource> lockUnmigratedByIdIn(@Param("ids") Collection<String> ids);
+
+    /**
+     * Locks the resources of the given ids which are migrated, together with their legacy property rows, so that
+     * their values can be checked against the rows before these are purged
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select distinct r from Resource r left join fetch r.legacyProperties " +
+            "where r.id in :ids and r.properties is not null")
+    List<Resource> lockMigratedByIdIn(@Param("ids") Collection<String> ids);
 }
@@ -5,12 +5,9 @@ import org.apache.airavata.drms.core.constants.StoragePreferenceConstants;
 import org.apache.custos.clients.CustosClientProvider;
 import org.apache.custos.sharing.management.client.SharingManagementClient;
 import org.apache.custos.sharing.core.*;
-import org.apache.custos.sharing.service.SharingRequest;
 import org.apache.custos.sharing.service.Status;
 
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.List;
 import java.util.Optional;
 
 public class CustosUtils {
@@ -118,74 +115,4 @@ public class CustosUtils {
             return Optional.ofNullable(sharingManagementClient.getEntity(tenantId, entity));
         }
     }
-
-    public static boolean userHasAccess(CustosClientProvider custosClientProvider,
-                                        String tenantId, String username, String resourceId, String[] permission) throws IOException {
-
-        List<Boolean> statusArray = new ArrayList<>();
-
-        for (String perm : permission) {
-            Entity sharedEntity = Entity
-                    .newBuilder()
-                    .setId(resourceId)
-                    .build();
-
-            PermissionType permissionType = PermissionType.newBuilder().setId(perm)
-                    .build();
-
-            SharingRequest sharingRequest = SharingRequest
-                    .newBuilder()
-                    .setEntity(sharedEntity)
-                    .setPermissionType(permissionType)
-                    .addOwnerId(username)
-                    .build();
-
-            try (SharingManagementClient sharingManagementClient = custosClientProvider.getSharingManagementClient()) {
-
-
-                org.apache.custos.sharing.service.Status status = sharingManagementClient
-                        .userHasAccess(tenantId, sharingRequest);
-                if(status.getStatus()){
-                    return true;
-                }
-            }
-
-        }
-        return false;
-    }
-
-    public static List<String>  getAllAccess(CustosClientProvider custosClientProvider,
-                                        String tenantId, String username, String resourceId, String[] permission) throws IOException {
-
-        List<String> statusArray = new ArrayList<>();
-
-        for (String perm : permission) {
-            Entity sharedEntity = Entity
-                    .newBuilder()
-                    .setId(resourceId)
-                    .build();
-
-            PermissionType permissionType = PermissionType.newBuilder().setId(perm)
-                    .build();
-
-            SharingRequest sharingRequest = SharingRequest
-                    .newBuilder()
-                    .setEntity(sharedEntity)
-                    .setPermissionType(permissionType)
-                    .addOwnerId(username)
-                    .build();
-
-            try (SharingManagementClient sharingManagementClient = custosClientProvider.getSharingManagementClient()) {
-
-
-                org.apache.custos.sharing.service.Status status = sharingManagementClient
-                        .userHasAccess(tenantId, sharingRequest);
-                if(status.getStatus()){
-                   statusArray.add(perm);
-                }
-            }
-
-        }
-        return statusArray;
-    }
 }
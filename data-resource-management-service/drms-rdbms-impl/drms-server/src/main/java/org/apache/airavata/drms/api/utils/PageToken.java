@@ -0,0 +1,73 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.airavata.drms.api.utils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Opaque continuation token of keyset paginated listings. The token carries the id of the last resource of a page and
+ * the next page starts strictly after it. Listings are ordered by id, which every resource has and never changes,
+ * rather than by created time, which resources stored before its column existed do not have until they are migrated.
+ */
+public class PageToken {
+
+    private static final String VERSION_PREFIX = "r2:";
+    // Tokens of the created time order, whose id part still continues a listing in id order
+    private static final String CREATED_TIME_VERSION_PREFIX = "r1:";
+
+    private final String id;
+
+    private PageToken(String id) {
+        this.id = id;
+    }
+
+    public static String encode(String id) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((VERSION_PREFIX + id).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @return the ordering key to continue after, or null for the first page
+     * @throws IllegalArgumentException if the token was not issued by {@link #encode(String)}
+     */
+    public static PageToken decode(String token) {
+        if (token == null || token.isEmpty()) {
+            return null;
+        }
+        String decoded = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+        if (decoded.startsWith(VERSION_PREFIX)) {
+            return new PageToken(decoded.substring(VERSION_PREFIX.length()));
+        }
+        int separator = decoded.indexOf(':', CREATED_TIME_VERSION_PREFIX.length());
+        if (!decoded.startsWith(CREATED_TIME_VERSION_PREFIX) || separator < 0) {
+            throw new IllegalArgumentException("Invalid page token " + token);
+        }
+        return new PageToken(decoded.substring(separator + 1));
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * @return whether the resource of the given id comes after this one
+     */
+    public boolean precedes(String id) {
+        return id.compareTo(this.id) > 0;
+    }
+}